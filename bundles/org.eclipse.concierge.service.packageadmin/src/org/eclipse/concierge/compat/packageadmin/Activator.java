@@ -20,11 +20,16 @@ import org.osgi.service.packageadmin.PackageAdmin;
 @SuppressWarnings("deprecation")
 public class Activator implements BundleActivator {
 
+	private PackageIndex index;
+
 	/**
 	 * @see org.osgi.framework.BundleActivator#start(org.osgi.framework.BundleContext)
 	 */
 	public void start(final BundleContext context) throws Exception {
-		final PackageAdmin packageAdmin = new PackageAdminImpl(context);
+		index = new PackageIndex(context);
+		context.addBundleListener(index);
+		context.addFrameworkListener(index);
+		final PackageAdmin packageAdmin = new PackageAdminImpl(context, index);
 		context.registerService(PackageAdmin.class, packageAdmin, null);
 	}
 
@@ -32,7 +37,9 @@ public class Activator implements BundleActivator {
 	 * @see org.osgi.framework.BundleActivator#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(final BundleContext context) throws Exception {
-
+		context.removeFrameworkListener(index);
+		context.removeBundleListener(index);
+		index = null;
 	}
 
 }
@@ -45,8 +45,11 @@ final class PackageAdminImpl implements PackageAdmin {
 
 	private final BundleContext context;
 
-	PackageAdminImpl(final BundleContext context) {
+	private final PackageIndex index;
+
+	PackageAdminImpl(final BundleContext context, final PackageIndex index) {
 		this.context = context;
+		this.index = index;
 	}
 
 	/**
@@ -70,15 +73,19 @@ final class PackageAdminImpl implements PackageAdmin {
 	 * @see org.osgi.service.packageadmin.PackageAdmin#getExportedPackages(java.lang.String)
 	 */
 	public ExportedPackage[] getExportedPackages(final String name) {
-		final Bundle[] bundles = context.getBundles();
+		return toArrayOrNull(getIndexedPackages(name), ExportedPackage.class);
+	}
 
-		final ArrayList<ExportedPackage> result = new ArrayList<ExportedPackage>();
+	private ArrayList<ExportedPackage> getIndexedPackages(final String name) {
+		final List<BundleCapability> caps = index.getExportedPackages(name);
 
-		for (final Bundle bundle : bundles) {
-			getExportedPackages0(bundle, name, result);
+		final ArrayList<ExportedPackage> result = new ArrayList<ExportedPackage>(caps.size());
+
+		for (final BundleCapability cap : caps) {
+			result.add(new ExportedPackageImpl(cap));
 		}
 
-		return toArrayOrNull(result, ExportedPackage.class);
+		return result;
 	}
 
 	private void getExportedPackages0(final Bundle bundle, final String name, final ArrayList<ExportedPackage> result) {
@@ -179,13 +186,7 @@ final class PackageAdminImpl implements PackageAdmin {
 	 * @see org.osgi.service.packageadmin.PackageAdmin#getExportedPackage(java.lang.String)
 	 */
 	public ExportedPackage getExportedPackage(final String name) {
-		final Bundle[] bundles = context.getBundles();
-
-		final ArrayList<ExportedPackage> result = new ArrayList<ExportedPackage>();
-
-		for (final Bundle bundle : bundles) {
-			getExportedPackages0(bundle, name, result);
-		}
+		final ArrayList<ExportedPackage> result = getIndexedPackages(name);
 
 		if (result.isEmpty()) {
 			return null;
@@ -193,11 +194,6 @@ final class PackageAdminImpl implements PackageAdmin {
 
 		Collections.sort(result, EXPORT_ORDER);
 
-		System.err.println("MY ORDER IS " + result);
-		for (final ExportedPackage p : result) {
-			System.err.println(p + " exporter " + p.getExportingBundle());
-		}
-
 		return result.get(0);
 	}
 
@@ -227,7 +223,8 @@ final class PackageAdminImpl implements PackageAdmin {
 	 * @see org.osgi.service.packageadmin.PackageAdmin#getRequiredBundles(java.lang.String)
 	 */
 	public RequiredBundle[] getRequiredBundles(final String symbolicName) {
-		final Bundle[] bundles = context.getBundles();
+		final Bundle[] bundles = symbolicName == null ? context.getBundles()
+				: index.getBundles(symbolicName).toArray(new Bundle[0]);
 
 		final ArrayList<RequiredBundle> result = new ArrayList<RequiredBundle>();
 
@@ -272,14 +269,11 @@ final class PackageAdminImpl implements PackageAdmin {
 
 		final VersionRange range = versionRange == null ? null : new VersionRange(versionRange);
 
-		final Bundle[] bundles = context.getBundles();
 		final ArrayList<Bundle> result = new ArrayList<Bundle>();
 
-		for (final Bundle bundle : bundles) {
-			if (symbolicName.equals(bundle.getSymbolicName())) {
-				if (range == null || range.includes(bundle.getVersion())) {
-					result.add(bundle);
-				}
+		for (final Bundle bundle : index.getBundles(symbolicName)) {
+			if (range == null || range.includes(bundle.getVersion())) {
+				result.add(bundle);
 			}
 		}
 
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge.compat.packageadmin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleRevisions;
+import org.osgi.framework.wiring.BundleWiring;
+
+/**
+ * Index of the exported packages of all in-use wirings by package name, and
+ * of the installed bundles by symbolic name. Bundle events only mark the
+ * bundle as changed, the entries of changed bundles are recomputed with the
+ * next query. A refresh invalidates the whole index.
+ */
+final class PackageIndex implements SynchronousBundleListener,
+		FrameworkListener {
+
+	private final BundleContext									context;
+
+	private final Map<String, List<BundleCapability>>			packages	= new HashMap<String, List<BundleCapability>>();
+
+	private final Map<String, List<Bundle>>						bundles		= new HashMap<String, List<Bundle>>();
+
+	private final Map<Bundle, List<BundleCapability>>			exports		= new HashMap<Bundle, List<BundleCapability>>();
+
+	private final Map<Bundle, String>							names		= new HashMap<Bundle, String>();
+
+	// changed and stale are guarded by changed, which is never held while
+	// calling into the framework
+	private final Set<Bundle>									changed		= new LinkedHashSet<Bundle>();
+
+	private boolean												stale		= true;
+
+	PackageIndex(final BundleContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * @see org.osgi.framework.BundleListener#bundleChanged(org.osgi.framework.BundleEvent)
+	 */
+	public void bundleChanged(final BundleEvent event) {
+		synchronized (changed) {
+			changed.add(event.getBundle());
+		}
+	}
+
+	/**
+	 * @see org.osgi.framework.FrameworkListener#frameworkEvent(org.osgi.framework.FrameworkEvent)
+	 */
+	public void frameworkEvent(final FrameworkEvent event) {
+		if (event.getType() == FrameworkEvent.PACKAGES_REFRESHED) {
+			synchronized (changed) {
+				changed.clear();
+				stale = true;
+			}
+		}
+	}
+
+	/**
+	 * get the exported packages of the in-use wirings.
+	 * 
+	 * @param name the package name or <code>null</code> for all packages.
+	 * @return the package capabilities, never <code>null</code>.
+	 */
+	synchronized List<BundleCapability> getExportedPackages(final String name) {
+		update();
+
+		if (name != null) {
+			final List<BundleCapability> caps = packages.get(name);
+			return caps == null ? Collections.<BundleCapability> emptyList()
+					: new ArrayList<BundleCapability>(caps);
+		}
+
+		final List<BundleCapability> result = new ArrayList<BundleCapability>();
+		for (final List<BundleCapability> caps : packages.values()) {
+			result.addAll(caps);
+		}
+		return result;
+	}
+
+	/**
+	 * get the installed bundles with a symbolic name.
+	 * 
+	 * @param symbolicName the symbolic name.
+	 * @return the bundles, never <code>null</code>.
+	 */
+	synchronized List<Bundle> getBundles(final String symbolicName) {
+		update();
+
+		final List<Bundle> list = bundles.get(symbolicName);
+		return list == null ? Collections.<Bundle> emptyList()
+				: new ArrayList<Bundle>(list);
+	}
+
+	private void update() {
+		final boolean rebuild;
+		final Bundle[] dirty;
+		synchronized (changed) {
+			rebuild = stale;
+			stale = false;
+			dirty = changed.toArray(new Bundle[changed.size()]);
+			changed.clear();
+		}
+
+		if (rebuild) {
+			packages.clear();
+			bundles.clear();
+			exports.clear();
+			names.clear();
+			for (final Bundle bundle : context.getBundles()) {
+				index(bundle);
+			}
+			return;
+		}
+
+		for (int i = 0; i < dirty.length; i++) {
+			unindex(dirty[i]);
+			index(dirty[i]);
+		}
+	}
+
+	private void index(final Bundle bundle) {
+		// the exports of an uninstalled bundle stay in the index as long as
+		// its wiring is in use, the bundle itself is not found by name
+		final String symbolicName = bundle.getSymbolicName();
+		if (symbolicName != null && bundle.getState() != Bundle.UNINSTALLED) {
+			names.put(bundle, symbolicName);
+			add(bundles, symbolicName, bundle);
+		}
+
+		final BundleRevisions revisions = bundle.adapt(BundleRevisions.class);
+		if (revisions == null) {
+			return;
+		}
+
+		final List<BundleCapability> exported = new ArrayList<BundleCapability>();
+		for (final BundleRevision rev : revisions.getRevisions()) {
+			final BundleWiring wiring = rev.getWiring();
+			if (wiring != null && wiring.isInUse()) {
+				for (final BundleCapability cap : wiring
+						.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE)) {
+					exported.add(cap);
+					add(packages, (String) cap.getAttributes().get(
+							PackageNamespace.PACKAGE_NAMESPACE), cap);
+				}
+			}
+		}
+		if (!exported.isEmpty()) {
+			exports.put(bundle, exported);
+		}
+	}
+
+	private void unindex(final Bundle bundle) {
+		final String symbolicName = names.remove(bundle);
+		if (symbolicName != null) {
+			remove(bundles, symbolicName, bundle);
+		}
+
+		final List<BundleCapability> exported = exports.remove(bundle);
+		if (exported != null) {
+			for (final BundleCapability cap : exported) {
+				remove(packages, (String) cap.getAttributes().get(
+						PackageNamespace.PACKAGE_NAMESPACE), cap);
+			}
+		}
+	}
+
+	private static <V> void add(final Map<String, List<V>> index,
+			final String key, final V value) {
+		List<V> list = index.get(key);
+		if (list == null) {
+			list = new ArrayList<V>(1);
+			index.put(key, list);
+		}
+		list.add(value);
+	}
+
+	private static <V> void remove(final Map<String, List<V>> index,
+			final String key, final V value) {
+		final List<V> list = index.get(key);
+		if (list != null) {
+			list.remove(value);
+			if (list.isEmpty()) {
+				index.remove(key);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge.compat.packageadmin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.eclipse.concierge.Factory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Tests that the package index follows installs, resolves, updates,
+ * uninstalls, and refreshes.
+ */
+public class PackageIndexTest {
+
+	private Framework		framework;
+
+	private BundleContext	context;
+
+	private PackageIndex	index;
+
+	@Before
+	public void setUp() throws Exception {
+		final Map<String, String> launchArgs = new HashMap<String, String>();
+		launchArgs.put("org.osgi.framework.storage.clean", "onFirstInit");
+		framework = new Factory().newFramework(launchArgs);
+		framework.init();
+		framework.start();
+		context = framework.getBundleContext();
+
+		index = new PackageIndex(context);
+		context.addBundleListener(index);
+		context.addFrameworkListener(index);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		framework.stop();
+		framework.waitForStop(10000);
+	}
+
+	private static InputStream createBundle(final String... headers)
+			throws Exception {
+		final Manifest mf = new Manifest();
+		final Attributes attrs = mf.getMainAttributes();
+		attrs.putValue("Manifest-Version", "1.0");
+		attrs.putValue("Bundle-ManifestVersion", "2");
+		for (int i = 0; i < headers.length; i += 2) {
+			attrs.putValue(headers[i], headers[i + 1]);
+		}
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JarOutputStream(out, mf).close();
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+
+	private Bundle install(final String location, final String... headers)
+			throws Exception {
+		return context.installBundle(location, createBundle(headers));
+	}
+
+	private void resolve(final Bundle... bundles) {
+		Assert.assertTrue(framework.adapt(FrameworkWiring.class)
+				.resolveBundles(Arrays.asList(bundles)));
+	}
+
+	private void refresh(final Bundle... bundles) throws Exception {
+		final CountDownLatch refreshed = new CountDownLatch(1);
+		framework.adapt(FrameworkWiring.class).refreshBundles(
+				Arrays.asList(bundles), new FrameworkListener() {
+					public void frameworkEvent(final FrameworkEvent event) {
+						if (event.getType() == FrameworkEvent.PACKAGES_REFRESHED) {
+							refreshed.countDown();
+						}
+					}
+				});
+		Assert.assertTrue(refreshed.await(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * the exporters of a package as bundle id and version, sorted.
+	 */
+	private List<String> exporters(final String pkg) {
+		final List<String> result = new ArrayList<String>();
+		for (final BundleCapability cap : index.getExportedPackages(pkg)) {
+			Assert.assertEquals(pkg, cap.getAttributes().get(
+					PackageNamespace.PACKAGE_NAMESPACE));
+			result.add(cap.getRevision().getBundle().getBundleId() + "@"
+					+ cap.getAttributes().get(
+							PackageNamespace.CAPABILITY_VERSION_ATTRIBUTE));
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static List<String> list(final String... entries) {
+		return Arrays.asList(entries);
+	}
+
+	@Test
+	public void testInstallAndResolve() throws Exception {
+		final Bundle provider = install("provider", "Bundle-SymbolicName",
+				"provider", "Export-Package", "p1;version=1.0");
+
+		Assert.assertEquals(list(), exporters("p1"));
+		Assert.assertEquals(Collections.singletonList(provider),
+				index.getBundles("provider"));
+
+		resolve(provider);
+
+		Assert.assertEquals(list(provider.getBundleId() + "@1.0.0"),
+				exporters("p1"));
+		Assert.assertEquals(list(), exporters("p2"));
+		Assert.assertTrue(index.getExportedPackages(null).size() >= 1);
+	}
+
+	@Test
+	public void testUpdateKeepsInUseExports() throws Exception {
+		final Bundle provider = install("provider", "Bundle-SymbolicName",
+				"provider", "Export-Package", "p1;version=1.0");
+		final Bundle consumer = install("consumer", "Bundle-SymbolicName",
+				"consumer", "Import-Package", "p1");
+		resolve(provider, consumer);
+		final String id = String.valueOf(provider.getBundleId());
+
+		provider.update(createBundle("Bundle-SymbolicName", "provider2",
+				"Export-Package", "p1;version=2.0,p2"));
+
+		Assert.assertEquals(list(), index.getBundles("provider"));
+		Assert.assertEquals(Collections.singletonList(provider),
+				index.getBundles("provider2"));
+
+		resolve(provider);
+
+		// the old revision is still wired to the consumer
+		Assert.assertEquals(list(id + "@1.0.0", id + "@2.0.0"),
+				exporters("p1"));
+		Assert.assertEquals(list(id + "@0.0.0"), exporters("p2"));
+
+		refresh(provider);
+		resolve(provider);
+
+		Assert.assertEquals(list(id + "@2.0.0"), exporters("p1"));
+		Assert.assertEquals(list(id + "@0.0.0"), exporters("p2"));
+	}
+
+	@Test
+	public void testUninstallAndRefresh() throws Exception {
+		final Bundle provider = install("provider", "Bundle-SymbolicName",
+				"provider", "Export-Package", "p1");
+		final Bundle consumer = install("consumer", "Bundle-SymbolicName",
+				"consumer", "Import-Package", "p1");
+		resolve(provider, consumer);
+		final String id = String.valueOf(provider.getBundleId());
+
+		provider.uninstall();
+
+		// the exports stay until the refresh, the bundle is gone
+		Assert.assertEquals(list(id + "@0.0.0"), exporters("p1"));
+		Assert.assertEquals(list(), index.getBundles("provider"));
+		Assert.assertEquals(Collections.singletonList(consumer),
+				index.getBundles("consumer"));
+
+		refresh(provider);
+
+		Assert.assertEquals(list(), exporters("p1"));
+		Assert.assertEquals(list(), index.getBundles("provider"));
+		Assert.assertEquals(Collections.singletonList(consumer),
+				index.getBundles("consumer"));
+
+		// a new exporter is found again
+		final Bundle other = install("other", "Bundle-SymbolicName", "other",
+				"Export-Package", "p1");
+		resolve(other, consumer);
+		Assert.assertEquals(list(other.getBundleId() + "@0.0.0"),
+				exporters("p1"));
+	}
+
+}
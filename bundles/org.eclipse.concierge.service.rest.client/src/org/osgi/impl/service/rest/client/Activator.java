@@ -21,22 +21,74 @@ import org.osgi.service.rest.client.RestClientFactory;
 
 public class Activator implements BundleActivator {
 
+	/**
+	 * if set to true, the registered factories create clients that share one
+	 * pooled connector.
+	 */
+	public static final String	POOLED_PROPERTY						= "org.osgi.impl.service.rest.client.pooled";
+
+	/**
+	 * keep pooled connections open between requests, defaults to true.
+	 */
+	public static final String	KEEP_ALIVE_PROPERTY					= "org.osgi.impl.service.rest.client.keepAlive";
+
+	/**
+	 * the maximum number of pooled connections to a single framework, defaults
+	 * to 10.
+	 */
+	public static final String	MAX_CONNECTIONS_PER_HOST_PROPERTY	= "org.osgi.impl.service.rest.client.maxConnectionsPerHost";
+
+	/**
+	 * the maximum number of pooled connections, defaults to no limit.
+	 */
+	public static final String	MAX_TOTAL_CONNECTIONS_PROPERTY		= "org.osgi.impl.service.rest.client.maxTotalConnections";
+
+	private ClientConnector		connector;
+
 	/**
 	 * Bundle activator for the REST client RI
 	 * 
 	 * @author Jan S. Rellermeyer, IBM Research
 	 */
 	public void start(final BundleContext context) throws Exception {
+		if (Boolean.valueOf(context.getProperty(POOLED_PROPERTY)).booleanValue()) {
+			final String keepAlive = context.getProperty(KEEP_ALIVE_PROPERTY);
+			connector = new ClientConnector(keepAlive == null
+					|| Boolean.valueOf(keepAlive).booleanValue(),
+					getIntProperty(context, MAX_CONNECTIONS_PER_HOST_PROPERTY, 10),
+					getIntProperty(context, MAX_TOTAL_CONNECTIONS_PROPERTY, -1));
+		}
+
+		final String[] ifaces = new String[] {
+				RestClientFactory.class.getName(),
+				ExecutorRestClientFactory.class.getName() };
+
 		final Hashtable<String, Object> props = new Hashtable<String, Object>();
 		props.put(RestClientFactoryImpl.MSG_FORMAT, RestClientFactoryImpl.MSG_FORMAT_JSON);
-		context.registerService(RestClientFactory.class, new RestClientFactoryImpl(false), props);
+		context.registerService(ifaces, new RestClientFactoryImpl(false, connector), props);
 
 		props.put(RestClientFactoryImpl.MSG_FORMAT, RestClientFactoryImpl.MSG_FORMAT_XML);
-		context.registerService(RestClientFactory.class, new RestClientFactoryImpl(true), props);
+		context.registerService(ifaces, new RestClientFactoryImpl(true, connector), props);
 	}
 
 	public void stop(final BundleContext context) throws Exception {
-		// nop
+		if (connector != null) {
+			connector.stop();
+			connector = null;
+		}
+	}
+
+	private static int getIntProperty(final BundleContext context,
+			final String key, final int defaultValue) {
+		final String value = context.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (final NumberFormatException nfe) {
+			return defaultValue;
+		}
 	}
 
 }
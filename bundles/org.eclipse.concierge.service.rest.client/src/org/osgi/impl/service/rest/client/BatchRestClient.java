@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.client;
+
+import org.osgi.service.rest.client.RestClient;
+
+/**
+ * REST client that can send several bundle operations in one request.
+ */
+public interface BatchRestClient extends RestClient {
+
+	/**
+	 * create a new, empty batch of bundle operations for the remote
+	 * framework.
+	 * 
+	 * @return the batch.
+	 */
+	RestBatch createBatch();
+
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.client;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The result of a single operation of a {@link RestBatch}.
+ */
+public final class BatchResult {
+
+	private final int		status;
+	private final long		bundleId;
+	private final int		state;
+	private final int		typecode;
+	private final String	message;
+
+	BatchResult(final JSONObject obj) throws JSONException {
+		status = obj.getInt("status");
+		if (obj.has("bundle")) {
+			final String path = obj.getString("bundle");
+			bundleId = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+		} else {
+			bundleId = -1;
+		}
+		state = obj.has("state") ? obj.getInt("state") : 0;
+		typecode = obj.has("typecode") ? obj.getInt("typecode") : -1;
+		message = obj.has("message") ? obj.getString("message") : null;
+	}
+
+	/**
+	 * @return true if the operation succeeded.
+	 */
+	public boolean isSuccess() {
+		return status >= 200 && status < 300;
+	}
+
+	/**
+	 * @return the HTTP status code of the operation.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the id of the bundle the operation was applied to, or -1 if the
+	 *         operation failed.
+	 */
+	public long getBundleId() {
+		return bundleId;
+	}
+
+	/**
+	 * @return the state of the bundle after the operation, or 0 if the
+	 *         operation failed.
+	 */
+	public int getState() {
+		return state;
+	}
+
+	/**
+	 * @return the type of the BundleException if the operation failed with
+	 *         one, -1 otherwise.
+	 */
+	public int getTypecode() {
+		return typecode;
+	}
+
+	/**
+	 * @return the error message, or <code>null</code> if the operation
+	 *         succeeded.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess() ? "[" + status + "] bundle " + bundleId + " state "
+				+ state : "[" + status + "] " + message;
+	}
+
+}
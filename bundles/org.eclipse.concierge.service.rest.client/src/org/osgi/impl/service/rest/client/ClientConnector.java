@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+
+package org.osgi.impl.service.rest.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.data.Protocol;
+
+/**
+ * A shared HTTP client connector. Rest clients created by a factory that uses
+ * a connector send all requests through it instead of looking up a new
+ * connector for every request, so that connections to the same framework
+ * are kept alive and reused. The parameters are those of the internal HTTP
+ * client connector of Restlet, whose <code>BaseHelper</code> honors
+ * <code>persistingConnections</code>, <code>maxConnectionsPerHost</code>, and
+ * <code>maxTotalConnections</code>. Other client connectors, like the one of
+ * the Apache HTTP client extension, have parameters of their own and ignore
+ * these.
+ */
+public final class ClientConnector {
+
+	private static final String	PERSISTING_CONNECTIONS		= "persistingConnections";
+
+	private static final String	MAX_CONNECTIONS_PER_HOST	= "maxConnectionsPerHost";
+
+	private static final String	MAX_TOTAL_CONNECTIONS		= "maxTotalConnections";
+
+	private final Client		client;
+
+	/**
+	 * create and start a new shared connector.
+	 * 
+	 * @param keepAlive keep connections open between requests.
+	 * @param maxConnectionsPerHost the maximum number of concurrent
+	 *            connections to a single framework, or -1 for no limit.
+	 * @param maxTotalConnections the maximum number of concurrent connections,
+	 *            or -1 for no limit.
+	 * @throws Exception if the connector cannot be started.
+	 */
+	public ClientConnector(final boolean keepAlive,
+			final int maxConnectionsPerHost, final int maxTotalConnections)
+			throws Exception {
+		final Context context = new Context();
+		context.getParameters().add(PERSISTING_CONNECTIONS,
+				Boolean.toString(keepAlive));
+		context.getParameters().add(MAX_CONNECTIONS_PER_HOST,
+				Integer.toString(maxConnectionsPerHost));
+		context.getParameters().add(MAX_TOTAL_CONNECTIONS,
+				Integer.toString(maxTotalConnections));
+
+		final List<Protocol> protocols = new ArrayList<Protocol>(2);
+		protocols.add(Protocol.HTTP);
+		protocols.add(Protocol.HTTPS);
+		client = new Client(context, protocols);
+		client.start();
+	}
+
+	Client getClient() {
+		return client;
+	}
+
+	/**
+	 * stop the connector and close all its connections.
+	 * 
+	 * @throws Exception if the connector cannot be stopped.
+	 */
+	public void stop() throws Exception {
+		client.stop();
+	}
+
+}
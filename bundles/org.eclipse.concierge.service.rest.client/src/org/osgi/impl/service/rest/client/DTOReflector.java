@@ -20,6 +20,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.json.JSONArray;
@@ -45,6 +47,8 @@ public final class DTOReflector {
 	private static final MediaType	XML_BASED	= MediaType.valueOf("application/*+xml");
 	private static final MediaType	JSON_BASED	= MediaType.valueOf("application/*+json");
 
+	private static final ConcurrentMap<Class<?>, Codec>	codecs	= new ConcurrentHashMap<Class<?>, Codec>();
+
 	public static <T extends DTO> T getDTO(final Class<T> clazz,
 			final Representation repr) throws Exception {
 		if (JSON_BASED.includes(repr.getMediaType())) {
@@ -62,7 +66,6 @@ public final class DTOReflector {
 		if (JSON_BASED.includes(repr.getMediaType())) {
 			return getDTOsFromJson(clazz, new JsonRepresentation(repr).getJsonArray());
 		} else if (XML_BASED.includes(repr.getMediaType())) {
-			System.out.println("content: " + repr.getText());
 			return getDTOsFromXml(clazz, new DomRepresentation(repr).getDocument());
 		} else {
 			throw new UnsupportedOperationException(repr.getMediaType().toString());
@@ -100,67 +103,79 @@ public final class DTOReflector {
 	}
 
 	private static <T extends DTO> T getDTOfromJson(final Class<T> clazz, final JSONObject data, final String path) throws Exception {
-		final Field[] fields = clazz.getFields();
+		final Codec codec = getCodec(clazz);
 		final T dto = clazz.newInstance();
-		for (final Field field : fields) {
-			if ("bundle".equals(field.getName())) {
+		for (int i = 0; i < codec.fields.length; i++) {
+			final Field field = codec.fields[i];
+			switch (codec.kinds[i]) {
+			case Codec.BUNDLE:
 				if (data.has("bundle")) {
-					field.set(dto, new Long(getBundleIdFromPath(data.getString("bundle"))));
+					field.setLong(dto, getBundleIdFromPath(data.getString("bundle")));
 				} else {
-					field.set(dto, new Long(getBundleIdFromPath(path)));
+					field.setLong(dto, getBundleIdFromPath(path));
 				}
-			} else if ("usingBundles".equals(field.getName())) {
-				field.set(
-						dto,
-						getBundleIdsFromPaths(data.getJSONArray("usingBundles")));
-			} else if (field.getType().equals(Map.class)) {
-				field.set(dto, getMapfromJsonObject(data.getJSONObject(field.getName())));
-			} else {
-				field.set(dto, data.get(field.getName()));
+				break;
+			case Codec.USING_BUNDLES:
+				field.set(dto, getBundleIdsFromPaths(data.getJSONArray("usingBundles")));
+				break;
+			case Codec.MAP:
+				field.set(dto, getMapfromJsonObject(data.getJSONObject(codec.names[i])));
+				break;
+			default:
+				field.set(dto, data.get(codec.names[i]));
 			}
 		}
 		return dto;
 	}
 
 	private static <T extends DTO> T getDTOfromXml(final Class<T> clazz, final Element elem, final String path) throws Exception {
-		final Field[] fields = clazz.getFields();
+		final Codec codec = getCodec(clazz);
 		final T dto = clazz.newInstance();
 
-		for (final Field field : fields) {
-			if ("bundle".equals(field.getName())) {
-				if (elem.getElementsByTagName("bundle") != null) {
-					field.set(dto, new Long(getBundleIdFromPath(elem.getElementsByTagName("bundle").item(0).getTextContent())));
+		for (int i = 0; i < codec.fields.length; i++) {
+			final Field field = codec.fields[i];
+			final NodeList elems = elem.getElementsByTagName(codec.names[i]);
+			switch (codec.kinds[i]) {
+			case Codec.BUNDLE:
+				if (elems.getLength() > 0) {
+					field.setLong(dto, getBundleIdFromPath(elems.item(0).getTextContent()));
 				} else {
-					field.set(dto, new Long(getBundleIdFromPath(path)));
+					field.setLong(dto, getBundleIdFromPath(path));
 				}
-			} else if ("usingBundles".equals(field.getName())) {
-				final Node node = elem.getElementsByTagName("usingBundles").item(0);
-				final NodeList nodes = node.getChildNodes();
-
+				break;
+			case Codec.USING_BUNDLES:
+				final NodeList nodes = elems.item(0).getChildNodes();
 				if (nodes.getLength() > 0) {
 					final long[] using = new long[nodes.getLength()];
-					for (int i = 0; i < nodes.getLength(); i++) {
-						using[i] = getBundleIdFromPath(nodes.item(i).getTextContent());
-						field.set(dto, using);
+					for (int j = 0; j < nodes.getLength(); j++) {
+						using[j] = getBundleIdFromPath(nodes.item(j).getTextContent());
 					}
+					field.set(dto, using);
 				}
-			} else if ("id".equals(field.getName()) || "lastModified".equals(field.getName())) {
-				field.set(dto, Long.valueOf(elem.getElementsByTagName(field.getName()).item(0).getTextContent()));
-			} else if ("state".equals(field.getName())) {
-				field.set(dto, Integer.valueOf(elem.getElementsByTagName(field.getName()).item(0).getTextContent()));
-			} else if (field.getType().equals(Map.class)) {
+				break;
+			case Codec.MAP:
 				final Node props = elem.getElementsByTagName("properties").item(0);
 
 				final Map<String, Object> properties = new HashMap<String, Object>();
 				final NodeList prop = props.getChildNodes();
-				for (int i = 0; i < prop.getLength(); i++) {
-					propertyFromXml(properties, prop.item(i));
+				for (int j = 0; j < prop.getLength(); j++) {
+					propertyFromXml(properties, prop.item(j));
 				}
 
 				field.set(dto, properties);
-			} else {
+				break;
+			case Codec.LONG:
+				field.setLong(dto, Long.parseLong(elems.item(0).getTextContent()));
+				break;
+			case Codec.INT:
+				field.setInt(dto, Integer.parseInt(elems.item(0).getTextContent()));
+				break;
+			case Codec.BOOLEAN:
+				field.setBoolean(dto, Boolean.valueOf(elems.item(0).getTextContent()).booleanValue());
+				break;
+			default:
 				// default is string
-				field.set(dto, elem.getElementsByTagName(field.getName()).item(0).getTextContent());
+				field.set(dto, elems.item(0).getTextContent());
 			}
 		}
 		return dto;
@@ -308,14 +323,14 @@ public final class DTOReflector {
 	public static <T extends DTO> JSONObject getJson(final Class<T> clazz,
 			final T dto) throws Exception {
 
-		final Field[] fields = clazz.getFields();
+		final Codec codec = getCodec(clazz);
 
 		final JSONObject obj = new JSONObject();
-		for (final Field field : fields) {
-			if (field.getName().equals("bundle")) {
-				obj.put("bundle", getBundlePathFromId((Long) field.get(dto)));
+		for (int i = 0; i < codec.fields.length; i++) {
+			if (codec.kinds[i] == Codec.BUNDLE) {
+				obj.put("bundle", getBundlePathFromId((Long) codec.fields[i].get(dto)));
 			} else {
-				obj.put(field.getName(), field.get(dto));
+				obj.put(codec.names[i], codec.fields[i].get(dto));
 			}
 		}
 
@@ -326,4 +341,64 @@ public final class DTOReflector {
 		return "framework/bundle/" + id.toString();
 	}
 
+	private static Codec getCodec(final Class<?> clazz) {
+		Codec codec = codecs.get(clazz);
+		if (codec == null) {
+			codec = new Codec(clazz);
+			final Codec existing = codecs.putIfAbsent(clazz, codec);
+			if (existing != null) {
+				codec = existing;
+			}
+		}
+		return codec;
+	}
+
+	/**
+	 * The public fields of a DTO class and how each of them is decoded,
+	 * resolved once per class.
+	 */
+	private static final class Codec {
+
+		static final int		OBJECT			= 0;
+		static final int		LONG			= 1;
+		static final int		INT				= 2;
+		static final int		BOOLEAN			= 3;
+		static final int		MAP				= 4;
+		static final int		BUNDLE			= 5;
+		static final int		USING_BUNDLES	= 6;
+
+		final Field[]			fields;
+
+		final String[]			names;
+
+		final int[]				kinds;
+
+		Codec(final Class<?> clazz) {
+			fields = clazz.getFields();
+			names = new String[fields.length];
+			kinds = new int[fields.length];
+			for (int i = 0; i < fields.length; i++) {
+				final String name = fields[i].getName();
+				final Class<?> type = fields[i].getType();
+				names[i] = name;
+				if ("bundle".equals(name)) {
+					kinds[i] = BUNDLE;
+				} else if ("usingBundles".equals(name)) {
+					kinds[i] = USING_BUNDLES;
+				} else if (type == Map.class) {
+					kinds[i] = MAP;
+				} else if (type == long.class) {
+					kinds[i] = LONG;
+				} else if (type == int.class) {
+					kinds[i] = INT;
+				} else if (type == boolean.class) {
+					kinds[i] = BOOLEAN;
+				} else {
+					kinds[i] = OBJECT;
+				}
+			}
+		}
+
+	}
+
 }
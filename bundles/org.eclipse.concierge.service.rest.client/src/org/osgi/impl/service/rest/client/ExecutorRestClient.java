@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+
+package org.osgi.impl.service.rest.client;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.osgi.framework.dto.BundleDTO;
+import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.framework.startlevel.dto.BundleStartLevelDTO;
+import org.osgi.framework.startlevel.dto.FrameworkStartLevelDTO;
+
+/**
+ * REST client whose calls run on an executor. Every method sends the same
+ * request as the {@link org.osgi.service.rest.client.RestClient} method of
+ * the same name and parameters, but submits it to the executor and returns
+ * immediately. The returned future yields the result of the call or throws
+ * an <code>ExecutionException</code> that wraps the exception of the call.
+ * Void methods return a future of <code>null</code>.
+ * <p>
+ * The I/O is not asynchronous: each call occupies a thread of the executor
+ * until its response has been received, so the size of the executor's thread
+ * pool bounds the number of concurrent calls.
+ */
+public interface ExecutorRestClient {
+
+	Future<FrameworkStartLevelDTO> getFrameworkStartLevel();
+
+	Future<Void> setFrameworkStartLevel(FrameworkStartLevelDTO startLevel);
+
+	Future<Collection<String>> getBundlePaths();
+
+	Future<Collection<BundleDTO>> getBundles();
+
+	Future<BundleDTO> getBundle(long id);
+
+	Future<BundleDTO> getBundle(String bundlePath);
+
+	Future<Integer> getBundleState(long id);
+
+	Future<Integer> getBundleState(String bundlePath);
+
+	Future<Void> startBundle(long id);
+
+	Future<Void> startBundle(String bundlePath);
+
+	Future<Void> startBundle(long id, int options);
+
+	Future<Void> startBundle(String bundlePath, int options);
+
+	Future<Void> stopBundle(long id);
+
+	Future<Void> stopBundle(String bundlePath);
+
+	Future<Void> stopBundle(long id, int options);
+
+	Future<Void> stopBundle(String bundlePath, int options);
+
+	Future<Map<String, String>> getBundleHeaders(long id);
+
+	Future<Map<String, String>> getBundleHeaders(String bundlePath);
+
+	Future<BundleStartLevelDTO> getBundleStartLevel(long id);
+
+	Future<BundleStartLevelDTO> getBundleStartLevel(String bundlePath);
+
+	Future<Void> setBundleStartLevel(long id, int startLevel);
+
+	Future<Void> setBundleStartLevel(String bundlePath, int startLevel);
+
+	Future<BundleDTO> installBundle(String location);
+
+	Future<BundleDTO> installBundle(String location, InputStream in);
+
+	Future<BundleDTO> uninstallBundle(long id);
+
+	Future<BundleDTO> uninstallBundle(String bundlePath);
+
+	Future<BundleDTO> updateBundle(long id);
+
+	Future<BundleDTO> updateBundle(long id, String url);
+
+	Future<BundleDTO> updateBundle(long id, InputStream in);
+
+	Future<Collection<String>> getServicePaths();
+
+	Future<Collection<String>> getServicePaths(String filter);
+
+	Future<Collection<ServiceReferenceDTO>> getServiceReferences();
+
+	Future<Collection<ServiceReferenceDTO>> getServiceReferences(String filter);
+
+	Future<ServiceReferenceDTO> getServiceReference(long id);
+
+	Future<ServiceReferenceDTO> getServiceReference(String servicePath);
+
+	/**
+	 * create a new, empty batch of bundle operations for the remote
+	 * framework. This method does not send a request.
+	 * 
+	 * @return the batch.
+	 */
+	RestBatch createBatch();
+
+	/**
+	 * send a batch to the remote framework.
+	 * 
+	 * @param batch the batch, created by this client.
+	 * @return the future results, in the order of the operations.
+	 */
+	Future<List<BatchResult>> execute(RestBatch batch);
+
+}
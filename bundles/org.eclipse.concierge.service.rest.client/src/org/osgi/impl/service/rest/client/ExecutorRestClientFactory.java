@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+
+package org.osgi.impl.service.rest.client;
+
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+
+import org.osgi.service.rest.client.RestClientFactory;
+
+/**
+ * REST client factory that can also create clients whose calls run on an
+ * executor. The factories of this bundle are registered under this interface
+ * as well as under {@link RestClientFactory}.
+ */
+public interface ExecutorRestClientFactory extends RestClientFactory {
+
+	/**
+	 * create a rest client whose calls run on the given executor. Every call
+	 * occupies a thread of the executor until its response has been
+	 * received, clients for different frameworks can share one executor.
+	 * 
+	 * @param uri the URI of the remote framework.
+	 * @param executor the executor to run the calls on.
+	 * @return the client.
+	 */
+	ExecutorRestClient createExecutorRestClient(URI uri,
+			ExecutorService executor);
+
+}
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+
+package org.osgi.impl.service.rest.client;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.osgi.framework.dto.BundleDTO;
+import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.framework.startlevel.dto.BundleStartLevelDTO;
+import org.osgi.framework.startlevel.dto.FrameworkStartLevelDTO;
+
+/**
+ * Rest client that submits the calls of a blocking client to an executor.
+ */
+final class ExecutorRestClientImpl implements ExecutorRestClient {
+
+	private final BatchRestClient	client;
+
+	private final ExecutorService	executor;
+
+	ExecutorRestClientImpl(final BatchRestClient client,
+			final ExecutorService executor) {
+		this.client = client;
+		this.executor = executor;
+	}
+
+	public Future<FrameworkStartLevelDTO> getFrameworkStartLevel() {
+		return executor.submit(new Callable<FrameworkStartLevelDTO>() {
+			public FrameworkStartLevelDTO call() throws Exception {
+				return client.getFrameworkStartLevel();
+			}
+		});
+	}
+
+	public Future<Void> setFrameworkStartLevel(final FrameworkStartLevelDTO startLevel) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.setFrameworkStartLevel(startLevel);
+				return null;
+			}
+		});
+	}
+
+	public Future<Collection<String>> getBundlePaths() {
+		return executor.submit(new Callable<Collection<String>>() {
+			public Collection<String> call() throws Exception {
+				return client.getBundlePaths();
+			}
+		});
+	}
+
+	public Future<Collection<BundleDTO>> getBundles() {
+		return executor.submit(new Callable<Collection<BundleDTO>>() {
+			public Collection<BundleDTO> call() throws Exception {
+				return client.getBundles();
+			}
+		});
+	}
+
+	public Future<BundleDTO> getBundle(final long id) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.getBundle(id);
+			}
+		});
+	}
+
+	public Future<BundleDTO> getBundle(final String bundlePath) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.getBundle(bundlePath);
+			}
+		});
+	}
+
+	public Future<Integer> getBundleState(final long id) {
+		return executor.submit(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				return Integer.valueOf(client.getBundleState(id));
+			}
+		});
+	}
+
+	public Future<Integer> getBundleState(final String bundlePath) {
+		return executor.submit(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				return Integer.valueOf(client.getBundleState(bundlePath));
+			}
+		});
+	}
+
+	public Future<Void> startBundle(final long id) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.startBundle(id);
+				return null;
+			}
+		});
+	}
+
+	public Future<Void> startBundle(final String bundlePath) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.startBundle(bundlePath);
+				return null;
+			}
+		});
+	}
+
+	public Future<Void> startBundle(final long id, final int options) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.startBundle(id, options);
+				return null;
+			}
+		});
+	}
+
+	public Future<Void> startBundle(final String bundlePath, final int options) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.startBundle(bundlePath, options);
+				return null;
+			}
+		});
+	}
+
+	public Future<Void> stopBundle(final long id) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.stopBundle(id);
+				return null;
+			}
+		});
+	}
+
+	public Future<Void> stopBundle(final String bundlePath) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.stopBundle(bundlePath);
+				return null;
+			}
+		});
+	}
+
+	public Future<Void> stopBundle(final long id, final int options) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.stopBundle(id, options);
+				return null;
+			}
+		});
+	}
+
+	public Future<Void> stopBundle(final String bundlePath, final int options) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.stopBundle(bundlePath, options);
+				return null;
+			}
+		});
+	}
+
+	public Future<Map<String, String>> getBundleHeaders(final long id) {
+		return executor.submit(new Callable<Map<String, String>>() {
+			public Map<String, String> call() throws Exception {
+				return client.getBundleHeaders(id);
+			}
+		});
+	}
+
+	public Future<Map<String, String>> getBundleHeaders(final String bundlePath) {
+		return executor.submit(new Callable<Map<String, String>>() {
+			public Map<String, String> call() throws Exception {
+				return client.getBundleHeaders(bundlePath);
+			}
+		});
+	}
+
+	public Future<BundleStartLevelDTO> getBundleStartLevel(final long id) {
+		return executor.submit(new Callable<BundleStartLevelDTO>() {
+			public BundleStartLevelDTO call() throws Exception {
+				return client.getBundleStartLevel(id);
+			}
+		});
+	}
+
+	public Future<BundleStartLevelDTO> getBundleStartLevel(final String bundlePath) {
+		return executor.submit(new Callable<BundleStartLevelDTO>() {
+			public BundleStartLevelDTO call() throws Exception {
+				return client.getBundleStartLevel(bundlePath);
+			}
+		});
+	}
+
+	public Future<Void> setBundleStartLevel(final long id, final int startLevel) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.setBundleStartLevel(id, startLevel);
+				return null;
+			}
+		});
+	}
+
+	public Future<Void> setBundleStartLevel(final String bundlePath, final int startLevel) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				client.setBundleStartLevel(bundlePath, startLevel);
+				return null;
+			}
+		});
+	}
+
+	public Future<BundleDTO> installBundle(final String location) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.installBundle(location);
+			}
+		});
+	}
+
+	public Future<BundleDTO> installBundle(final String location, final InputStream in) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.installBundle(location, in);
+			}
+		});
+	}
+
+	public Future<BundleDTO> uninstallBundle(final long id) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.uninstallBundle(id);
+			}
+		});
+	}
+
+	public Future<BundleDTO> uninstallBundle(final String bundlePath) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.uninstallBundle(bundlePath);
+			}
+		});
+	}
+
+	public Future<BundleDTO> updateBundle(final long id) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.updateBundle(id);
+			}
+		});
+	}
+
+	public Future<BundleDTO> updateBundle(final long id, final String url) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.updateBundle(id, url);
+			}
+		});
+	}
+
+	public Future<BundleDTO> updateBundle(final long id, final InputStream in) {
+		return executor.submit(new Callable<BundleDTO>() {
+			public BundleDTO call() throws Exception {
+				return client.updateBundle(id, in);
+			}
+		});
+	}
+
+	public Future<Collection<String>> getServicePaths() {
+		return executor.submit(new Callable<Collection<String>>() {
+			public Collection<String> call() throws Exception {
+				return client.getServicePaths();
+			}
+		});
+	}
+
+	public Future<Collection<String>> getServicePaths(final String filter) {
+		return executor.submit(new Callable<Collection<String>>() {
+			public Collection<String> call() throws Exception {
+				return client.getServicePaths(filter);
+			}
+		});
+	}
+
+	public Future<Collection<ServiceReferenceDTO>> getServiceReferences() {
+		return executor.submit(new Callable<Collection<ServiceReferenceDTO>>() {
+			public Collection<ServiceReferenceDTO> call() throws Exception {
+				return client.getServiceReferences();
+			}
+		});
+	}
+
+	public Future<Collection<ServiceReferenceDTO>> getServiceReferences(final String filter) {
+		return executor.submit(new Callable<Collection<ServiceReferenceDTO>>() {
+			public Collection<ServiceReferenceDTO> call() throws Exception {
+				return client.getServiceReferences(filter);
+			}
+		});
+	}
+
+	public Future<ServiceReferenceDTO> getServiceReference(final long id) {
+		return executor.submit(new Callable<ServiceReferenceDTO>() {
+			public ServiceReferenceDTO call() throws Exception {
+				return client.getServiceReference(id);
+			}
+		});
+	}
+
+	public Future<ServiceReferenceDTO> getServiceReference(final String servicePath) {
+		return executor.submit(new Callable<ServiceReferenceDTO>() {
+			public ServiceReferenceDTO call() throws Exception {
+				return client.getServiceReference(servicePath);
+			}
+		});
+	}
+
+	public RestBatch createBatch() {
+		return client.createBatch();
+	}
+
+	public Future<List<BatchResult>> execute(final RestBatch batch) {
+		return executor.submit(new Callable<List<BatchResult>>() {
+			public List<BatchResult> call() throws Exception {
+				return batch.execute();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.ext.json.JsonRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.resource.ClientResource;
+
+/**
+ * An ordered batch of bundle operations, executed by the remote framework in
+ * a single round trip. Bundles are referenced either by id or by location,
+ * the latter allows to refer to a bundle that is installed earlier in the
+ * same batch. A failed operation does not abort the batch, every operation
+ * has its own result.
+ */
+public final class RestBatch {
+
+	private static final MediaType	BATCH	= new MediaType("application/org.osgi.batch+json");
+
+	private final RestClientImpl	client;
+
+	private final URI				uri;
+
+	private final JSONArray			ops		= new JSONArray();
+
+	RestBatch(final RestClientImpl client, final URI uri) {
+		this.client = client;
+		this.uri = uri;
+	}
+
+	public RestBatch install(final String location) throws JSONException {
+		return add(op("install").put("location", location));
+	}
+
+	public RestBatch start(final long id, final int options)
+			throws JSONException {
+		return add(op("start", id).put("options", options));
+	}
+
+	public RestBatch start(final String location, final int options)
+			throws JSONException {
+		return add(op("start", location).put("options", options));
+	}
+
+	public RestBatch stop(final long id, final int options)
+			throws JSONException {
+		return add(op("stop", id).put("options", options));
+	}
+
+	public RestBatch stop(final String location, final int options)
+			throws JSONException {
+		return add(op("stop", location).put("options", options));
+	}
+
+	/**
+	 * update a bundle.
+	 * 
+	 * @param id the bundle id.
+	 * @param url the URL to update from, or <code>null</code> to update from
+	 *            the bundle location.
+	 * @return this batch.
+	 * @throws JSONException if the operation cannot be encoded.
+	 */
+	public RestBatch update(final long id, final String url)
+			throws JSONException {
+		final JSONObject op = op("update", id);
+		if (url != null) {
+			op.put("url", url);
+		}
+		return add(op);
+	}
+
+	public RestBatch uninstall(final long id) throws JSONException {
+		return add(op("uninstall", id));
+	}
+
+	public RestBatch setStartLevel(final long id, final int startLevel)
+			throws JSONException {
+		return add(op("startlevel", id).put("startLevel", startLevel));
+	}
+
+	public RestBatch setStartLevel(final String location,
+			final int startLevel) throws JSONException {
+		return add(op("startlevel", location).put("startLevel", startLevel));
+	}
+
+	public RestBatch getState(final long id) throws JSONException {
+		return add(op("state", id));
+	}
+
+	public RestBatch getState(final String location) throws JSONException {
+		return add(op("state", location));
+	}
+
+	/**
+	 * @return the number of operations in this batch.
+	 */
+	public int size() {
+		return ops.length();
+	}
+
+	/**
+	 * send the batch to the remote framework.
+	 * 
+	 * @return the results, in the order of the operations.
+	 * @throws Exception if the request failed as a whole.
+	 */
+	public List<BatchResult> execute() throws Exception {
+		final ClientResource res = client.resource(Method.POST, uri);
+		final JSONArray array;
+		try {
+			final Representation repr = res.post(new JsonRepresentation(
+					ops.toString()), BATCH);
+			array = new JsonRepresentation(repr).getJsonArray();
+		} finally {
+			RestClientImpl.release(res);
+		}
+		final List<BatchResult> results = new ArrayList<BatchResult>(
+				array.length());
+		for (int i = 0; i < array.length(); i++) {
+			results.add(new BatchResult(array.getJSONObject(i)));
+		}
+		return results;
+	}
+
+	private RestBatch add(final JSONObject op) {
+		ops.put(op);
+		return this;
+	}
+
+	private static JSONObject op(final String type) throws JSONException {
+		final JSONObject op = new JSONObject();
+		op.put("op", type);
+		return op;
+	}
+
+	private static JSONObject op(final String type, final long id)
+			throws JSONException {
+		return op(type).put("id", id);
+	}
+
+	private static JSONObject op(final String type, final String location)
+			throws JSONException {
+		return op(type).put("location", location);
+	}
+
+}
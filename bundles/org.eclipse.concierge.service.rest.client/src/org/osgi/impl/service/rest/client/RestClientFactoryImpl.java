@@ -15,15 +15,17 @@
 package org.osgi.impl.service.rest.client;
 
 import java.net.URI;
+import java.util.concurrent.ExecutorService;
+
 import org.osgi.service.rest.client.RestClient;
-import org.osgi.service.rest.client.RestClientFactory;
+import org.restlet.Client;
 
 /**
  * Simple implementation of a REST client factory.
  * 
  * @author Jan S. Rellermeyer, IBM Research
  */
-public class RestClientFactoryImpl implements RestClientFactory {
+public class RestClientFactoryImpl implements ExecutorRestClientFactory {
 
 	public static final String	MSG_FORMAT		= "msg.format";
 	public static final String	MSG_FORMAT_JSON	= "json";
@@ -31,20 +33,46 @@ public class RestClientFactoryImpl implements RestClientFactory {
 
 	private final boolean		useXml;
 
+	private final Client		client;
+
 	/**
 	 * creates a new rest client factory implementation
 	 * 
 	 * @param useXml use XML as the message format (if false, use JSON)
 	 */
 	public RestClientFactoryImpl(final boolean useXml) {
+		this(useXml, null);
+	}
+
+	/**
+	 * creates a new rest client factory implementation whose clients share a
+	 * connector
+	 * 
+	 * @param useXml use XML as the message format (if false, use JSON)
+	 * @param connector the shared connector, or <code>null</code> to let every
+	 *            request look up its own connector
+	 */
+	public RestClientFactoryImpl(final boolean useXml,
+			final ClientConnector connector) {
 		this.useXml = useXml;
+		this.client = connector == null ? null : connector.getClient();
 	}
 
 	/**
 	 * @see org.osgi.service.rest.client.RestClientFactory#createRestClient(java.net.URI)
 	 */
 	public RestClient createRestClient(final URI uri) {
-		return new RestClientImpl(uri, useXml);
+		return new RestClientImpl(uri, useXml, client);
+	}
+
+	/**
+	 * @see org.osgi.impl.service.rest.client.ExecutorRestClientFactory#createExecutorRestClient(java.net.URI,
+	 *      java.util.concurrent.ExecutorService)
+	 */
+	public ExecutorRestClient createExecutorRestClient(final URI uri,
+			final ExecutorService executor) {
+		return new ExecutorRestClientImpl(new RestClientImpl(uri, useXml,
+				client), executor);
 	}
 
 }
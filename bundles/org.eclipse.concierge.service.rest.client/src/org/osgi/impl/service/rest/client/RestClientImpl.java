@@ -24,7 +24,7 @@ import org.osgi.framework.dto.BundleDTO;
 import org.osgi.framework.dto.ServiceReferenceDTO;
 import org.osgi.framework.startlevel.dto.BundleStartLevelDTO;
 import org.osgi.framework.startlevel.dto.FrameworkStartLevelDTO;
-import org.osgi.service.rest.client.RestClient;
+import org.restlet.Client;
 import org.restlet.data.Form;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
@@ -39,7 +39,7 @@ import org.restlet.resource.ResourceException;
  * 
  * @author Jan S. Rellermeyer, IBM Research
  */
-public class RestClientImpl implements RestClient {
+public class RestClientImpl implements BatchRestClient {
 
 	private static final String	MT_FRAMEWORK_STARTLEVEL		= "application/org.osgi.framework.startlevel";
 
@@ -87,8 +87,22 @@ public class RestClientImpl implements RestClient {
 
 	private final URI			baseUri;
 
+	private final Client		client;
+
 	protected RestClientImpl(final URI uri, final boolean useXml) {
+		this(uri, useXml, null);
+	}
+
+	/**
+	 * @param uri the URI of the remote framework.
+	 * @param useXml use XML as the message format (if false, use JSON).
+	 * @param client the shared connector to send the requests through, or
+	 *            <code>null</code> to let each request look up a connector.
+	 */
+	protected RestClientImpl(final URI uri, final boolean useXml,
+			final Client client) {
 		this.baseUri = uri.normalize().resolve("/");
+		this.client = client;
 		final String ext = useXml ? MT_XML_EXT : MT_JSON_EXT;
 		FRAMEWORK_STARTLEVEL = new MediaType(MT_FRAMEWORK_STARTLEVEL + ext);
 		BUNDLE = new MediaType(MT_BUNDLE + ext);
@@ -107,11 +121,15 @@ public class RestClientImpl implements RestClient {
 	 * @see org.osgi.rest.client.RestClient#getFrameworkStartLevel()
 	 */
 	public FrameworkStartLevelDTO getFrameworkStartLevel() throws Exception {
-		final Representation repr = new ClientResource(Method.GET,
-				baseUri.resolve("framework/startlevel"))
-				.get(FRAMEWORK_STARTLEVEL);
+		final ClientResource res = resource(Method.GET,
+				baseUri.resolve("framework/startlevel"));
+		try {
+			final Representation repr = res.get(FRAMEWORK_STARTLEVEL);
 
-		return DTOReflector.getDTO(FrameworkStartLevelDTO.class, repr);
+			return DTOReflector.getDTO(FrameworkStartLevelDTO.class, repr);
+		} finally {
+			release(res);
+		}
 	}
 
 	/**
@@ -120,30 +138,39 @@ public class RestClientImpl implements RestClient {
 	 */
 	public void setFrameworkStartLevel(final FrameworkStartLevelDTO startLevel)
 			throws Exception {
-		new ClientResource(Method.PUT, baseUri.resolve("framework/startlevel")).put(
-				DTOReflector.getJson(FrameworkStartLevelDTO.class, startLevel),
-				FRAMEWORK_STARTLEVEL);
+		final ClientResource res = resource(Method.PUT,
+				baseUri.resolve("framework/startlevel"));
+		try {
+			res.put(DTOReflector.getJson(FrameworkStartLevelDTO.class,
+					startLevel), FRAMEWORK_STARTLEVEL);
+		} finally {
+			release(res);
+		}
 	}
 
 	/**
 	 * @see org.osgi.rest.client.RestClient#getBundles()
 	 */
 	public Collection<String> getBundlePaths() throws Exception {
-		final ClientResource res = new ClientResource(Method.GET,
+		final ClientResource res = resource(Method.GET,
 				baseUri.resolve("framework/bundles"));
-		final Representation repr = res.get(BUNDLES);
+		try {
+			final Representation repr = res.get(BUNDLES);
 
-		return DTOReflector.getStrings(repr);
+			return DTOReflector.getStrings(repr);
+		} finally {
+			release(res);
+		}
 	}
 
 	/**
 	 * @see org.osgi.rest.client.RestClient#getBundleRepresentations()
 	 */
 	public Collection<BundleDTO> getBundles() throws Exception {
+		final ClientResource res = resource(Method.GET,
+				baseUri.resolve("framework/bundles/representations"));
 		try {
-			final Representation repr = new ClientResource(Method.GET,
-					baseUri.resolve("framework/bundles/representations"))
-					.get(BUNDLES_REPRESENTATIONS);
+			final Representation repr = res.get(BUNDLES_REPRESENTATIONS);
 
 			return DTOReflector.getDTOs(BundleDTO.class, repr);
 		} catch (final ResourceException e) {
@@ -151,6 +178,8 @@ public class RestClientImpl implements RestClient {
 				return null;
 			}
 			throw e;
+		} finally {
+			release(res);
 		}
 	}
 
@@ -165,15 +194,18 @@ public class RestClientImpl implements RestClient {
 	 * @see org.osgi.rest.client.RestClient#getBundle(java.lang.String)
 	 */
 	public BundleDTO getBundle(final String bundlePath) throws Exception {
+		final ClientResource res = resource(Method.GET,
+				baseUri.resolve(bundlePath));
 		try {
-			final Representation repr = new ClientResource(Method.GET,
-					baseUri.resolve(bundlePath)).get(BUNDLE);
+			final Representation repr = res.get(BUNDLE);
 			return DTOReflector.getDTO(BundleDTO.class, repr);
 		} catch (final ResourceException e) {
 			if (Status.CLIENT_ERROR_NOT_FOUND.equals(e.getStatus())) {
 				return null;
 			}
 			throw e;
+		} finally {
+			release(res);
 		}
 	}
 
@@ -188,12 +220,17 @@ public class RestClientImpl implements RestClient {
 	 * @see org.osgi.rest.client.RestClient#getBundleState(java.lang.String)
 	 */
 	public int getBundleState(final String bundlePath) throws Exception {
-		final Representation repr = new ClientResource(Method.GET,
-				baseUri.resolve(bundlePath + "/state")).get(BUNDLE_STATE);
+		final ClientResource res = resource(Method.GET,
+				baseUri.resolve(bundlePath + "/state"));
+		try {
+			final Representation repr = res.get(BUNDLE_STATE);
 
-		// FIXME: hardcoded to JSON
-		final JSONObject obj = new JsonRepresentation(repr).getJsonObject();
-		return obj.getInt("state");
+			// FIXME: hardcoded to JSON
+			final JSONObject obj = new JsonRepresentation(repr).getJsonObject();
+			return obj.getInt("state");
+		} finally {
+			release(res);
+		}
 	}
 
 	/**
@@ -226,8 +263,7 @@ public class RestClientImpl implements RestClient {
 		final JSONObject state = new JSONObject();
 		state.put("state", 32);
 		state.put("options", options);
-		new ClientResource(Method.PUT, baseUri.resolve(bundlePath + "/state"))
-				.put(state, BUNDLE_STATE);
+		put(baseUri.resolve(bundlePath + "/state"), state, BUNDLE_STATE);
 	}
 
 	/**
@@ -259,8 +295,7 @@ public class RestClientImpl implements RestClient {
 		final JSONObject state = new JSONObject();
 		state.put("state", 4);
 		state.put("options", options);
-		new ClientResource(Method.PUT, baseUri.resolve(bundlePath + "/state"))
-				.put(state, BUNDLE_STATE);
+		put(baseUri.resolve(bundlePath + "/state"), state, BUNDLE_STATE);
 	}
 
 	/**
@@ -275,11 +310,15 @@ public class RestClientImpl implements RestClient {
 	 */
 	public Map<String, String> getBundleHeaders(final String bundlePath)
 			throws Exception {
-		final Representation repr = new ClientResource(Method.GET,
-				baseUri.resolve(bundlePath + "/header"))
-				.get(BUNDLE_HEADER);
+		final ClientResource res = resource(Method.GET,
+				baseUri.resolve(bundlePath + "/header"));
+		try {
+			final Representation repr = res.get(BUNDLE_HEADER);
 
-		return DTOReflector.getMap(repr);
+			return DTOReflector.getMap(repr);
+		} finally {
+			release(res);
+		}
 	}
 
 	/**
@@ -295,11 +334,15 @@ public class RestClientImpl implements RestClient {
 	 */
 	public BundleStartLevelDTO getBundleStartLevel(final String bundlePath)
 			throws Exception {
-		final Representation repr = new ClientResource(Method.GET,
-				baseUri.resolve(bundlePath + "/startlevel"))
-				.get(BUNDLE_STARTLEVEL);
+		final ClientResource res = resource(Method.GET,
+				baseUri.resolve(bundlePath + "/startlevel"));
+		try {
+			final Representation repr = res.get(BUNDLE_STARTLEVEL);
 
-		return DTOReflector.getDTO(BundleStartLevelDTO.class, repr);
+			return DTOReflector.getDTO(BundleStartLevelDTO.class, repr);
+		} finally {
+			release(res);
+		}
 	}
 
 	/**
@@ -319,8 +362,7 @@ public class RestClientImpl implements RestClient {
 			final int startLevel) throws Exception {
 		BundleStartLevelDTO bsl = new BundleStartLevelDTO();
 		bsl.startLevel = startLevel;
-		new ClientResource(Method.PUT, baseUri.resolve(bundlePath
-				+ "/startlevel")).put(
+		put(baseUri.resolve(bundlePath + "/startlevel"),
 				DTOReflector.getJson(BundleStartLevelDTO.class, bsl),
 				BUNDLE_STARTLEVEL);
 	}
@@ -329,11 +371,16 @@ public class RestClientImpl implements RestClient {
 	 * @see org.osgi.rest.client.RestClient#installBundle(java.net.URL)
 	 */
 	public BundleDTO installBundle(final String url) throws Exception {
-		final ClientResource res = new ClientResource(Method.POST,
+		final ClientResource res = resource(Method.POST,
 				baseUri.resolve("framework/bundles"));
-		final Representation repr = res.post(url, MediaType.TEXT_PLAIN);
+		final String bundlePath;
+		try {
+			bundlePath = res.post(url, MediaType.TEXT_PLAIN).getText();
+		} finally {
+			release(res);
+		}
 
-		return getBundle(repr.getText());
+		return getBundle(bundlePath);
 	}
 
 	/**
@@ -341,7 +388,7 @@ public class RestClientImpl implements RestClient {
 	 */
 	public BundleDTO installBundle(final String location, final InputStream in)
 			throws Exception {
-		final ClientResource res = new ClientResource(Method.POST,
+		final ClientResource res = resource(Method.POST,
 				baseUri.resolve("framework/bundles"));
 		
 		Form responseHeaders = (Form) res.getRequestAttributes().get("org.restlet.http.headers");
@@ -356,17 +403,22 @@ public class RestClientImpl implements RestClient {
 		 * res.getRequest().getAttributes() .put("message.entity.locationRef",
 		 * new Reference(location));
 		 */
-		final Representation repr = res.post(in);
+		final String bundlePath;
+		try {
+			bundlePath = res.post(in).getText();
+		} finally {
+			release(res);
+		}
 
-		return getBundle(repr.getText());
+		return getBundle(bundlePath);
 	}
 
 	/**
 	 * @see org.osgi.rest.client.RestClient#updateBundle(long)
 	 */
 	public BundleDTO updateBundle(final long id) throws Exception {
-		new ClientResource(Method.PUT, baseUri.resolve("framework/bundle/"
-				+ id)).put("", MediaType.TEXT_PLAIN);
+		put(baseUri.resolve("framework/bundle/" + id), "",
+				MediaType.TEXT_PLAIN);
 		return getBundle(id);
 	}
 
@@ -374,8 +426,8 @@ public class RestClientImpl implements RestClient {
 	 * @see org.osgi.rest.client.RestClient#updateBundle(long, java.net.URL)
 	 */
 	public BundleDTO updateBundle(final long id, final String url) throws Exception {
-		new ClientResource(Method.PUT, baseUri.resolve("framework/bundle/"
-				+ id)).put(url, MediaType.TEXT_PLAIN);
+		put(baseUri.resolve("framework/bundle/" + id), url,
+				MediaType.TEXT_PLAIN);
 		return getBundle(id);
 	}
 
@@ -385,8 +437,13 @@ public class RestClientImpl implements RestClient {
 	 */
 	public BundleDTO updateBundle(final long id, final InputStream in)
 			throws Exception {
-		new ClientResource(Method.PUT, baseUri.resolve("framework/bundle/"
-				+ id)).put(in);
+		final ClientResource res = resource(Method.PUT,
+				baseUri.resolve("framework/bundle/" + id));
+		try {
+			res.put(in);
+		} finally {
+			release(res);
+		}
 		return getBundle(id);
 	}
 
@@ -403,10 +460,14 @@ public class RestClientImpl implements RestClient {
 	public BundleDTO uninstallBundle(final String bundlePath) throws Exception {
 		final BundleDTO bundle = getBundle(bundlePath);
 		
-		final ClientResource res = new ClientResource(Method.DELETE,
+		final ClientResource res = resource(Method.DELETE,
 				baseUri.resolve(bundlePath));
 		
-		res.delete();
+		try {
+			res.delete();
+		} finally {
+			release(res);
+		}
 		return bundle;
 	}
 
@@ -421,16 +482,20 @@ public class RestClientImpl implements RestClient {
 	 * @see org.osgi.rest.client.RestClient#getServices(java.lang.String)
 	 */
 	public Collection<String> getServicePaths(final String filter) throws Exception {
-		final ClientResource res = new ClientResource(Method.GET,
+		final ClientResource res = resource(Method.GET,
 				baseUri.resolve("framework/services"));
 
 		if (filter != null) {
 			res.getQuery().add("filter", filter);
 		}
 
-		final Representation repr = res.get(SERVICES);
+		try {
+			final Representation repr = res.get(SERVICES);
 
-		return DTOReflector.getStrings(repr);
+			return DTOReflector.getStrings(repr);
+		} finally {
+			release(res);
+		}
 	}
 
 	/**
@@ -447,14 +512,18 @@ public class RestClientImpl implements RestClient {
 	 */
 	public Collection<ServiceReferenceDTO> getServiceReferences(
 			final String filter) throws Exception {
-		final ClientResource res = new ClientResource(Method.GET,
+		final ClientResource res = resource(Method.GET,
 				baseUri.resolve("framework/services/representations"));
 		if (filter != null) {
 			res.getQuery().add("filter", filter);
 		}
-		final Representation repr = res.get(SERVICES_REPRESENTATIONS);
+		try {
+			final Representation repr = res.get(SERVICES_REPRESENTATIONS);
 
-		return DTOReflector.getDTOs(ServiceReferenceDTO.class, repr);
+			return DTOReflector.getDTOs(ServiceReferenceDTO.class, repr);
+		} finally {
+			release(res);
+		}
 	}
 
 	/**
@@ -470,12 +539,54 @@ public class RestClientImpl implements RestClient {
 	 */
 	public ServiceReferenceDTO getServiceReference(final String servicePath)
 			throws Exception {
-		final Representation repr = new ClientResource(Method.GET,
-				baseUri.resolve(servicePath)).get(SERVICE);
+		final ClientResource res = resource(Method.GET,
+				baseUri.resolve(servicePath));
+		try {
+			final Representation repr = res.get(SERVICE);
+
+			return DTOReflector.getDTO(ServiceReferenceDTO.class,
+					repr);
+		} finally {
+			release(res);
+		}
+	}
+
+	/**
+	 * @see org.osgi.impl.service.rest.client.BatchRestClient#createBatch()
+	 */
+	public RestBatch createBatch() {
+		return new RestBatch(this, baseUri.resolve("framework/batch"));
+	}
+
+	ClientResource resource(final Method method, final URI uri) {
+		final ClientResource res = new ClientResource(method, uri);
+		if (client != null) {
+			res.setNext(client);
+		}
+		return res;
+	}
 
-		return DTOReflector.getDTO(ServiceReferenceDTO.class,
-				repr);
+	private void put(final URI uri, final Object entity,
+			final MediaType mediaType) {
+		final ClientResource res = resource(Method.PUT, uri);
+		try {
+			res.put(entity, mediaType);
+		} finally {
+			release(res);
+		}
 	}
 
+	/**
+	 * release the response entity of a request, whether it has been read or
+	 * not, so that a pooled connection can be reused by the next request.
+	 * 
+	 * @param res the resource the request was sent to.
+	 */
+	static void release(final ClientResource res) {
+		final Representation entity = res.getResponseEntity();
+		if (entity != null) {
+			entity.release();
+		}
+	}
 
 }
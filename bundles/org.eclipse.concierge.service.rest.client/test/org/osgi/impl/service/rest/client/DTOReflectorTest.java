@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.dto.BundleDTO;
+import org.osgi.framework.dto.FrameworkDTO;
+import org.osgi.framework.dto.ServiceReferenceDTO;
+import org.osgi.framework.startlevel.dto.BundleStartLevelDTO;
+import org.osgi.framework.startlevel.dto.FrameworkStartLevelDTO;
+import org.restlet.data.MediaType;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+
+/**
+ * Tests decoding the DTOs from the JSON and XML representations of the
+ * server, and encoding them as JSON.
+ */
+public class DTOReflectorTest {
+
+	private static final MediaType	BUNDLE_JSON	= MediaType.valueOf("application/org.osgi.bundle+json");
+
+	private static final MediaType	BUNDLE_XML	= MediaType.valueOf("application/org.osgi.bundle+xml");
+
+	private static final String		BUNDLE		= "{\"id\":3,\"lastModified\":1234567890123,"
+			+ "\"state\":32,\"symbolicName\":\"org.example\",\"version\":\"1.2.3\"}";
+
+	private static Representation repr(final String text,
+			final MediaType mediaType, final String location) {
+		final Representation repr = new StringRepresentation(text, mediaType);
+		repr.setLocationRef("http://localhost:8888/" + location);
+		return repr;
+	}
+
+	private static void assertBundle(final BundleDTO dto) {
+		Assert.assertEquals(3, dto.id);
+		Assert.assertEquals(1234567890123L, dto.lastModified);
+		Assert.assertEquals(32, dto.state);
+		Assert.assertEquals("org.example", dto.symbolicName);
+		Assert.assertEquals("1.2.3", dto.version);
+	}
+
+	@Test
+	public void testBundleFromJson() throws Exception {
+		assertBundle(DTOReflector.getDTO(BundleDTO.class,
+				repr(BUNDLE, BUNDLE_JSON, "framework/bundle/3")));
+	}
+
+	@Test
+	public void testBundleFromXml() throws Exception {
+		assertBundle(DTOReflector.getDTO(BundleDTO.class, repr(
+				"<bundle xmlns=\"rest\"><id>3</id>"
+						+ "<lastModified>1234567890123</lastModified>"
+						+ "<state>32</state>"
+						+ "<symbolicName>org.example</symbolicName>"
+						+ "<version>1.2.3</version></bundle>", BUNDLE_XML,
+				"framework/bundle/3")));
+	}
+
+	@Test
+	public void testBundlesFromJson() throws Exception {
+		final Collection<BundleDTO> bundles = DTOReflector.getDTOs(
+				BundleDTO.class, repr("[" + BUNDLE + ","
+						+ BUNDLE.replace("\"id\":3", "\"id\":4") + "]",
+						MediaType.valueOf("application/org.osgi.bundles+json"),
+						"framework/bundles/representations"));
+		Assert.assertEquals(2, bundles.size());
+		final Iterator<BundleDTO> it = bundles.iterator();
+		assertBundle(it.next());
+		Assert.assertEquals(4, it.next().id);
+	}
+
+	@Test
+	public void testServiceFromJson() throws Exception {
+		final ServiceReferenceDTO dto = DTOReflector.getDTO(
+				ServiceReferenceDTO.class, repr("{\"id\":7,"
+						+ "\"properties\":{\"objectClass\":[\"a.A\",\"b.B\"],"
+						+ "\"service.id\":7,\"service.bundleid\":1,"
+						+ "\"name\":\"x\"},\"bundle\":\"framework/bundle/1\","
+						+ "\"usingBundles\":[\"framework/bundle/4\","
+						+ "\"framework/bundle/5\"]}", MediaType
+						.valueOf("application/org.osgi.service+json"),
+						"framework/service/7"));
+		Assert.assertEquals(7, dto.id);
+		Assert.assertEquals(1, dto.bundle);
+		Assert.assertEquals("[4, 5]", Arrays.toString(dto.usingBundles));
+		Assert.assertArrayEquals(new String[] { "a.A", "b.B" },
+				(String[]) dto.properties.get("objectClass"));
+		Assert.assertEquals(Long.valueOf(7), dto.properties.get("service.id"));
+		Assert.assertEquals(Long.valueOf(1),
+				dto.properties.get("service.bundleid"));
+		Assert.assertEquals("x", dto.properties.get("name"));
+	}
+
+	@Test
+	public void testServiceFromXml() throws Exception {
+		final ServiceReferenceDTO dto = DTOReflector.getDTO(
+				ServiceReferenceDTO.class, repr("<service xmlns=\"rest\">"
+						+ "<id>7</id><properties>"
+						+ "<property name=\"objectClass\">a.A\nb.B\n</property>"
+						+ "<property name=\"service.id\" type=\"Long\" value=\"7\"/>"
+						+ "<property name=\"weight\" type=\"Double\" value=\"1.5\"/>"
+						+ "</properties><bundle>framework/bundle/1</bundle>"
+						+ "<usingBundles><bundle>framework/bundle/4</bundle>"
+						+ "</usingBundles></service>", MediaType
+						.valueOf("application/org.osgi.service+xml"),
+						"framework/service/7"));
+		Assert.assertEquals(7, dto.id);
+		Assert.assertEquals(1, dto.bundle);
+		Assert.assertEquals("[4]", Arrays.toString(dto.usingBundles));
+		Assert.assertArrayEquals(new String[] { "a.A", "b.B" },
+				(String[]) dto.properties.get("objectClass"));
+		Assert.assertEquals(Long.valueOf(7), dto.properties.get("service.id"));
+		Assert.assertEquals(Double.valueOf(1.5), dto.properties.get("weight"));
+	}
+
+	@Test
+	public void testStartLevelFromXml() throws Exception {
+		// the bundle is taken from the location of the representation
+		final BundleStartLevelDTO dto = DTOReflector.getDTO(
+				BundleStartLevelDTO.class, repr("<bundleStartLevel xmlns=\"rest\">"
+						+ "<startLevel>3</startLevel>"
+						+ "<activationPolicyUsed>true</activationPolicyUsed>"
+						+ "<persistentlyStarted>false</persistentlyStarted>"
+						+ "</bundleStartLevel>", MediaType
+						.valueOf("application/org.osgi.bundlestartlevel+xml"),
+						"framework/bundle/5/startlevel"));
+		Assert.assertEquals(5, dto.bundle);
+		Assert.assertEquals(3, dto.startLevel);
+		Assert.assertTrue(dto.activationPolicyUsed);
+		Assert.assertFalse(dto.persistentlyStarted);
+	}
+
+	@Test
+	public void testJsonRoundTrip() throws Exception {
+		final BundleStartLevelDTO bsl = new BundleStartLevelDTO();
+		bsl.bundle = 5;
+		bsl.startLevel = 3;
+		bsl.activationPolicyUsed = true;
+		final JSONObject json = DTOReflector.getJson(BundleStartLevelDTO.class,
+				bsl);
+		Assert.assertEquals("framework/bundle/5", json.getString("bundle"));
+
+		final BundleStartLevelDTO read = DTOReflector.getDTO(
+				BundleStartLevelDTO.class, repr(json.toString(), MediaType
+						.valueOf("application/org.osgi.bundlestartlevel+json"),
+						"framework/bundle/5/startlevel"));
+		Assert.assertEquals(5, read.bundle);
+		Assert.assertEquals(3, read.startLevel);
+		Assert.assertTrue(read.activationPolicyUsed);
+		Assert.assertFalse(read.persistentlyStarted);
+
+		final FrameworkStartLevelDTO fsl = new FrameworkStartLevelDTO();
+		fsl.startLevel = 6;
+		fsl.initialBundleStartLevel = 2;
+		final FrameworkStartLevelDTO fslRead = DTOReflector.getDTO(
+				FrameworkStartLevelDTO.class, repr(DTOReflector.getJson(
+						FrameworkStartLevelDTO.class, fsl).toString(),
+						MediaType.valueOf("application/org.osgi.frameworkstartlevel+json"),
+						"framework/startlevel"));
+		Assert.assertEquals(6, fslRead.startLevel);
+		Assert.assertEquals(2, fslRead.initialBundleStartLevel);
+	}
+
+	@Test
+	public void testUnsupportedMediaType() throws Exception {
+		try {
+			DTOReflector.getDTO(FrameworkDTO.class, repr("", MediaType.TEXT_PLAIN,
+					"framework"));
+			Assert.fail("text was decoded");
+		} catch (final UnsupportedOperationException uoe) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testConcurrentDecoding() throws Exception {
+		// the codecs are resolved and shared by concurrent callers
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<BundleDTO>> results = new ArrayList<Future<BundleDTO>>();
+			for (int i = 0; i < 64; i++) {
+				results.add(executor.submit(new Callable<BundleDTO>() {
+					public BundleDTO call() throws Exception {
+						return DTOReflector.getDTO(BundleDTO.class,
+								repr(BUNDLE, BUNDLE_JSON, "framework/bundle/3"));
+					}
+				}));
+			}
+			for (final Future<BundleDTO> result : results) {
+				assertBundle(result.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
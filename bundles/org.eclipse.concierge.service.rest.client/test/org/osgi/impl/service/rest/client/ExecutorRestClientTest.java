@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleException;
+import org.osgi.service.rest.client.RestClientFactory;
+
+/**
+ * Tests the client that runs the calls of a blocking client on an executor.
+ */
+public class ExecutorRestClientTest {
+
+	private static final String		THREAD	= "rest-client";
+
+	private final List<String>		calls	= Collections
+			.synchronizedList(new ArrayList<String>());
+
+	private ExecutorService			executor;
+
+	private ExecutorRestClient		client;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(final Runnable r) {
+				return new Thread(r, THREAD);
+			}
+		});
+
+		// a blocking client that records its calls and the calling thread
+		final BatchRestClient blocking = (BatchRestClient) Proxy
+				.newProxyInstance(getClass().getClassLoader(),
+						new Class<?>[] { BatchRestClient.class },
+						new InvocationHandler() {
+							public Object invoke(final Object proxy,
+									final Method method, final Object[] args)
+									throws Throwable {
+								calls.add(Thread.currentThread().getName()
+										+ ' ' + method.getName()
+										+ (args == null ? "" : Arrays
+												.asList(args)));
+								if ("getBundleState".equals(method.getName())) {
+									return Integer.valueOf(32);
+								} else if ("getBundlePaths".equals(method
+										.getName())) {
+									return Arrays
+											.asList("framework/bundle/0");
+								} else if ("startBundle".equals(method
+										.getName())) {
+									throw new BundleException("failed");
+								}
+								return null;
+							}
+						});
+		client = new ExecutorRestClientImpl(blocking, executor);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testCallsRunOnExecutor() throws Exception {
+		final Future<Integer> state = client.getBundleState(1);
+		final Future<Collection<String>> paths = client.getBundlePaths();
+		final Future<Void> stop = client.stopBundle("framework/bundle/1", 1);
+
+		Assert.assertEquals(Integer.valueOf(32), state.get());
+		Assert.assertEquals(Arrays.asList("framework/bundle/0"), paths.get());
+		Assert.assertNull(stop.get());
+		Assert.assertEquals(Arrays.asList(THREAD + " getBundleState[1]",
+				THREAD + " getBundlePaths", THREAD
+						+ " stopBundle[framework/bundle/1, 1]"), calls);
+	}
+
+	@Test
+	public void testExceptionIsWrapped() throws Exception {
+		final Future<Void> start = client.startBundle(1);
+		try {
+			start.get();
+			Assert.fail("exception of the call was not thrown");
+		} catch (final ExecutionException ee) {
+			Assert.assertTrue(ee.getCause() instanceof BundleException);
+		}
+	}
+
+	@Test
+	public void testFactory() throws Exception {
+		final RestClientFactory factory = new RestClientFactoryImpl(false);
+		Assert.assertTrue(factory instanceof ExecutorRestClientFactory);
+		// creating a client does not send a request
+		Assert.assertNotNull(((ExecutorRestClientFactory) factory)
+				.createExecutorRestClient(new URI("http://localhost:8888/"),
+						executor));
+	}
+
+}
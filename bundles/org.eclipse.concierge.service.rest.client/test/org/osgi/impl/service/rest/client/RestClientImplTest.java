@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+
+/**
+ * Tests that the rest client releases every response entity, also the ones it
+ * does not read, so that pooled connections are returned to the connector.
+ */
+public class RestClientImplTest {
+
+	private final List<String>			requests	= new ArrayList<String>();
+
+	private final List<Representation>	sent		= new ArrayList<Representation>();
+
+	private final List<Representation>	released	= new ArrayList<Representation>();
+
+	private RestClientImpl				client;
+
+	/**
+	 * a connector that answers the requests in-process instead of sending
+	 * them to a remote framework.
+	 */
+	private final class LocalConnector extends Client {
+
+		LocalConnector() {
+			super(new Context(), Collections.<Protocol> emptyList());
+		}
+
+		@Override
+		public void handle(final Request request, final Response response) {
+			final String path = request.getResourceRef().getPath();
+			final Method method = request.getMethod();
+			requests.add(method + " " + path);
+
+			if (Method.GET.equals(method)) {
+				// only bundle 1 exists, and only its state can be read
+				if (path.equals("/framework/bundle/1/state")) {
+					response.setEntity(entity("{\"state\":32}",
+							MediaType.APPLICATION_JSON));
+				} else {
+					response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+					response.setEntity(entity("not found",
+							MediaType.TEXT_PLAIN));
+				}
+			} else if (Method.POST.equals(method)) {
+				response.setEntity(entity("framework/bundle/99",
+						MediaType.TEXT_PLAIN));
+			} else {
+				response.setEntity(entity("", MediaType.TEXT_PLAIN));
+			}
+		}
+
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		client = new RestClientImpl(new URI("http://localhost:8888/"), false,
+				new LocalConnector());
+	}
+
+	private Representation entity(final String text, final MediaType mediaType) {
+		final Representation entity = new StringRepresentation(text,
+				mediaType) {
+			@Override
+			public void release() {
+				released.add(this);
+				super.release();
+			}
+		};
+		sent.add(entity);
+		return entity;
+	}
+
+	private void assertReleased(final String... expectedRequests) {
+		Assert.assertEquals(Arrays.asList(expectedRequests), requests);
+		Assert.assertEquals(expectedRequests.length, sent.size());
+		Assert.assertEquals(sent, released);
+	}
+
+	@Test
+	public void testReadEntityIsReleased() throws Exception {
+		Assert.assertEquals(32, client.getBundleState(1));
+		assertReleased("GET /framework/bundle/1/state");
+	}
+
+	@Test
+	public void testDiscardedEntityIsReleased() throws Exception {
+		client.startBundle(1);
+		client.stopBundle("framework/bundle/1", 1);
+		client.setBundleStartLevel(1, 3);
+		client.updateBundle(1, "http://localhost/b.jar");
+		assertReleased("PUT /framework/bundle/1/state",
+				"PUT /framework/bundle/1/state",
+				"PUT /framework/bundle/1/startlevel",
+				"PUT /framework/bundle/1", "GET /framework/bundle/1");
+	}
+
+	@Test
+	public void testErrorEntityIsReleased() throws Exception {
+		Assert.assertNull(client.getBundle(99));
+		Assert.assertNull(client.installBundle("http://localhost/a.jar"));
+		Assert.assertNull(client.uninstallBundle("framework/bundle/1"));
+		assertReleased("GET /framework/bundle/99", "POST /framework/bundles",
+				"GET /framework/bundle/99", "GET /framework/bundle/1",
+				"DELETE /framework/bundle/1");
+	}
+
+	@Test
+	public void testEntityIsReleasedOnFailure() throws Exception {
+		try {
+			client.getBundleState(99);
+			Assert.fail("not found was not reported");
+		} catch (final Exception e) {
+			// expected
+		}
+		assertReleased("GET /framework/bundle/99/state");
+	}
+
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * Bounded log of bundle, service, and framework events. Every event gets a
+ * sequence number so that clients can resume after the last event they have
+ * seen. The log only keeps the most recent events; a client that falls
+ * further behind has to fetch a full snapshot again. The sequence number of
+ * the most recent event doubles as the version of the framework state, the
+ * listeners are synchronous so that the version is bumped before the state
+ * change becomes visible to other threads. Changes to the bundles using a
+ * service are not evented and hence do not change the version, the service
+ * representations are therefore not versioned.
+ */
+public final class EventLog implements SynchronousBundleListener,
+		ServiceListener, FrameworkListener {
+
+	public static final String	BUNDLE		= "bundle";
+
+	public static final String	SERVICE		= "service";
+
+	public static final String	FRAMEWORK	= "framework";
+
+	private final Entry[]		entries;
+
+	/**
+	 * the sequence number of the next event, sequence numbers start at 1.
+	 */
+	private long				next		= 1;
+
+	/**
+	 * set when the log is detached from the framework.
+	 */
+	private boolean				closed;
+
+	public EventLog(final int capacity) {
+		entries = new Entry[capacity];
+	}
+
+	public void bundleChanged(final BundleEvent event) {
+		append(BUNDLE, event.getType(), event.getBundle(), -1);
+	}
+
+	public void serviceChanged(final ServiceEvent event) {
+		append(SERVICE, event.getType(), event.getServiceReference()
+				.getBundle(), ((Long) event.getServiceReference().getProperty(
+				Constants.SERVICE_ID)).longValue());
+	}
+
+	public void frameworkEvent(final FrameworkEvent event) {
+		append(FRAMEWORK, event.getType(), event.getBundle(), -1);
+	}
+
+	private void append(final String event, final int type,
+			final Bundle bundle, final long serviceId) {
+		final long bundleId = bundle == null ? -1 : bundle.getBundleId();
+
+		// render the data once, it is shared by all clients
+		final Map<String, Object> data = new LinkedHashMap<String, Object>();
+		data.put("type", Integer.valueOf(type));
+		if (serviceId != -1) {
+			data.put("service", "framework/service/" + serviceId);
+		}
+		if (bundleId != -1) {
+			data.put("bundle", "framework/bundle/" + bundleId);
+		}
+		final StringWriter writer = new StringWriter();
+		try {
+			PojoReflector.writeJSON(data, writer);
+		} catch (final IOException ioe) {
+			// does not happen
+		}
+
+		synchronized (this) {
+			final long id = next++;
+			entries[(int) (id % entries.length)] = new Entry(id, event, type,
+					bundleId, serviceId, writer.toString());
+			notifyAll();
+		}
+	}
+
+	/**
+	 * close the log. Threads waiting for events return immediately, and no
+	 * call waits any more.
+	 */
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	/**
+	 * check if the log has been closed.
+	 * 
+	 * @return <code>true</code> if {@link #close()} has been called.
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * get the sequence number of the most recent event.
+	 * 
+	 * @return the sequence number, 0 if there was no event yet.
+	 */
+	public synchronized long getLastId() {
+		return next - 1;
+	}
+
+	/**
+	 * get the events after a given sequence number, waiting for new events if
+	 * there are none yet.
+	 * 
+	 * @param lastId the sequence number of the last event the caller has
+	 *            seen.
+	 * @param timeout the maximum time to wait for new events, in milliseconds.
+	 *            0 does not wait, and a closed log never waits.
+	 * @return the events in order, an empty array if the timeout expired, or
+	 *         <code>null</code> if events after <code>lastId</code> have
+	 *         already been dropped from the log or <code>lastId</code> is
+	 *         unknown.
+	 * @throws InterruptedException if the calling thread was interrupted while
+	 *             waiting.
+	 */
+	public synchronized Entry[] getEvents(final long lastId, final long timeout)
+			throws InterruptedException {
+		if (lastId < 0 || lastId > next - 1) {
+			// not from this log, e.g., from before a restart
+			return null;
+		}
+
+		if (timeout > 0) {
+			final long deadline = System.currentTimeMillis() + timeout;
+			long remaining = timeout;
+			while (!closed && lastId >= next - 1 && remaining > 0) {
+				wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+
+		return collect(lastId);
+	}
+
+	private Entry[] collect(final long lastId) {
+		if (lastId < 0 || lastId > next - 1
+				|| lastId + 1 < next - entries.length) {
+			return null;
+		}
+
+		final Entry[] result = new Entry[(int) (next - 1 - lastId)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = entries[(int) ((lastId + 1 + i) % entries.length)];
+		}
+		return result;
+	}
+
+	/**
+	 * get the ids of the bundles or services that changed after a given
+	 * sequence number.
+	 * 
+	 * @param lastId the sequence number.
+	 * @param event {@link #BUNDLE} for bundle ids, {@link #SERVICE} for
+	 *            service ids.
+	 * @return the ids, or <code>null</code> if the log does not cover all
+	 *         events after <code>lastId</code>.
+	 */
+	public synchronized Set<Long> getChanged(final long lastId,
+			final String event) {
+		final Entry[] events = collect(lastId);
+		if (events == null) {
+			return null;
+		}
+		final boolean bundle = BUNDLE.equals(event);
+		final Set<Long> changed = new HashSet<Long>();
+		for (int i = 0; i < events.length; i++) {
+			if (events[i].event.equals(event)) {
+				changed.add(Long.valueOf(bundle ? events[i].bundleId
+						: events[i].serviceId));
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * an event in the log.
+	 */
+	public static final class Entry {
+
+		private final long		id;
+		private final String	event;
+		private final int		type;
+		private final long		bundleId;
+		private final long		serviceId;
+		private final String	data;
+
+		Entry(final long id, final String event, final int type,
+				final long bundleId, final long serviceId, final String data) {
+			this.id = id;
+			this.event = event;
+			this.type = type;
+			this.bundleId = bundleId;
+			this.serviceId = serviceId;
+			this.data = data;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public String getEvent() {
+			return event;
+		}
+
+		public int getType() {
+			return type;
+		}
+
+		public long getBundleId() {
+			return bundleId;
+		}
+
+		/**
+		 * @return the service id, or -1 if this is not a service event.
+		 */
+		public long getServiceId() {
+			return serviceId;
+		}
+
+		/**
+		 * @return the event rendered as JSON.
+		 */
+		public String getData() {
+			return data;
+		}
+
+	}
+
+}
@@ -14,50 +14,55 @@
 
 package org.osgi.impl.service.rest;
 
-import java.io.StringWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.Writer;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import org.json.JSONObject;
-import org.osgi.impl.service.rest.pojos.BundleExceptionPojo;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 /**
  * Reflector to create pojos from JSON Object representations and vice versa.
+ * Pojos are written as JSON or XML directly to a writer, through the getters
+ * that are looked up once per pojo class.
  * 
  * @author Jan S. Rellermeyer, IBM Research
  * @param <B> The pojo base class for which the reflector does the conversion.
  */
 public class PojoReflector<B> {
 
-	private static HashMap<Class<?>, PojoReflector<?>>	reflectorCache	= new HashMap<Class<?>, PojoReflector<?>>();
+	private static final ConcurrentMap<Class<?>, PojoReflector<?>>	reflectorCache	= new ConcurrentHashMap<Class<?>, PojoReflector<?>>();
 
 	private final Class<B>								clazz;
 
 	private final HashMap<String, Method>				setterMethodTable;
 
-	private final HashMap<String, Method>				getterMethodTable;
+	private final HashMap<String, Class<?>>				setterTypeTable;
 
-	private static final DocumentBuilderFactory			factory;
+	private final String								rootNode;
+
+	private final String								elementNode;
+
+	private final String[]								propertyNames;
+
+	private final Method[]								getters;
 
 	private static final Map<Class<?>, String>			typeCache		= new HashMap<Class<?>, String>();
 
@@ -65,17 +70,9 @@ public class PojoReflector<B> {
 
 	private static final String							REST_NS			= "rest";
 
-	static {
-		final SchemaFactory sfact = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-		factory = DocumentBuilderFactory.newInstance();
-		try {
-			factory.setSchema(sfact.newSchema(new StreamSource(PojoReflector.class.getResourceAsStream("/rest.xsd"))));
-			factory.setNamespaceAware(true);
-			factory.setValidating(true);
-		} catch (SAXException e) {
-			e.printStackTrace();
-		}
+	private static Schema								schema;
 
+	static {
 		typeCache.put(String.class, "String");
 		typeCache.put(Long.class, "Long");
 		typeCache.put(Double.class, "Double");
@@ -92,7 +89,12 @@ public class PojoReflector<B> {
 		PojoReflector<T> r = (PojoReflector<T>) reflectorCache.get(clazz);
 		if (r == null) {
 			r = new PojoReflector<T>(clazz);
-			reflectorCache.put(clazz, r);
+			@SuppressWarnings("unchecked")
+			final PojoReflector<T> existing = (PojoReflector<T>) reflectorCache
+					.putIfAbsent(clazz, r);
+			if (existing != null) {
+				r = existing;
+			}
 		}
 		return r;
 	}
@@ -101,20 +103,32 @@ public class PojoReflector<B> {
 		this.clazz = clazz;
 		final Field[] fields = clazz.getDeclaredFields();
 
+		final RootNode root = clazz.getAnnotation(RootNode.class);
+		rootNode = root == null ? null : root.name();
+		final ElementNode element = clazz.getAnnotation(ElementNode.class);
+		elementNode = element == null ? null : element.name();
+
 		setterMethodTable = new HashMap<String, Method>(fields.length);
-		getterMethodTable = new HashMap<String, Method>(fields.length);
+		setterTypeTable = new HashMap<String, Class<?>>(fields.length);
+		// the getters in the order of declaration
+		final ArrayList<String> names = new ArrayList<String>(fields.length);
+		final ArrayList<Method> getterList = new ArrayList<Method>(fields.length);
 		for (int i = 0; i < fields.length; i++) {
 			final Field field = fields[i];
 			final String fieldName = field.getName();
 			try {
 				final Method setter = clazz.getMethod(getSetterName(fieldName), field.getType());
 				setterMethodTable.put(fieldName, setter);
+				setterTypeTable.put(fieldName, field.getType());
 				final Method getter = clazz.getMethod(getGetterName(fieldName));
-				getterMethodTable.put(fieldName, getter);
+				names.add(fieldName);
+				getterList.add(getter);
 			} catch (final NoSuchMethodException e) {
 				e.printStackTrace();
 			}
 		}
+		propertyNames = names.toArray(new String[names.size()]);
+		getters = getterList.toArray(new Method[getterList.size()]);
 	}
 
 	private static String getSetterName(final String fieldName) {
@@ -158,7 +172,7 @@ public class PojoReflector<B> {
 			}
 			final String value = elems.item(i).getTextContent();
 			final Object o;
-			final Class<?> type = setter.getParameterTypes()[0];
+			final Class<?> type = setterTypeTable.get(key);
 			if (int.class == type) {
 				o = Integer.valueOf(value);
 			} else if (long.class == type) {
@@ -175,135 +189,359 @@ public class PojoReflector<B> {
 		return instance;
 	}
 
-	public Document xmlFromBean(final B bean) throws Exception {
-		final DocumentBuilder builder = factory.newDocumentBuilder();
-		final Document doc = builder.newDocument();
-
-		final Element rootNode = xmlFromBean(bean, doc);
-		rootNode.setAttributeNS(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
-				"xsi:schemaLocation", SCHEMA_LOCATION);
-		doc.appendChild(rootNode);
-
-		return doc;
+	/**
+	 * write a pojo, a list of pojos or strings, or a map as JSON.
+	 * 
+	 * @param bean the object to write.
+	 * @param out the writer.
+	 * @throws IOException if writing fails.
+	 */
+	public static void writeJSON(final Object bean, final Writer out)
+			throws IOException {
+		if (bean == null) {
+			out.write("null");
+		} else if (bean instanceof String) {
+			writeJSONString((String) bean, out);
+		} else if (bean instanceof Number) {
+			writeJSONNumber((Number) bean, out);
+		} else if (bean instanceof Boolean) {
+			out.write(bean.toString());
+		} else if (bean instanceof Map) {
+			out.write('{');
+			boolean first = true;
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) bean).entrySet()) {
+				if (!first) {
+					out.write(',');
+				}
+				first = false;
+				writeJSONString(String.valueOf(entry.getKey()), out);
+				out.write(':');
+				writeJSON(entry.getValue(), out);
+			}
+			out.write('}');
+		} else if (bean instanceof Collection) {
+			out.write('[');
+			boolean first = true;
+			for (final Object o : (Collection<?>) bean) {
+				if (!first) {
+					out.write(',');
+				}
+				first = false;
+				writeJSON(o, out);
+			}
+			out.write(']');
+		} else if (bean.getClass().isArray()) {
+			out.write('[');
+			final int len = Array.getLength(bean);
+			for (int i = 0; i < len; i++) {
+				if (i > 0) {
+					out.write(',');
+				}
+				writeJSON(Array.get(bean, i), out);
+			}
+			out.write(']');
+		} else if (bean.getClass().isAnnotationPresent(RootNode.class)) {
+			getReflector(bean.getClass()).writeJSONObject(bean, out);
+		} else {
+			writeJSONString(bean.toString(), out);
+		}
 	}
 
-	public Element xmlFromBean(final Object bean, final Document doc) throws Exception {
-		final Element rootNode = doc.createElementNS(REST_NS, bean.getClass().getAnnotation(RootNode.class).name());
-		if (bean instanceof Collection) {
-			String elemName = null;
-			boolean complex = false;
+	private void writeJSONObject(final Object bean, final Writer out)
+			throws IOException {
+		out.write('{');
+		boolean first = true;
+		for (int i = 0; i < getters.length; i++) {
+			final Object value = get(getters[i], bean);
+			if (value == null) {
+				continue;
+			}
+			if (!first) {
+				out.write(',');
+			}
+			first = false;
+			writeJSONString(propertyNames[i], out);
+			out.write(':');
+			writeJSON(value, out);
+		}
+		out.write('}');
+	}
 
-			final ElementNode a = bean.getClass().getAnnotation(ElementNode.class);
-			if (a != null) {
-				elemName = a.name();
+	private static void writeJSONNumber(final Number n, final Writer out)
+			throws IOException {
+		if ((n instanceof Double && (((Double) n).isNaN() || ((Double) n).isInfinite()))
+				|| (n instanceof Float && (((Float) n).isNaN() || ((Float) n).isInfinite()))) {
+			out.write("null");
+			return;
+		}
+		String s = n.toString();
+		// shave off trailing zeros and decimal point, if possible
+		if (s.indexOf('.') > 0 && s.indexOf('e') < 0 && s.indexOf('E') < 0) {
+			int end = s.length();
+			while (s.charAt(end - 1) == '0') {
+				end--;
 			}
+			if (s.charAt(end - 1) == '.') {
+				end--;
+			}
+			s = s.substring(0, end);
+		}
+		out.write(s);
+	}
 
-			for (final Object o : (Collection<?>) bean) {
-				if (elemName == null) {
-					elemName = o.getClass().getAnnotation(RootNode.class).name();
-					complex = true;
+	private static void writeJSONString(final String s, final Writer out)
+			throws IOException {
+		out.write('"');
+		final int len = s.length();
+		char prev = 0;
+		for (int i = 0; i < len; i++) {
+			final char c = s.charAt(i);
+			switch (c) {
+			case '\\':
+			case '"':
+				out.write('\\');
+				out.write(c);
+				break;
+			case '/':
+				if (prev == '<') {
+					out.write('\\');
 				}
+				out.write(c);
+				break;
+			case '\b':
+				out.write("\\b");
+				break;
+			case '\t':
+				out.write("\\t");
+				break;
+			case '\n':
+				out.write("\\n");
+				break;
+			case '\f':
+				out.write("\\f");
+				break;
+			case '\r':
+				out.write("\\r");
+				break;
+			default:
+				if (c < ' ' || (c >= '\u0080' && c < '\u00a0')
+						|| (c >= '\u2000' && c < '\u2100')) {
+					final String hex = Integer.toHexString(c);
+					out.write("\\u");
+					for (int j = hex.length(); j < 4; j++) {
+						out.write('0');
+					}
+					out.write(hex);
+				} else {
+					out.write(c);
+				}
+			}
+			prev = c;
+		}
+		out.write('"');
+	}
+
+	/**
+	 * write a pojo, a list of pojos or strings, or a bundle header map as an
+	 * XML document.
+	 * 
+	 * @param bean the object to write.
+	 * @param out the writer.
+	 * @throws IOException if writing fails.
+	 */
+	public static void writeXml(final Object bean, final Writer out)
+			throws IOException {
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+		if (bean instanceof Map) {
+			// special case: bundle header is a plain map and has no
+			// reflector
+			writeXmlHeader((Map<?, ?>) bean, out);
+		} else {
+			getReflector(bean.getClass()).writeXmlElement(bean, true, out);
+		}
+	}
 
-				if (complex) {
-					rootNode.appendChild(getReflector(o.getClass()).xmlFromBean(o, doc));
+	private void writeXmlElement(final Object bean, final boolean root,
+			final Writer out) throws IOException {
+		out.write('<');
+		out.write(rootNode);
+		if (root) {
+			out.write(" xmlns=\"" + REST_NS + "\" xmlns:xsi=\""
+					+ XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI
+					+ "\" xsi:schemaLocation=\"" + SCHEMA_LOCATION + "\"");
+		}
+		out.write('>');
+
+		if (bean instanceof Collection) {
+			for (final Object o : (Collection<?>) bean) {
+				if (elementNode == null) {
+					getReflector(o.getClass()).writeXmlElement(o, false, out);
 				} else {
-					rootNode.appendChild(toXml(o, elemName, doc));
+					writeXmlValue(o, elementNode, out);
 				}
 			}
-		} else if (bean instanceof BundleExceptionPojo) {
-			final BundleExceptionPojo p = (BundleExceptionPojo) bean;
-
-			final Element tc = doc.createElementNS(REST_NS, "typecode");
-			tc.setTextContent(Integer.toString(p.getTypecode()));
-			rootNode.appendChild(tc);
-			final Element msg = doc.createElementNS(REST_NS, "message");
-			msg.setTextContent(p.getMessage());
-			rootNode.appendChild(msg);
 		} else {
-			for (final Map.Entry<String, Method> entry : getterMethodTable.entrySet()) {
-				final String field = entry.getKey();
-				final Object o = entry.getValue().invoke(bean);
-				rootNode.appendChild(toXml(o, field, doc));
+			for (int i = 0; i < getters.length; i++) {
+				final Object value = get(getters[i], bean);
+				if (value != null) {
+					writeXmlValue(value, propertyNames[i], out);
+				}
 			}
 		}
 
-		return rootNode;
+		writeXmlEndTag(rootNode, out);
 	}
 
-	// for debugging only
-	@SuppressWarnings("unused")
-	private final String printDoc(final Document doc) throws Exception {
-		TransformerFactory tf = TransformerFactory.newInstance();
-		Transformer transformer = tf.newTransformer();
-		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-		StringWriter writer = new StringWriter();
-		transformer.transform(new DOMSource(doc), new StreamResult(writer));
-		return writer.getBuffer().toString();
-	}
-
-	private static Element toXml(final Object o, final String name, final Document doc) {
-		final Element e = doc.createElementNS(REST_NS, name);
+	private static void writeXmlValue(final Object o, final String name,
+			final Writer out) throws IOException {
+		writeXmlStartTag(name, out);
 
 		if ("usingBundles".equals(name)) {
 			for (final String bundle : (String[]) o) {
-				e.appendChild(toXml(bundle, "bundle", doc));
+				writeXmlValue(bundle, "bundle", out);
 			}
 		} else if (o instanceof Map) {
-			@SuppressWarnings("unchecked")
-			final Map<Object, Object> map = (Map<Object, Object>) o;
-			for (final Map.Entry<Object, Object> entry : map.entrySet()) {
-				final Element elem = doc.createElementNS(REST_NS, "property");
-				elem.setAttribute("name", entry.getKey().toString());
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
 				final Object val = entry.getValue();
+				out.write("<property name=\"");
+				writeXmlEscaped(entry.getKey().toString(), true, out);
+				out.write('"');
 				if (val.getClass().isArray()) {
-					final String type = getType(o.getClass().getComponentType());
-					if (type != null) {
-						e.setAttribute("type", type);
-					}
+					out.write('>');
 					final int len = Array.getLength(val);
-					final StringBuilder sb = new StringBuilder();
 					for (int i = 0; i < len; i++) {
-						sb.append(Array.get(val, i).toString());
-						if (i < len) {
-							sb.append('\n');
-						}
+						writeXmlEscaped(String.valueOf(Array.get(val, i)),
+								false, out);
+						out.write('\n');
 					}
-					elem.setTextContent(sb.toString());
+					out.write("</property>");
 				} else {
 					final String type = getType(val.getClass());
 					if (type != null) {
-						elem.setAttribute("type", type);
+						out.write(" type=\"");
+						out.write(type);
+						out.write('"');
 					}
-					elem.setAttribute("value", val.toString());
+					out.write(" value=\"");
+					writeXmlEscaped(val.toString(), true, out);
+					out.write("\"/>");
 				}
-				e.appendChild(elem);
 			}
 		} else {
-			e.setTextContent(o.toString());
+			writeXmlEscaped(o.toString(), false, out);
 		}
 
-		return e;
+		writeXmlEndTag(name, out);
 	}
 
-	private static String getType(Class<? extends Object> cls) {
-		return typeCache.get(cls);
+	private static void writeXmlStartTag(final String name, final Writer out)
+			throws IOException {
+		out.write('<');
+		out.write(name);
+		out.write('>');
 	}
 
-	public static Document mapToXml(final Map<String, String> map) throws Exception {
-		final DocumentBuilder builder = factory.newDocumentBuilder();
-		final Document doc = builder.newDocument();
+	private static void writeXmlEndTag(final String name, final Writer out)
+			throws IOException {
+		out.write("</");
+		out.write(name);
+		out.write('>');
+	}
 
-		final Element rootNode = doc.createElementNS(REST_NS, "bundleHeader");
-		doc.appendChild(rootNode);
+	private static void writeXmlEscaped(final String s, final boolean attr,
+			final Writer out) throws IOException {
+		final int len = s.length();
+		for (int i = 0; i < len; i++) {
+			final char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				out.write("&amp;");
+				break;
+			case '<':
+				out.write("&lt;");
+				break;
+			case '>':
+				out.write("&gt;");
+				break;
+			case '"':
+				if (attr) {
+					out.write("&quot;");
+				} else {
+					out.write(c);
+				}
+				break;
+			case '\r':
+				// parsers turn line breaks into newlines
+				out.write("&#13;");
+				break;
+			case '\t':
+			case '\n':
+				// and white space in attributes into blanks
+				if (attr) {
+					out.write("&#");
+					out.write(Integer.toString(c));
+					out.write(';');
+				} else {
+					out.write(c);
+				}
+				break;
+			default:
+				out.write(c);
+			}
+		}
+	}
+
+	private static Object get(final Method getter, final Object bean)
+			throws IOException {
+		try {
+			return getter.invoke(bean);
+		} catch (final Exception e) {
+			final IOException ioe = new IOException(getter.getName());
+			ioe.initCause(e);
+			throw ioe;
+		}
+	}
+
+	private static String getType(Class<? extends Object> cls) {
+		return typeCache.get(cls);
+	}
 
-		for (final String key : map.keySet()) {
-			final Element entry = doc.createElementNS(REST_NS, "entry");
-			entry.setAttribute("key", key);
-			entry.setAttribute("value", map.get(key));
-			rootNode.appendChild(entry);
+	private static void writeXmlHeader(final Map<?, ?> map, final Writer out)
+			throws IOException {
+		out.write("<bundleHeader xmlns=\"" + REST_NS + "\">");
+		for (final Map.Entry<?, ?> entry : map.entrySet()) {
+			out.write("<entry key=\"");
+			writeXmlEscaped(String.valueOf(entry.getKey()), true, out);
+			out.write("\" value=\"");
+			writeXmlEscaped(String.valueOf(entry.getValue()), true, out);
+			out.write("\"/>");
 		}
+		writeXmlEndTag("bundleHeader", out);
+	}
 
-		return doc;
+	/**
+	 * validate an XML document against the REST schema. Only used in debug
+	 * mode, and only if the schema is available.
+	 * 
+	 * @param xml the document.
+	 * @throws Exception if the document is invalid.
+	 */
+	public static void validate(final String xml) throws Exception {
+		final Schema s;
+		synchronized (PojoReflector.class) {
+			if (schema == null) {
+				final InputStream in = PojoReflector.class
+						.getResourceAsStream("/rest.xsd");
+				if (in == null) {
+					return;
+				}
+				schema = SchemaFactory.newInstance(
+						XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(
+						new StreamSource(in));
+			}
+			s = schema;
+		}
+		s.newValidator().validate(new StreamSource(new StringReader(xml)));
 	}
 
 	@Retention(RetentionPolicy.RUNTIME)
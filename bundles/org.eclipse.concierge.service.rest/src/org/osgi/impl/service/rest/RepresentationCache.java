@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of serialized representations, keyed by the request and media type
+ * and valid for one version of the framework state. Since the version only
+ * grows, entries of older versions are dropped as soon as a newer one is
+ * cached.
+ */
+public final class RepresentationCache {
+
+	private final LinkedHashMap<String, Entry>	entries;
+
+	public RepresentationCache(final int capacity) {
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+			private static final long	serialVersionUID	= 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, Entry> eldest) {
+				return size() > capacity;
+			}
+
+		};
+	}
+
+	/**
+	 * get a cached representation.
+	 * 
+	 * @param key the request key.
+	 * @param version the current version of the framework state.
+	 * @return the entry, or <code>null</code> if there is none for this
+	 *         version.
+	 */
+	public synchronized Entry get(final String key, final long version) {
+		final Entry entry = entries.get(key);
+		return entry == null || entry.version != version ? null : entry;
+	}
+
+	/**
+	 * cache a representation.
+	 * 
+	 * @param key the request key.
+	 * @param version the version of the framework state the representation
+	 *            was computed for.
+	 * @param bytes the serialized representation.
+	 * @param removed for delta queries, the paths of the removed entries,
+	 *            <code>null</code> otherwise.
+	 * @return the new entry.
+	 */
+	public synchronized Entry put(final String key, final long version,
+			final byte[] bytes, final List<String> removed) {
+		final Iterator<Entry> iter = entries.values().iterator();
+		while (iter.hasNext()) {
+			if (iter.next().version < version) {
+				iter.remove();
+			}
+		}
+
+		final Entry entry = new Entry(version, bytes, removed);
+		entries.put(key, entry);
+		return entry;
+	}
+
+	/**
+	 * a cached representation.
+	 */
+	public static final class Entry {
+
+		private final long			version;
+		private final byte[]		bytes;
+		private final List<String>	removed;
+
+		Entry(final long version, final byte[] bytes,
+				final List<String> removed) {
+			this.version = version;
+			this.bytes = bytes;
+			this.removed = removed;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return for delta queries, the paths of the removed entries,
+		 *         <code>null</code> otherwise.
+		 */
+		public List<String> getRemoved() {
+			return removed;
+		}
+
+	}
+
+}
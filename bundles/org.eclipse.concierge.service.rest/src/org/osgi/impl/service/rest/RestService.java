@@ -20,12 +20,14 @@ import java.util.HashMap;
 import java.util.Map;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
+import org.osgi.impl.service.rest.resources.BatchResource;
 import org.osgi.impl.service.rest.resources.BundleHeaderResource;
 import org.osgi.impl.service.rest.resources.BundleRepresentationsResource;
 import org.osgi.impl.service.rest.resources.BundleResource;
 import org.osgi.impl.service.rest.resources.BundleStartLevelResource;
 import org.osgi.impl.service.rest.resources.BundleStateResource;
 import org.osgi.impl.service.rest.resources.BundlesResource;
+import org.osgi.impl.service.rest.resources.EventsResource;
 import org.osgi.impl.service.rest.resources.ExtensionsResource;
 import org.osgi.impl.service.rest.resources.FrameworkStartLevelResource;
 import org.osgi.impl.service.rest.resources.ServiceListResource;
@@ -50,16 +52,46 @@ public class RestService extends Application {
 
 	public static final String													TRACKER_ATTR		= "tracker";
 
+	public static final String													DEBUG_ATTR			= "debug";
+
+	public static final String													EVENTS_ATTR			= "events";
+
+	public static final String													EVENTS_TIMEOUT_ATTR	= "eventsTimeout";
+
+	public static final String													CACHE_ATTR			= "cache";
+
+	/**
+	 * if set to true, XML representations are validated against the schema
+	 * before they are sent.
+	 */
+	public static final String													DEBUG_PROPERTY		= "org.osgi.impl.service.rest.debug";
+
+	/**
+	 * the number of events that are kept for clients of the event stream to
+	 * resume from.
+	 */
+	public static final String													EVENTS_CAPACITY_PROPERTY	= "org.osgi.impl.service.rest.events.capacity";
+
+	/**
+	 * the time in milliseconds after which an event stream is closed and the
+	 * client has to reconnect.
+	 */
+	public static final String													EVENTS_TIMEOUT_PROPERTY		= "org.osgi.impl.service.rest.events.timeout";
+
 	public static final String													SERVICE_ID_KEY		= "serviceId";
 
 	public static final String													FILTER_ID_KEY		= "filter";
 
 	public static final String													BUNDLE_ID_KEY		= "bundleId";
 
+	public static final String													SINCE_KEY			= "since";
+
 	private final BundleContext													context;
 
 	private ServiceTracker<RestApiExtension, Class<? extends ServerResource>>	tracker;
 
+	private EventLog															events;
+
 	RestService(final BundleContext context) {
 		this.context = context;
 	}
@@ -68,6 +100,18 @@ public class RestService extends Application {
 	public synchronized Restlet createInboundRoot() {
 		final Map<String, Object> attributes = new HashMap<String, Object>();
 		attributes.put(BUNDLE_CONTEXT_ATTR, context);
+		attributes.put(DEBUG_ATTR,
+				Boolean.valueOf(context.getProperty(DEBUG_PROPERTY)));
+
+		events = new EventLog(Math.max(1,
+				getIntProperty(EVENTS_CAPACITY_PROPERTY, 1024)));
+		context.addBundleListener(events);
+		context.addServiceListener(events);
+		context.addFrameworkListener(events);
+		attributes.put(EVENTS_ATTR, events);
+		attributes.put(EVENTS_TIMEOUT_ATTR,
+				Long.valueOf(getIntProperty(EVENTS_TIMEOUT_PROPERTY, 60000)));
+		attributes.put(CACHE_ATTR, new RepresentationCache(32));
 
 		final Router root = new Router(getContext());
 		// framework
@@ -75,6 +119,12 @@ public class RestService extends Application {
 		root.attach("/framework", framework);
 		framework.attach("/startlevel", FrameworkStartLevelResource.class);
 
+		// the event stream
+		framework.attach("/events", EventsResource.class);
+
+		// batches of bundle operations
+		framework.attach("/batch", BatchResource.class);
+
 		// the registered bundles
 		framework.attach("/bundles", BundlesResource.class);
 		framework.attach("/bundles/representations",
@@ -115,6 +165,31 @@ public class RestService extends Application {
 		return root;
 	}
 
+	@Override
+	public synchronized void stop() throws Exception {
+		if (events != null) {
+			context.removeBundleListener(events);
+			context.removeServiceListener(events);
+			context.removeFrameworkListener(events);
+			// end the open event streams
+			events.close();
+			events = null;
+		}
+		super.stop();
+	}
+
+	private int getIntProperty(final String key, final int defaultValue) {
+		final String value = context.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (final NumberFormatException nfe) {
+			return defaultValue;
+		}
+	}
+
 	protected static class ExtensionsTrackerCustomizer
 			implements
 			ServiceTrackerCustomizer<RestApiExtension, Class<? extends ServerResource>> {
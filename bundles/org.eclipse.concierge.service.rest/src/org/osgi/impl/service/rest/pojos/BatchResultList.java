@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.pojos;
+
+import java.util.ArrayList;
+import org.osgi.impl.service.rest.PojoReflector.RootNode;
+
+/**
+ * List of the results of a batch, in the order of the operations.
+ */
+@RootNode(name = "results")
+@SuppressWarnings("serial")
+public final class BatchResultList extends ArrayList<BatchResultPojo> {
+
+}
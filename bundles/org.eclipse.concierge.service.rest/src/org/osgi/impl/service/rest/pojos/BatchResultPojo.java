@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.pojos;
+
+import org.osgi.framework.BundleException;
+import org.osgi.impl.service.rest.PojoReflector.RootNode;
+
+/**
+ * Pojo for the result of a single operation of a batch.
+ */
+@RootNode(name = "result")
+public final class BatchResultPojo {
+
+	private int		status;
+	private String	bundle;
+	private Integer	state;
+	private Integer	typecode;
+	private String	message;
+
+	public BatchResultPojo() {
+
+	}
+
+	public BatchResultPojo(final int status, final String message) {
+		this.status = status;
+		this.message = message;
+	}
+
+	public BatchResultPojo(final int status, final BundleException be) {
+		this.status = status;
+		this.typecode = Integer.valueOf(be.getType());
+		this.message = be.toString();
+	}
+
+	public BatchResultPojo(final int status,
+			final org.osgi.framework.Bundle b) {
+		this.status = status;
+		this.bundle = "framework/bundle/" + b.getBundleId();
+		this.state = Integer.valueOf(b.getState());
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(final int status) {
+		this.status = status;
+	}
+
+	public String getBundle() {
+		return bundle;
+	}
+
+	public void setBundle(final String bundle) {
+		this.bundle = bundle;
+	}
+
+	public Integer getState() {
+		return state;
+	}
+
+	public void setState(final Integer state) {
+		this.state = state;
+	}
+
+	public Integer getTypecode() {
+		return typecode;
+	}
+
+	public void setTypecode(final Integer typecode) {
+		this.typecode = typecode;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(final String message) {
+		this.message = message;
+	}
+
+}
@@ -14,16 +14,14 @@
 
 package org.osgi.impl.service.rest.resources;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -39,13 +37,13 @@ import org.osgi.framework.wiring.BundleRevision;
 import org.osgi.impl.service.rest.PojoReflector;
 import org.osgi.impl.service.rest.RestService;
 import org.osgi.impl.service.rest.pojos.BundleExceptionPojo;
-import org.osgi.impl.service.rest.pojos.ServicePojo;
 import org.osgi.resource.Capability;
 import org.osgi.service.rest.RestApiExtension;
 import org.osgi.util.tracker.ServiceTracker;
 import org.restlet.data.MediaType;
 import org.restlet.data.Status;
 import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
 import org.restlet.representation.Variant;
 import org.restlet.resource.ServerResource;
 import org.w3c.dom.Document;
@@ -78,7 +76,7 @@ public class AbstractOSGiResource<T> extends ServerResource {
 
 	private final PojoReflector<T>			reflector;
 
-	private final MediaType					xmlMediaType;
+	protected final MediaType				xmlMediaType;
 
 	private final MediaType					jsonMediaType;
 
@@ -128,10 +126,12 @@ public class AbstractOSGiResource<T> extends ServerResource {
 			throws InvalidSyntaxException {
 		final BundleContext context = getBundleContext();
 
-		if (getQuery().isEmpty()) {
+		final Map<String, String> filterMap = getQuery().getValuesMap();
+		// not a filter
+		filterMap.remove(RestService.SINCE_KEY);
+		if (filterMap.isEmpty()) {
 			return context.getBundles();
 		}
-		final Map<String, String> filterMap = getQuery().getValuesMap();
 
 		final Bundle[] bundles = context.getBundles();
 
@@ -218,71 +218,40 @@ public class AbstractOSGiResource<T> extends ServerResource {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	protected Representation getRepresentation(final Object bean,
 			final Variant variant) throws Exception {
-		final Representation rep;
-
-		final MediaType mt;
+		final MediaType mt = getMediaType(variant);
+		if (mt == xmlMediaType) {
+			if (isDebug()) {
+				// render eagerly so that schema violations become errors
+				final StringWriter buffer = new StringWriter();
+				PojoReflector.writeXml(bean, buffer);
+				final String xml = buffer.toString();
+				PojoReflector.validate(xml);
+				return new StringRepresentation(xml, xmlMediaType);
+			}
+			return new PojoRepresentation(bean, true, xmlMediaType);
+		}
+		return new PojoRepresentation(bean, false, jsonMediaType);
+	}
 
+	protected MediaType getMediaType(final Variant variant) {
 		if (xmlMediaType.includes(variant.getMediaType()) ||
 				MediaType.APPLICATION_XML.includes(variant.getMediaType()) ||
 				MediaType.TEXT_XML.includes(variant.getMediaType())) {
-			mt = xmlMediaType;
-
-			if (bean instanceof Map) {
-				// special case: bundle header is a plain map and has no
-				// reflector
-				rep = toRepresentation(PojoReflector.mapToXml((Map<String, String>) bean), new Variant(MediaType.APPLICATION_ALL_XML));
-			} else {
-				rep = toRepresentation(reflector.xmlFromBean((T) bean), new Variant(MediaType.APPLICATION_ALL_XML));
-			}
+			return xmlMediaType;
 		} else if (jsonMediaType.includes(variant.getMediaType())
 				|| MediaType.APPLICATION_JSON.includes(variant.getMediaType())
 				|| MediaType.TEXT_PLAIN.includes(variant.getMediaType())) {
-			mt = jsonMediaType;
-
-			// in an ideal world we would not have to massage the data
-			// in order to get it to serialize properly...
-			if (bean instanceof Collection) {
-				final Collection<Object> reprList = new ArrayList<Object>();
-				for (final Object o : (Collection<?>) bean) {
-					if (o instanceof String) {
-						reprList.add(o);
-					} else {
-						reprList.add(jsonObject(o));
-					}
-				}
-				final JSONArray arr = new JSONArray(reprList);
-				rep = toRepresentation(arr, variant);
-			} else if (bean instanceof Map) {
-				rep = toRepresentation(new JSONObject((Map<?, ?>) bean),
-						variant);
-			} else {
-				rep = toRepresentation(jsonObject(bean), variant);
-			}
-		} else {
-			throw new UnsupportedOperationException(variant.getMediaType()
-					.toString());
+			return jsonMediaType;
 		}
-		rep.setMediaType(mt);
-		return rep;
+		throw new UnsupportedOperationException(variant.getMediaType()
+				.toString());
 	}
 
-	private JSONObject jsonObject(final Object bean) {
-		if (bean instanceof ServicePojo) {
-			// fix for buggy JSONObject
-			final JSONObject json = new JSONObject(bean);
-			try {
-				json.put("properties", new JSONObject(((ServicePojo) bean).getProperties()));
-				json.put("usingBundles", new JSONArray(((ServicePojo) bean).getUsingBundles()));
-			} catch (final JSONException e) {
-				e.printStackTrace();
-			}
-			return json;
-		} else {
-			return new JSONObject(bean);
-		}
+	protected boolean isDebug() {
+		return Boolean.TRUE.equals(getContext().getAttributes().get(
+				RestService.DEBUG_ATTR));
 	}
 
 	protected T fromRepresentation(final Representation r, final MediaType mediaType)
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.impl.service.rest.EventLog;
+import org.osgi.impl.service.rest.PojoReflector;
+import org.osgi.impl.service.rest.RepresentationCache;
+import org.osgi.impl.service.rest.RestService;
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Tag;
+import org.restlet.representation.Representation;
+import org.restlet.representation.Variant;
+
+/**
+ * Abstract resource for the lists of bundles or services whose state is
+ * versioned by the event log. Only lists that change with bundle or service
+ * events can be versioned, the using bundles of a service, for instance, are
+ * not evented.
+ *
+ * @param <T> the pojo base class which is reflected by the pojo reflector.
+ */
+public abstract class AbstractVersionedResource<T> extends
+		AbstractOSGiResource<T> {
+
+	private static final String	REMOVED_HEADER	= "X-OSGi-Removed";
+
+	protected AbstractVersionedResource(final PojoReflector<T> reflector,
+			final MediaType mediaType) {
+		super(reflector, mediaType);
+	}
+
+	/**
+	 * get the representation of a list of bundles or services, tagged with
+	 * the version of the framework state. The serialized representation is
+	 * cached until the version changes, conditional requests are answered
+	 * by the conditional handling of the resource. With a
+	 * <code>since</code> query parameter, only the entries that changed after
+	 * the given version are returned and the paths of the entries that are
+	 * gone are listed in the <code>X-OSGi-Removed</code> header. If the
+	 * version is too old, the full list is returned without this header.
+	 * A <code>since</code> that is not a number is rejected with an
+	 * {@link IllegalArgumentException}.
+	 * 
+	 * @param variant the variant.
+	 * @param event {@link EventLog#BUNDLE} for bundle lists,
+	 *            {@link EventLog#SERVICE} for service lists.
+	 * @return the representation.
+	 * @throws Exception if the state cannot be retrieved.
+	 */
+	protected Representation getVersionedRepresentation(
+			final Variant variant, final String event) throws Exception {
+		final EventLog log = (EventLog) getContext().getAttributes().get(
+				RestService.EVENTS_ATTR);
+		final RepresentationCache cache = (RepresentationCache) getContext()
+				.getAttributes().get(RestService.CACHE_ATTR);
+		if (log == null || cache == null) {
+			return getRepresentation(getState(null, null), variant);
+		}
+
+		final Long since = getSince();
+
+		// read the version before the state, a concurrent change then leads
+		// to a newer version
+		final long version = log.getLastId();
+		final MediaType mt = getMediaType(variant);
+		final String key = getReference().getPath() + '?'
+				+ getReference().getQuery() + ' ' + mt;
+
+		RepresentationCache.Entry entry = cache.get(key, version);
+		if (entry == null) {
+			final Set<Long> changed = since == null ? null : log.getChanged(
+					since.longValue(), event);
+			final List<String> removed = changed == null ? null
+					: new ArrayList<String>();
+			final Object bean = getState(changed, removed);
+
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final Writer writer = new OutputStreamWriter(bytes, "UTF-8");
+			if (mt == xmlMediaType) {
+				PojoReflector.writeXml(bean, writer);
+			} else {
+				PojoReflector.writeJSON(bean, writer);
+			}
+			writer.close();
+			if (mt == xmlMediaType && isDebug()) {
+				PojoReflector.validate(bytes.toString("UTF-8"));
+			}
+			entry = cache.put(key, version, bytes.toByteArray(), removed);
+		}
+
+		if (entry.getRemoved() != null) {
+			Form headers = (Form) getResponseAttributes().get(
+					"org.restlet.http.headers");
+			if (headers == null) {
+				headers = new Form();
+				getResponseAttributes().put("org.restlet.http.headers",
+						headers);
+			}
+			final StringBuilder sb = new StringBuilder();
+			for (final String path : entry.getRemoved()) {
+				if (sb.length() > 0) {
+					sb.append(',');
+				}
+				sb.append(path);
+			}
+			headers.add(REMOVED_HEADER, sb.toString());
+		}
+
+		final Representation rep = new CachedRepresentation(entry.getBytes(),
+				mt);
+		rep.setTag(new Tag(version + (mt == xmlMediaType ? "x" : "j")));
+		return rep;
+	}
+
+	/**
+	 * get the state of a versioned resource.
+	 * 
+	 * @param changed the ids of the changed bundles or services, or
+	 *            <code>null</code> for the full state.
+	 * @param removed the list to add the paths of changed entries to that are
+	 *            no longer present, <code>null</code> for the full state.
+	 * @return the pojo.
+	 * @throws Exception if the state cannot be retrieved.
+	 */
+	protected abstract Object getState(final Set<Long> changed,
+			final List<String> removed) throws Exception;
+
+	protected Bundle[] selectBundles(final Bundle[] bundles,
+			final Set<Long> changed, final List<String> removed) {
+		if (changed == null) {
+			return bundles;
+		}
+		final Set<Long> missing = new HashSet<Long>(changed);
+		final ArrayList<Bundle> result = new ArrayList<Bundle>();
+		for (final Bundle bundle : bundles) {
+			if (missing.remove(Long.valueOf(bundle.getBundleId()))) {
+				result.add(bundle);
+			}
+		}
+		for (final Long id : missing) {
+			removed.add("framework/bundle/" + id);
+		}
+		return result.toArray(new Bundle[result.size()]);
+	}
+
+	protected ServiceReference<?>[] selectServices(
+			final ServiceReference<?>[] srefs, final Set<Long> changed,
+			final List<String> removed) {
+		if (changed == null) {
+			return srefs == null ? new ServiceReference<?>[0] : srefs;
+		}
+		final Set<Long> missing = new HashSet<Long>(changed);
+		final ArrayList<ServiceReference<?>> result = new ArrayList<ServiceReference<?>>();
+		if (srefs != null) {
+			for (final ServiceReference<?> sref : srefs) {
+				if (missing.remove(sref.getProperty(Constants.SERVICE_ID))) {
+					result.add(sref);
+				}
+			}
+		}
+		for (final Long id : missing) {
+			removed.add("framework/service/" + id);
+		}
+		return result.toArray(new ServiceReference<?>[result.size()]);
+	}
+
+	private Long getSince() {
+		final String since = getQuery().getFirstValue(RestService.SINCE_KEY);
+		if (since == null) {
+			return null;
+		}
+		try {
+			return Long.valueOf(since);
+		} catch (final NumberFormatException nfe) {
+			throw new IllegalArgumentException("Invalid version " + since);
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import java.net.URL;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.impl.service.rest.pojos.BatchResultList;
+import org.osgi.impl.service.rest.pojos.BatchResultPojo;
+import org.restlet.data.Status;
+
+/**
+ * Executes the operations of a batch against a bundle context, see
+ * {@link BatchResource} for the operations.
+ */
+final class BatchExecutor {
+
+	private final BundleContext	context;
+
+	BatchExecutor(final BundleContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * execute the operations in order. A failed operation does not abort the
+	 * batch, its result carries the error.
+	 * 
+	 * @param ops the operations.
+	 * @return the results, one per operation.
+	 * @throws JSONException if an element of the array is not an object.
+	 */
+	BatchResultList execute(final JSONArray ops) throws JSONException {
+		final BatchResultList results = new BatchResultList();
+		for (int i = 0; i < ops.length(); i++) {
+			results.add(execute(ops.getJSONObject(i)));
+		}
+		return results;
+	}
+
+	/**
+	 * execute a single operation.
+	 * 
+	 * @param op the operation.
+	 * @return the result of the operation.
+	 */
+	BatchResultPojo execute(final JSONObject op) {
+		try {
+			final String type = op.getString("op");
+
+			if ("install".equals(type)) {
+				final String location = op.getString("location");
+				if (context.getBundle(location) != null) {
+					return new BatchResultPojo(
+							Status.CLIENT_ERROR_CONFLICT.getCode(),
+							"location already in use: " + location);
+				}
+				return new BatchResultPojo(Status.SUCCESS_OK.getCode(),
+						context.installBundle(location));
+			}
+
+			final Bundle bundle = op.has("id") ? context.getBundle(op
+					.getLong("id")) : context.getBundle(op
+					.getString("location"));
+			if (bundle == null) {
+				return new BatchResultPojo(
+						Status.CLIENT_ERROR_NOT_FOUND.getCode(), "no such bundle");
+			}
+
+			if ("start".equals(type)) {
+				bundle.start(op.has("options") ? op.getInt("options") : 0);
+			} else if ("stop".equals(type)) {
+				bundle.stop(op.has("options") ? op.getInt("options") : 0);
+			} else if ("update".equals(type)) {
+				if (op.has("url")) {
+					bundle.update(new URL(op.getString("url")).openStream());
+				} else {
+					bundle.update();
+				}
+			} else if ("uninstall".equals(type)) {
+				bundle.uninstall();
+			} else if ("startlevel".equals(type)) {
+				bundle.adapt(BundleStartLevel.class).setStartLevel(
+						op.getInt("startLevel"));
+			} else if (!"state".equals(type)) {
+				return new BatchResultPojo(
+						Status.CLIENT_ERROR_BAD_REQUEST.getCode(),
+						"unknown operation " + type);
+			}
+
+			return new BatchResultPojo(Status.SUCCESS_OK.getCode(), bundle);
+		} catch (final BundleException be) {
+			return new BatchResultPojo(
+					Status.CLIENT_ERROR_BAD_REQUEST.getCode(), be);
+		} catch (final JSONException je) {
+			return new BatchResultPojo(
+					Status.CLIENT_ERROR_BAD_REQUEST.getCode(), je.getMessage());
+		} catch (final IllegalArgumentException iae) {
+			return new BatchResultPojo(
+					Status.CLIENT_ERROR_BAD_REQUEST.getCode(), iae.getMessage());
+		} catch (final Exception e) {
+			return new BatchResultPojo(Status.SERVER_ERROR_INTERNAL.getCode(),
+					e.toString());
+		}
+	}
+
+}
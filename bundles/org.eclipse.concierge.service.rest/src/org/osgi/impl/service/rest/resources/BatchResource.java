@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.osgi.impl.service.rest.PojoReflector;
+import org.osgi.impl.service.rest.pojos.BatchResultList;
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+import org.restlet.representation.Representation;
+import org.restlet.representation.Variant;
+
+/**
+ * The batch resource. Executes an ordered list of bundle operations and
+ * returns a result for every operation. An operation is a JSON object with
+ * an <code>op</code> of <code>install</code>, <code>start</code>,
+ * <code>stop</code>, <code>update</code>, <code>uninstall</code>,
+ * <code>startlevel</code>, or <code>state</code>. Except for install, the
+ * bundle is given by its <code>id</code> or its <code>location</code>, so
+ * that a bundle installed earlier in the same batch can be referenced.
+ * Operations take the same arguments as the corresponding resources:
+ * <code>options</code> for start and stop, an optional <code>url</code> for
+ * update, and <code>startLevel</code> for startlevel. A failed operation does
+ * not abort the batch.
+ */
+public class BatchResource extends AbstractOSGiResource<BatchResultList> {
+
+	private static final MediaType	MEDIA_TYPE	= MediaType.valueOf("application/org.osgi.batch");
+
+	public BatchResource() {
+		super(PojoReflector.getReflector(BatchResultList.class), MEDIA_TYPE);
+	}
+
+	@Override
+	public Representation post(final Representation content,
+			final Variant variant) {
+		try {
+			if (MediaType.APPLICATION_ALL_XML.includes(content.getMediaType())) {
+				return ERROR(Status.CLIENT_ERROR_UNSUPPORTED_MEDIA_TYPE);
+			}
+
+			final JSONArray ops = new JSONArray(content.getText());
+			return getRepresentation(
+					new BatchExecutor(getBundleContext()).execute(ops),
+					variant);
+		} catch (final JSONException e) {
+			return ERROR(Status.CLIENT_ERROR_BAD_REQUEST, e.getMessage());
+		} catch (final Exception e) {
+			return ERROR(e, variant);
+		}
+	}
+
+}
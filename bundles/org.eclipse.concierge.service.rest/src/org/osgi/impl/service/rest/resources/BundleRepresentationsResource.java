@@ -14,6 +14,9 @@
 
 package org.osgi.impl.service.rest.resources;
 
+import java.util.List;
+import java.util.Set;
+import org.osgi.impl.service.rest.EventLog;
 import org.osgi.impl.service.rest.PojoReflector;
 import org.osgi.impl.service.rest.pojos.BundleRepresentationsList;
 import org.restlet.data.MediaType;
@@ -27,7 +30,7 @@ import org.restlet.representation.Variant;
  * @author Jan S. Rellermeyer, IBM Research
  */
 public class BundleRepresentationsResource extends
-		AbstractOSGiResource<BundleRepresentationsList> {
+		AbstractVersionedResource<BundleRepresentationsList> {
 
 	private static final MediaType	MEDIA_TYPE	= MediaType.valueOf("application/org.osgi.bundles.representations");
 
@@ -38,12 +41,17 @@ public class BundleRepresentationsResource extends
 	@Override
 	public Representation get(final Variant variant) {
 		try {
-			final Representation rep = getRepresentation(
-					new BundleRepresentationsList(getBundles()), variant);
-			return rep;
+			return getVersionedRepresentation(variant, EventLog.BUNDLE);
 		} catch (final Exception e) {
 			return ERROR(e, variant);
 		}
 	}
 
+	@Override
+	protected Object getState(final Set<Long> changed,
+			final List<String> removed) throws Exception {
+		return new BundleRepresentationsList(selectBundles(getBundles(),
+				changed, removed));
+	}
+
 }
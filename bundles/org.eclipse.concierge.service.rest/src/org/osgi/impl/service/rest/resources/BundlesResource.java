@@ -14,8 +14,11 @@
 
 package org.osgi.impl.service.rest.resources;
 
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import org.osgi.framework.Bundle;
+import org.osgi.impl.service.rest.EventLog;
 import org.osgi.impl.service.rest.PojoReflector;
 import org.osgi.impl.service.rest.pojos.BundlePojoList;
 import org.restlet.data.Form;
@@ -30,7 +33,7 @@ import org.restlet.representation.Variant;
  * 
  * @author Jan S. Rellermeyer, IBM Research
  */
-public class BundlesResource extends AbstractOSGiResource<BundlePojoList> {
+public class BundlesResource extends AbstractVersionedResource<BundlePojoList> {
 
 	private static final MediaType	MEDIA_TYPE	= MediaType.valueOf("application/org.osgi.bundles");
 
@@ -41,14 +44,18 @@ public class BundlesResource extends AbstractOSGiResource<BundlePojoList> {
 	@Override
 	public Representation get(final Variant variant) {
 		try {
-			final Representation rep = getRepresentation(new BundlePojoList(
-					getBundles()), variant);
-			return rep;
+			return getVersionedRepresentation(variant, EventLog.BUNDLE);
 		} catch (final Exception e) {
 			return ERROR(e, variant);
 		}
 	}
 
+	@Override
+	protected Object getState(final Set<Long> changed,
+			final List<String> removed) throws Exception {
+		return new BundlePojoList(selectBundles(getBundles(), changed, removed));
+	}
+
 	@Override
 	public Representation post(final Representation content,
 			final Variant variant) {
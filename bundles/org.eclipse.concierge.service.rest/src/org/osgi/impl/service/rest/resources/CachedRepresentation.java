@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
+import org.restlet.representation.OutputRepresentation;
+
+/**
+ * Representation of an already serialized, cached pojo.
+ */
+final class CachedRepresentation extends OutputRepresentation {
+
+	private final byte[]	bytes;
+
+	CachedRepresentation(final byte[] bytes, final MediaType mediaType) {
+		super(mediaType, bytes.length);
+		this.bytes = bytes;
+		setCharacterSet(CharacterSet.UTF_8);
+	}
+
+	@Override
+	public void write(final OutputStream out) throws IOException {
+		out.write(bytes);
+	}
+
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.osgi.impl.service.rest.EventLog;
+import org.osgi.impl.service.rest.RestService;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+import org.restlet.representation.Representation;
+import org.restlet.representation.WriterRepresentation;
+import org.restlet.resource.ServerResource;
+
+/**
+ * The events resource, a server-sent event stream of bundle, service, and
+ * framework events. The stream starts with a <code>sync</code> event that
+ * carries the current sequence number, so a client connects first and then
+ * fetches the snapshots. To resume, a client passes the id of the last event
+ * it has seen as <code>Last-Event-ID</code> header or
+ * <code>lastEventId</code> query parameter. If these events are no longer in
+ * the log, the stream continues with a <code>reset</code> event and the
+ * client has to fetch the snapshots again. The stream ends after a while so
+ * that server threads are not held forever, clients reconnect with the last
+ * id. When the REST service stops, open streams end right away.
+ */
+public class EventsResource extends ServerResource {
+
+	private static final MediaType	MEDIA_TYPE			= MediaType.valueOf("text/event-stream");
+
+	private static final String		LAST_EVENT_ID		= "Last-Event-ID";
+
+	private static final String		LAST_EVENT_ID_KEY	= "lastEventId";
+
+	private static final long		KEEPALIVE			= 15000;
+
+	public EventsResource() {
+		setNegotiated(false);
+	}
+
+	@Override
+	public Representation get() {
+		final EventLog log = (EventLog) getContext().getAttributes().get(
+				RestService.EVENTS_ATTR);
+		if (log == null) {
+			setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+			return null;
+		}
+
+		long lastId = -1;
+		try {
+			String id = getQuery().getFirstValue(LAST_EVENT_ID_KEY);
+			if (id == null) {
+				final Form headers = (Form) getRequestAttributes().get(
+						"org.restlet.http.headers");
+				if (headers != null) {
+					id = headers.getFirstValue(LAST_EVENT_ID, true);
+				}
+			}
+			if (id != null) {
+				lastId = Long.parseLong(id.trim());
+			}
+		} catch (final NumberFormatException nfe) {
+			setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+			return null;
+		}
+
+		final Long duration = (Long) getContext().getAttributes().get(
+				RestService.EVENTS_TIMEOUT_ATTR);
+		return new EventStream(log, lastId,
+				duration == null ? 0 : duration.longValue());
+	}
+
+	private static final class EventStream extends WriterRepresentation {
+
+		private final EventLog	log;
+
+		private final long		lastId;
+
+		private final long		duration;
+
+		EventStream(final EventLog log, final long lastId, final long duration) {
+			super(MEDIA_TYPE);
+			this.log = log;
+			this.lastId = lastId;
+			this.duration = duration;
+			setCharacterSet(CharacterSet.UTF_8);
+			setTransient(true);
+		}
+
+		@Override
+		public void write(final Writer writer) throws IOException {
+			long last = lastId;
+			if (last < 0) {
+				last = log.getLastId();
+				writeEvent(writer, last, "sync", "{}");
+			}
+
+			final long deadline = System.currentTimeMillis() + duration;
+			try {
+				long remaining;
+				while (!log.isClosed()
+						&& (remaining = deadline - System.currentTimeMillis()) > 0) {
+					final EventLog.Entry[] events = log.getEvents(last,
+							Math.min(remaining, KEEPALIVE));
+					if (events == null) {
+						last = log.getLastId();
+						writeEvent(writer, last, "reset", "{}");
+					} else if (events.length == 0) {
+						// comment line, keeps proxies from closing the
+						// connection
+						writer.write(":\n\n");
+					} else {
+						for (int i = 0; i < events.length; i++) {
+							writeEvent(writer, events[i].getId(),
+									events[i].getEvent(), events[i].getData());
+						}
+						last = events[events.length - 1].getId();
+					}
+					writer.flush();
+				}
+			} catch (final InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private static void writeEvent(final Writer writer, final long id,
+				final String event, final String data) throws IOException {
+			writer.write("id: ");
+			writer.write(Long.toString(id));
+			writer.write("\nevent: ");
+			writer.write(event);
+			writer.write("\ndata: ");
+			writer.write(data);
+			writer.write("\n\n");
+		}
+
+	}
+
+}
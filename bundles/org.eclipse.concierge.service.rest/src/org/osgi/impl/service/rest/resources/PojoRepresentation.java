@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.osgi.impl.service.rest.PojoReflector;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
+import org.restlet.representation.WriterRepresentation;
+
+/**
+ * Representation of a pojo that is written to the response stream as it is
+ * being sent, without building a document or JSON object first.
+ */
+final class PojoRepresentation extends WriterRepresentation {
+
+	private final Object	bean;
+
+	private final boolean	xml;
+
+	PojoRepresentation(final Object bean, final boolean xml,
+			final MediaType mediaType) {
+		super(mediaType);
+		this.bean = bean;
+		this.xml = xml;
+		setCharacterSet(CharacterSet.UTF_8);
+	}
+
+	@Override
+	public void write(final Writer writer) throws IOException {
+		if (xml) {
+			PojoReflector.writeXml(bean, writer);
+		} else {
+			PojoReflector.writeJSON(bean, writer);
+		}
+	}
+
+}
@@ -14,7 +14,10 @@
 
 package org.osgi.impl.service.rest.resources;
 
+import java.util.List;
+import java.util.Set;
 import org.osgi.framework.ServiceReference;
+import org.osgi.impl.service.rest.EventLog;
 import org.osgi.impl.service.rest.PojoReflector;
 import org.osgi.impl.service.rest.RestService;
 import org.osgi.impl.service.rest.pojos.ServicePojoList;
@@ -27,7 +30,7 @@ import org.restlet.representation.Variant;
  * 
  * @author Jan S. Rellermeyer, IBM Research
  */
-public class ServiceListResource extends AbstractOSGiResource<ServicePojoList> {
+public class ServiceListResource extends AbstractVersionedResource<ServicePojoList> {
 
 	private static final MediaType	MEDIA_TYPE	= MediaType.valueOf("application/org.osgi.services");
 
@@ -38,14 +41,19 @@ public class ServiceListResource extends AbstractOSGiResource<ServicePojoList> {
 	@Override
 	public Representation get(final Variant variant) {
 		try {
-			final String filter = getQuery().getFirstValue(RestService.FILTER_ID_KEY);
-
-			final ServiceReference<?>[] srefs = getBundleContext()
-					.getAllServiceReferences(null, filter);
-			return getRepresentation(new ServicePojoList(srefs), variant);
+			return getVersionedRepresentation(variant, EventLog.SERVICE);
 		} catch (final Exception e) {
 			return ERROR(e, variant);
 		}
 	}
 
+	@Override
+	protected Object getState(final Set<Long> changed,
+			final List<String> removed) throws Exception {
+		final String filter = getQuery().getFirstValue(RestService.FILTER_ID_KEY);
+		final ServiceReference<?>[] srefs = getBundleContext()
+				.getAllServiceReferences(null, filter);
+		return new ServicePojoList(selectServices(srefs, changed, removed));
+	}
+
 }
@@ -24,7 +24,9 @@ import org.restlet.representation.Variant;
 
 /**
  * The service representations resource, a list of the full representations of
- * all services.
+ * all services. Unlike the service list, this resource is deliberately neither
+ * versioned nor cached: the representations include the bundles using a
+ * service, which change without a service event.
  * 
  * @author Jan S. Rellermeyer, IBM Research
  */
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Tests the sequence numbers, the bounded capacity, and the waiting of the
+ * event log.
+ */
+public class EventLogTest {
+
+	private ExecutorService	executor;
+
+	private EventLog		log;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadExecutor();
+		log = new EventLog(4);
+	}
+
+	@After
+	public void tearDown() {
+		log.close();
+		executor.shutdownNow();
+	}
+
+	private static Bundle bundle(final long id) {
+		return (Bundle) Proxy.newProxyInstance(
+				EventLogTest.class.getClassLoader(),
+				new Class<?>[] { Bundle.class }, new InvocationHandler() {
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						return "getBundleId".equals(method.getName()) ? Long
+								.valueOf(id) : null;
+					}
+				});
+	}
+
+	private static ServiceReference<?> service(final long id,
+			final long bundleId) {
+		return (ServiceReference<?>) Proxy.newProxyInstance(
+				EventLogTest.class.getClassLoader(),
+				new Class<?>[] { ServiceReference.class },
+				new InvocationHandler() {
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						if ("getBundle".equals(method.getName())) {
+							return bundle(bundleId);
+						} else if ("getProperty".equals(method.getName())
+								&& Constants.SERVICE_ID.equals(args[0])) {
+							return Long.valueOf(id);
+						}
+						return null;
+					}
+				});
+	}
+
+	private void bundleEvent(final long bundleId) {
+		log.bundleChanged(new BundleEvent(BundleEvent.INSTALLED,
+				bundle(bundleId)));
+	}
+
+	private void serviceEvent(final long serviceId) {
+		log.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, service(
+				serviceId, 1)));
+	}
+
+	private Future<EventLog.Entry[]> waitForEvents(final long lastId) {
+		return executor.submit(new Callable<EventLog.Entry[]>() {
+			public EventLog.Entry[] call() throws Exception {
+				return log.getEvents(lastId, 10000);
+			}
+		});
+	}
+
+	@Test
+	public void testSequenceIds() throws Exception {
+		Assert.assertEquals(0, log.getLastId());
+		Assert.assertEquals(0, log.getEvents(0, 0).length);
+
+		bundleEvent(2);
+		serviceEvent(7);
+		log.frameworkEvent(new FrameworkEvent(FrameworkEvent.STARTED,
+				bundle(0), null));
+		Assert.assertEquals(3, log.getLastId());
+
+		final EventLog.Entry[] events = log.getEvents(0, 0);
+		Assert.assertEquals(3, events.length);
+		for (int i = 0; i < events.length; i++) {
+			Assert.assertEquals(i + 1, events[i].getId());
+		}
+
+		Assert.assertEquals(EventLog.BUNDLE, events[0].getEvent());
+		Assert.assertEquals(BundleEvent.INSTALLED, events[0].getType());
+		Assert.assertEquals(2, events[0].getBundleId());
+		Assert.assertEquals(-1, events[0].getServiceId());
+		Assert.assertEquals("{\"type\":1,\"bundle\":\"framework/bundle/2\"}",
+				events[0].getData());
+
+		Assert.assertEquals(EventLog.SERVICE, events[1].getEvent());
+		Assert.assertEquals(7, events[1].getServiceId());
+		Assert.assertEquals("{\"type\":1,\"service\":\"framework/service/7\","
+				+ "\"bundle\":\"framework/bundle/1\"}", events[1].getData());
+
+		Assert.assertEquals(EventLog.FRAMEWORK, events[2].getEvent());
+
+		final EventLog.Entry[] after = log.getEvents(2, 0);
+		Assert.assertEquals(1, after.length);
+		Assert.assertSame(events[2], after[0]);
+		Assert.assertEquals(0, log.getEvents(3, 0).length);
+	}
+
+	@Test
+	public void testUnknownId() throws Exception {
+		bundleEvent(1);
+		Assert.assertNull(log.getEvents(-1, 0));
+		// e.g., from before a restart of the log
+		Assert.assertNull(log.getEvents(2, 1000));
+		Assert.assertNull(log.getChanged(2, EventLog.BUNDLE));
+	}
+
+	@Test
+	public void testCapacity() throws Exception {
+		for (int i = 1; i <= 6; i++) {
+			bundleEvent(i);
+		}
+		// events 1 and 2 have been dropped
+		Assert.assertNull(log.getEvents(0, 0));
+		Assert.assertNull(log.getEvents(1, 0));
+		Assert.assertNull(log.getChanged(1, EventLog.BUNDLE));
+
+		final EventLog.Entry[] events = log.getEvents(2, 0);
+		Assert.assertEquals(4, events.length);
+		Assert.assertEquals(3, events[0].getId());
+		Assert.assertEquals(6, events[3].getId());
+		Assert.assertEquals(6, events[3].getBundleId());
+	}
+
+	@Test
+	public void testChanged() throws Exception {
+		bundleEvent(1);
+		serviceEvent(10);
+		bundleEvent(2);
+		serviceEvent(11);
+		bundleEvent(1);
+
+		Assert.assertEquals(new HashSet<Long>(Arrays.asList(
+				Long.valueOf(1), Long.valueOf(2))), log.getChanged(1,
+				EventLog.BUNDLE));
+		Assert.assertEquals(new HashSet<Long>(Arrays.asList(Long.valueOf(11))),
+				log.getChanged(3, EventLog.SERVICE));
+		Assert.assertTrue(log.getChanged(5, EventLog.SERVICE).isEmpty());
+	}
+
+	@Test
+	public void testWaitForEvents() throws Exception {
+		bundleEvent(1);
+		final Future<EventLog.Entry[]> waiting = waitForEvents(1);
+		Thread.sleep(50);
+		Assert.assertFalse(waiting.isDone());
+
+		bundleEvent(2);
+		final EventLog.Entry[] events = waiting.get(5, TimeUnit.SECONDS);
+		Assert.assertEquals(1, events.length);
+		Assert.assertEquals(2, events[0].getId());
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		final long start = System.currentTimeMillis();
+		Assert.assertEquals(0, log.getEvents(0, 100).length);
+		Assert.assertTrue(System.currentTimeMillis() - start >= 100);
+	}
+
+	@Test
+	public void testCloseWakesWaiters() throws Exception {
+		final Future<EventLog.Entry[]> waiting = waitForEvents(0);
+		Thread.sleep(50);
+		Assert.assertFalse(log.isClosed());
+		log.close();
+		Assert.assertTrue(log.isClosed());
+		Assert.assertEquals(0, waiting.get(5, TimeUnit.SECONDS).length);
+
+		// a closed log never waits
+		final long start = System.currentTimeMillis();
+		Assert.assertEquals(0, log.getEvents(0, 10000).length);
+		Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+
+}
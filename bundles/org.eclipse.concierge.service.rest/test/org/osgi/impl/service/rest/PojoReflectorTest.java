@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.Version;
+import org.osgi.impl.service.rest.pojos.BundlePojo;
+import org.osgi.impl.service.rest.pojos.BundlePojoList;
+import org.osgi.impl.service.rest.pojos.BundleStatePojo;
+import org.osgi.impl.service.rest.pojos.ServicePojo;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Tests that the pojos written by the reflector are the JSON and XML
+ * documents org.json and the DOM would have built, and that they can be read
+ * back.
+ */
+public class PojoReflectorTest {
+
+	private static final String	TRICKY		= "a \"quoted\" \\ </tag> & <b>\t\n\u0001\u0085  é";
+
+	// control characters cannot be represented in XML 1.0
+	private static final String	TRICKY_XML	= "a \"quoted\" \\ </tag> & <b>\t\r\n  é";
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(final Class<T> iface,
+			final Map<String, Object> values) {
+		return (T) Proxy.newProxyInstance(PojoReflectorTest.class
+				.getClassLoader(), new Class<?>[] { iface },
+				new InvocationHandler() {
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						if (method.getName().equals("getProperty")) {
+							return values.get(args[0]);
+						}
+						return values.get(method.getName());
+					}
+				});
+	}
+
+	private static Bundle bundle(final long id, final String location) {
+		final Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getBundleId", Long.valueOf(id));
+		values.put("getLocation", location);
+		values.put("getLastModified", Long.valueOf(1234567890123L));
+		values.put("getState", Integer.valueOf(Bundle.ACTIVE));
+		values.put("getSymbolicName", "org.example.b" + id);
+		values.put("getVersion", new Version(1, 2, 3, "q"));
+		return proxy(Bundle.class, values);
+	}
+
+	private static ServicePojo service(final String text) {
+		final Map<String, Object> values = new LinkedHashMap<String, Object>();
+		values.put(Constants.OBJECTCLASS, new String[] { "a.A", "b.B" });
+		values.put(Constants.SERVICE_ID, Long.valueOf(7));
+		values.put("ranking.factor", Double.valueOf(1.5));
+		values.put("text", text);
+		values.put("getPropertyKeys", values.keySet().toArray(new String[0]));
+		values.put("getBundle", bundle(3, "x"));
+		values.put("getUsingBundles",
+				new Bundle[] { bundle(4, "y"), bundle(5, "z") });
+		return new ServicePojo(proxy(ServiceReference.class, values));
+	}
+
+	private static String json(final Object bean) throws Exception {
+		final StringWriter out = new StringWriter();
+		PojoReflector.writeJSON(bean, out);
+		return out.toString();
+	}
+
+	private static String xml(final Object bean) throws Exception {
+		final StringWriter out = new StringWriter();
+		PojoReflector.writeXml(bean, out);
+		return out.toString();
+	}
+
+	private static Document parse(final String xml) throws Exception {
+		final DocumentBuilderFactory factory = DocumentBuilderFactory
+				.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(
+				new ByteArrayInputStream(xml.getBytes("UTF-8")));
+	}
+
+	private static void assertSameJSON(final JSONObject expected,
+			final JSONObject actual) throws Exception {
+		Assert.assertEquals(Arrays.asList(JSONObject.getNames(expected))
+				.size(), actual.length());
+		for (final String key : JSONObject.getNames(expected)) {
+			Assert.assertEquals(key, expected.get(key).toString(), actual
+					.get(key).toString());
+		}
+	}
+
+	@Test
+	public void testStringsAreQuotedLikeJSONObject() throws Exception {
+		Assert.assertEquals(JSONObject.quote(TRICKY), json(TRICKY));
+		Assert.assertEquals(TRICKY, new JSONArray("[" + json(TRICKY) + "]")
+				.getString(0));
+		Assert.assertEquals(JSONObject.quote(""), json(""));
+	}
+
+	@Test
+	public void testNumbersAreFormattedLikeJSONObject() throws Exception {
+		for (final Number n : new Number[] { Integer.valueOf(-3),
+				Long.valueOf(Long.MAX_VALUE), Double.valueOf(1.5),
+				Double.valueOf(2.0), Double.valueOf(100), Double.valueOf(1e21),
+				Double.valueOf(0.000001), Float.valueOf(0.25f) }) {
+			Assert.assertEquals(JSONObject.numberToString(n), json(n));
+		}
+		Assert.assertEquals("null", json(Double.valueOf(Double.NaN)));
+		Assert.assertEquals("null", json(null));
+		Assert.assertEquals("true", json(Boolean.TRUE));
+	}
+
+	@Test
+	public void testPojoMatchesJSONObject() throws Exception {
+		final BundlePojo bundle = new BundlePojo(bundle(2, TRICKY));
+		assertSameJSON(new JSONObject(bundle), new JSONObject(json(bundle)));
+
+		final JSONObject service = new JSONObject(json(service(TRICKY)));
+		Assert.assertEquals(7, service.getLong("id"));
+		Assert.assertEquals("framework/bundle/3", service.getString("bundle"));
+		Assert.assertEquals("[\"framework/bundle/4\",\"framework/bundle/5\"]",
+				service.getJSONArray("usingBundles").toString());
+		final JSONObject props = service.getJSONObject("properties");
+		Assert.assertEquals(4, props.length());
+		Assert.assertEquals("[\"a.A\",\"b.B\"]",
+				props.getJSONArray(Constants.OBJECTCLASS).toString());
+		Assert.assertEquals(1.5, props.getDouble("ranking.factor"), 0);
+		Assert.assertEquals(TRICKY, props.getString("text"));
+	}
+
+	@Test
+	public void testListsAndMaps() throws Exception {
+		final BundlePojoList list = new BundlePojoList(new Bundle[] {
+				bundle(0, "a"), bundle(1, "b") });
+		Assert.assertEquals("[\"framework/bundle/0\",\"framework/bundle/1\"]",
+				json(list));
+
+		final Map<String, String> header = new LinkedHashMap<String, String>();
+		header.put("Bundle-Name", TRICKY);
+		header.put("Bundle-Version", "1.0");
+		final JSONObject expected = new JSONObject(header);
+		assertSameJSON(expected, new JSONObject(json(header)));
+	}
+
+	@Test
+	public void testJSONRoundTrip() throws Exception {
+		final BundleStatePojo state = new BundleStatePojo(Bundle.RESOLVED);
+		state.setOptions(Bundle.START_TRANSIENT);
+		final BundleStatePojo read = PojoReflector.getReflector(
+				BundleStatePojo.class).beanFromJSONObject(
+				new JSONObject(json(state)));
+		Assert.assertEquals(Bundle.RESOLVED, read.getState());
+		Assert.assertEquals(Bundle.START_TRANSIENT, read.getOptions());
+	}
+
+	@Test
+	public void testXmlRoundTrip() throws Exception {
+		final BundleStatePojo state = new BundleStatePojo(Bundle.ACTIVE);
+		state.setOptions(Bundle.START_ACTIVATION_POLICY);
+		final Document doc = parse(xml(state));
+		Assert.assertEquals("bundleState", doc.getDocumentElement()
+				.getLocalName());
+		final BundleStatePojo read = PojoReflector.getReflector(
+				BundleStatePojo.class).beanFromXml(doc);
+		Assert.assertEquals(Bundle.ACTIVE, read.getState());
+		Assert.assertEquals(Bundle.START_ACTIVATION_POLICY, read.getOptions());
+	}
+
+	@Test
+	public void testXmlDocuments() throws Exception {
+		final Element bundle = parse(
+				xml(new BundlePojo(bundle(2, TRICKY_XML)))).getDocumentElement();
+		Assert.assertEquals("bundle", bundle.getLocalName());
+		Assert.assertEquals("rest", bundle.getNamespaceURI());
+		Assert.assertEquals(TRICKY_XML, bundle
+				.getElementsByTagName("location").item(0).getTextContent());
+		Assert.assertEquals("1.2.3.q", bundle.getElementsByTagName("version")
+				.item(0).getTextContent());
+
+		final Element list = parse(
+				xml(new BundlePojoList(new Bundle[] { bundle(0, "a"),
+						bundle(1, "b") }))).getDocumentElement();
+		final NodeList uris = list.getElementsByTagName("uri");
+		Assert.assertEquals(2, uris.getLength());
+		Assert.assertEquals("framework/bundle/1", uris.item(1)
+				.getTextContent());
+
+		final Element service = parse(xml(service(TRICKY_XML)))
+				.getDocumentElement();
+		// the registering bundle and the two using bundles
+		Assert.assertEquals(3, service.getElementsByTagName("bundle")
+				.getLength());
+		final NodeList props = service.getElementsByTagName("property");
+		Assert.assertEquals(4, props.getLength());
+		final Map<String, Element> byName = new HashMap<String, Element>();
+		for (int i = 0; i < props.getLength(); i++) {
+			final Element prop = (Element) props.item(i);
+			byName.put(prop.getAttribute("name"), prop);
+		}
+		Assert.assertEquals("a.A\nb.B\n", byName.get(Constants.OBJECTCLASS)
+				.getTextContent());
+		Assert.assertEquals("Long", byName.get(Constants.SERVICE_ID)
+				.getAttribute("type"));
+		Assert.assertEquals("7", byName.get(Constants.SERVICE_ID)
+				.getAttribute("value"));
+		Assert.assertEquals("Double", byName.get("ranking.factor")
+				.getAttribute("type"));
+		Assert.assertEquals(TRICKY_XML, byName.get("text").getAttribute(
+				"value"));
+
+		final Map<String, String> header = new LinkedHashMap<String, String>();
+		header.put("Bundle-Name", "a \"b\" & <c>");
+		final Element entry = (Element) parse(xml(header))
+				.getDocumentElement().getElementsByTagName("entry").item(0);
+		Assert.assertEquals("Bundle-Name", entry.getAttribute("key"));
+		Assert.assertEquals("a \"b\" & <c>", entry.getAttribute("value"));
+	}
+
+}
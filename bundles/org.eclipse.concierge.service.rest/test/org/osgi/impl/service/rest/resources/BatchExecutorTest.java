@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.eclipse.concierge.Factory;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.launch.Framework;
+import org.osgi.impl.service.rest.pojos.BatchResultList;
+import org.osgi.impl.service.rest.pojos.BatchResultPojo;
+
+/**
+ * Tests the execution of batches against a running framework.
+ */
+public class BatchExecutorTest {
+
+	private Framework		framework;
+
+	private BundleContext	context;
+
+	private BatchExecutor	executor;
+
+	@Before
+	public void setUp() throws Exception {
+		final Map<String, String> launchArgs = new HashMap<String, String>();
+		launchArgs.put("org.osgi.framework.storage.clean", "onFirstInit");
+		framework = new Factory().newFramework(launchArgs);
+		framework.init();
+		framework.start();
+		context = framework.getBundleContext();
+		executor = new BatchExecutor(context);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		framework.stop();
+		framework.waitForStop(10000);
+	}
+
+	private static String createBundle(final String bsn,
+			final String... headers) throws Exception {
+		final Manifest mf = new Manifest();
+		final Attributes attrs = mf.getMainAttributes();
+		attrs.putValue("Manifest-Version", "1.0");
+		attrs.putValue("Bundle-ManifestVersion", "2");
+		attrs.putValue("Bundle-SymbolicName", bsn);
+		for (int i = 0; i < headers.length; i += 2) {
+			attrs.putValue(headers[i], headers[i + 1]);
+		}
+		final File file = File.createTempFile("bundle-" + bsn + "-", ".jar");
+		file.deleteOnExit();
+		new JarOutputStream(new FileOutputStream(file), mf).close();
+		return file.toURI().toString();
+	}
+
+	private static JSONObject op(final String type, final String key,
+			final Object value) throws Exception {
+		return new JSONObject().put("op", type).put(key, value);
+	}
+
+	private BatchResultList execute(final JSONObject... ops) throws Exception {
+		final JSONArray array = new JSONArray();
+		for (final JSONObject op : ops) {
+			array.put(op);
+		}
+		final BatchResultList results = executor.execute(array);
+		Assert.assertEquals(ops.length, results.size());
+		return results;
+	}
+
+	private static void assertResult(final int status, final Bundle bundle,
+			final int state, final BatchResultPojo result) {
+		Assert.assertEquals(result.getMessage(), status, result.getStatus());
+		Assert.assertEquals("framework/bundle/" + bundle.getBundleId(),
+				result.getBundle());
+		Assert.assertEquals(Integer.valueOf(state), result.getState());
+	}
+
+	private static void assertError(final int status,
+			final BatchResultPojo result) {
+		Assert.assertEquals(status, result.getStatus());
+		Assert.assertNull(result.getBundle());
+		Assert.assertNotNull(result.getMessage());
+	}
+
+	@Test
+	public void testStatusPerOperation() throws Exception {
+		final String a = createBundle("a");
+
+		final BatchResultList results = execute(op("install", "location", a),
+				op("state", "location", a), op("start", "id", Long.valueOf(99)),
+				op("frobnicate", "location", a), new JSONObject().put("op",
+						"stop"));
+
+		final Bundle bundle = context.getBundle(a);
+		Assert.assertNotNull(bundle);
+		assertResult(200, bundle, Bundle.INSTALLED, results.get(0));
+		assertResult(200, bundle, Bundle.INSTALLED, results.get(1));
+		assertError(404, results.get(2));
+		assertError(400, results.get(3));
+		// neither id nor location
+		assertError(400, results.get(4));
+	}
+
+	@Test
+	public void testReferenceEarlierInstallByLocation() throws Exception {
+		final String a = createBundle("a");
+
+		final BatchResultList results = execute(op("install", "location", a),
+				op("start", "location", a), op("stop", "location", a),
+				op("start", "location", a), op("uninstall", "location", a));
+
+		final Bundle bundle = context.getBundle(Long.parseLong(results.get(0)
+				.getBundle().substring("framework/bundle/".length())));
+		assertResult(200, bundle, Bundle.INSTALLED, results.get(0));
+		assertResult(200, bundle, Bundle.ACTIVE, results.get(1));
+		assertResult(200, bundle, Bundle.RESOLVED, results.get(2));
+		assertResult(200, bundle, Bundle.ACTIVE, results.get(3));
+		assertResult(200, bundle, Bundle.UNINSTALLED, results.get(4));
+		Assert.assertNull(context.getBundle(a));
+	}
+
+	@Test
+	public void testContinueAfterFailure() throws Exception {
+		final String a = createBundle("a");
+		final String broken = createBundle("broken", "Import-Package",
+				"org.example.missing");
+		final String missing = new File("does-not-exist.jar").toURI()
+				.toString();
+		final String b = createBundle("b");
+
+		final BatchResultList results = execute(op("install", "location", a),
+				op("install", "location", a), op("install", "location",
+						missing), op("install", "location", broken), op(
+						"start", "location", broken), op("install",
+						"location", b), op("start", "location", b));
+
+		assertResult(200, context.getBundle(a), Bundle.INSTALLED,
+				results.get(0));
+		// location in use
+		assertError(409, results.get(1));
+		assertError(400, results.get(2));
+		assertResult(200, context.getBundle(broken), Bundle.INSTALLED,
+				results.get(3));
+		// cannot resolve
+		assertError(400, results.get(4));
+		Assert.assertEquals(Integer.valueOf(BundleException.RESOLVE_ERROR),
+				results.get(4).getTypecode());
+
+		assertResult(200, context.getBundle(b), Bundle.INSTALLED,
+				results.get(5));
+		assertResult(200, context.getBundle(b), Bundle.ACTIVE,
+				results.get(6));
+	}
+
+}
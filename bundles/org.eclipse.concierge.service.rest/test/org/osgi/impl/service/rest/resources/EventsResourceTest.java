@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.impl.service.rest.EventLog;
+import org.osgi.impl.service.rest.RestService;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Form;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.representation.Representation;
+
+/**
+ * Tests the server-sent event stream of the events resource.
+ */
+public class EventsResourceTest {
+
+	private static final String	INFO	= "{\"type\":32,\"bundle\":\"framework/bundle/0\"}";
+
+	private ExecutorService	executor;
+
+	private EventLog		log;
+
+	private Context			context;
+
+	private Response		response;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadExecutor();
+		log = new EventLog(2);
+		context = new Context();
+		context.getAttributes().put(RestService.EVENTS_ATTR, log);
+		// streams end after a short while
+		context.getAttributes().put(RestService.EVENTS_TIMEOUT_ATTR,
+				Long.valueOf(200));
+	}
+
+	@After
+	public void tearDown() {
+		log.close();
+		executor.shutdownNow();
+	}
+
+	private void event() {
+		// only the id of the system bundle is used
+		final Bundle systemBundle = (Bundle) Proxy.newProxyInstance(getClass()
+				.getClassLoader(), new Class<?>[] { Bundle.class },
+				new InvocationHandler() {
+					public Object invoke(final Object proxy,
+							final java.lang.reflect.Method method,
+							final Object[] args) {
+						return Long.valueOf(0);
+					}
+				});
+		log.frameworkEvent(new FrameworkEvent(FrameworkEvent.INFO,
+				systemBundle, null));
+	}
+
+	private Representation get(final String query, final String lastEventId) {
+		final Request request = new Request(Method.GET,
+				"http://localhost/framework/events" + query);
+		if (lastEventId != null) {
+			final Form headers = new Form();
+			headers.add("last-event-id", lastEventId);
+			request.getAttributes().put("org.restlet.http.headers", headers);
+		}
+		response = new Response(request);
+		final EventsResource resource = new EventsResource();
+		resource.init(context, request, response);
+		return resource.get();
+	}
+
+	private static String write(final Representation stream)
+			throws Exception {
+		final StringWriter writer = new StringWriter();
+		stream.write(writer);
+		return writer.toString();
+	}
+
+	private static String event(final long id, final String event,
+			final String data) {
+		return "id: " + id + "\nevent: " + event + "\ndata: " + data + "\n\n";
+	}
+
+	@Test
+	public void testSync() throws Exception {
+		event();
+		final String stream = write(get("", null));
+		Assert.assertTrue(stream, stream.startsWith(event(1, "sync", "{}")));
+		Assert.assertFalse(stream, stream.contains("event: framework"));
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		event();
+		event();
+		Assert.assertTrue(write(get("?lastEventId=1", null)).startsWith(
+				event(2, "framework", INFO)));
+		Assert.assertTrue(write(get("", "0")).startsWith(
+				event(1, "framework", INFO) + event(2, "framework", INFO)));
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		event();
+		event();
+		event();
+		// event 1 has been dropped
+		Assert.assertTrue(write(get("?lastEventId=0", null)).startsWith(
+				event(3, "reset", "{}")));
+		// an id from before a restart
+		Assert.assertTrue(write(get("?lastEventId=42", null)).startsWith(
+				event(3, "reset", "{}")));
+	}
+
+	@Test
+	public void testStreamsNewEvents() throws Exception {
+		context.getAttributes().put(RestService.EVENTS_TIMEOUT_ATTR,
+				Long.valueOf(10000));
+		final Representation stream = get("", null);
+		final Future<String> written = executor.submit(new Callable<String>() {
+			public String call() throws Exception {
+				return write(stream);
+			}
+		});
+		Thread.sleep(100);
+		event();
+		Thread.sleep(100);
+		Assert.assertFalse(written.isDone());
+
+		// closing the log wakes the stream and ends it
+		log.close();
+		Assert.assertEquals(event(0, "sync", "{}")
+				+ event(1, "framework", INFO) + ":\n\n", written.get(5,
+				TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testInvalidId() throws Exception {
+		Assert.assertNull(get("?lastEventId=x", null));
+		Assert.assertEquals(Status.CLIENT_ERROR_BAD_REQUEST,
+				response.getStatus());
+	}
+
+	@Test
+	public void testUnavailable() throws Exception {
+		context.getAttributes().remove(RestService.EVENTS_ATTR);
+		Assert.assertNull(get("", null));
+		Assert.assertEquals(Status.SERVER_ERROR_SERVICE_UNAVAILABLE,
+				response.getStatus());
+	}
+
+}
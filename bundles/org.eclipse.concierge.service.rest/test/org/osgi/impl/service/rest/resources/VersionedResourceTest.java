@@ -0,0 +1,336 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.osgi.impl.service.rest.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.eclipse.concierge.Factory;
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.wiring.FrameworkWiring;
+import org.osgi.impl.service.rest.EventLog;
+import org.osgi.impl.service.rest.RepresentationCache;
+import org.osgi.impl.service.rest.RestService;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.representation.Representation;
+import org.restlet.representation.Variant;
+import org.restlet.resource.ServerResource;
+
+/**
+ * Tests the ETags, the conditional requests, and the delta queries of the
+ * bundle and service list resources.
+ */
+public class VersionedResourceTest {
+
+	private static final MediaType	JSON	= MediaType.APPLICATION_JSON;
+
+	private static final MediaType	XML		= MediaType.APPLICATION_XML;
+
+	private Framework				framework;
+
+	private BundleContext			context;
+
+	private EventLog				log;
+
+	private Context					restContext;
+
+	@Before
+	public void setUp() throws Exception {
+		final Map<String, String> launchArgs = new HashMap<String, String>();
+		launchArgs.put("org.osgi.framework.storage.clean", "onFirstInit");
+		framework = new Factory().newFramework(launchArgs);
+		framework.init();
+		framework.start();
+		context = framework.getBundleContext();
+
+		restContext = new Context();
+		restContext.getAttributes().put(RestService.BUNDLE_CONTEXT_ATTR,
+				context);
+		restContext.getAttributes().put(RestService.CACHE_ATTR,
+				new RepresentationCache(32));
+		setEventLog(new EventLog(64));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		framework.stop();
+		framework.waitForStop(10000);
+	}
+
+	private void setEventLog(final EventLog events) {
+		if (log != null) {
+			context.removeBundleListener(log);
+			context.removeServiceListener(log);
+		}
+		log = events;
+		context.addBundleListener(log);
+		context.addServiceListener(log);
+		restContext.getAttributes().put(RestService.EVENTS_ATTR, log);
+	}
+
+	private Bundle install(final String bsn) throws Exception {
+		final Manifest mf = new Manifest();
+		final Attributes attrs = mf.getMainAttributes();
+		attrs.putValue("Manifest-Version", "1.0");
+		attrs.putValue("Bundle-ManifestVersion", "2");
+		attrs.putValue("Bundle-SymbolicName", bsn);
+		final File file = File.createTempFile("bundle-" + bsn + "-", ".jar");
+		file.deleteOnExit();
+		new JarOutputStream(new FileOutputStream(file), mf).close();
+		return context.installBundle(file.toURI().toString());
+	}
+
+	private void uninstall(final Bundle bundle) throws Exception {
+		bundle.uninstall();
+		// uninstalled bundles are listed until they are refreshed
+		final CountDownLatch refreshed = new CountDownLatch(1);
+		framework.adapt(FrameworkWiring.class).refreshBundles(
+				Collections.singleton(bundle), new FrameworkListener() {
+					public void frameworkEvent(final FrameworkEvent event) {
+						refreshed.countDown();
+					}
+				});
+		Assert.assertTrue(refreshed.await(10, TimeUnit.SECONDS));
+	}
+
+	private Response init(final ServerResource resource, final String uri,
+			final Tag... noneMatch) {
+		final Request request = new Request(Method.GET, "http://localhost/"
+				+ uri);
+		request.getConditions().getNoneMatch().addAll(Arrays.asList(noneMatch));
+		final Response response = new Response(request);
+		resource.init(restContext, request, response);
+		return response;
+	}
+
+	/**
+	 * the result of a GET request on a resource.
+	 */
+	private static final class Get {
+
+		final Response			response;
+
+		final Representation	entity;
+
+		Get(final Response response, final Representation entity) {
+			this.response = response;
+			this.entity = entity;
+		}
+
+		/**
+		 * @return the status the conditional handling of the resource answers
+		 *         the request with, <code>null</code> if it is not answered.
+		 */
+		Status getConditionalStatus() {
+			return response.getRequest().getConditions()
+					.getStatus(Method.GET, entity);
+		}
+
+		List<String> getPaths() throws Exception {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			entity.write(out);
+			final JSONArray array = new JSONArray(out.toString("UTF-8"));
+			final List<String> paths = new ArrayList<String>();
+			for (int i = 0; i < array.length(); i++) {
+				paths.add(array.getString(i));
+			}
+			return paths;
+		}
+
+		List<String> getRemoved() {
+			final Form headers = (Form) response.getAttributes().get(
+					"org.restlet.http.headers");
+			final String removed = headers == null ? null : headers
+					.getFirstValue("X-OSGi-Removed");
+			if (removed == null) {
+				return null;
+			}
+			return removed.length() == 0 ? Collections.<String> emptyList()
+					: Arrays.asList(removed.split(","));
+		}
+
+	}
+
+	private Get getBundles(final String query, final MediaType mediaType,
+			final Tag... noneMatch) {
+		final BundlesResource resource = new BundlesResource();
+		final Response response = init(resource, "framework/bundles" + query,
+				noneMatch);
+		return new Get(response, resource.get(new Variant(mediaType)));
+	}
+
+	private Get getServices(final String query, final Tag... noneMatch) {
+		final ServiceListResource resource = new ServiceListResource();
+		final Response response = init(resource, "framework/services" + query,
+				noneMatch);
+		return new Get(response, resource.get(new Variant(JSON)));
+	}
+
+	private static String path(final Bundle bundle) {
+		return "framework/bundle/" + bundle.getBundleId();
+	}
+
+	private static String path(final ServiceRegistration<?> reg) {
+		return "framework/service/"
+				+ reg.getReference().getProperty(Constants.SERVICE_ID);
+	}
+
+	@Test
+	public void testETag() throws Exception {
+		final Get json = getBundles("", JSON);
+		final Tag tag = json.entity.getTag();
+		Assert.assertNotNull(tag);
+		Assert.assertEquals(Status.SUCCESS_OK, json.response.getStatus());
+		Assert.assertFalse(tag.equals(getBundles("", XML).entity.getTag()));
+
+		// If-None-Match with the current tag
+		final Get notModified = getBundles("", JSON, tag);
+		Assert.assertEquals(tag, notModified.entity.getTag());
+		Assert.assertEquals(Status.REDIRECTION_NOT_MODIFIED,
+				notModified.getConditionalStatus());
+
+		// a bundle event changes the version
+		install("a");
+		final Get modified = getBundles("", JSON, tag);
+		Assert.assertFalse(tag.equals(modified.entity.getTag()));
+		Assert.assertNull(modified.getConditionalStatus());
+	}
+
+	@Test
+	public void testCachedUntilChanged() throws Exception {
+		final List<String> before = getBundles("", JSON).getPaths();
+		Assert.assertEquals(Arrays.asList("framework/bundle/0"), before);
+		Assert.assertEquals(before, getBundles("", JSON).getPaths());
+
+		final Bundle a = install("a");
+		Assert.assertEquals(Arrays.asList("framework/bundle/0", path(a)),
+				getBundles("", JSON).getPaths());
+
+		uninstall(a);
+		Assert.assertEquals(before, getBundles("", JSON).getPaths());
+	}
+
+	@Test
+	public void testSince() throws Exception {
+		final Bundle a = install("a");
+		final long version = log.getLastId();
+		final Bundle b = install("b");
+		uninstall(a);
+
+		final Get delta = getBundles("?since=" + version, JSON);
+		Assert.assertEquals(Arrays.asList(path(b)), delta.getPaths());
+		Assert.assertEquals(Arrays.asList(path(a)), delta.getRemoved());
+		Assert.assertEquals(Status.SUCCESS_OK, delta.response.getStatus());
+
+		// nothing changed since the current version
+		final Get empty = getBundles("?since=" + log.getLastId(), JSON);
+		Assert.assertEquals(Collections.emptyList(), empty.getPaths());
+		Assert.assertEquals(Collections.emptyList(), empty.getRemoved());
+
+		// the full list has no removed entries
+		Assert.assertNull(getBundles("", JSON).getRemoved());
+	}
+
+	@Test
+	public void testSinceNotCovered() throws Exception {
+		setEventLog(new EventLog(2));
+		final Bundle a = install("a");
+		final long version = log.getLastId();
+		final Bundle b = install("b");
+		final Bundle c = install("c");
+		final Bundle d = install("d");
+
+		final Get full = getBundles("?since=" + version, JSON);
+		Assert.assertEquals(Arrays.asList("framework/bundle/0", path(a),
+				path(b), path(c), path(d)), full.getPaths());
+		Assert.assertNull(full.getRemoved());
+
+		// a version from before a restart of the log
+		final Get unknown = getBundles("?since=" + (version + 100), JSON);
+		Assert.assertEquals(5, unknown.getPaths().size());
+		Assert.assertNull(unknown.getRemoved());
+	}
+
+	@Test
+	public void testInvalidSince() throws Exception {
+		final Get invalid = getBundles("?since=yesterday", JSON);
+		Assert.assertNull(invalid.entity);
+		Assert.assertEquals(Status.CLIENT_ERROR_BAD_REQUEST,
+				invalid.response.getStatus());
+	}
+
+	@Test
+	public void testServiceDeltaWithFilter() throws Exception {
+		final Dictionary<String, Object> props = new Hashtable<String, Object>();
+		props.put("name", "x");
+		final ServiceRegistration<String> x = context.registerService(
+				String.class, "x", props);
+		final ServiceRegistration<String> y = context.registerService(
+				String.class, "y", props);
+		final long version = log.getLastId();
+		final Tag tag = getServices("?filter=(name=x)").entity.getTag();
+
+		// y no longer matches the filter
+		props.put("name", "y");
+		y.setProperties(props);
+
+		final Get delta = getServices("?filter=(name=x)&since=" + version);
+		Assert.assertEquals(Collections.emptyList(), delta.getPaths());
+		Assert.assertEquals(Arrays.asList(path(y)), delta.getRemoved());
+
+		final Get full = getServices("?filter=(name=x)", tag);
+		Assert.assertEquals(Arrays.asList(path(x)), full.getPaths());
+		Assert.assertNull(full.getConditionalStatus());
+		Assert.assertEquals(Status.REDIRECTION_NOT_MODIFIED, getServices(
+				"?filter=(name=x)", full.entity.getTag())
+				.getConditionalStatus());
+	}
+
+	@Test
+	public void testServiceRepresentationsAreNotVersioned() throws Exception {
+		final ServiceRepresentationsResource resource = new ServiceRepresentationsResource();
+		init(resource, "framework/services/representations");
+		Assert.assertNull(resource.get(new Variant(JSON)).getTag());
+	}
+
+}
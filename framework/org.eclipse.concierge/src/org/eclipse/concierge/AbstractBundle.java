@@ -15,8 +15,6 @@ package org.eclipse.concierge;
 
 import java.io.File;
 import java.lang.reflect.Array;
-import java.security.AccessControlContext;
-import java.security.AccessController;
 import java.security.Permission;
 import java.security.ProtectionDomain;
 import java.util.ArrayList;
@@ -131,6 +129,15 @@ public abstract class AbstractBundle implements Bundle, BundleRevisions {
 	 */
 	protected List<ServiceListenerEntry> registeredServiceListeners;
 
+	/**
+	 * the reverse dependencies of this bundle: bundles with a revision that
+	 * uses a wiring of this bundle, together with the number of revisions
+	 * that establish the dependency. Maintained by the wirings as revisions
+	 * are added to or removed from their in-use sets.
+	 */
+	private final HashMap<AbstractBundle, int[]> dependents = new HashMap<AbstractBundle, int[]>(
+			2);
+
 	/**
 	 * get the state of the bundle.
 	 * 
@@ -634,6 +641,33 @@ public abstract class AbstractBundle implements Bundle, BundleRevisions {
 
 	protected abstract boolean isSecurityEnabled();
 
+	final void addDependent(final AbstractBundle dependent) {
+		synchronized (dependents) {
+			final int[] count = dependents.get(dependent);
+			if (count == null) {
+				dependents.put(dependent, new int[] { 1 });
+			} else {
+				count[0]++;
+			}
+		}
+	}
+
+	final void removeDependent(final AbstractBundle dependent) {
+		synchronized (dependents) {
+			final int[] count = dependents.get(dependent);
+			if (count != null && --count[0] == 0) {
+				dependents.remove(dependent);
+			}
+		}
+	}
+
+	final AbstractBundle[] getDependents() {
+		synchronized (dependents) {
+			return dependents.keySet()
+					.toArray(new AbstractBundle[dependents.size()]);
+		}
+	}
+
 	protected final void updateLastModified() {
 		final long newMod = System.currentTimeMillis();
 		// ensure strict monotonicity on system with a slow clock
@@ -650,20 +684,16 @@ public abstract class AbstractBundle implements Bundle, BundleRevisions {
 	 */
 	protected static final ServiceReference<?>[] checkPermissions(
 			final ServiceReferenceImpl<?>[] refs) {
-		final List<ServiceReferenceImpl<?>[]> results = new ArrayList<ServiceReferenceImpl<?>[]>(
+		final List<ServiceReferenceImpl<?>> results = new ArrayList<ServiceReferenceImpl<?>>(
 				refs.length);
-		final AccessControlContext controller = AccessController.getContext();
 		for (int i = 0; i < refs.length; i++) {
 			final String[] interfaces = (String[]) refs[i].properties
 					.get(Constants.OBJECTCLASS);
 			for (int j = 0; j < interfaces.length; j++) {
-				try {
-					controller.checkPermission(new ServicePermission(
-							interfaces[j], ServicePermission.GET));
-					results.add(refs);
+				if (refs[i].framework.servicePermissions.implies(interfaces[j],
+						ServicePermission.GET)) {
+					results.add(refs[i]);
 					break;
-				} catch (final SecurityException se) {
-					// does not have the permission, try with the next interface
 				}
 			}
 		}
@@ -28,7 +28,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.CodeSource;
 import java.security.PermissionCollection;
@@ -45,6 +44,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -53,7 +53,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Vector;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -72,6 +73,7 @@ import org.eclipse.concierge.Resources.BundleRequirementImpl;
 import org.eclipse.concierge.Resources.ConciergeBundleWire;
 import org.eclipse.concierge.Resources.ConciergeBundleWiring;
 import org.eclipse.concierge.compat.LegacyBundleProcessing;
+import org.eclipse.concierge.service.metrics.StartupTimeline;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
@@ -159,6 +161,11 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 
 	private static final short FRAGMENT_ATTACHMENT_ALWAYS = 2;
 
+	/**
+	 * the maximum number of memoized dynamic import misses per revision.
+	 */
+	private static final int MAX_DYNAMIC_IMPORT_MISSES = 1024;
+
 	private String symbolicName;
 
 	private Version version;
@@ -191,12 +198,29 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 
 	private Locale lastDefaultLocale;
 
+	/**
+	 * marks a localization file that does not exist.
+	 */
+	static final Properties NO_LOCALIZATION_FILE = new Properties();
+
 	private int currentRevisionNumber = -1;
 
 	public BundleImpl(final Concierge framework,
 			final BundleContext installingContext, final String location,
 			final long bundleId, final InputStream stream)
 					throws BundleException {
+		this(framework, location, bundleId, stream);
+		commitInstall(installingContext);
+	}
+
+	/**
+	 * stage a new bundle: write the content to the storage and process the
+	 * manifest. This does not require any framework lock, the bundle becomes
+	 * known to the framework only through {@link #commitInstall(BundleContext)}.
+	 */
+	BundleImpl(final Concierge framework, final String location,
+			final long bundleId, final InputStream stream)
+					throws BundleException {
 		this.framework = framework;
 		this.location = location;
 		this.bundleId = bundleId;
@@ -229,13 +253,57 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		symbolicName = currentRevision.getSymbolicName();
 		version = currentRevision.getVersion();
 		revisions.add(0, currentRevision);
+	}
 
+	/**
+	 * commit the installation of a staged bundle: check for collisions,
+	 * register the bundle with the framework and write its metadata. Called
+	 * while holding the framework lock.
+	 * 
+	 * @param installingContext
+	 *            the context of the installing bundle.
+	 * @throws BundleException
+	 *             if the bundle collides with an installed bundle.
+	 */
+	void commitInstall(final BundleContext installingContext)
+			throws BundleException {
+		register(installingContext);
+		completeInstall();
+	}
+
+	/**
+	 * first part of the commit: check for collisions, publish the current
+	 * revision and register the bundle with the framework. Until
+	 * {@link #completeInstall()} is called, this can be undone through
+	 * {@link #rollbackInstall()}. Called while holding the framework lock.
+	 * 
+	 * @param installingContext
+	 *            the context of the installing bundle.
+	 * @throws BundleException
+	 *             if the bundle collides with an installed bundle. The bundle
+	 *             is discarded in this case.
+	 */
+	void register(final BundleContext installingContext)
+			throws BundleException {
 		// check is same version is already installed
-		framework.checkForCollision(CollisionHook.INSTALLING,
-				installingContext.getBundle(), currentRevision);
+		try {
+			framework.checkForCollision(CollisionHook.INSTALLING,
+					installingContext.getBundle(), currentRevision);
+		} catch (final BundleException be) {
+			discard();
+			throw be;
+		}
+
+		register();
+	}
+
+	/**
+	 * second part of the commit: resolve a framework extension and write the
+	 * metadata.
+	 */
+	void completeInstall() throws BundleException {
+		installExtension();
 
-		install();
-		
 		// if we are not during startup (in case of restart) or shutdown, update the metadata
 		if ((framework.state != Bundle.STARTING || !framework.restart)
 				&& framework.state != Bundle.STOPPING) {
@@ -243,14 +311,79 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		} 
 	}
 
+	/**
+	 * undo {@link #register(BundleContext)} for a bundle whose installation
+	 * is rolled back before any event has been sent for it.
+	 */
+	void rollbackInstall() {
+		synchronized (framework) {
+			framework.removeBundle(this);
+			framework.symbolicName_bundles.remove(symbolicName, this);
+			framework.location_bundles.remove(location);
+		}
+		state = UNINSTALLED;
+		discard();
+	}
+
+	/**
+	 * discard a staged bundle that has not been committed, or whose commit
+	 * has been rolled back.
+	 */
+	void discard() {
+		currentRevision.unpublish();
+		try {
+			currentRevision.close();
+		} catch (final IOException ioe) {
+			// ignore
+		}
+		Concierge.deleteDirectory(new File(storageLocation));
+	}
+
 	// framework restart case
 	public BundleImpl(final Concierge framework, final File metadata)
 			throws IOException, BundleException {
+		this(framework,
+				new DataInputStream(new FileInputStream(metadata)));
+		commitRestore();
+	}
+
+	/**
+	 * stage a bundle of a restored profile: read the metadata and process the
+	 * manifest of the current revision. Like the staging of a new bundle,
+	 * this does not require any framework lock, the bundle becomes known to
+	 * the framework only through {@link #commitRestore()}.
+	 * 
+	 * @param in
+	 *            the metadata stream, closed by the constructor.
+	 */
+	BundleImpl(final Concierge framework, final DataInputStream in)
+			throws IOException, BundleException {
 		this.framework = framework;
 
-		// this.content = new JarBundle(new JarFile(file));
-		final DataInputStream in = new DataInputStream(
-				new FileInputStream(metadata));
+		boolean restored = false;
+		try {
+			restore(in);
+			restored = true;
+		} finally {
+			in.close();
+			if (!restored && currentRevision != null) {
+				// the revision has not been published, only release it
+				try {
+					currentRevision.close();
+				} catch (final IOException ioe) {
+					// ignore
+				}
+			}
+		}
+		this.context = framework.createBundleContext(this);
+
+		if (framework.SECURITY_ENABLED) {
+			domain = new ProtectionDomain(null, null);
+		}
+	}
+
+	private void restore(final DataInputStream in)
+			throws IOException, BundleException {
 		// read current revision from metadata
 		this.currentRevisionNumber = in.readInt();
 
@@ -286,7 +419,6 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 					currentRevisionNumber, contentDir.getAbsolutePath(),
 					manifest, classpathStrings);
 		} else {
-			in.close();
 			throw new BundleException("Bundle revision " + currentRevisionNumber
 					+ " does not exist", BundleException.READ_ERROR);
 		}
@@ -298,13 +430,15 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		this.autostart = in.readShort();
 		this.lazyActivation = in.readBoolean();
 		this.lastModified = in.readLong();
-		in.close();
-		this.context = framework.createBundleContext(this);
+	}
 
-		if (framework.SECURITY_ENABLED) {
-			domain = new ProtectionDomain(null, null);
-		}
-		
+	/**
+	 * commit a staged bundle of a restored profile: publish the current
+	 * revision and register the bundle with the framework. Called in the
+	 * order of the storage directories, the staging itself publishes
+	 * nothing.
+	 */
+	void commitRestore() throws BundleException {
 		install();
 		
 		// System.err.println("RESTORED BUNDLE " + toString() + " WITH SL " + this.startlevel + " and autostart " + this.autostart);
@@ -412,18 +546,21 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 	}
 
 	private void install() throws BundleException {
+		register();
+		installExtension();
+	}
 
+	private void register() throws BundleException {
 		// register bundle with framework:
 		synchronized (framework) {
-			framework.bundles.add(this);
-			framework.bundleID_bundles.put(new Long(getBundleId()), this);
-			framework.symbolicName_bundles
-					.insert(currentRevision.getSymbolicName(), this);
-			framework.location_bundles.put(location, this);
+			currentRevision.publish();
+			framework.addBundle(this);
 		}
 
 		this.state = Bundle.INSTALLED;
-		
+	}
+
+	private void installExtension() throws BundleException {
 		// resolve if it is a framework extension
 		if (currentRevision.isExtensionBundle()) {
 			if(currentRevision.resolve(false)){
@@ -579,6 +716,10 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 	private void activate0() throws BundleException {
 		assert state != INSTALLED && state != UNINSTALLED;
 
+		final Timeline timeline = framework.timeline;
+		final long start = framework.METRICS_ENABLED || timeline != null
+				? System.nanoTime() : 0;
+
 		// step6
 		state = STARTING;
 		// step7
@@ -615,12 +756,26 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			synchronized (this) {
 				notify();
 			}
+			if (framework.METRICS_ENABLED) {
+				framework.metrics.record(Metrics.ACTIVATE_METRIC, start);
+			}
+			if (timeline != null) {
+				timeline.record(StartupTimeline.ACTIVATE, toString(), bundleId,
+						start);
+			}
 		} catch (final Throwable t) {
 			// step8 (part2)
 			framework.notifyBundleListeners(BundleEvent.STOPPING, this);
 			framework.clearBundleTrace(this);
 			state = RESOLVED;
 			framework.notifyBundleListeners(BundleEvent.STOPPED, this);
+			if (framework.METRICS_ENABLED) {
+				framework.metrics.record(Metrics.ACTIVATE_METRIC, start);
+			}
+			if (timeline != null) {
+				timeline.record(StartupTimeline.ACTIVATE, toString(), bundleId,
+						start);
+			}
 			throw new BundleException("Error starting bundle " + toString(),
 					BundleException.ACTIVATOR_ERROR, t);
 		}
@@ -783,7 +938,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 
 		// reset locale
 		lastDefaultLocale = Locale.getDefault();
-		headers.headerCache = null;
+		headers.clearLocalizationCache();
 
 		framework.notifyBundleListeners(BundleEvent.UNRESOLVED, this);
 
@@ -856,6 +1011,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			}
 			
 			final Revision updatedRevision = readAndProcessInputStream(stream);
+			updatedRevision.publish();
 
 			boolean wasActive = false;
 			if (state == ACTIVE) {
@@ -949,6 +1105,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 				}
 
 			}
+			currentRevision.dynamicImportsChanged();
 		}
 	}
 
@@ -1301,56 +1458,25 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		return framework.isSecurityEnabled();
 	}
 
-	final InputStream getURLResource(final URL url, final int rev)
-			throws IOException {
-		String frag;
-		try {
-			frag = url.toURI().getFragment();
-		} catch (final URISyntaxException e) {
-			e.printStackTrace();
-			frag = null;
-		}
-
+	/**
+	 * get the revision with the given revision id.
+	 * 
+	 * @param rev
+	 *            the revision id.
+	 * @return the revision or <code>null</code> if the revision is no longer
+	 *         present.
+	 */
+	final Revision getRevision(final int rev) {
 		for (final BundleRevision brevision : revisions) {
 			final Revision revision = (Revision) brevision;
 			if (revision.revId == rev) {
-				if (frag == null) {
-					return revision.retrieveFile(null, url.getPath());
-				} else {
-					return revision.retrieveFile(url.getPath(), frag);
-				}
+				return revision;
 			}
 		}
 
 		return null;
 	}
 
-	final long getResourceLength(final URL url, final int rev) {
-		String frag;
-		try {
-			frag = url.toURI().getFragment();
-		} catch (final URISyntaxException e) {
-			e.printStackTrace();
-			frag = null;
-		}
-
-		try {
-			for (final BundleRevision brevision : revisions) {
-				final Revision revision = (Revision) brevision;
-				if (revision.revId == rev) {
-					if (frag == null) {
-						return revision.retrieveFileLength(null, url.getPath());
-					} else {
-						return revision.retrieveFileLength(url.getPath(), frag);
-					}
-				}
-			}
-		} catch (final IOException e) {
-		}
-
-		return -1;
-	}
-
 	// BundleStartLevel
 
 	/**
@@ -1457,7 +1583,6 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		}
 		final Locale[] locales = new Locale[] { lastDefaultLocale == null
 				? Locale.getDefault() : lastDefaultLocale, locale };
-		final Properties props = new Properties();
 		final String[] choices = new String[7];
 		int counter = 0;
 		choices[0] = "";
@@ -1474,19 +1599,10 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		}
 
 		for (int i = counter; i >= 0; i--) {
-			final Enumeration<URL> urls = findEntries(baseDir,
-					baseFile + choices[i] + ".properties", false);
-			if (urls != null) {
-				while (urls.hasMoreElements()) {
-					try {
-						final URL url = urls.nextElement();
-						final InputStream stream = url.openStream();
-						props.load(stream);
-						return props;
-					} catch (final IOException ioe) {
-						// ignore and continue
-					}
-				}
+			final Properties props = headers.getLocalizationFile(baseDir,
+					baseFile + choices[i] + ".properties");
+			if (props != null) {
+				return props;
 			}
 		}
 		return null;
@@ -1503,6 +1619,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		protected static final int GET_URL = 0;
 		protected static final int RETRIEVE_INPUT_STREAM = 1;
 		protected static final int GET_CONTENT_LENGTH = 2;
+		protected static final int RETRIEVE_ENTRY = 3;
 
 		protected final int revId;
 		protected final MultiMap<String, BundleCapability> capabilities;
@@ -1510,6 +1627,14 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		private final List<HostedCapability> hostedCapabilities = new ArrayList<HostedCapability>();
 		protected final List<BundleRequirement> dynamicImports;
 
+		// the compiled patterns of the dynamic imports, null if outdated
+		private volatile DynamicImportMatcher dynamicImportMatcher;
+
+		// package -> capability registry epoch of the last failed dynamic
+		// import
+		private final ConcurrentHashMap<String, Integer> dynamicImportMisses = new ConcurrentHashMap<String, Integer>(
+				0);
+
 		private BundleCapability identity;
 
 		BundleClassLoader classloader;
@@ -1530,6 +1655,24 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		protected List<BundleWire> requireBundleWires;
 		protected final HashSet<String> exportIndex;
 
+		/**
+		 * the packages visible through Require-Bundle, flattened at wiring
+		 * time.
+		 */
+		private volatile RequiredPackages requiredPackages;
+
+		/**
+		 * the generation of the wirings the required packages are derived
+		 * from, incremented whenever the wiring of this revision or of one of
+		 * its Require-Bundle providers changes.
+		 */
+		private final AtomicInteger requiredPackagesGeneration = new AtomicInteger();
+
+		/**
+		 * whether the revision has been published.
+		 */
+		private boolean published;
+
 		protected Revision(final int revId, final Manifest manifest,
 				final String[] classpathStrings) throws BundleException {
 			this.revId = revId;
@@ -1740,12 +1883,6 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 				}
 			}
 
-			if (isFragment()) {
-				framework.addFragment(this);
-			} else {
-				framework.publishCapabilities(capabilities.getAllValues());
-			}
-			
 			if(isExtensionBundle()){
 				// according to spec 3.15.1
 				// extension bundle should have no Bundle-Activator
@@ -1766,6 +1903,37 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			}
 		}
 
+		/**
+		 * make the revision known to the resolver: a fragment is added to the
+		 * unattached fragments, the capabilities of any other revision are
+		 * published. A staged revision is published only when its bundle is
+		 * committed.
+		 */
+		void publish() throws BundleException {
+			if (isFragment()) {
+				framework.addFragment(this);
+			} else {
+				framework.publishCapabilities(capabilities.getAllValues());
+			}
+			published = true;
+		}
+
+		/**
+		 * undo {@link #publish()} for a revision that does not become part of
+		 * the framework.
+		 */
+		void unpublish() {
+			if (!published) {
+				return;
+			}
+			published = false;
+			if (isFragment()) {
+				framework.removeFragment(this);
+			} else {
+				framework.removeCapabilities(this);
+			}
+		}
+
 		protected void refresh() {
 			if (fragments != null) {
 				fragments = null;
@@ -2302,6 +2470,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			// if this is the final cleanup, remove this resource from all other
 			// inUse lists
 			if (currentRevision == null) {
+				invalidateRequiredPackages();
 				if (wiring != null) {
 					wiring.cleanup();
 					framework.wirings.remove(this);
@@ -2309,6 +2478,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 				wiring = null;
 				packageImportWires = null;
 				requireBundleWires = null;
+				requiredPackages = null;
 				fragments = null;
 			}
 
@@ -2330,6 +2500,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			this.wiring = wiring;
 			packageImportWires = wiring.getPackageImportWires();
 			requireBundleWires = wiring.getRequireBundleWires();
+			invalidateRequiredPackages();
 		}
 
 		ConciergeBundleWiring addAdditionalWires(final List<Wire> wires) {
@@ -2339,9 +2510,139 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 
 			packageImportWires = wiring.getPackageImportWires();
 			requireBundleWires = wiring.getRequireBundleWires();
+			invalidateRequiredPackages();
 			return wiring;
 		}
 
+		/**
+		 * get the packages visible through the Require-Bundle wires of this
+		 * revision. For each package, the class loaders that provide it are
+		 * listed in the order of the depth-first lookup prescribed by the
+		 * specification, re-exports included. The map is computed once and
+		 * rebuilt after the wiring of this revision or of one of its
+		 * providers has changed.
+		 * 
+		 * @return the map from package name to the providing class loaders.
+		 */
+		Map<String, BundleClassLoader[]> getRequiredPackages() {
+			final int generation = requiredPackagesGeneration.get();
+			RequiredPackages required = requiredPackages;
+			if (required == null || required.generation != generation) {
+				final HashMap<String, ArrayList<BundleClassLoader>> collected = new HashMap<String, ArrayList<BundleClassLoader>>();
+				final HashSet<Bundle> visited = new HashSet<Bundle>();
+				visited.add(BundleImpl.this);
+				final List<BundleWire> wires = requireBundleWires;
+				if (wires != null) {
+					for (final BundleWire wire : wires) {
+						// if provider is system bundle: nothing to do as
+						// system bundle is already loaded
+						if (wire.getProvider() instanceof Revision) {
+							((Revision) wire.getProvider())
+									.collectRequiredPackages(collected,
+											visited);
+						}
+					}
+				}
+
+				final HashMap<String, BundleClassLoader[]> packages = new HashMap<String, BundleClassLoader[]>(
+						collected.size());
+				for (final Map.Entry<String, ArrayList<BundleClassLoader>> entry : collected
+						.entrySet()) {
+					packages.put(entry.getKey(),
+							entry.getValue().toArray(
+									new BundleClassLoader[entry.getValue()
+											.size()]));
+				}
+				required = new RequiredPackages(generation, packages);
+				requiredPackages = required;
+			}
+			return required.packages;
+		}
+
+		/**
+		 * invalidate the required packages of this revision and of all
+		 * revisions that see the packages of this revision through
+		 * Require-Bundle, i.e., its requirers and, through re-exports, their
+		 * requirers.
+		 */
+		private void invalidateRequiredPackages() {
+			requiredPackagesGeneration.incrementAndGet();
+
+			final HashSet<Revision> visited = new HashSet<Revision>();
+			final ArrayList<Revision> toProcess = new ArrayList<Revision>();
+			visited.add(this);
+			toProcess.add(this);
+			while (!toProcess.isEmpty()) {
+				final ConciergeBundleWiring providerWiring = toProcess
+						.remove(toProcess.size() - 1).wiring;
+				if (providerWiring == null) {
+					continue;
+				}
+				for (final BundleWire wire : providerWiring
+						.getProvidedBundleWires()) {
+					if (!(wire.getRequirer() instanceof Revision)) {
+						continue;
+					}
+					final Revision requirer = (Revision) wire.getRequirer();
+					requirer.requiredPackagesGeneration.incrementAndGet();
+					// the requirers of a requirer only see the packages if
+					// they are re-exported
+					if (BundleNamespace.VISIBILITY_REEXPORT.equals(wire
+							.getRequirement().getDirectives()
+							.get(BundleNamespace.REQUIREMENT_VISIBILITY_DIRECTIVE))
+							&& visited.add(requirer)) {
+						toProcess.add(requirer);
+					}
+				}
+			}
+		}
+
+		private void collectRequiredPackages(
+				final Map<String, ArrayList<BundleClassLoader>> collected,
+				final Set<Bundle> visited) {
+			if (!visited.add(BundleImpl.this)) {
+				return;
+			}
+
+			// depth-first: descent into re-exports
+			final List<BundleWire> wires = requireBundleWires;
+			if (wires != null) {
+				for (final BundleWire wire : wires) {
+					if (BundleNamespace.VISIBILITY_REEXPORT.equals(wire
+							.getRequirement().getDirectives()
+							.get(BundleNamespace.REQUIREMENT_VISIBILITY_DIRECTIVE))
+							&& wire.getProvider() instanceof Revision) {
+						((Revision) wire.getProvider())
+								.collectRequiredPackages(collected, visited);
+					}
+				}
+			}
+
+			final HashMap<String, BundleWire> imports = packageImportWires;
+			for (final String pkg : exportIndex) {
+				// could be delegated when the export was imported as well,
+				// so check packageImportWires first
+				final BundleWire delegation = imports == null ? null
+						: imports.get(pkg);
+				final BundleClassLoader exportLoader;
+				if (delegation == null) {
+					exportLoader = classloader;
+				} else if (delegation.getProvider() instanceof Revision) {
+					exportLoader = ((Revision) delegation
+							.getProvider()).classloader;
+				} else {
+					continue;
+				}
+
+				ArrayList<BundleClassLoader> loaders = collected.get(pkg);
+				if (loaders == null) {
+					loaders = new ArrayList<BundleClassLoader>(1);
+					collected.put(pkg, loaders);
+				}
+				loaders.add(exportLoader);
+			}
+		}
+
 		String getFragmentHost() {
 			final List<BundleRequirement> hostReqs = requirements
 					.get(HostNamespace.HOST_NAMESPACE);
@@ -2621,6 +2922,31 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			return "[Revision " + revId + " of " + BundleImpl.this + "]";
 		}
 
+		/**
+		 * get the compiled patterns of the current dynamic imports.
+		 * 
+		 * @return the matcher.
+		 */
+		DynamicImportMatcher getDynamicImportMatcher() {
+			DynamicImportMatcher matcher = dynamicImportMatcher;
+			if (matcher == null) {
+				synchronized (dynamicImports) {
+					matcher = new DynamicImportMatcher(dynamicImports);
+				}
+				dynamicImportMatcher = matcher;
+			}
+			return matcher;
+		}
+
+		/**
+		 * called whenever the dynamic imports have changed. Invalidates the
+		 * compiled patterns and the memoized misses.
+		 */
+		void dynamicImportsChanged() {
+			dynamicImportMatcher = null;
+			dynamicImportMisses.clear();
+		}
+
 		protected Enumeration<URL> findEntries(final String path,
 				final String filePattern, final boolean recurse) {
 			final Vector<URL> result = searchFiles(null, path, filePattern,
@@ -2654,6 +2980,9 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		protected abstract long retrieveFileLength(final String classpath,
 				final String filename) throws IOException;
 
+		protected abstract ResourceEntry retrieveEntry(final String classpath,
+				final String filename) throws IOException;
+
 		protected abstract void close() throws IOException;
 
 		URL createURL(final String name1, final String fragment)
@@ -2698,7 +3027,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			 */
 			protected final Class<?> findClass(final String name)
 					throws ClassNotFoundException {
-				final Class<?> result = (Class<?>) findResource0(
+				final Class<?> result = (Class<?>) findResource(
 						packageOf(name), name, true, false);
 				if (result == null) {
 					throw new ClassNotFoundException(name);
@@ -2741,7 +3070,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			protected URL findResource(final String name) {
 				final String strippedName = stripLeadingSlash(name);
 				try {
-					return (URL) findResource0(
+					return (URL) findResource(
 							packageOf(pseudoClassname(strippedName)),
 							strippedName, false, false);
 				} catch (final ClassNotFoundException e) {
@@ -2772,7 +3101,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 				final String strippedName = stripLeadingSlash(name);
 				try {
 					@SuppressWarnings("unchecked")
-					final Vector<URL> results = (Vector<URL>) findResource0(
+					final Vector<URL> results = (Vector<URL>) findResource(
 							packageOf(pseudoClassname(strippedName)),
 							strippedName, false, true);
 					return results == null || results.isEmpty() ? null
@@ -2784,6 +3113,24 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 				}
 			}
 
+			/**
+			 * find a class or resource and record the time of the lookup.
+			 */
+			private Object findResource(final String pkg, final String name,
+					final boolean isClass, final boolean multiple)
+							throws ClassNotFoundException {
+				final long start = framework.METRICS_ENABLED
+						? System.nanoTime() : 0;
+				try {
+					return findResource0(pkg, name, isClass, multiple);
+				} finally {
+					if (framework.METRICS_ENABLED) {
+						framework.metrics.record(Metrics.FIND_RESOURCE_METRIC,
+								start);
+					}
+				}
+			}
+
 			/**
 			 * 
 			 * @param pkg
@@ -2919,21 +3266,23 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 
 				// Step 4: check required bundles, depth first
 				if (requireBundleWires != null) {
-					final HashSet<Bundle> visited = new HashSet<Bundle>();
-					visited.add(BundleImpl.this);
-					for (final BundleWire wire : requireBundleWires) {
-						if (wire.getProvider().getBundle().getBundleId() == 0) {
-							// if provider is system bundle: nothing
-							// to do as system bundle is already loaded
-						} else {
-							final Object result = ((Revision) wire
-									.getProvider()).classloader
-											.requireBundleLookup(pkg, name,
-													isClass, multiple,
-													resources, visited);
-							if (!multiple && result != null) {
-								return isClass ? checkActivationChain(result)
-										: result;
+					final BundleClassLoader[] loaders = getRequiredPackages()
+							.get(pkg);
+					if (loaders != null) {
+						for (int i = 0; i < loaders.length; i++) {
+							if (isClass) {
+								final Class<?> clazz = loaders[i]
+										.findOwnClass(name);
+								if (clazz != null) {
+									return checkActivationChain(clazz);
+								}
+							} else {
+								final Object result = loaders[i]
+										.findOwnResources(name, true, multiple,
+												resources);
+								if (!multiple && result != null) {
+									return result;
+								}
 							}
 						}
 					}
@@ -2959,24 +3308,26 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 					return null;
 				}
 
-				// Step 8: check dynamic imports in case of classes
-				if (isClass && !dynamicImports.isEmpty()) {
-					for (final Iterator<BundleRequirement> iter = dynamicImports
-							.iterator(); iter.hasNext();) {
-						final BundleRequirement dynImport = iter.next();
+				// Step 8: check dynamic imports in case of classes, unless
+				// they have already failed for this package and no capability
+				// has been published or removed since
+				final int epoch = framework.capabilityRegistry.getEpoch();
+				final Integer missedAt;
+				if (isClass && !dynamicImports.isEmpty()
+						&& ((missedAt = dynamicImportMisses.get(pkg)) == null
+								|| missedAt.intValue() != epoch)) {
+					final DynamicImportMatcher matcher = getDynamicImportMatcher();
+					for (int i = 0; i < matcher.imports.length; i++) {
+						final BundleRequirement dynImport = matcher.imports[i];
+
+						if (pkg.length() > 0 && !matcher.matches(i, pkg)) {
+							continue;
+						}
 
 						// TODO: think of something better
 						final String dynImportPackage = dynImport
 								.getDirectives().get(Concierge.DIR_INTERNAL);
 
-						// TODO: first check if dynImport could apply to the
-						// requested package!!!
-						if (pkg.length() > 0 && RFC1960Filter.stringCompare(
-								dynImportPackage.toCharArray(), 0,
-								pkg.toCharArray(), 0) != 0) {
-							continue;
-						}
-
 						final boolean wildcard = Namespace.CARDINALITY_MULTIPLE
 								.equals(dynImport.getDirectives().get(
 										Namespace.REQUIREMENT_CARDINALITY_DIRECTIVE));
@@ -3004,7 +3355,8 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 
 							if (!wildcard) {
 								// FIXME:
-								iter.remove();
+								dynamicImports.remove(dynImport);
+								dynamicImportsChanged();
 							}
 
 							final BundleRevision rev = bundleCap.getRevision();
@@ -3038,6 +3390,11 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 							}
 						}
 					}
+
+					if (dynamicImportMisses.size() >= MAX_DYNAMIC_IMPORT_MISSES) {
+						dynamicImportMisses.clear();
+					}
+					dynamicImportMisses.put(pkg, Integer.valueOf(epoch));
 				}
 
 				// convenience for resources: delegate to boot class path as
@@ -3199,6 +3556,22 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			 *         found. <code>null</code> otherwise.
 			 */
 			private synchronized Class<?> findOwnClass(final String classname) {
+				final Timeline timeline = framework.timeline;
+				if (timeline == null || dexClassLoader != null
+						|| findLoadedClass(classname) != null) {
+					return findOwnClass0(classname);
+				}
+				// only the first definition of a class is on the timeline
+				final long start = System.nanoTime();
+				final Class<?> clazz = findOwnClass0(classname);
+				if (clazz != null) {
+					timeline.record(StartupTimeline.CLASS_LOADING, classname,
+							bundleId, start);
+				}
+				return clazz;
+			}
+
+			private Class<?> findOwnClass0(final String classname) {
 				final Class<?> clazz;
 				if (dexClassLoader != null) {
 					clazz = findDexClass(classname);
@@ -3246,6 +3619,7 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 									
 									dynamicImports.addAll(
 											wovenClass.dynamicImportRequirements);
+									dynamicImportsChanged();
 									
 									final Class<?> ownClazz = defineClass(classname,
 											bytes, 0, bytes.length, domain);
@@ -3467,78 +3841,6 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 				return results.isEmpty() ? resources : results;
 			}
 
-			/**
-			 * 
-			 * @param pkg
-			 * @param name
-			 * @param isClass
-			 * @param multiple
-			 * @param resources
-			 * @param visited
-			 * @return
-			 */
-			@SuppressWarnings("unchecked")
-			private Object requireBundleLookup(final String pkg,
-					final String name, final boolean isClass,
-					final boolean multiple, final Vector<URL> resources,
-					final Set<Bundle> visited) throws ClassNotFoundException {
-				if (visited.contains(BundleImpl.this)) {
-					return null;
-				}
-
-				// depth-first: descent into re-exports
-				visited.add(BundleImpl.this);
-				if (requireBundleWires != null) {
-					for (final BundleWire wire : requireBundleWires) {
-						if (BundleNamespace.VISIBILITY_REEXPORT.equals(wire
-								.getRequirement().getDirectives()
-								.get(BundleNamespace.REQUIREMENT_VISIBILITY_DIRECTIVE))) {
-							final Object result = ((Revision) wire
-									.getProvider()).classloader
-											.requireBundleLookup(pkg, name,
-													isClass, multiple,
-													resources, visited);
-							if (!multiple && result != null) {
-								return result;
-							} else if (result != null) {
-								resources.addAll((Vector<URL>) result);
-							}
-						}
-					}
-				}
-
-				if (exportIndex.contains(pkg)) {
-					// could be delegated when the export was imported as well,
-					// so check packageImportWires first
-					BundleClassLoader exportLoader;
-					final BundleWire delegation = packageImportWires.get(pkg);
-					if (delegation != null) {
-						exportLoader = ((Revision) delegation
-								.getProvider()).classloader;
-					} else {
-						exportLoader = this;
-					}
-
-					if (isClass) {
-						return exportLoader.findOwnClass(name);
-					} else {
-						final Object result = exportLoader.findOwnResources(
-								name, true, multiple, resources);
-						if (!multiple) {
-							return result;
-						} else if (result != null) {
-							resources.addAll((Vector<URL>) result);
-						}
-					}
-				}
-
-				// instead of inspecting exportIndex and imports, just delegate
-				// findResources?
-				// return findResource0(pkg, name, isClass, multiple);
-
-				return null;
-			}
-
 			private void definePackage(final String pkg) {
 				// TODO fill in version/spec/vendor attributes according to
 				// bundle manifest headers?
@@ -3569,10 +3871,13 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			
 			private int state = WovenClass.TRANSFORMING;
 
+			private final Revision revision;
+
 			WovenClassImpl(final String clazzName, final byte[] bytes,
 					final Revision revision, final ProtectionDomain domain) {
 				this.bytes = bytes;
 				this.clazzName = clazzName;
+				this.revision = revision;
 				this.dynamicImportRequirements = new ArrayList<BundleRequirement>();
 				this.dynamicImports = new ArrayList<String>() {
 
@@ -3679,6 +3984,10 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 				return getWiring();
 			}
 
+			Revision getRevision() {
+				return revision;
+			}
+
 			void setDefinedClass(final Class<?> clazz) {
 				this.clazz = clazz;
 				this.state = WovenClass.DEFINED;
@@ -3731,8 +4040,17 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 
 		private static final long serialVersionUID = 6688251578575649710L;
 
-		// lazily initialized
-		protected WeakHashMap<Locale, HeaderDictionary> headerCache;
+		/**
+		 * the maximum number of locales for which the localized values are
+		 * kept.
+		 */
+		private static final int MAX_LOCALES = 8;
+
+		// lazily initialized, guarded by itself
+		private LinkedHashMap<String, Map<String, String>> localizationCache;
+
+		// lazily initialized, guarded by localizationCache
+		private HashMap<String, Properties> localizationFiles;
 
 		private final HashMap<String, String> index = new HashMap<String, String>();
 
@@ -3742,41 +4060,118 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			super(size);
 		}
 
-		HeaderDictionary localize(final Locale locale) {
+		Dictionary<String, String> localize(final Locale locale) {
 			if (!hasLocalizedValues) {
 				return this;
 			}
 
-			if (headerCache != null) {
-				final HeaderDictionary cached = headerCache.get(locale);
+			final Locale defaultLocale = lastDefaultLocale == null
+					? Locale.getDefault() : lastDefaultLocale;
+			final String cacheKey = locale + "/" + defaultLocale;
+
+			synchronized (this) {
+				if (localizationCache == null) {
+					localizationCache = new LinkedHashMap<String, Map<String, String>>(
+							MAX_LOCALES, 0.75f, true) {
+
+						private static final long serialVersionUID = -1795389326893421375L;
+
+						@Override
+						protected boolean removeEldestEntry(
+								final Map.Entry<String, Map<String, String>> eldest) {
+							return size() > MAX_LOCALES;
+						}
+
+					};
+				}
+				final Map<String, String> cached = localizationCache
+						.get(cacheKey);
 				if (cached != null) {
-					return cached;
+					return new LocalizedHeaders(this, cached);
 				}
 			}
 
-			final Properties props = getLocalizationFile(locale,
+			final Properties props = BundleImpl.this.getLocalizationFile(locale,
 					bundleLocalizationBaseDir, bundleLocalizationBaseFilename);
 
-			final HeaderDictionary localized = (HeaderDictionary) clone();
-			final Enumeration<String> keys = localized.keys();
-			while (keys.hasMoreElements()) {
-				final String key = keys.nextElement();
-				final String value = localized.get(key);
-				if (value != null && value.charAt(0) == '%') {
-					final String rawValue = value.substring(1).trim();
-					final String localizedValue = props == null ? null
-							: (String) props.get(rawValue);
-					localized.put(key,
-							localizedValue == null ? rawValue : localizedValue);
+			// only keep the substitutions for the %key values
+			final HashMap<String, String> substitutions = new HashMap<String, String>();
+			synchronized (this) {
+				for (final String value : values()) {
+					if (value.length() > 0 && value.charAt(0) == '%') {
+						final String rawValue = value.substring(1).trim();
+						final String localizedValue = props == null ? null
+								: (String) props.get(rawValue);
+						substitutions.put(value, localizedValue == null
+								? rawValue : localizedValue);
+					}
+				}
+				localizationCache.put(cacheKey, substitutions);
+			}
+
+			return new LocalizedHeaders(this, substitutions);
+		}
+
+		/**
+		 * get a localization file of the bundle. Each file is read at most
+		 * once per revision.
+		 * 
+		 * @param baseDir
+		 *            the directory of the file.
+		 * @param file
+		 *            the file name.
+		 * @return the properties or <code>null</code> if the file does not
+		 *         exist.
+		 */
+		Properties getLocalizationFile(final String baseDir,
+				final String file) {
+			final String path = baseDir + '/' + file;
+			synchronized (this) {
+				if (localizationFiles == null) {
+					localizationFiles = new HashMap<String, Properties>();
+				} else {
+					final Properties cached = localizationFiles.get(path);
+					if (cached != null) {
+						return cached == NO_LOCALIZATION_FILE ? null : cached;
+					}
+				}
+			}
+
+			Properties props = null;
+			final Enumeration<URL> urls = findEntries(baseDir, file, false);
+			if (urls != null) {
+				while (urls.hasMoreElements()) {
+					InputStream stream = null;
+					try {
+						stream = urls.nextElement().openStream();
+						final Properties loaded = new Properties();
+						loaded.load(stream);
+						props = loaded;
+						break;
+					} catch (final IOException ioe) {
+						// ignore and continue
+					} finally {
+						if (stream != null) {
+							try {
+								stream.close();
+							} catch (final IOException e) {
+								// ignore
+							}
+						}
+					}
 				}
 			}
 
-			if (headerCache == null) {
-				headerCache = new WeakHashMap<Locale, HeaderDictionary>();
-				headerCache.put(locale, localized);
+			synchronized (this) {
+				localizationFiles.put(path,
+						props == null ? NO_LOCALIZATION_FILE : props);
 			}
+			return props;
+		}
 
-			return localized;
+		synchronized void clearLocalizationCache() {
+			localizationCache = null;
+			localizationFiles = null;
 		}
 
 		@Override
@@ -3801,6 +4196,123 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			return indexedKey == null ? null : super.get(indexedKey);
 		}
 
+		/**
+		 * create a modifiable copy of the headers with the values of a
+		 * localized view.
+		 */
+		HeaderDictionary copy(final Dictionary<String, String> view) {
+			final HeaderDictionary copy = new HeaderDictionary(size());
+			for (final Enumeration<String> keys = view.keys(); keys
+					.hasMoreElements();) {
+				final String key = keys.nextElement();
+				copy.put(key, view.get(key));
+			}
+			return copy;
+		}
+
+	}
+
+	/**
+	 * a view of the bundle headers with the localized values substituted. The
+	 * view is copied on the first modification, so that changes are only
+	 * visible through this view, like for the copies returned before.
+	 */
+	static final class LocalizedHeaders extends Dictionary<String, String> {
+
+		private final HeaderDictionary headers;
+
+		private final Map<String, String> substitutions;
+
+		private volatile HeaderDictionary copy;
+
+		LocalizedHeaders(final HeaderDictionary headers,
+				final Map<String, String> substitutions) {
+			this.headers = headers;
+			this.substitutions = substitutions;
+		}
+
+		private String localize(final String value) {
+			if (value == null || value.length() == 0
+					|| value.charAt(0) != '%') {
+				return value;
+			}
+			final String localized = substitutions.get(value);
+			return localized == null ? value.substring(1).trim()
+					: localized;
+		}
+
+		private synchronized HeaderDictionary copy() {
+			if (copy == null) {
+				copy = headers.copy(this);
+			}
+			return copy;
+		}
+
+		public int size() {
+			final HeaderDictionary copy = this.copy;
+			return copy == null ? headers.size() : copy.size();
+		}
+
+		public boolean isEmpty() {
+			final HeaderDictionary copy = this.copy;
+			return copy == null ? headers.isEmpty() : copy.isEmpty();
+		}
+
+		public Enumeration<String> keys() {
+			final HeaderDictionary copy = this.copy;
+			return copy == null ? headers.keys() : copy.keys();
+		}
+
+		public Enumeration<String> elements() {
+			final HeaderDictionary copy = this.copy;
+			if (copy != null) {
+				return copy.elements();
+			}
+			final Enumeration<String> values = headers.elements();
+			return new Enumeration<String>() {
+
+				public boolean hasMoreElements() {
+					return values.hasMoreElements();
+				}
+
+				public String nextElement() {
+					return localize(values.nextElement());
+				}
+
+			};
+		}
+
+		public String get(final Object key) {
+			final HeaderDictionary copy = this.copy;
+			return copy == null ? localize(headers.get(key)) : copy.get(key);
+		}
+
+		public String put(final String key, final String value) {
+			return copy().put(key, value);
+		}
+
+		public String remove(final Object key) {
+			return copy().remove(key);
+		}
+
+		@Override
+		public String toString() {
+			final StringBuffer buffer = new StringBuffer();
+			buffer.append('{');
+			for (final Enumeration<String> keys = keys(); keys
+					.hasMoreElements();) {
+				final String key = keys.nextElement();
+				buffer.append(key);
+				buffer.append('=');
+				buffer.append(get(key));
+				if (keys.hasMoreElements()) {
+					buffer.append(", ");
+				}
+			}
+			buffer.append('}');
+			return buffer.toString();
+		}
+
 	}
 
 	class JarBundleRevision extends Revision {
@@ -3847,6 +4359,12 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			}
 		}
 
+		protected ResourceEntry retrieveEntry(final String classpath,
+				final String filename) throws IOException {
+			return (ResourceEntry) findFile(classpath, filename,
+					RETRIEVE_ENTRY);
+		}
+
 		private Object findFile(final String classpath, String filename,
 				final int mode) throws IOException {
 
@@ -3867,6 +4385,9 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 					return jarFile.getInputStream(entry);
 				case GET_CONTENT_LENGTH:
 					return entry.getSize();
+				case RETRIEVE_ENTRY:
+					return new ResourceEntry(jarFile.getInputStream(entry),
+							entry.getSize());
 				}
 			} else {
 				final ZipEntry entry = jarFile.getEntry(classpath);
@@ -3889,6 +4410,10 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 						return jarFile.getInputStream(entry2);
 					case GET_CONTENT_LENGTH:
 						return entry2.getSize();
+					case RETRIEVE_ENTRY:
+						return new ResourceEntry(
+								jarFile.getInputStream(entry2),
+								entry2.getSize());
 					}
 				}
 
@@ -3907,6 +4432,9 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 							return embeddedJar;
 						case GET_CONTENT_LENGTH:
 							return embeddedEntry.getSize();
+						case RETRIEVE_ENTRY:
+							return new ResourceEntry(embeddedJar,
+									embeddedEntry.getSize());
 						}
 					}
 				}
@@ -4014,6 +4542,13 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 			return (Long) findFile(classpath, filename, 2);
 		}
 
+		@Override
+		protected ResourceEntry retrieveEntry(final String classpath,
+				final String filename) throws IOException {
+			return (ResourceEntry) findFile(classpath, filename,
+					RETRIEVE_ENTRY);
+		}
+
 		@Override
 		protected URL lookupFile(final String classpath, final String filename)
 				throws IOException {
@@ -4038,6 +4573,9 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 							return new FileInputStream(file);
 						case GET_CONTENT_LENGTH:
 							return file.length();
+						case RETRIEVE_ENTRY:
+							return new ResourceEntry(new FileInputStream(file),
+									file.length());
 						}
 					} else {
 						return null;
@@ -4063,9 +4601,14 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 								return jar.getInputStream(entry);
 							case GET_CONTENT_LENGTH:
 								return entry.getSize();
+							case RETRIEVE_ENTRY:
+								return new ResourceEntry(
+										jar.getInputStream(entry),
+										entry.getSize());
 							}
 						} finally {
-							if (mode != RETRIEVE_INPUT_STREAM) {
+							if (mode != RETRIEVE_INPUT_STREAM
+									&& mode != RETRIEVE_ENTRY) {
 								jar.close();
 							}
 						}
@@ -4081,6 +4624,10 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 									return new FileInputStream(source);
 								case GET_CONTENT_LENGTH:
 									return source.length();
+								case RETRIEVE_ENTRY:
+									return new ResourceEntry(
+											new FileInputStream(source),
+											source.length());
 								}
 							} else {
 								return null;
@@ -4338,4 +4885,111 @@ public class BundleImpl extends AbstractBundle implements BundleStartLevel {
 		}
 	}
 
+	/**
+	 * an opened entry of a bundle revision, i.e., the content stream together
+	 * with its length, as obtained from a single entry lookup.
+	 */
+	static final class ResourceEntry {
+
+		final InputStream stream;
+
+		final long length;
+
+		ResourceEntry(final InputStream stream, final long length) {
+			this.stream = stream;
+			this.length = length;
+		}
+
+	}
+
+	/**
+	 * the package patterns of the dynamic imports of a revision, compiled
+	 * once so that matching a package does not allocate.
+	 */
+	static final class DynamicImportMatcher {
+
+		private static final byte ALL = 0;
+		private static final byte EXACT = 1;
+		private static final byte PREFIX = 2;
+		private static final byte PATTERN = 3;
+
+		final BundleRequirement[] imports;
+
+		private final byte[] kinds;
+
+		// the package for EXACT, the prefix for PREFIX
+		private final String[] values;
+
+		private final char[][] patterns;
+
+		DynamicImportMatcher(final List<BundleRequirement> dynamicImports) {
+			imports = dynamicImports
+					.toArray(new BundleRequirement[dynamicImports.size()]);
+			kinds = new byte[imports.length];
+			values = new String[imports.length];
+			patterns = new char[imports.length][];
+			for (int i = 0; i < imports.length; i++) {
+				final String pattern = imports[i].getDirectives()
+						.get(Concierge.DIR_INTERNAL);
+				final int star = pattern.indexOf('*');
+				if (pattern.indexOf('\\') > -1) {
+					kinds[i] = PATTERN;
+					patterns[i] = pattern.toCharArray();
+				} else if (star == -1) {
+					kinds[i] = EXACT;
+					values[i] = pattern;
+				} else if (pattern.length() == 1) {
+					kinds[i] = ALL;
+				} else if (star == pattern.length() - 1) {
+					kinds[i] = PREFIX;
+					values[i] = pattern.substring(0, star);
+				} else {
+					kinds[i] = PATTERN;
+					patterns[i] = pattern.toCharArray();
+				}
+			}
+		}
+
+		/**
+		 * check if a dynamic import applies to a package.
+		 * 
+		 * @param i
+		 *            the index of the dynamic import.
+		 * @param pkg
+		 *            the package.
+		 * @return true if the pattern of the import matches the package.
+		 */
+		boolean matches(final int i, final String pkg) {
+			switch (kinds[i]) {
+			case ALL:
+				return true;
+			case EXACT:
+				return values[i].equals(pkg);
+			case PREFIX:
+				return pkg.startsWith(values[i]);
+			default:
+				return RFC1960Filter.stringCompare(patterns[i], 0,
+						pkg.toCharArray(), 0) == 0;
+			}
+		}
+
+	}
+
+	/**
+	 * the flattened Require-Bundle packages of a revision, tagged with the
+	 * generation of the wirings they were computed at.
+	 */
+	static final class RequiredPackages {
+
+		final int generation;
+		final Map<String, Revision.BundleClassLoader[]> packages;
+
+		RequiredPackages(final int generation,
+				final Map<String, Revision.BundleClassLoader[]> packages) {
+			this.generation = generation;
+			this.packages = packages;
+		}
+
+	}
+
 }
@@ -24,14 +24,21 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Method;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
 import java.net.URLStreamHandlerFactory;
 import java.nio.charset.Charset;
+import java.security.AccessControlContext;
 import java.security.AccessController;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Policy;
 import java.security.PrivilegedAction;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
@@ -42,11 +49,14 @@ import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.EventListener;
+import java.util.EventObject;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -54,11 +64,21 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.concierge.BundleImpl.Revision;
 import org.eclipse.concierge.BundleImpl.Revision.WovenClassImpl;
+import org.eclipse.concierge.ConciergeCollections.ConcurrentLongMap;
+import org.eclipse.concierge.ConciergeCollections.ConcurrentMultiMap;
 import org.eclipse.concierge.ConciergeCollections.MultiMap;
 import org.eclipse.concierge.ConciergeCollections.ParseResult;
 import org.eclipse.concierge.Resources.BundleCapabilityImpl;
@@ -67,6 +87,8 @@ import org.eclipse.concierge.Resources.HostedBundleCapability;
 import org.eclipse.concierge.compat.LegacyBundleProcessing;
 import org.eclipse.concierge.compat.service.XargsFileLauncher;
 import org.eclipse.concierge.service.log.LogServiceImpl;
+import org.eclipse.concierge.service.metrics.FrameworkMetrics;
+import org.eclipse.concierge.service.metrics.StartupTimeline;
 import org.osgi.framework.AllServiceListener;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
@@ -236,6 +258,53 @@ public final class Concierge extends AbstractBundle implements Framework,
 	 */
 	boolean SECURITY_ENABLED;
 
+	/**
+	 * maximum number of workers for parallel framework tasks like bulk
+	 * installations.
+	 */
+	int PARALLELISM;
+
+	/**
+	 * persist the results of weaving hooks across restarts.
+	 */
+	boolean WEAVING_CACHE;
+
+	/**
+	 * collect metrics of the framework internals.
+	 */
+	boolean METRICS_ENABLED;
+
+	/**
+	 * the metrics, <code>null</code> if disabled.
+	 */
+	Metrics metrics;
+
+	/**
+	 * the registration of the metrics MBean.
+	 */
+	private Metrics.JMX metricsMBean;
+
+	/**
+	 * record a timeline of the framework start.
+	 */
+	boolean PROFILE_STARTUP;
+
+	/**
+	 * the file to write the startup trace to, or <code>null</code>.
+	 */
+	String PROFILE_TRACE;
+
+	/**
+	 * the timeline of the ongoing framework start, <code>null</code> if
+	 * profiling is disabled or the start has completed.
+	 */
+	volatile Timeline timeline;
+
+	/**
+	 * the timeline of the last framework start.
+	 */
+	private Timeline startupTimeline;
+
 	/**
 	 * debug outputs from bundles ?
 	 */
@@ -301,24 +370,27 @@ public final class Concierge extends AbstractBundle implements Framework,
 	/**
 	 * the bundles.
 	 */
-	List<AbstractBundle> bundles = new ArrayList<AbstractBundle>(2);
+	final List<AbstractBundle> bundles = new CopyOnWriteArrayList<AbstractBundle>();
+
+	/**
+	 * immutable snapshot of all bundles, including the system bundle.
+	 */
+	private volatile Bundle[] bundleSnapshot = new Bundle[] { this };
 
 	/**
 	 * bundleID -> bundle.
 	 */
-	Map<Long, AbstractBundle> bundleID_bundles = new HashMap<Long, AbstractBundle>(
-			2);
+	final ConcurrentLongMap<AbstractBundle> bundleID_bundles = new ConcurrentLongMap<AbstractBundle>();
 
 	/**
 	 * location -> bundle.
 	 */
-	Map<String, AbstractBundle> location_bundles = Collections
-			.synchronizedMap(new HashMap<String, AbstractBundle>(2));
+	final Map<String, AbstractBundle> location_bundles = new ConcurrentHashMap<String, AbstractBundle>();
 
 	/**
 	 * symbolicName -> List of bundles
 	 */
-	MultiMap<String, AbstractBundle> symbolicName_bundles = new MultiMap<String, AbstractBundle>(
+	final ConcurrentMultiMap<String, AbstractBundle> symbolicName_bundles = new ConcurrentMultiMap<String, AbstractBundle>(
 			2);
 
 	/**
@@ -353,6 +425,12 @@ public final class Concierge extends AbstractBundle implements Framework,
 	protected final List<ServiceListenerEntry> serviceListeners = new ArrayList<ServiceListenerEntry>(
 			1);
 
+	/**
+	 * immutable snapshot of the service listeners, also grouped by bundle
+	 * context. Replaced whenever a service listener is added or removed.
+	 */
+	private volatile ServiceListenerGroups serviceListenerGroups = ServiceListenerGroups.EMPTY;
+
 	/**
 	 * Map of unattached fragments in the system. HostName => List of fragments
 	 */
@@ -372,12 +450,24 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 	Map<Resource, Wiring> wirings = new HashMap<Resource, Wiring>();
 
+	/**
+	 * serializes refresh operations.
+	 */
+	private final Object refreshLock = new Object();
+
+	/**
+	 * the executor for asynchronous framework operations.
+	 */
+	private ExecutorService executor;
+
+	private final Object executorLock = new Object();
+
 	// the fields
 
 	/**
 	 * next bundle ID.
 	 */
-	private long nextBundleID = 1;
+	private final AtomicLong nextBundleID = new AtomicLong(1);
 
 	/**
 	 * the initial startlevel for installed bundles.
@@ -429,9 +519,18 @@ public final class Concierge extends AbstractBundle implements Framework,
 	protected List<ServiceReferenceImpl<ListenerHook>> serviceListenerHooks = new ArrayList<ServiceReferenceImpl<ListenerHook>>(0);
 	protected List<ServiceReferenceImpl<EventListenerHook>> serviceEventListenerHooks = new ArrayList<ServiceReferenceImpl<EventListenerHook>>(0);
 	protected List<ServiceReferenceImpl<FindHook>> serviceFindHooks = new ArrayList<ServiceReferenceImpl<FindHook>>(0);
+	private final HashMap<ServiceReference<?>, Object> serviceEventHookServices = new HashMap<ServiceReference<?>, Object>(0);
+	private volatile ServiceEventHookChain serviceEventHookChain;
+	// guarded by serviceEventHookServices, counts the invalidations
+	private int serviceEventHookGeneration;
 
 	// weaving hooks
 	private final List<ServiceReferenceImpl<WeavingHook>> weavingHooks = new ArrayList<ServiceReferenceImpl<WeavingHook>>(0);
+	private final HashMap<ServiceReferenceImpl<WeavingHook>, WeavingHook> weavingHookServices = new HashMap<ServiceReferenceImpl<WeavingHook>, WeavingHook>(0);
+	private volatile WeavingHookChain weavingHookChain;
+
+	// ServicePermission decisions
+	final ServicePermissionCache servicePermissions = new ServicePermissionCache();
 
 	// woven class listeners
 	private final List<ServiceReferenceImpl<WovenClassListener>> wovenClassListeners = new ArrayList<ServiceReferenceImpl<WovenClassListener>>(0);
@@ -859,7 +958,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 		}
 
 		defaultProperties.setProperty(Constants.FRAMEWORK_SYSTEMPACKAGES,
-				"org.osgi.framework;version=1.8,org.osgi.framework.dto;version=1.8,org.osgi.dto;version=1.0,org.osgi.framework.hooks.bundle;version=1.1,org.osgi.framework.hooks.resolver;version=1.0,org.osgi.framework.hooks.service;version=1.1,org.osgi.framework.hooks.weaving;version=1.1,org.osgi.framework.launch;version=1.2,org.osgi.framework.namespace;version=1.1,org.osgi.framework.startlevel;version=1.0,org.osgi.framework.startlevel.dto;version=1.0,org.osgi.framework.wiring;version=1.2,org.osgi.framework.wiring.dto;version=1.2,org.osgi.resource;version=1.0,org.osgi.resource.dto;version=1.0,org.osgi.service.log;version=1.3,org.osgi.service.packageadmin;version=1.2,org.osgi.service.startlevel;version=1.1,org.osgi.service.url;version=1.0,org.osgi.service.resolver;version=1.0.1,org.osgi.util.tracker;version=1.5.1,META-INF.services");
+				"org.osgi.framework;version=1.8,org.osgi.framework.dto;version=1.8,org.osgi.dto;version=1.0,org.osgi.framework.hooks.bundle;version=1.1,org.osgi.framework.hooks.resolver;version=1.0,org.osgi.framework.hooks.service;version=1.1,org.osgi.framework.hooks.weaving;version=1.1,org.osgi.framework.launch;version=1.2,org.osgi.framework.namespace;version=1.1,org.osgi.framework.startlevel;version=1.0,org.osgi.framework.startlevel.dto;version=1.0,org.osgi.framework.wiring;version=1.2,org.osgi.framework.wiring.dto;version=1.2,org.osgi.resource;version=1.0,org.osgi.resource.dto;version=1.0,org.osgi.service.log;version=1.3,org.osgi.service.packageadmin;version=1.2,org.osgi.service.startlevel;version=1.1,org.osgi.service.url;version=1.0,org.osgi.service.resolver;version=1.0.1,org.osgi.util.tracker;version=1.5.1,org.eclipse.concierge.service.metrics;version=1.0,META-INF.services");
 
 		Object obj;
 		defaultProperties.put(Constants.FRAMEWORK_OS_NAME,
@@ -1006,6 +1105,19 @@ public final class Concierge extends AbstractBundle implements Framework,
 				"org.eclipse.concierge.decompressEmbedded", true);
 		SECURITY_ENABLED = getProperty("org.eclipse.concierge.security.enabled",
 				false);
+		PARALLELISM = getProperty("org.eclipse.concierge.parallelism",
+				Runtime.getRuntime().availableProcessors() * 2);
+		WEAVING_CACHE = getProperty("org.eclipse.concierge.weaving.cache",
+				false);
+		METRICS_ENABLED = getProperty("org.eclipse.concierge.metrics.enabled",
+				false);
+		if (METRICS_ENABLED && metrics == null) {
+			metrics = new Metrics();
+		}
+		PROFILE_TRACE = properties
+				.getProperty("org.eclipse.concierge.profile.trace");
+		PROFILE_STARTUP = getProperty("org.eclipse.concierge.profile.startup",
+				PROFILE_TRACE != null);
 
 		final String bsl = properties
 				.getProperty(Constants.FRAMEWORK_BEGINNING_STARTLEVEL);
@@ -1136,6 +1248,23 @@ public final class Concierge extends AbstractBundle implements Framework,
 			return;
 		}
 
+		if (PROFILE_STARTUP) {
+			startupTimeline = timeline = new Timeline();
+		}
+		boolean initialized = false;
+		try {
+			init0();
+			initialized = true;
+		} finally {
+			if (!initialized) {
+				discardTimeline();
+			}
+		}
+	}
+
+	private void init0() throws BundleException {
+		final long initStart = timeline != null ? System.nanoTime() : 0;
+
 		final StringTokenizer t = new StringTokenizer(
 				properties.getProperty(FRAMEWORK_EXECUTIONENVIRONMENT), ",");
 		while (t.hasMoreTokens()) {
@@ -1260,7 +1389,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 		headers.put(Constants.EXPORT_PACKAGE, sysPkgs);
 		headers.put(Constants.BUNDLE_VENDOR, "Eclipse Foundation");
-		bundleID_bundles.put(new Long(0), this);
+		bundleID_bundles.put(0, this);
 		location_bundles.put(Constants.SYSTEM_BUNDLE_LOCATION, this);
 		symbolicName_bundles.insert(Constants.SYSTEM_BUNDLE_SYMBOLICNAME, this);
 		symbolicName_bundles.insert(BUNDLE_SYMBOLIC_NAME, this);
@@ -1397,11 +1526,45 @@ public final class Concierge extends AbstractBundle implements Framework,
 		properties.setProperty(Constants.FRAMEWORK_UUID,
 				UUID.randomUUID().toString());
 
+		// publish the metrics
+		if (METRICS_ENABLED) {
+			final ServiceReference<?> metricsref = new ServiceReferenceImpl<Object>(
+					Concierge.this, this, metrics, null,
+					new String[] { FrameworkMetrics.class.getName() });
+			synchronized (serviceRegistry) {
+				serviceRegistry.insert(FrameworkMetrics.class.getName(),
+						metricsref);
+			}
+			registeredServices.add(metricsref);
+
+			if (getProperty("org.eclipse.concierge.metrics.jmx", true)) {
+				try {
+					metricsMBean = new Metrics.JMX(metrics,
+							properties.getProperty(Constants.FRAMEWORK_UUID));
+				} catch (final Throwable jmx) {
+					// no JMX on this platform
+					if (LOG_ENABLED) {
+						logger.log(LogService.LOG_WARNING,
+								"Could not register the metrics MBean", jmx);
+					}
+				}
+			}
+		}
+
 		state = Bundle.STARTING;
 
+		if (timeline != null) {
+			timeline.record(StartupTimeline.PHASE, "init", -1, initStart);
+		}
+
 		if (restart) {
 			// have bundle objects for all installed bundles
+			final long restoreStart = timeline != null ? System.nanoTime() : 0;
 			restoreProfile();
+			if (timeline != null) {
+				timeline.record(StartupTimeline.PHASE, "restoreProfile", -1,
+						restoreStart);
+			}
 		}
 	}
 
@@ -1490,6 +1653,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 			System.out.println("-------------------"
 					+ "--------------------------------------");
 			final long time = System.currentTimeMillis();
+			final long startNanos = timeline != null ? System.nanoTime() : 0;
 
 			// start System bundle
 			start(context);
@@ -1501,7 +1665,18 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 			// save the metadata
 			if (!restart) {
+				final long storeStart = timeline != null ? System.nanoTime()
+						: 0;
 				storeProfile();
+				if (timeline != null) {
+					timeline.record(StartupTimeline.PHASE, "storeProfile", -1,
+							storeStart);
+				}
+			}
+
+			if (timeline != null) {
+				timeline.record(StartupTimeline.PHASE, "start", -1,
+						startNanos);
 			}
 
 			final float timediff = (System.currentTimeMillis() - time)
@@ -1518,11 +1693,56 @@ public final class Concierge extends AbstractBundle implements Framework,
 			notifyFrameworkListeners(FrameworkEvent.ERROR, this,
 					new BundleException("Exception during framework start",
 							BundleException.STATECHANGE_ERROR, e));
+		} catch (final Error e) {
+			discardTimeline();
+			throw e;
 		}
 		state = Bundle.ACTIVE;
+		completeTimeline();
 		notifyFrameworkListeners(FrameworkEvent.STARTED, this, null);
 	}
 
+	/**
+	 * complete the startup timeline and write the trace file, if requested.
+	 */
+	private void completeTimeline() {
+		final Timeline completed = timeline;
+		if (completed == null) {
+			return;
+		}
+		timeline = null;
+		completed.complete();
+
+		if (PROFILE_TRACE != null) {
+			try {
+				final Writer writer = new OutputStreamWriter(
+						new FileOutputStream(PROFILE_TRACE), "UTF-8");
+				try {
+					completed.writeTrace(writer);
+				} finally {
+					writer.close();
+				}
+			} catch (final IOException ioe) {
+				warning("Could not write the startup trace to "
+						+ PROFILE_TRACE + ": " + ioe.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * stop recording the startup timeline without writing the trace file,
+	 * the framework start has failed or the framework is stopped before its
+	 * start has completed.
+	 */
+	private void discardTimeline() {
+		final Timeline discarded = timeline;
+		if (discarded == null) {
+			return;
+		}
+		timeline = null;
+		discarded.complete();
+	}
+
 	/**
 	 * store the profile.
 	 * 
@@ -1546,7 +1766,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 		try {
 			final DataOutputStream out = new DataOutputStream(
 					new FileOutputStream(new File(STORAGE_LOCATION, "meta")));
-			out.writeLong(nextBundleID);
+			out.writeLong(nextBundleID.get());
 			out.close();
 		} catch (final IOException ioe) {
 			ioe.printStackTrace();
@@ -1573,28 +1793,56 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 			final DataInputStream in = new DataInputStream(
 					new FileInputStream(file));
-			nextBundleID = in.readLong();
+			nextBundleID.set(in.readLong());
 			in.close();
 
 			final File storageDir = new File(STORAGE_LOCATION);
 			final File[] bundleDirs = storageDir.listFiles();
+			final Object[] staged = new Object[bundleDirs.length];
 
-			for (int i = 0; i < bundleDirs.length; i++) {
-				if (bundleDirs[i].isDirectory()) {
+			// read the metadata and the manifests in parallel
+			runParallel(bundleDirs.length, new IndexedTask() {
+				public void run(final int i) {
 					final File meta = new File(bundleDirs[i], "meta");
-					if (meta.exists()) {
-						try {
-							final AbstractBundle bundle = new BundleImpl(this,
-									meta);
-							if (DEBUG_BUNDLES) {
-								logger.log(LogService.LOG_DEBUG,
-										"RESTORED BUNDLE " + bundle.location);
-							}
-						} catch (final Exception e) {
-							// too early for logger
-							e.printStackTrace();
+					if (!bundleDirs[i].isDirectory() || !meta.exists()) {
+						return;
+					}
+					try {
+						final Timeline timeline = Concierge.this.timeline;
+						final long start = timeline != null ? System.nanoTime()
+								: 0;
+						final BundleImpl bundle = new BundleImpl(
+								Concierge.this, new DataInputStream(
+										new FileInputStream(meta)));
+						if (timeline != null) {
+							timeline.record(StartupTimeline.INSTALL,
+									bundle.location, bundle.bundleId, start);
 						}
+						staged[i] = bundle;
+					} catch (final Throwable t) {
+						staged[i] = t;
+					}
+				}
+			});
+
+			// register the bundles in the order of the storage directories
+			for (int i = 0; i < staged.length; i++) {
+				if (staged[i] == null) {
+					continue;
+				}
+				try {
+					if (!(staged[i] instanceof BundleImpl)) {
+						throw (Throwable) staged[i];
 					}
+					final BundleImpl bundle = (BundleImpl) staged[i];
+					bundle.commitRestore();
+					if (DEBUG_BUNDLES) {
+						logger.log(LogService.LOG_DEBUG,
+								"RESTORED BUNDLE " + bundle.location);
+					}
+				} catch (final Throwable t) {
+					// too early for logger
+					t.printStackTrace();
 				}
 			}
 		} catch (final IOException ioe) {
@@ -1650,6 +1898,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 	protected void stop0(final boolean update) {
 		state = Bundle.STOPPING;
+		discardTimeline();
 
 		// call extension bundles with successfully called start activators
 		for(BundleImpl b : extensionBundles){
@@ -1691,6 +1940,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 			}
 
 			bundles.clear();
+			bundleSnapshot = new Bundle[] { this };
 			bundleID_bundles.clear();
 			location_bundles.clear();
 			symbolicName_bundles.clear();
@@ -1703,6 +1953,19 @@ public final class Concierge extends AbstractBundle implements Framework,
 			// reset the used Concierge instance in URL stream handler factory
 			conciergeURLStreamHandlerFactory.setConcierge(null);
 
+			if (metricsMBean != null) {
+				metricsMBean.unregister();
+				metricsMBean = null;
+			}
+
+			// release the worker threads
+			synchronized (executorLock) {
+				if (executor != null) {
+					executor.shutdown();
+					executor = null;
+				}
+			}
+
 			stopEvent = new FrameworkEvent(update
 					? FrameworkEvent.STOPPED_UPDATE : FrameworkEvent.STOPPED,
 					this, null);
@@ -1827,6 +2090,10 @@ public final class Concierge extends AbstractBundle implements Framework,
 			return (A) wirings.get(this);
 		}
 
+		if (type == StartupTimeline.class) {
+			return (A) startupTimeline;
+		}
+
 		if(type == FrameworkStartLevelDTO.class){
 			FrameworkStartLevelDTO fsl = new FrameworkStartLevelDTO();
 			fsl.initialBundleStartLevel = initStartlevel;
@@ -2107,6 +2374,8 @@ public final class Concierge extends AbstractBundle implements Framework,
 			if (list == null) {
 				continue;
 			}
+			final Timeline timeline = this.timeline;
+			final long levelStart = timeline != null ? System.nanoTime() : 0;
 			final BundleImpl[] toProcess = list
 					.toArray(new BundleImpl[list.size()]);
 			for (int j = 0; j < toProcess.length; j++) {
@@ -2141,6 +2410,10 @@ public final class Concierge extends AbstractBundle implements Framework,
 							t);
 				}
 			}
+			if (timeline != null) {
+				timeline.record(StartupTimeline.PHASE,
+						"startlevel " + startlevel, -1, levelStart);
+			}
 		}
 
 		startlevel = targetLevel;
@@ -2233,155 +2506,217 @@ public final class Concierge extends AbstractBundle implements Framework,
 			final FrameworkListener... listeners) {
 		// TODO: check AdminPermission(this, RESOLVE)
 
-		new Thread() {
+		getExecutor().execute(new Runnable() {
 			public void run() {
 				try {
-					synchronized (Concierge.this) {
-						Bundle[] initial;
+					// only one refresh at a time
+					synchronized (refreshLock) {
+						refresh();
+					}
+				} catch (final Throwable t) {
+					// TODO: to log
+					t.printStackTrace();
+				}
+			}
 
-						// build the initial set of bundles
-						if (bundleCollection == null) {
-							initial = bundles
-									.toArray(new Bundle[bundles.size()]);
-						} else {
-							initial = bundleCollection.toArray(
-									new Bundle[bundleCollection.size()]);
-						}
+			private void refresh() {
+				BundleImpl[] refreshArray;
 
-						final ArrayList<Bundle> toProcess = new ArrayList<Bundle>();
+				synchronized (Concierge.this) {
+					refreshArray = getRefreshArray();
+				}
 
-						// filter out those which need to be updated
-						for (int i = 0; i < initial.length; i++) {
-							if (initial[i] == Concierge.this) {
-								// don't process (stop/start)
-								continue;
-							}
-							if (initial[i].getState() == Bundle.INSTALLED) {
-								continue;
-							}
-							final BundleImpl theBundle = (BundleImpl) initial[i];
-							if (bundleCollection == null) {
-								if (theBundle.currentRevision == null
-										|| theBundle.currentRevision != theBundle.revisions
-												.get(0)) {
-									toProcess.add(theBundle);
-								} else
-									if (theBundle.currentRevision.fragments != null) {
-									for (final Revision fragment : theBundle.currentRevision.fragments) {
-										if (fragment.getBundle()
-												.getState() == Bundle.UNINSTALLED) {
-											toProcess.add(initial[i]);
-											break;
-										}
-									}
-								}
-							} else {
-								// bundleArray has entries which should be
-								// processed anyway
-								toProcess.add(initial[i]);
-							}
-						}
+				if (refreshArray == null) {
+					notifyListeners(FrameworkEvent.PACKAGES_REFRESHED,
+							Concierge.this, null);
 
-						// nothing to do ? fine, so we are done.
-						if (toProcess.isEmpty()) {
-							notifyListeners(FrameworkEvent.PACKAGES_REFRESHED,
-									Concierge.this, null);
+					return;
+				}
 
-							return;
-						}
+				final List<Bundle> restartList = new ArrayList<Bundle>();
+				final Set<Bundle> stopped = new HashSet<Bundle>();
 
-						if (LOG_ENABLED && DEBUG_PACKAGES) {
-							logger.log(LogService.LOG_DEBUG,
-									"REFRESHING PACKAGES FROM BUNDLES "
-											+ toProcess);
-						}
+				// lock the bundles of the closure in the order of their ids,
+				// stop, refresh and re-resolve them. If the closure has grown
+				// in the meantime, start over with the larger closure.
+				do {
+					refreshArray = refreshLocked(refreshArray, 0, restartList,
+							stopped);
+				} while (refreshArray != null);
 
-						final Collection<Bundle> updateGraph = getDependencyClosure(
-								toProcess);
+				// restart all bundles regarding their startlevels
+				for (final Bundle bu : restartList) {
+					try {
+						bu.start();
+					} catch (final Exception e) {
+						notifyListeners(FrameworkEvent.ERROR, bu, e);
+					}
+				}
 
-						if (LOG_ENABLED && DEBUG_PACKAGES) {
-							logger.log(LogService.LOG_DEBUG,
-									"UPDATE GRAPH IS " + updateGraph);
-						}
+				notifyListeners(FrameworkEvent.PACKAGES_REFRESHED,
+						Concierge.this, null);
+			}
 
-						final ArrayList<Bundle> tmp = new ArrayList<Bundle>(
-								updateGraph);
-						Collections.sort(tmp);
-						final Bundle[] refreshArray = tmp
-								.toArray(new Bundle[tmp.size()]);
+			/**
+			 * @return <code>null</code> if the bundles have been refreshed,
+			 *         or the grown closure if bundles have been resolved
+			 *         against the closure while its bundles were stopped.
+			 */
+			private BundleImpl[] refreshLocked(final BundleImpl[] refreshArray,
+					final int pos, final List<Bundle> restartList,
+					final Set<Bundle> stopped) {
+				if (pos < refreshArray.length) {
+					synchronized (refreshArray[pos]) {
+						return refreshLocked(refreshArray, pos + 1,
+								restartList, stopped);
+					}
+				}
 
-						// stop all bundles in the restart array regarding their
-						// startlevels
+				// stop all bundles in the restart array regarding their
+				// startlevels. The activators run without the framework lock
+				// held.
+				for (int i = 0; i < refreshArray.length; i++) {
+					final BundleImpl bu = refreshArray[i];
+					try {
+						if (bu.state == ACTIVE && stopped.add(bu)) {
+							bu.stop();
 
-						// perform a cleanup for all bundles
-						// CLEANUP
-						final List<Bundle> restartList = new ArrayList<Bundle>();
+							restartList.add(0, bu);
+						}
+					} catch (final Exception e) {
+						notifyListeners(FrameworkEvent.ERROR, bu, e);
+					}
+				}
 
-						for (int i = 0; i < refreshArray.length; i++) {
-							final BundleImpl bu = (BundleImpl) refreshArray[i];
-							try {
-								if (bu.state == ACTIVE) {
-									bu.stop();
+				// the cleanup of the wirings and the re-resolve must not
+				// interleave with resolve, install, or dynamic imports
+				synchronized (Concierge.this) {
+					final BundleImpl[] closure = getClosure(
+							Arrays.<Bundle> asList(refreshArray));
+					if (closure.length > refreshArray.length) {
+						return closure;
+					}
+					cleanup(refreshArray, restartList);
+				}
+				return null;
+			}
 
-									restartList.add(0, bu);
-								}
+			private BundleImpl[] getRefreshArray() {
+				Bundle[] initial;
 
-								if (bu.state == RESOLVED) {
-									bu.state = INSTALLED;
-								}
+				// build the initial set of bundles
+				if (bundleCollection == null) {
+					initial = bundles.toArray(new Bundle[bundles.size()]);
+				} else {
+					initial = bundleCollection
+							.toArray(new Bundle[bundleCollection.size()]);
+				}
 
-								// bundle needs to be refreshed
-								bu.refresh();
+				final ArrayList<Bundle> toProcess = new ArrayList<Bundle>();
 
-								if (bu.state == UNINSTALLED) {
-									// bundle is uninstalled
-									bundles.remove(bu);
-								} else {
-									notifyBundleListeners(
-											BundleEvent.UNRESOLVED, bu);
+				// filter out those which need to be updated
+				for (int i = 0; i < initial.length; i++) {
+					if (initial[i] == Concierge.this) {
+						// don't process (stop/start)
+						continue;
+					}
+					if (initial[i].getState() == Bundle.INSTALLED) {
+						continue;
+					}
+					final BundleImpl theBundle = (BundleImpl) initial[i];
+					if (bundleCollection == null) {
+						if (theBundle.currentRevision == null
+								|| theBundle.currentRevision != theBundle.revisions
+										.get(0)) {
+							toProcess.add(theBundle);
+						} else if (theBundle.currentRevision.fragments != null) {
+							for (final Revision fragment : theBundle.currentRevision.fragments) {
+								if (fragment.getBundle()
+										.getState() == Bundle.UNINSTALLED) {
+									toProcess.add(initial[i]);
+									break;
 								}
-							} catch (final Exception e) {
-								notifyListeners(FrameworkEvent.ERROR,
-										refreshArray[i], e);
 							}
 						}
+					} else {
+						// bundleArray has entries which should be
+						// processed anyway
+						toProcess.add(initial[i]);
+					}
+				}
 
-						// resolve, if possible
-						// FIXME: should be bulk operation
+				// nothing to do ? fine, so we are done.
+				if (toProcess.isEmpty()) {
+					return null;
+				}
 
-						for (final Iterator<Bundle> resolveIter = restartList
-								.iterator(); resolveIter.hasNext();) {
-							final BundleImpl bu = (BundleImpl) resolveIter
-									.next();
-							try {
-								if (bu.state == Bundle.INSTALLED) {
-									final boolean success = bu.currentRevision
-											.resolve(false);
-									if (!success) {
-										resolveIter.remove();
-									}
-								}
-							} catch (final Exception e) {
-								resolveIter.remove();
-								notifyListeners(FrameworkEvent.ERROR, bu, e);
-							}
+				if (LOG_ENABLED && DEBUG_PACKAGES) {
+					logger.log(LogService.LOG_DEBUG,
+							"REFRESHING PACKAGES FROM BUNDLES " + toProcess);
+				}
+
+				return getClosure(toProcess);
+			}
+
+			private BundleImpl[] getClosure(final Collection<Bundle> toProcess) {
+				final Collection<Bundle> updateGraph = getDependencyClosure(
+						toProcess);
+
+				if (LOG_ENABLED && DEBUG_PACKAGES) {
+					logger.log(LogService.LOG_DEBUG,
+							"UPDATE GRAPH IS " + updateGraph);
+				}
+
+				final ArrayList<Bundle> tmp = new ArrayList<Bundle>(
+						updateGraph);
+				tmp.remove(Concierge.this);
+				Collections.sort(tmp);
+				return tmp.toArray(new BundleImpl[tmp.size()]);
+			}
+
+			private void cleanup(final BundleImpl[] refreshArray,
+					final List<Bundle> restartList) {
+				// perform a cleanup for all bundles
+				// CLEANUP
+				for (int i = 0; i < refreshArray.length; i++) {
+					final BundleImpl bu = refreshArray[i];
+					try {
+						if (bu.state == RESOLVED) {
+							bu.state = INSTALLED;
 						}
 
-						// restart all bundles regarding their startlevels
-						for (final Bundle bu : restartList) {
-							try {
-								bu.start();
-							} catch (final Exception e) {
-								notifyListeners(FrameworkEvent.ERROR, bu, e);
-							}
+						// bundle needs to be refreshed
+						bu.refresh();
+
+						if (bu.state == UNINSTALLED) {
+							// bundle is uninstalled
+							removeBundle(bu);
+						} else {
+							notifyBundleListeners(BundleEvent.UNRESOLVED, bu);
 						}
+					} catch (final Exception e) {
+						notifyListeners(FrameworkEvent.ERROR, bu, e);
+					}
+				}
 
-						notifyListeners(FrameworkEvent.PACKAGES_REFRESHED,
-								Concierge.this, null);
-					} // end synchronized statement
-				} catch (final Throwable t) {
-					// TODO: to log
-					t.printStackTrace();
+				// resolve, if possible
+				// FIXME: should be bulk operation
+
+				for (final Iterator<Bundle> resolveIter = restartList
+						.iterator(); resolveIter.hasNext();) {
+					final BundleImpl bu = (BundleImpl) resolveIter.next();
+					try {
+						if (bu.state == Bundle.INSTALLED) {
+							final boolean success = bu.currentRevision
+									.resolve(false);
+							if (!success) {
+								resolveIter.remove();
+							}
+						}
+					} catch (final Exception e) {
+						resolveIter.remove();
+						notifyListeners(FrameworkEvent.ERROR, bu, e);
+					}
 				}
 			}
 
@@ -2399,7 +2734,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 				}
 			}
 
-		}.start();
+		});
 	}
 
 	/**
@@ -2643,6 +2978,9 @@ public final class Concierge extends AbstractBundle implements Framework,
 			throw new IllegalStateException("nested resolve call");
 		}
 
+		final Timeline timeline = this.timeline;
+		final long start = METRICS_ENABLED || timeline != null
+				? System.nanoTime() : 0;
 		boolean cleanup = false;
 		try {
 			inResolve = true;
@@ -2846,6 +3184,21 @@ public final class Concierge extends AbstractBundle implements Framework,
 					resolver.hooks = null;
 				}
 				inResolve = false;
+				if (METRICS_ENABLED) {
+					metrics.record(Metrics.RESOLVE_METRIC, start);
+				}
+				if (timeline != null) {
+					if (bundles.size() == 1) {
+						final BundleRevision revision = bundles.iterator()
+								.next();
+						timeline.record(StartupTimeline.RESOLVE,
+								revision.getBundle().toString(),
+								revision.getBundle().getBundleId(), start);
+					} else {
+						timeline.record(StartupTimeline.RESOLVE,
+								bundles.size() + " bundles", -1, start);
+					}
+				}
 			}
 		}
 	}
@@ -2880,62 +3233,42 @@ public final class Concierge extends AbstractBundle implements Framework,
 	 */
 	public Collection<Bundle> getDependencyClosure(
 			final Collection<Bundle> bundles) {
-		return getDependencies(bundles, false);
+		return getDependencies(bundles);
 	}
 
-	private Collection<Bundle> getDependencies(final Collection<Bundle> bundles,
-			final boolean allRevisions) {
-		// build up the dependency graph. See specs for details.
-		final ArrayList<Bundle> toProcess = new ArrayList<Bundle>(bundles);
-
+	private Collection<Bundle> getDependencies(
+			final Collection<Bundle> bundles) {
+		// build up the dependency graph. See specs for details. The reverse
+		// dependencies are maintained by the wirings, so the closure is
+		// computed with a single traversal over the affected bundles.
 		final Set<Bundle> dependencySet = new HashSet<Bundle>();
-		while (!toProcess.isEmpty()) {
-			final Bundle b = toProcess.remove(0);
+		final LinkedList<AbstractBundle> toProcess = new LinkedList<AbstractBundle>();
 
+		for (final Bundle b : bundles) {
 			if (b == this) {
 				dependencySet.add(b);
 				continue;
 			}
 
-			if (dependencySet.contains(b)) {
-				continue;
-			}
-
 			if (!(b instanceof BundleImpl)) {
 				throw new IllegalArgumentException(
 						"Bundles were not created by this framework instance "
 								+ b.getClass().getName());
 			}
 
-			dependencySet.add(b);
-
-			final BundleImpl bundle = (BundleImpl) b;
-
-			for (final BundleRevision brev : bundle.revisions) {
-				final BundleWiring wiring = brev.getWiring();
-
-				// all package exports
-				if (wiring != null) {
+			if (dependencySet.add(b)) {
+				toProcess.addLast((AbstractBundle) b);
+			}
+		}
 
-					for (final BundleRevision rev : ((ConciergeBundleWiring) wiring).inUseSet) {
-						toProcess.add(rev.getBundle());
-					}
+		while (!toProcess.isEmpty()) {
+			final AbstractBundle bundle = toProcess.removeFirst();
 
-					/*
-					 * final List<BundleWire> importWires = wiring
-					 * .getProvidedWires(null);
-					 * 
-					 * if (importWires != null) { for (final BundleWire
-					 * importWire : importWires) {
-					 * toProcess.add(importWire.getRequirer().getBundle()); } }
-					 */
-					final List<BundleWire> hostWires = wiring
-							.getRequiredWires(HostNamespace.HOST_NAMESPACE);
-					if (hostWires != null) {
-						for (final BundleWire hostWire : hostWires) {
-							toProcess.add(hostWire.getProvider().getBundle());
-						}
-					}
+			// bundles using the wirings of this bundle, this includes the
+			// hosts of attached fragments
+			for (final AbstractBundle dependent : bundle.getDependents()) {
+				if (dependencySet.add(dependent) && dependent != this) {
+					toProcess.addLast(dependent);
 				}
 			}
 		}
@@ -2949,6 +3282,18 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 		public synchronized Map<Resource, List<Wire>> resolve(
 				final ResolveContext context) throws ResolutionException {
+			final long start = METRICS_ENABLED ? System.nanoTime() : 0;
+			try {
+				return resolve0(context);
+			} finally {
+				if (METRICS_ENABLED) {
+					metrics.record(Metrics.RESOLVE_METRIC, start);
+				}
+			}
+		}
+
+		private Map<Resource, List<Wire>> resolve0(
+				final ResolveContext context) throws ResolutionException {
 			if (context == null) {
 				throw new IllegalArgumentException("context is null");
 			}
@@ -3490,8 +3835,14 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 		Concierge frameworkInstance = null;
 
+		/**
+		 * the shared handler for the bundle protocol.
+		 */
+		private final BundleURLStreamHandler bundleHandler = new BundleURLStreamHandler();
+
 		public void setConcierge(final Concierge concierge) {
 			this.frameworkInstance = concierge;
+			bundleHandler.hosts.clear();
 		}
 
 		/**
@@ -3501,75 +3852,163 @@ public final class Concierge extends AbstractBundle implements Framework,
 		public URLStreamHandler createURLStreamHandler(final String protocol) {
 			// check the service registry, java.protocol.handler.pkgs, etc.
 			if ("bundle".equals(protocol)) {
-				return new URLStreamHandler() {
+				return bundleHandler;
+			}
 
-					protected URLConnection openConnection(final URL u)
-							throws IOException {
-						try {
-							final String host = u.getHost();
-							// FIXME: unsafe!
-							final String[] s = Utils.splitString(host, '.');
+			return null;
+		}
 
-							final Long bundleId = Long.parseLong(s[0]);
-							final int rev = Integer.parseInt(s[1]);
+		/**
+		 * URL stream handler for bundle://&lt;bundleId&gt;.&lt;revId&gt;/path
+		 * URLs. The host part is parsed only once and kept in a cache, the
+		 * connection resolves the revision once and serves both the content
+		 * and the content length from a single entry lookup.
+		 */
+		private final class BundleURLStreamHandler extends URLStreamHandler {
 
-							if (ConciergeURLStreamHandlerFactory.this.frameworkInstance == null) {
-								throw new IllegalStateException(
-										"ConciergeURLStreamHandlerFactory "
-												+ "is not linked to a Concierge framework");
-							}
+			private static final int MAX_CACHED_HOSTS = 256;
 
-							final BundleImpl bundle = (BundleImpl) ConciergeURLStreamHandlerFactory.this.frameworkInstance.bundleID_bundles
-									.get(bundleId);
-							if (bundle == null) {
-								throw new IllegalStateException(
-										"Bundle for URL " + u
-												+ " can not be found");
-							}
-							return new URLConnection(u) {
+			final ConcurrentHashMap<String, BundleURLHost> hosts = new ConcurrentHashMap<String, BundleURLHost>();
 
-								private InputStream inputStream;
+			protected URLConnection openConnection(final URL u)
+					throws IOException {
+				final Concierge framework = frameworkInstance;
+				if (framework == null) {
+					throw new IllegalStateException(
+							"ConciergeURLStreamHandlerFactory "
+									+ "is not linked to a Concierge framework");
+				}
 
-								private boolean isConnected;
+				final BundleURLHost host = parseHost(u.getHost());
 
-								public void connect() throws IOException {
-									inputStream = bundle.getURLResource(u, rev);
-									if(inputStream == null){
-										throw new FileNotFoundException("Could not find "+u.toString());
-									}
-									isConnected = true;
-								}
+				final BundleImpl bundle = (BundleImpl) framework.bundleID_bundles
+						.get(host.bundleId);
+				if (bundle == null) {
+					throw new IllegalStateException(
+							"Bundle for URL " + u + " can not be found");
+				}
 
-								public int getContentLength() {
-									return (int) bundle.getResourceLength(u,
-											rev);
-								}
+				return new BundleURLConnection(u,
+						bundle.getRevision(host.revId));
+			}
 
-								public InputStream getInputStream()
-										throws IOException {
-									if (!isConnected) {
-										connect();
-									}
-									return inputStream;
-								}
+			private BundleURLHost parseHost(final String host)
+					throws IOException {
+				final BundleURLHost cached = hosts.get(host);
+				if (cached != null) {
+					return cached;
+				}
 
-							};
-						} catch (final NumberFormatException nfe) {
-							throw new IOException(
-									"Malformed host " + u.getHost());
-						}
+				final int pos = host.indexOf('.');
+				if (pos < 0) {
+					throw new IOException("Malformed host " + host);
+				}
+				try {
+					final BundleURLHost parsed = new BundleURLHost(
+							Long.parseLong(host.substring(0, pos)),
+							Integer.parseInt(host.substring(pos + 1)));
+					if (hosts.size() >= MAX_CACHED_HOSTS) {
+						// bundle ids are never reused, do not let stale
+						// hosts of uninstalled bundles accumulate
+						hosts.clear();
 					}
-				};
+					hosts.put(host, parsed);
+					return parsed;
+				} catch (final NumberFormatException nfe) {
+					throw new IOException("Malformed host " + host);
+				}
 			}
 
-			return null;
 		}
+
 	}
 
-	// full match
-	static boolean matches(final Requirement req, final Capability cap) {
-		final String reqNamespace = req.getNamespace();
-		final String capNamespace = cap.getNamespace();
+	/**
+	 * the parsed host part of a bundle URL.
+	 */
+	static final class BundleURLHost {
+
+		final long bundleId;
+
+		final int revId;
+
+		BundleURLHost(final long bundleId, final int revId) {
+			this.bundleId = bundleId;
+			this.revId = revId;
+		}
+
+	}
+
+	/**
+	 * a connection to an entry of a bundle revision.
+	 */
+	static final class BundleURLConnection extends URLConnection {
+
+		private final Revision revision;
+
+		private InputStream inputStream;
+
+		private long contentLength = -1;
+
+		BundleURLConnection(final URL url, final Revision revision) {
+			super(url);
+			this.revision = revision;
+		}
+
+		public void connect() throws IOException {
+			if (connected) {
+				return;
+			}
+
+			if (revision != null) {
+				final String frag = getFragment();
+				final BundleImpl.ResourceEntry entry = frag == null
+						? revision.retrieveEntry(null, url.getPath())
+						: revision.retrieveEntry(url.getPath(), frag);
+				if (entry != null) {
+					inputStream = entry.stream;
+					contentLength = entry.length;
+				}
+			}
+
+			if (inputStream == null) {
+				throw new FileNotFoundException("Could not find " + url);
+			}
+			connected = true;
+		}
+
+		public int getContentLength() {
+			// the length comes with the single lookup of the entry
+			try {
+				connect();
+			} catch (final IOException ioe) {
+				return -1;
+			}
+			return (int) contentLength;
+		}
+
+		private String getFragment() {
+			try {
+				return url.toURI().getFragment();
+			} catch (final URISyntaxException e) {
+				final BundleImpl bundle = (BundleImpl) revision.getBundle();
+				bundle.framework.notifyFrameworkListeners(FrameworkEvent.ERROR,
+						bundle, e);
+				return null;
+			}
+		}
+
+		public InputStream getInputStream() throws IOException {
+			connect();
+			return inputStream;
+		}
+
+	}
+
+	// full match
+	static boolean matches(final Requirement req, final Capability cap) {
+		final String reqNamespace = req.getNamespace();
+		final String capNamespace = cap.getNamespace();
 
 		if (!reqNamespace.equals(capNamespace)) {
 			return false;
@@ -3627,6 +4066,68 @@ public final class Concierge extends AbstractBundle implements Framework,
 		return new BundleContextImpl(bundle);
 	}
 
+	/**
+	 * get the executor for asynchronous framework operations. The executor is
+	 * created on demand and shut down when the framework stops.
+	 * 
+	 * @return the executor.
+	 */
+	ExecutorService getExecutor() {
+		synchronized (executorLock) {
+			if (executor == null) {
+				executor = Executors.newCachedThreadPool(new ThreadFactory() {
+					private int count;
+
+					public Thread newThread(final Runnable r) {
+						final Thread t = new Thread(r,
+								"Concierge Framework Worker " + ++count);
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			}
+			return executor;
+		}
+	}
+
+	/**
+	 * register a newly installed bundle with the lookup structures.
+	 * 
+	 * @param bundle
+	 *            the bundle.
+	 */
+	void addBundle(final AbstractBundle bundle) {
+		synchronized (bundles) {
+			bundles.add(bundle);
+			bundleID_bundles.put(bundle.getBundleId(), bundle);
+			updateBundleSnapshot();
+		}
+		symbolicName_bundles.insert(bundle.getSymbolicName(), bundle);
+		location_bundles.put(bundle.getLocation(), bundle);
+	}
+
+	/**
+	 * remove an uninstalled bundle from the bundle list and the id lookup.
+	 * 
+	 * @param bundle
+	 *            the bundle.
+	 */
+	void removeBundle(final AbstractBundle bundle) {
+		synchronized (bundles) {
+			bundles.remove(bundle);
+			bundleID_bundles.remove(bundle.getBundleId());
+			updateBundleSnapshot();
+		}
+	}
+
+	private void updateBundleSnapshot() {
+		final Object[] current = bundles.toArray();
+		final Bundle[] snapshot = new Bundle[current.length + 1];
+		snapshot[0] = this;
+		System.arraycopy(current, 0, snapshot, 1, current.length);
+		bundleSnapshot = snapshot;
+	}
+
 	List<AbstractBundle> getBundleWithSymbolicName(final String symbolicName) {
 		final List<AbstractBundle> list = symbolicName_bundles
 				.lookup(symbolicName);
@@ -3755,7 +4256,21 @@ public final class Concierge extends AbstractBundle implements Framework,
 					.get(clazzes[i]);
 			if (hookList != null) {
 				isHook = true;
-				hookList.remove(sref);
+				synchronized (hookList) {
+					hookList.remove(sref);
+				}
+				if ((Object) hookList == (Object) weavingHooks) {
+					// the registration releases the service object itself
+					removeWeavingHook(sref, false);
+				} else if ((Object) hookList == (Object) serviceEventHooks
+						|| (Object) hookList == (Object) serviceEventListenerHooks) {
+					synchronized (serviceEventHookServices) {
+						serviceEventHookServices.remove(sref);
+						invalidateServiceEventHookChain();
+					}
+				} else if ((Object) hookList == (Object) resolverHookFactories) {
+					capabilityRegistry.invalidate();
+				}
 			}
 			
 			if(clazzes[i].equals(WovenClassListener.class.getName())){
@@ -3978,17 +4493,16 @@ public final class Concierge extends AbstractBundle implements Framework,
 		final FrameworkEvent event = new FrameworkEvent(state, bundle,
 				throwable);
 
-		for (int i = 0; i < listeners.length; i++) {
-			final FrameworkListener listener = listeners[i];
-			if (SECURITY_ENABLED) {
-				AccessController.doPrivileged(new PrivilegedAction<Object>() {
-					public Object run() {
-						listener.frameworkEvent(event);
-						return null;
-					}
-				});
-			} else {
-				listener.frameworkEvent(event);
+		if (SECURITY_ENABLED) {
+			final PrivilegedListenerCall call = new PrivilegedListenerCall(
+					event);
+			for (int i = 0; i < listeners.length; i++) {
+				call.frameworkListener = listeners[i];
+				AccessController.doPrivileged(call);
+			}
+		} else {
+			for (int i = 0; i < listeners.length; i++) {
+				listeners[i].frameworkEvent(event);
 			}
 		}
 	}
@@ -4001,14 +4515,32 @@ public final class Concierge extends AbstractBundle implements Framework,
 	 * @param reference
 	 *            the service reference.
 	 */
-	@SuppressWarnings("deprecation")
 	void notifyServiceListeners(final int state,
 			final ServiceReference<?> reference,
 			final Map<String, ?> oldProperties) {
+		if (SECURITY_ENABLED) {
+			servicePermissions.serviceChanged(state, reference);
+		}
+
 		if (serviceListeners.isEmpty()) {
 			return;
 		}
 
+		final long start = METRICS_ENABLED ? System.nanoTime() : 0;
+		try {
+			notifyServiceListeners0(state, reference, oldProperties);
+		} finally {
+			if (METRICS_ENABLED) {
+				metrics.record(Metrics.NOTIFY_SERVICE_LISTENERS_METRIC,
+						start);
+			}
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	private void notifyServiceListeners0(final int state,
+			final ServiceReference<?> reference,
+			final Map<String, ?> oldProperties) {
 		final ServiceEvent event = new ServiceEvent(state, reference);
 		final ServiceEvent endmatchEvent = state == ServiceEvent.MODIFIED
 				? new ServiceEvent(ServiceEvent.MODIFIED_ENDMATCH, reference)
@@ -4016,82 +4548,90 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 		final ServiceListenerEntry[] entries;
 
+		final ServiceListenerGroups groups = serviceListenerGroups;
+
 		if (serviceEventListenerHooks.isEmpty()
 				&& serviceEventHooks.isEmpty()) {
-			entries = serviceListeners
-					.toArray(new ServiceListenerEntry[serviceListeners.size()]);
+			entries = groups.all;
 		} else {
 			// prepare the data structures
-			final MultiMap<BundleContext, ListenerInfo> mmap = new MultiMap<BundleContext, ListenerInfo>();
-
-			final List<ServiceListenerEntry> serviceListenersCopy = new ArrayList<Concierge.ServiceListenerEntry>(serviceListeners);
-			for (final Iterator<ServiceListenerEntry> iter = serviceListenersCopy
-					.iterator(); iter.hasNext();) {
-				final ServiceListenerEntry entry = iter.next();
-				mmap.insert(entry.bundle.context, entry);
-			}
-
 			final ConciergeCollections.RemoveOnlyMap<BundleContext, Collection<ListenerInfo>> map = new ConciergeCollections.RemoveOnlyMap<BundleContext, Collection<ListenerInfo>>();
-			for (final BundleContext ctx : mmap.keySet()) {
-				final Collection<ListenerInfo> col = new ConciergeCollections.RemoveOnlyList<ListenerInfo>(
-						mmap.get(ctx));
-				map.put(ctx, col);
+			for (final Map.Entry<BundleContext, ServiceListenerEntry[]> group : groups.byContext
+					.entrySet()) {
+				map.put(group.getKey(),
+						new ConciergeCollections.RemoveOnlyList<ListenerInfo>(
+								Arrays.asList(group.getValue())));
 			}
 			map.seal();
 
+			final ServiceEventHookChain chain = getServiceEventHookChain();
+
 			// first call the event hooks
-			final List<ServiceReferenceImpl<org.osgi.framework.hooks.service.EventHook>> serviceEventHooksCopy 
-				= new ArrayList<ServiceReferenceImpl<org.osgi.framework.hooks.service.EventHook>>(serviceEventHooks);
-			for (final ServiceReferenceImpl<org.osgi.framework.hooks.service.EventHook> eventHook : serviceEventHooksCopy) {
+			for (int i = 0; i < chain.eventHooks.length; i++) {
+				if (chain.eventHooks[i] == null) {
+					continue;
+				}
 				try {
-					final org.osgi.framework.hooks.service.EventHook hook = eventHook
-							.getService(this);
-					hook.event(event, map.keySet());
+					chain.eventHooks[i].event(event, map.keySet());
 				} catch (final Throwable t) {
 					notifyFrameworkListeners(FrameworkEvent.ERROR,
 							Concierge.this, t);
-				} finally {
-					eventHook.ungetService(this);
 				}
 			}
 
 			// then call the event listener hooks
-			final List<ServiceReferenceImpl<EventListenerHook>> serviceEventListenerHooksCopy 
-				= new ArrayList<ServiceReferenceImpl<EventListenerHook>>(serviceEventListenerHooks);
-			for (final Iterator<ServiceReferenceImpl<EventListenerHook>> iter = serviceEventListenerHooksCopy
-					.iterator(); iter.hasNext();) {
-				final ServiceReferenceImpl<EventListenerHook> hookRef = iter
-						.next();
+			for (int i = 0; i < chain.eventListenerHooks.length; i++) {
+				if (chain.eventListenerHooks[i] == null) {
+					continue;
+				}
 				try {
-					final EventListenerHook hook = hookRef.getService(this);
-					hook.event(event, map);
+					chain.eventListenerHooks[i].event(event, map);
 				} catch (final Throwable t) {
 					notifyFrameworkListeners(FrameworkEvent.ERROR,
 							Concierge.this, t);
-				} finally {
-					hookRef.ungetService(this);
 				}
 			}
 
-			final ArrayList<ServiceListenerEntry> list = new ArrayList<ServiceListenerEntry>();
-			for (final Iterator<ServiceListenerEntry> iter = serviceListenersCopy
-					.iterator(); iter.hasNext();) {
-				final ServiceListenerEntry entry = iter.next();
+			// collect the listeners of the contexts the hooks have
+			// shrunk, all other contexts are either complete or gone
+			Map<BundleContext, Boolean> shrunk = null;
+			Map<ListenerInfo, Boolean> retained = null;
+			for (final Map.Entry<BundleContext, Collection<ListenerInfo>> group : map
+					.entrySet()) {
+				final Collection<ListenerInfo> listeners = group
+						.getValue();
+				if (listeners.size() < groups.byContext
+						.get(group.getKey()).length) {
+					if (shrunk == null) {
+						shrunk = new IdentityHashMap<BundleContext, Boolean>();
+						retained = new IdentityHashMap<ListenerInfo, Boolean>();
+					}
+					shrunk.put(group.getKey(), Boolean.TRUE);
+					for (final ListenerInfo info : listeners) {
+						retained.put(info, Boolean.TRUE);
+					}
+				}
+			}
+
+			final ArrayList<ServiceListenerEntry> list = new ArrayList<ServiceListenerEntry>(
+					groups.all.length);
+			for (int i = 0; i < groups.all.length; i++) {
+				final ServiceListenerEntry entry = groups.all[i];
+				final BundleContext ctx = entry.bundle.context;
 				// system bundle listeners are always called
-				if(entry.bundle.context == this.context){
+				if (ctx == this.context || map.containsKey(ctx)
+						&& (shrunk == null || !shrunk.containsKey(ctx)
+								|| retained.containsKey(entry))) {
 					list.add(entry);
-				} else {
-					final Collection<ListenerInfo> listeners = map
-							.get(entry.bundle.context);
-					if (listeners != null && listeners.contains(entry)) {
-						list.add(entry);
-					}
 				}
 			}
 			entries = list.toArray(new ServiceListenerEntry[list.size()]);
 		}
 
 		final ServiceReferenceImpl<?> ref = (ServiceReferenceImpl<?>) reference;
+		final Map<String, ?> props = ref.properties;
+		final PrivilegedListenerCall call = SECURITY_ENABLED
+				? new PrivilegedListenerCall(event) : null;
 
 		for (int i = 0; i < entries.length; i++) {
 			// check if the listener can receive the service event
@@ -4104,18 +4644,12 @@ public final class Concierge extends AbstractBundle implements Framework,
 			}
 			if (entries[i].listener instanceof UnfilteredServiceListener
 					|| entries[i].filter == null
-					|| entries[i].filter.matches(ref.properties)) {
-				final ServiceListener listener = entries[i].listener;
-				if (SECURITY_ENABLED) {
-					AccessController
-							.doPrivileged(new PrivilegedAction<Object>() {
-								public Object run() {
-									listener.serviceChanged(event);
-									return null;
-								}
-							});
+					|| entries[i].filter.matches(props)) {
+				if (call != null) {
+					call.serviceListener = entries[i].listener;
+					AccessController.doPrivileged(call);
 				} else {
-					listener.serviceChanged(event);
+					entries[i].listener.serviceChanged(event);
 				}
 			} else if (state == ServiceEvent.MODIFIED) {
 				if (entries[i].filter.matches(oldProperties)) {
@@ -4167,7 +4701,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 			bundle.registeredFrameworkListeners = null;
 		}
 		if (bundle.registeredServiceListeners != null) {
-			serviceListeners.removeAll(bundle.registeredServiceListeners);
+			removeServiceListenerEntries(bundle.registeredServiceListeners);
 			bundle.registeredServiceListeners = null;
 		}
 		final List<BundleListener> bundleListeners = bundleListenerMap
@@ -4211,8 +4745,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 	BundleImpl installNewBundle(final BundleContext context,
 			final String location) throws BundleException {
 		try {
-			final String location2 = location.indexOf(":") > -1 ? location
-					: BUNDLE_LOCATION + File.separatorChar + location;
+			final String location2 = resolveLocation(location);
 			return installNewBundle(context, location2,
 					new URL(location2).openConnection().getInputStream());
 		} catch (final IOException e) {
@@ -4222,7 +4755,9 @@ public final class Concierge extends AbstractBundle implements Framework,
 	}
 
 	/**
-	 * install a bundle from input stream.
+	 * install a bundle from input stream. The content is stored and processed
+	 * without holding the framework lock, only the final registration of the
+	 * bundle is serialized.
 	 * 
 	 * @param location
 	 *            the bundle location.
@@ -4232,9 +4767,223 @@ public final class Concierge extends AbstractBundle implements Framework,
 	 * @throws BundleException
 	 *             if the installation failed.
 	 */
-	synchronized BundleImpl installNewBundle(final BundleContext context,
+	BundleImpl installNewBundle(final BundleContext context,
 			final String location, final InputStream in)
 					throws BundleException {
+		final BundleImpl cached = getInstalledBundle(context, location);
+		if (cached != null) {
+			return cached;
+		}
+
+		final Timeline timeline = this.timeline;
+		final long start = METRICS_ENABLED || timeline != null
+				? System.nanoTime() : 0;
+		final BundleImpl staged = new BundleImpl(this, location,
+				nextBundleID.getAndIncrement(), in);
+
+		final BundleImpl bundle = commitInstall(context, staged);
+		if (METRICS_ENABLED) {
+			metrics.record(Metrics.INSTALL_METRIC, start);
+		}
+		if (timeline != null) {
+			timeline.record(StartupTimeline.INSTALL, location,
+					bundle.bundleId, start);
+		}
+		return bundle;
+	}
+
+	/**
+	 * install a set of bundles. The content of the bundles is retrieved,
+	 * stored and processed in parallel, the installations are then committed
+	 * in the order of the locations as one transaction. The installation is
+	 * best effort: bundles that cannot be installed are skipped and reported
+	 * through a framework event of type ERROR, the other bundles are
+	 * installed. See {@link #provisionBundles(String[], int[])} for an
+	 * installation that either installs all bundles or none.
+	 * 
+	 * @param locations
+	 *            the bundle locations.
+	 * @return the bundles, in the order of the locations. The entry of a
+	 *         bundle that could not be installed is <code>null</code>.
+	 */
+	public Bundle[] installBundles(final String... locations) {
+		return installBundles(context, locations);
+	}
+
+	Bundle[] installBundles(final BundleContext context,
+			final String[] locations) {
+		final Object[] installed = installBundles(context, locations, null,
+				false);
+		final Bundle[] result = new Bundle[locations.length];
+		for (int i = 0; i < locations.length; i++) {
+			if (installed[i] instanceof Throwable) {
+				notifyFrameworkListeners(FrameworkEvent.ERROR, this,
+						toInstallException(locations[i],
+								(Throwable) installed[i]));
+			} else {
+				result[i] = (Bundle) installed[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * provision a set of bundles, e.g., a complete image. The bundles are
+	 * installed as one transaction like in {@link #installBundles(String...)},
+	 * get their start levels, and are then resolved together in a single pass.
+	 * Bundles that cannot be resolved stay installed. Starting the bundles is
+	 * left to the caller.
+	 * <p>
+	 * Unlike {@link #installBundles(String...)}, the installation is all or
+	 * nothing: if one of the bundles cannot be installed, none of them is
+	 * installed and the exception is thrown. Neither the capabilities of the
+	 * bundles become visible to the resolver nor are any bundle events or
+	 * framework events of type ERROR sent in this case.
+	 * 
+	 * @param locations
+	 *            the bundle locations.
+	 * @param startLevels
+	 *            the start level of each bundle, or <code>0</code> for the
+	 *            initial bundle start level. <code>null</code> if all bundles
+	 *            get the initial bundle start level.
+	 * @return the bundles, in the order of the locations.
+	 * @throws BundleException
+	 *             if a bundle cannot be installed.
+	 */
+	public Bundle[] provisionBundles(final String[] locations,
+			final int[] startLevels) throws BundleException {
+		if (startLevels != null && startLevels.length != locations.length) {
+			throw new IllegalArgumentException(
+					"startLevels.length != locations.length");
+		}
+
+		final Object[] installed = installBundles(context, locations,
+				startLevels, true);
+		final Bundle[] result = new Bundle[locations.length];
+		for (int i = 0; i < locations.length; i++) {
+			if (installed[i] instanceof Throwable) {
+				throw toInstallException(locations[i],
+						(Throwable) installed[i]);
+			}
+			result[i] = (Bundle) installed[i];
+		}
+
+		// the start level of bundles that were installed before has not been
+		// set by the transaction
+		if (startLevels != null) {
+			for (int i = 0; i < result.length; i++) {
+				if (startLevels[i] > 0 && result[i] != null
+						&& ((AbstractBundle) result[i]).startlevel != startLevels[i]) {
+					result[i].adapt(BundleStartLevel.class)
+							.setStartLevel(startLevels[i]);
+				}
+			}
+		}
+
+		final ArrayList<Bundle> toResolve = new ArrayList<Bundle>(
+				result.length);
+		for (int i = 0; i < result.length; i++) {
+			if (result[i] != null) {
+				toResolve.add(result[i]);
+			}
+		}
+		resolveBundles(toResolve);
+
+		return result;
+	}
+
+	private static BundleException toInstallException(final String location,
+			final Throwable t) {
+		return t instanceof BundleException ? (BundleException) t
+				: new BundleException("Cannot install bundle from " + location,
+						t);
+	}
+
+	/**
+	 * install a set of bundles: stage them in parallel and commit them as one
+	 * transaction.
+	 * 
+	 * @param startLevels
+	 *            the start levels of the new bundles, or <code>null</code>.
+	 * @param allOrNothing
+	 *            <code>false</code> for a best effort installation,
+	 *            <code>true</code> if nothing is to be installed when one of
+	 *            the bundles cannot be installed.
+	 * @return for each location the bundle, or the throwable that prevented
+	 *         its installation.
+	 */
+	private Object[] installBundles(final BundleContext context,
+			final String[] locations, final int[] startLevels,
+			final boolean allOrNothing) {
+		final Object[] staged = new Object[locations.length];
+		final String[] resolved = new String[locations.length];
+
+		// reserve a range of ids for the bundles to install
+		final long[] ids = new long[locations.length];
+		int count = 0;
+		for (int i = 0; i < locations.length; i++) {
+			resolved[i] = resolveLocation(locations[i]);
+			ids[i] = location_bundles.containsKey(resolved[i]) ? -1 : count++;
+		}
+		final long firstId = nextBundleID.getAndAdd(count);
+
+		// stage
+		runParallel(locations.length, new IndexedTask() {
+			public void run(final int i) {
+				if (ids[i] < 0) {
+					return;
+				}
+				try {
+					final Timeline timeline = Concierge.this.timeline;
+					final long start = timeline != null ? System.nanoTime()
+							: 0;
+					final BundleImpl bundle = new BundleImpl(Concierge.this,
+							resolved[i], firstId + ids[i], new URL(resolved[i])
+									.openConnection().getInputStream());
+					if (startLevels != null && startLevels[i] > 0) {
+						bundle.startlevel = startLevels[i];
+					}
+					staged[i] = bundle;
+					if (timeline != null) {
+						timeline.record(StartupTimeline.INSTALL, resolved[i],
+								firstId + ids[i], start);
+					}
+				} catch (final IOException ioe) {
+					staged[i] = new BundleException(
+							"Cannot retrieve bundle from " + locations[i],
+							BundleException.READ_ERROR, ioe);
+				} catch (final Throwable t) {
+					staged[i] = t;
+				}
+			}
+		});
+
+		if (allOrNothing) {
+			for (int i = 0; i < staged.length; i++) {
+				if (staged[i] instanceof Throwable) {
+					for (int j = 0; j < staged.length; j++) {
+						if (staged[j] instanceof BundleImpl) {
+							((BundleImpl) staged[j]).discard();
+							staged[j] = null;
+						}
+					}
+					return staged;
+				}
+			}
+		}
+
+		return commitInstalls(context, staged, resolved, allOrNothing);
+	}
+
+	/**
+	 * get the bundle already installed from the given location.
+	 * 
+	 * @return the bundle or <code>null</code>.
+	 * @throws BundleException
+	 *             if the bundle is rejected by the find hooks.
+	 */
+	private BundleImpl getInstalledBundle(final BundleContext context,
+			final String location) throws BundleException {
 		final AbstractBundle cached;
 		if ((cached = location_bundles.get(location)) != null) {
 			if (!bundleFindHooks.isEmpty()) {
@@ -4249,73 +4998,268 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 			return (BundleImpl) cached;
 		}
+		return null;
+	}
 
-		final BundleImpl bundle = new BundleImpl(this, context, location,
-				nextBundleID++, in);
+	/**
+	 * commit the installation of a staged bundle.
+	 */
+	private synchronized BundleImpl commitInstall(final BundleContext context,
+			final BundleImpl staged) throws BundleException {
+		final BundleImpl bundle = commitStaged(context, staged);
+		if (bundle != staged) {
+			return bundle;
+		}
 
 		// notify the listeners
-		notifyBundleListeners(BundleEvent.INSTALLED, bundle,
+		notifyBundleListeners(BundleEvent.INSTALLED, staged,
 				context.getBundle());
 
 		storeMetadata();
-		return bundle;
+		return staged;
 	}
 
-	protected Bundle[] filterWithBundleHooks(final BundleContext context,
-			final Collection<Bundle> bundles) {
-		final ConciergeCollections.RemoveOnlyList<Bundle> list = new ConciergeCollections.RemoveOnlyList<Bundle>(
-				bundles);
+	/**
+	 * commit the installation of staged bundles as one transaction. All
+	 * bundles are registered first, then the installations are completed. The
+	 * framework metadata is written once and the INSTALLED events are
+	 * delivered after all bundles have been committed.
+	 * 
+	 * @param staged
+	 *            for each location the staged bundle, the throwable of the
+	 *            staging, or <code>null</code> if the location was already
+	 *            installed.
+	 * @param allOrNothing
+	 *            if <code>true</code>, the registered bundles are rolled back
+	 *            if one of the bundles cannot be registered.
+	 * @return for each location the bundle or the throwable.
+	 */
+	private synchronized Object[] commitInstalls(final BundleContext context,
+			final Object[] staged, final String[] locations,
+			final boolean allOrNothing) {
+		final Object[] result = new Object[staged.length];
+		final ArrayList<BundleImpl> installed = new ArrayList<BundleImpl>(
+				staged.length);
+		boolean failed = false;
+
+		for (int i = 0; i < staged.length; i++) {
+			try {
+				if (staged[i] == null) {
+					result[i] = getInstalledBundle(context, locations[i]);
+				} else if (staged[i] instanceof BundleImpl) {
+					final BundleImpl bundle = registerStaged(context,
+							(BundleImpl) staged[i]);
+					if (bundle == staged[i]) {
+						installed.add(bundle);
+					}
+					result[i] = bundle;
+				} else {
+					result[i] = staged[i];
+				}
+			} catch (final Throwable t) {
+				result[i] = t;
+			}
+			failed |= result[i] instanceof Throwable;
+		}
 
-		for (final ServiceReferenceImpl<org.osgi.framework.hooks.bundle.FindHook> sref : bundleFindHooks) {
-			final org.osgi.framework.hooks.bundle.FindHook findHook = sref
-					.getService(Concierge.this);
-			if (findHook != null) {
+		if (failed && allOrNothing) {
+			// nothing has been sent or written for the registered bundles yet
+			for (int i = installed.size() - 1; i >= 0; i--) {
+				installed.get(i).rollbackInstall();
+			}
+			return result;
+		}
+
+		for (int i = 0; i < staged.length; i++) {
+			if (result[i] == staged[i] && staged[i] instanceof BundleImpl) {
 				try {
-					findHook.find(context, list);
-				} catch (final Throwable t) {
-					// TODO: log?
+					((BundleImpl) staged[i]).completeInstall();
+				} catch (final BundleException be) {
+					installed.remove(staged[i]);
+					result[i] = be;
 				}
 			}
-			sref.ungetService(Concierge.this);
 		}
 
-		if(context == this.context){
-			// if called from system bundle context, return original unfiltered bundles
-			return bundles.toArray(new Bundle[bundles.size()]);
+		if (installed.isEmpty()) {
+			return result;
 		}
-		
-		return list.toArray(new Bundle[list.size()]);
-	}
 
-	@SuppressWarnings({ "unchecked" })
-	protected <T> T getService(final Class<T> cls, final Version version) {
-		final List<ServiceReference<?>> refs = serviceRegistry
-				.lookup(cls.getName());
-		for (final ServiceReference<?> ref : refs) {
-			final Version other = (Version) ref
-					.getProperty(Constants.VERSION_ATTRIBUTE);
-			if (other != null && other.compareTo(version) == 0) {
-				return (T) ((ServiceReferenceImpl<?>) ref).service;
-			}
+		storeMetadata();
+
+		// notify the listeners
+		for (final BundleImpl bundle : installed) {
+			notifyBundleListeners(BundleEvent.INSTALLED, bundle,
+					context.getBundle());
 		}
-		return null;
+
+		return result;
 	}
 
-	/*
-	 * inner classes
+	/**
+	 * commit the installation of a staged bundle, unless its location has
+	 * been installed concurrently.
+	 * 
+	 * @return the staged bundle or the bundle previously installed from its
+	 *         location.
 	 */
+	private BundleImpl commitStaged(final BundleContext context,
+			final BundleImpl staged) throws BundleException {
+		final BundleImpl bundle = registerStaged(context, staged);
+		if (bundle == staged) {
+			staged.completeInstall();
+		}
+		return bundle;
+	}
 
 	/**
-	 * The bundle context implementation.
-	 * 
-	 * @author Jan S. Rellermeyer
+	 * register a staged bundle with the framework, unless its location has
+	 * been installed concurrently.
 	 * 
+	 * @return the staged bundle or the bundle previously installed from its
+	 *         location.
 	 */
-	final class BundleContextImpl implements BundleContext {
+	private BundleImpl registerStaged(final BundleContext context,
+			final BundleImpl staged) throws BundleException {
+		// the location might have been installed concurrently
+		final BundleImpl cached;
+		try {
+			cached = getInstalledBundle(context, staged.location);
+		} catch (final BundleException be) {
+			staged.discard();
+			throw be;
+		}
+		if (cached != null) {
+			staged.discard();
+			return cached;
+		}
 
-		/**
-		 * is the context valid ?
-		 */
+		staged.register(context);
+		return staged;
+	}
+
+	/**
+	 * a task that is run for a range of indices.
+	 */
+	interface IndexedTask {
+
+		void run(int index);
+
+	}
+
+	/**
+	 * run a task for the indices <code>0..count-1</code> on the framework
+	 * executor, with at most PARALLELISM workers including the calling thread,
+	 * and wait for completion.
+	 * 
+	 * @param count
+	 *            the number of indices.
+	 * @param task
+	 *            the task.
+	 */
+	void runParallel(final int count, final IndexedTask task) {
+		final AtomicInteger nextIndex = new AtomicInteger();
+		final int workers = Math.max(1, Math.min(count, PARALLELISM));
+		final CountDownLatch done = new CountDownLatch(workers - 1);
+
+		final Runnable worker = new Runnable() {
+			public void run() {
+				int i;
+				while ((i = nextIndex.getAndIncrement()) < count) {
+					task.run(i);
+				}
+			}
+		};
+
+		final ExecutorService executor = getExecutor();
+		for (int i = 1; i < workers; i++) {
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						worker.run();
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		worker.run();
+
+		boolean interrupted = false;
+		while (true) {
+			try {
+				done.await();
+				break;
+			} catch (final InterruptedException ie) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private String resolveLocation(final String location) {
+		return location.indexOf(":") > -1 ? location
+				: BUNDLE_LOCATION + File.separatorChar + location;
+	}
+
+	protected Bundle[] filterWithBundleHooks(final BundleContext context,
+			final Collection<Bundle> bundles) {
+		final ConciergeCollections.RemoveOnlyList<Bundle> list = new ConciergeCollections.RemoveOnlyList<Bundle>(
+				bundles);
+
+		for (final ServiceReferenceImpl<org.osgi.framework.hooks.bundle.FindHook> sref : bundleFindHooks) {
+			final org.osgi.framework.hooks.bundle.FindHook findHook = sref
+					.getService(Concierge.this);
+			if (findHook != null) {
+				try {
+					findHook.find(context, list);
+				} catch (final Throwable t) {
+					// TODO: log?
+				}
+			}
+			sref.ungetService(Concierge.this);
+		}
+
+		if(context == this.context){
+			// if called from system bundle context, return original unfiltered bundles
+			return bundles.toArray(new Bundle[bundles.size()]);
+		}
+		
+		return list.toArray(new Bundle[list.size()]);
+	}
+
+	@SuppressWarnings({ "unchecked" })
+	protected <T> T getService(final Class<T> cls, final Version version) {
+		final List<ServiceReference<?>> refs = serviceRegistry
+				.lookup(cls.getName());
+		for (final ServiceReference<?> ref : refs) {
+			final Version other = (Version) ref
+					.getProperty(Constants.VERSION_ATTRIBUTE);
+			if (other != null && other.compareTo(version) == 0) {
+				return (T) ((ServiceReferenceImpl<?>) ref).service;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * inner classes
+	 */
+
+	/**
+	 * The bundle context implementation.
+	 * 
+	 * @author Jan S. Rellermeyer
+	 * 
+	 */
+	final class BundleContextImpl implements BundleContext {
+
+		/**
+		 * is the context valid ?
+		 */
 		boolean isValid = true;
 
 		/**
@@ -4418,7 +5362,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 					removeServiceListener(listener);
 				}
 				bundle.registeredServiceListeners.add(entry);
-				serviceListeners.add(entry);
+				addServiceListenerEntry(entry);
 			}
 
 			informListenerHooks(serviceListenerHooks,
@@ -4539,7 +5483,7 @@ public final class Concierge extends AbstractBundle implements Framework,
 		public Bundle getBundle(final long id) {
 			checkValid();
 
-			final Bundle bundle = bundleID_bundles.get(new Long(id));
+			final Bundle bundle = bundleID_bundles.get(id);
 			if (bundle == null || bundleFindHooks.isEmpty()) {
 				return bundle;
 			}
@@ -4560,14 +5504,13 @@ public final class Concierge extends AbstractBundle implements Framework,
 		public Bundle[] getBundles() {
 			checkValid();
 
-			final ArrayList<Bundle> bundleList = new ArrayList<Bundle>(bundles);
-			bundleList.add(0, Concierge.this);
+			final Bundle[] snapshot = bundleSnapshot;
 
 			if (bundleFindHooks.isEmpty()) {
-				return bundleList.toArray(new Bundle[bundleList.size()]);
+				return snapshot.clone();
 			}
 
-			return filterWithBundleHooks(this, bundleList);
+			return filterWithBundleHooks(this, Arrays.asList(snapshot));
 		}
 
 		/**
@@ -4638,13 +5581,10 @@ public final class Concierge extends AbstractBundle implements Framework,
 				final String[] clazzes = (String[]) reference
 						.getProperty(Constants.OBJECTCLASS);
 				for (int i = 0; i < clazzes.length; i++) {
-					try {
-						AccessController.checkPermission(new ServicePermission(
-								clazzes[i], ServicePermission.GET));
+					if (servicePermissions.implies(clazzes[i],
+							ServicePermission.GET)) {
 						return ((ServiceReferenceImpl<S>) reference)
 								.getService(bundle);
-					} catch (final SecurityException se) {
-						continue;
 					}
 				}
 				throw new SecurityException(
@@ -4703,6 +5643,20 @@ public final class Concierge extends AbstractBundle implements Framework,
 		private final ServiceReference<?>[] getServiceReferences(
 				final String clazz, final String filter, final boolean all)
 						throws InvalidSyntaxException {
+			final long start = METRICS_ENABLED ? System.nanoTime() : 0;
+			try {
+				return getServiceReferences0(clazz, filter, all);
+			} finally {
+				if (METRICS_ENABLED) {
+					metrics.record(Metrics.GET_SERVICE_REFERENCES_METRIC,
+							start);
+				}
+			}
+		}
+
+		private final ServiceReference<?>[] getServiceReferences0(
+				final String clazz, final String filter, final boolean all)
+						throws InvalidSyntaxException {
 			checkValid();
 
 			final Filter theFilter = RFC1960Filter.fromString(filter);
@@ -4898,8 +5852,12 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 			if (SECURITY_ENABLED) {
 				for (int i = 0; i < clazzes.length; i++) {
-					AccessController.checkPermission(new ServicePermission(
-							clazzes[i], ServicePermission.REGISTER));
+					if (!servicePermissions.implies(clazzes[i],
+							ServicePermission.REGISTER)) {
+						throw new SecurityException(
+								"Caller does not have permissions for registering service "
+										+ clazzes[i]);
+					}
 				}
 			}
 
@@ -4951,10 +5909,20 @@ public final class Concierge extends AbstractBundle implements Framework,
 			}
 
 			if (add) {
-				hookList.add(sref);
-				// not required for collision hook, weaving hook,
-				// resolverHookFactory...
-				Collections.sort(hookList, Collections.reverseOrder());
+				synchronized (hookList) {
+					hookList.add(sref);
+					// not required for collision hook, weaving hook,
+					// resolverHookFactory...
+					Collections.sort(hookList, Collections.reverseOrder());
+				}
+				if ((Object) hookList == (Object) weavingHooks) {
+					weavingHookChain = null;
+				} else if ((Object) hookList == (Object) serviceEventHooks
+						|| (Object) hookList == (Object) serviceEventListenerHooks) {
+					invalidateServiceEventHookChain();
+				} else if ((Object) hookList == (Object) resolverHookFactories) {
+					capabilityRegistry.invalidate();
+				}
 			} else {
 				// FIXME: remove!
 			}
@@ -5063,7 +6031,8 @@ public final class Concierge extends AbstractBundle implements Framework,
 					return;
 				}
 				entry.removed = true;
-				serviceListeners.remove(entry);
+				removeServiceListenerEntries(
+						Collections.singletonList(entry));
 				bundle.registeredServiceListeners.remove(entry);
 				if (bundle.registeredServiceListeners.isEmpty()) {
 					bundle.registeredServiceListeners = null;
@@ -5242,27 +6211,95 @@ public final class Concierge extends AbstractBundle implements Framework,
 		return SECURITY_ENABLED;
 	}
 
+	/**
+	 * the registry of published capabilities. Reads are lock-free, every key
+	 * maps to an immutable array that is replaced on modification. For the
+	 * package and bundle namespaces, the capabilities of a key are
+	 * additionally indexed by version so that version ranges can be answered
+	 * by a range scan.
+	 */
 	static class CapabilityRegistry {
 
-		// namespace -> list of capability
-		private final MultiMap<String, Capability> capabilities = new MultiMap<String, Capability>();
+		private static final Capability[] NO_CAPABILITIES = new Capability[0];
 
-		// namespace -> value (of canonical attribute) -> list of capability
-		private final HashMap<String, MultiMap<String, Capability>> defaultAttributeIndex = new HashMap<String, MultiMap<String, Capability>>();
+		// namespace -> capabilities
+		private final ConcurrentHashMap<String, Capability[]> capabilities = new ConcurrentHashMap<String, Capability[]>();
 
-		void add(final Capability cap) {
+		// namespace -> value (of canonical attribute) -> capabilities
+		private final ConcurrentHashMap<String, ConcurrentHashMap<String, Capability[]>> defaultAttributeIndex = new ConcurrentHashMap<String, ConcurrentHashMap<String, Capability[]>>();
+
+		// namespace -> value (of canonical attribute) -> version index
+		private final ConcurrentHashMap<String, ConcurrentHashMap<String, VersionIndex>> versionIndex = new ConcurrentHashMap<String, ConcurrentHashMap<String, VersionIndex>>();
+
+		// incremented whenever the registry changes
+		private volatile int epoch;
+
+		/**
+		 * get the epoch of the registry. The epoch changes whenever a
+		 * capability is published or removed or the resolver hooks change, a
+		 * failed lookup cannot succeed as long as the epoch is the same.
+		 * 
+		 * @return the epoch.
+		 */
+		int getEpoch() {
+			return epoch;
+		}
+
+		/**
+		 * start a new epoch.
+		 */
+		synchronized void invalidate() {
+			epoch++;
+		}
+
+		/**
+		 * get the name of the version attribute of the namespaces that have a
+		 * version index.
+		 * 
+		 * @param namespace
+		 *            the namespace.
+		 * @return the attribute name or <code>null</code>.
+		 */
+		static String getVersionAttribute(final String namespace) {
+			if (PackageNamespace.PACKAGE_NAMESPACE.equals(namespace)) {
+				return PackageNamespace.CAPABILITY_VERSION_ATTRIBUTE;
+			}
+			if (BundleNamespace.BUNDLE_NAMESPACE.equals(namespace)) {
+				return BundleNamespace.CAPABILITY_BUNDLE_VERSION_ATTRIBUTE;
+			}
+			return null;
+		}
+
+		synchronized void add(final Capability cap) {
+			epoch++;
 			final String namespace = cap.getNamespace();
-			capabilities.insert(namespace, cap);
+			capabilities.put(namespace,
+					append(capabilities.get(namespace), cap));
 
 			final Object defaultAttribute = cap.getAttributes().get(namespace);
 			if (defaultAttribute instanceof String) {
-				MultiMap<String, Capability> attributeIndex = defaultAttributeIndex
+				ConcurrentHashMap<String, Capability[]> attributeIndex = defaultAttributeIndex
 						.get(namespace);
 				if (attributeIndex == null) {
-					attributeIndex = new MultiMap<String, Capability>();
+					attributeIndex = new ConcurrentHashMap<String, Capability[]>();
 					defaultAttributeIndex.put(namespace, attributeIndex);
 				}
-				attributeIndex.insert((String) defaultAttribute, cap);
+				attributeIndex.put((String) defaultAttribute, append(
+						attributeIndex.get(defaultAttribute), cap));
+
+				final String versionAttribute = getVersionAttribute(namespace);
+				if (versionAttribute != null) {
+					ConcurrentHashMap<String, VersionIndex> versions = versionIndex
+							.get(namespace);
+					if (versions == null) {
+						versions = new ConcurrentHashMap<String, VersionIndex>();
+						versionIndex.put(namespace, versions);
+					}
+					final VersionIndex index = versions.get(defaultAttribute);
+					versions.put((String) defaultAttribute,
+							(index == null ? VersionIndex.EMPTY : index)
+									.add(cap, versionAttribute));
+				}
 			}
 		}
 
@@ -5272,13 +6309,22 @@ public final class Concierge extends AbstractBundle implements Framework,
 			}
 		}
 
-		boolean remove(final Capability cap) {
+		synchronized boolean remove(final Capability cap) {
+			epoch++;
 			final String namespace = cap.getNamespace();
-			capabilities.remove(namespace, cap);
+			final Capability[] all = capabilities.get(namespace);
+			if (all != null) {
+				final Capability[] remaining = without(all, cap);
+				if (remaining.length == 0) {
+					capabilities.remove(namespace);
+				} else {
+					capabilities.put(namespace, remaining);
+				}
+			}
 
 			final Object defaultAttribute = cap.getAttributes().get(namespace);
 
-			final MultiMap<String, Capability> attributeIndex = defaultAttributeIndex
+			final ConcurrentHashMap<String, Capability[]> attributeIndex = defaultAttributeIndex
 					.get(namespace);
 			if (attributeIndex == null) {
 				return false;
@@ -5286,14 +6332,37 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 			if (defaultAttribute != null
 					&& defaultAttribute instanceof String) {
-				final boolean success = attributeIndex.remove(defaultAttribute,
-						cap);
-				if (success) {
+				final Capability[] caps = attributeIndex.get(defaultAttribute);
+				if (caps == null) {
+					return false;
+				}
+				final Capability[] remaining = without(caps, cap);
+				if (remaining == caps) {
+					return false;
+				}
+				if (remaining.length == 0) {
+					attributeIndex.remove(defaultAttribute);
 					if (attributeIndex.isEmpty()) {
 						defaultAttributeIndex.remove(namespace);
 					}
+				} else {
+					attributeIndex.put((String) defaultAttribute, remaining);
+				}
+
+				final ConcurrentHashMap<String, VersionIndex> versions = versionIndex
+						.get(namespace);
+				if (versions != null) {
+					final VersionIndex index = versions.get(defaultAttribute);
+					if (index != null) {
+						final VersionIndex newIndex = index.remove(cap);
+						if (newIndex == VersionIndex.EMPTY) {
+							versions.remove(defaultAttribute);
+						} else {
+							versions.put((String) defaultAttribute, newIndex);
+						}
+					}
 				}
-				return success;
+				return true;
 			} else {
 				return false;
 			}
@@ -5307,25 +6376,59 @@ public final class Concierge extends AbstractBundle implements Framework,
 
 		public List<Capability> getByValue(final String namespace,
 				final String value) {
-			final MultiMap<String, Capability> attributeIndex = defaultAttributeIndex
+			final ConcurrentHashMap<String, Capability[]> attributeIndex = defaultAttributeIndex
 					.get(namespace);
-			final List<Capability> result = attributeIndex == null ? null : attributeIndex.get(value);
+			final Capability[] result = attributeIndex == null ? null
+					: attributeIndex.get(value);
 			return result == null ? Collections.<Capability> emptyList()
-					: new ArrayList<Capability>(result);
+					: new ArrayList<Capability>(Arrays.asList(result));
 		}
 
 		public List<Capability> getByKey(final String namespace,
 				final String value) {
-			final MultiMap<String, Capability> caps = defaultAttributeIndex
+			final ConcurrentHashMap<String, Capability[]> attributeIndex = defaultAttributeIndex
+					.get(namespace);
+			final Capability[] result = attributeIndex == null ? null
+					: attributeIndex.get(value);
+			return result == null ? Collections.<Capability> emptyList()
+					: Collections.unmodifiableList(Arrays.asList(result));
+		}
+
+		/**
+		 * get the capabilities of a key whose version lies within a range.
+		 * Capabilities with a version attribute that is not a
+		 * <code>Version</code> are always included.
+		 * 
+		 * @param namespace
+		 *            the namespace, must have a version index.
+		 * @param value
+		 *            the value of the canonical attribute.
+		 * @param low
+		 *            the lower bound or <code>null</code>.
+		 * @param lowInclusive
+		 *            whether the lower bound is inclusive.
+		 * @param high
+		 *            the upper bound or <code>null</code>.
+		 * @param highInclusive
+		 *            whether the upper bound is inclusive.
+		 * @return the candidates, in version order.
+		 */
+		public List<Capability> getByVersionRange(final String namespace,
+				final String value, final Version low,
+				final boolean lowInclusive, final Version high,
+				final boolean highInclusive) {
+			final ConcurrentHashMap<String, VersionIndex> versions = versionIndex
 					.get(namespace);
-			return caps == null ? Collections.<Capability> emptyList()
-					: caps.get(value);
+			final VersionIndex index = versions == null ? null
+					: versions.get(value);
+			return index == null ? Collections.<Capability> emptyList()
+					: index.range(low, lowInclusive, high, highInclusive);
 		}
 
 		public List<Capability> getAll(final String namespace) {
-			final List<Capability> result = capabilities.get(namespace);
+			final Capability[] result = capabilities.get(namespace);
 			return result == null ? Collections.<Capability> emptyList()
-					: new ArrayList<Capability>(result);
+					: new ArrayList<Capability>(Arrays.asList(result));
 		}
 
 		@Override
@@ -5333,6 +6436,168 @@ public final class Concierge extends AbstractBundle implements Framework,
 			return capabilities.toString();
 		}
 
+		static Capability[] append(final Capability[] array,
+				final Capability cap) {
+			if (array == null) {
+				return new Capability[] { cap };
+			}
+			final Capability[] result = new Capability[array.length + 1];
+			System.arraycopy(array, 0, result, 0, array.length);
+			result[array.length] = cap;
+			return result;
+		}
+
+		static Capability[] without(final Capability[] array,
+				final Capability cap) {
+			for (int i = 0; i < array.length; i++) {
+				if (array[i] == cap) {
+					if (array.length == 1) {
+						return NO_CAPABILITIES;
+					}
+					final Capability[] result = new Capability[array.length
+							- 1];
+					System.arraycopy(array, 0, result, 0, i);
+					System.arraycopy(array, i + 1, result, i,
+							array.length - i - 1);
+					return result;
+				}
+			}
+			return array;
+		}
+
+		/**
+		 * immutable index of the capabilities of one key, sorted by version.
+		 */
+		static final class VersionIndex {
+
+			static final VersionIndex EMPTY = new VersionIndex(
+					NO_CAPABILITIES, new Version[0], NO_CAPABILITIES);
+
+			private final Capability[] sorted;
+
+			private final Version[] versions;
+
+			// capabilities without a typed version
+			private final Capability[] unversioned;
+
+			private VersionIndex(final Capability[] sorted,
+					final Version[] versions, final Capability[] unversioned) {
+				this.sorted = sorted;
+				this.versions = versions;
+				this.unversioned = unversioned;
+			}
+
+			VersionIndex add(final Capability cap,
+					final String versionAttribute) {
+				final Object version = cap.getAttributes()
+						.get(versionAttribute);
+				if (!(version instanceof Version)) {
+					return new VersionIndex(sorted, versions,
+							append(unversioned, cap));
+				}
+				// insert after all capabilities with the same version
+				final int pos = upperBound((Version) version);
+				final Capability[] newSorted = new Capability[sorted.length
+						+ 1];
+				final Version[] newVersions = new Version[versions.length + 1];
+				System.arraycopy(sorted, 0, newSorted, 0, pos);
+				System.arraycopy(versions, 0, newVersions, 0, pos);
+				newSorted[pos] = cap;
+				newVersions[pos] = (Version) version;
+				System.arraycopy(sorted, pos, newSorted, pos + 1,
+						sorted.length - pos);
+				System.arraycopy(versions, pos, newVersions, pos + 1,
+						versions.length - pos);
+				return new VersionIndex(newSorted, newVersions, unversioned);
+			}
+
+			VersionIndex remove(final Capability cap) {
+				final Capability[] newUnversioned = without(unversioned, cap);
+				if (newUnversioned != unversioned) {
+					return newUnversioned.length == 0 && sorted.length == 0
+							? EMPTY
+							: new VersionIndex(sorted, versions,
+									newUnversioned);
+				}
+				for (int i = 0; i < sorted.length; i++) {
+					if (sorted[i] == cap) {
+						if (sorted.length == 1 && unversioned.length == 0) {
+							return EMPTY;
+						}
+						final Capability[] newSorted = new Capability[sorted.length
+								- 1];
+						final Version[] newVersions = new Version[versions.length
+								- 1];
+						System.arraycopy(sorted, 0, newSorted, 0, i);
+						System.arraycopy(versions, 0, newVersions, 0, i);
+						System.arraycopy(sorted, i + 1, newSorted, i,
+								sorted.length - i - 1);
+						System.arraycopy(versions, i + 1, newVersions, i,
+								versions.length - i - 1);
+						return new VersionIndex(newSorted, newVersions,
+								unversioned);
+					}
+				}
+				return this;
+			}
+
+			List<Capability> range(final Version low,
+					final boolean lowInclusive, final Version high,
+					final boolean highInclusive) {
+				final int from = low == null ? 0
+						: lowInclusive ? lowerBound(low) : upperBound(low);
+				final int to = high == null ? sorted.length
+						: highInclusive ? upperBound(high) : lowerBound(high);
+				final int count = Math.max(0, to - from);
+				final ArrayList<Capability> result = new ArrayList<Capability>(
+						count + unversioned.length);
+				for (int i = from; i < to; i++) {
+					result.add(sorted[i]);
+				}
+				for (int i = 0; i < unversioned.length; i++) {
+					result.add(unversioned[i]);
+				}
+				return result;
+			}
+
+			/**
+			 * @return the index of the first version that is not lower than
+			 *         the given version.
+			 */
+			private int lowerBound(final Version version) {
+				int lo = 0;
+				int hi = versions.length;
+				while (lo < hi) {
+					final int mid = (lo + hi) >>> 1;
+					if (versions[mid].compareTo(version) < 0) {
+						lo = mid + 1;
+					} else {
+						hi = mid;
+					}
+				}
+				return lo;
+			}
+
+			/**
+			 * @return the index of the first version that is higher than the
+			 *         given version.
+			 */
+			private int upperBound(final Version version) {
+				int lo = 0;
+				int hi = versions.length;
+				while (lo < hi) {
+					final int mid = (lo + hi) >>> 1;
+					if (versions[mid].compareTo(version) <= 0) {
+						lo = mid + 1;
+					} else {
+						hi = mid;
+					}
+				}
+				return lo;
+			}
+
+		}
+
 	}
 
 	boolean hasWeavingHooks() {
@@ -5340,20 +6605,40 @@ public final class Concierge extends AbstractBundle implements Framework,
 	}
 
 	void callWeavingHooks(final WovenClassImpl wovenClass) {
-		Collections.sort(weavingHooks, Collections.reverseOrder());
-
-		final List<ServiceReferenceImpl<WeavingHook>> wHooks = new ArrayList<ServiceReferenceImpl<WeavingHook>>();
-		wHooks.addAll(weavingHooks);
+		final WeavingHookChain chain = getWeavingHookChain();
+
+		final File cacheFile;
+		final String digest;
+		if (WEAVING_CACHE) {
+			final Revision revision = wovenClass.getRevision();
+			cacheFile = new File(
+					((AbstractBundle) revision.getBundle()).storageLocation
+							+ "woven" + File.separatorChar + revision.revId,
+					wovenClass.getClassName());
+			digest = digest(wovenClass.getBytes());
+			if (readWovenClass(cacheFile, chain.identity, digest,
+					wovenClass)) {
+				wovenClass.setTransformed();
+				notifyWovenClassListeners(wovenClass);
+				return;
+			}
+		} else {
+			cacheFile = null;
+			digest = null;
+		}
 
-		for (final ServiceReferenceImpl<WeavingHook> sref : wHooks) {
-			final WeavingHook hook = sref.getService(this);
+		for (int i = 0; i < chain.refs.length; i++) {
+			final ServiceReferenceImpl<WeavingHook> sref = chain.refs[i];
 
 			try {
-				hook.weave(wovenClass);
+				chain.services[i].weave(wovenClass);
 			} catch (final Throwable t) {
 				if (!(t instanceof WeavingException)) {
 					// blacklist the hook
-					weavingHooks.remove(sref);
+					synchronized (weavingHooks) {
+						weavingHooks.remove(sref);
+					}
+					removeWeavingHook(sref, true);
 				}
 
 				// framework event
@@ -5367,14 +6652,642 @@ public final class Concierge extends AbstractBundle implements Framework,
 						"Error while invoking weaving hook");
 				err.initCause(t);
 				throw err;
-			} finally {
-				sref.ungetService(this);
 			}
 		}
 		wovenClass.setTransformed();
+		if (cacheFile != null) {
+			writeWovenClass(cacheFile, chain.identity, digest, wovenClass);
+		}
 		notifyWovenClassListeners(wovenClass);
 	}
 
+	/**
+	 * get the current chain of weaving hooks. The chain is rebuilt lazily
+	 * after hooks have been registered, unregistered, blacklisted, or
+	 * re-ranked and the hook service objects are held across invocations.
+	 * 
+	 * @return the weaving hook chain.
+	 */
+	private WeavingHookChain getWeavingHookChain() {
+		WeavingHookChain chain = weavingHookChain;
+		if (chain != null) {
+			return chain;
+		}
+		synchronized (weavingHooks) {
+			if (weavingHookChain == null) {
+				@SuppressWarnings("unchecked")
+				final ServiceReferenceImpl<WeavingHook>[] refs = (ServiceReferenceImpl<WeavingHook>[]) weavingHooks
+						.toArray(new ServiceReferenceImpl<?>[weavingHooks
+								.size()]);
+				final WeavingHook[] services = new WeavingHook[refs.length];
+				final StringBuffer identity = new StringBuffer();
+				for (int i = 0; i < refs.length; i++) {
+					WeavingHook hook = weavingHookServices.get(refs[i]);
+					if (hook == null) {
+						hook = refs[i].getService(this);
+						if (hook != null) {
+							weavingHookServices.put(refs[i], hook);
+						}
+					}
+					services[i] = hook;
+					identity.append(refs[i].bundle.getBundleId());
+					identity.append(':');
+					identity.append(refs[i].bundle.getLastModified());
+					identity.append(':');
+					identity.append(
+							refs[i].getProperty(Constants.SERVICE_RANKING));
+					identity.append(':');
+					identity.append(
+							hook == null ? null : hook.getClass().getName());
+					identity.append(';');
+				}
+				weavingHookChain = new WeavingHookChain(refs, services,
+						identity.toString());
+			}
+			return weavingHookChain;
+		}
+	}
+
+	/**
+	 * drop a weaving hook from the chain.
+	 * 
+	 * @param sref
+	 *            the service reference of the hook.
+	 * @param unget
+	 *            <code>true</code> if the hook service object has to be
+	 *            released.
+	 */
+	private void removeWeavingHook(final ServiceReference<?> sref,
+			final boolean unget) {
+		final WeavingHook hook;
+		synchronized (weavingHooks) {
+			hook = weavingHookServices.remove(sref);
+			weavingHookChain = null;
+		}
+		if (unget && hook != null) {
+			((ServiceReferenceImpl<?>) sref).ungetService(this);
+		}
+	}
+
+	/**
+	 * get the current chain of service event hooks and event listener hooks.
+	 * Like the weaving hook chain, it is rebuilt lazily after hooks have been
+	 * registered, unregistered, or re-ranked and the hook service objects are
+	 * held until the hook is unregistered. The hook services are retrieved
+	 * without holding a lock, a chain is only published if no hook has
+	 * changed in the meantime.
+	 * 
+	 * @return the service event hook chain.
+	 */
+	@SuppressWarnings("deprecation")
+	private ServiceEventHookChain getServiceEventHookChain() {
+		while (true) {
+			final ServiceEventHookChain chain = serviceEventHookChain;
+			if (chain != null) {
+				return chain;
+			}
+
+			final int generation;
+			synchronized (serviceEventHookServices) {
+				generation = serviceEventHookGeneration;
+			}
+			final ServiceReferenceImpl<?>[] eventHookRefs;
+			synchronized (serviceEventHooks) {
+				eventHookRefs = serviceEventHooks.toArray(
+						new ServiceReferenceImpl<?>[serviceEventHooks.size()]);
+			}
+			final ServiceReferenceImpl<?>[] listenerHookRefs;
+			synchronized (serviceEventListenerHooks) {
+				listenerHookRefs = serviceEventListenerHooks
+						.toArray(new ServiceReferenceImpl<?>[serviceEventListenerHooks
+								.size()]);
+			}
+
+			final org.osgi.framework.hooks.service.EventHook[] eventHooks = new org.osgi.framework.hooks.service.EventHook[eventHookRefs.length];
+			for (int i = 0; i < eventHookRefs.length; i++) {
+				eventHooks[i] = (org.osgi.framework.hooks.service.EventHook) getServiceEventHook(
+						eventHookRefs[i], generation);
+			}
+			final EventListenerHook[] listenerHooks = new EventListenerHook[listenerHookRefs.length];
+			for (int i = 0; i < listenerHookRefs.length; i++) {
+				listenerHooks[i] = (EventListenerHook) getServiceEventHook(
+						listenerHookRefs[i], generation);
+			}
+
+			synchronized (serviceEventHookServices) {
+				if (generation == serviceEventHookGeneration) {
+					serviceEventHookChain = new ServiceEventHookChain(
+							eventHooks, listenerHooks);
+					return serviceEventHookChain;
+				}
+			}
+			// a hook has changed while the chain was built
+		}
+	}
+
+	/**
+	 * get the held service object of a service event hook, get the service
+	 * if it is not held yet. The service is retrieved without holding the
+	 * hook services lock and only held if the hooks have not changed since
+	 * the given generation.
+	 */
+	private Object getServiceEventHook(final ServiceReferenceImpl<?> ref,
+			final int generation) {
+		synchronized (serviceEventHookServices) {
+			final Object held = serviceEventHookServices.get(ref);
+			if (held != null) {
+				return held;
+			}
+		}
+
+		final Object hook;
+		try {
+			hook = ref.getService(this);
+		} catch (final Throwable t) {
+			notifyFrameworkListeners(FrameworkEvent.ERROR, ref.bundle, t);
+			return null;
+		}
+		if (hook == null) {
+			return null;
+		}
+
+		final Object held;
+		synchronized (serviceEventHookServices) {
+			held = serviceEventHookServices.get(ref);
+			if (held == null && generation == serviceEventHookGeneration) {
+				serviceEventHookServices.put(ref, hook);
+				return hook;
+			}
+		}
+		ref.ungetService(this);
+		return held;
+	}
+
+	/**
+	 * mark the service event hook chain as outdated.
+	 */
+	private void invalidateServiceEventHookChain() {
+		synchronized (serviceEventHookServices) {
+			serviceEventHookGeneration++;
+			serviceEventHookChain = null;
+		}
+	}
+
+	/**
+	 * add a service listener entry and update the snapshot.
+	 * 
+	 * @param entry
+	 *            the entry.
+	 */
+	void addServiceListenerEntry(final ServiceListenerEntry entry) {
+		synchronized (serviceListeners) {
+			serviceListeners.add(entry);
+			serviceListenerGroups = serviceListenerGroups.add(entry);
+		}
+	}
+
+	/**
+	 * remove service listener entries and update the snapshot.
+	 * 
+	 * @param entries
+	 *            the entries.
+	 */
+	void removeServiceListenerEntries(
+			final Collection<ServiceListenerEntry> entries) {
+		synchronized (serviceListeners) {
+			serviceListeners.removeAll(entries);
+			serviceListenerGroups = serviceListenerGroups.remove(entries);
+		}
+	}
+
+	/**
+	 * called when the ranking of a service changed. Keeps the hook lists
+	 * sorted.
+	 * 
+	 * @param sref
+	 *            the service reference.
+	 */
+	void serviceRankingChanged(final ServiceReferenceImpl<?> sref) {
+		final String[] clazzes = (String[]) sref
+				.getProperty(Constants.OBJECTCLASS);
+		for (int i = 0; i < clazzes.length; i++) {
+			final List<?> hookList = hooks.get(clazzes[i]);
+			if (hookList != null) {
+				synchronized (hookList) {
+					if (hookList.contains(sref)) {
+						@SuppressWarnings("unchecked")
+						final List<ServiceReference<?>> list = (List<ServiceReference<?>>) hookList;
+						Collections.sort(list, Collections.reverseOrder());
+					}
+				}
+				if (hookList == weavingHooks) {
+					weavingHookChain = null;
+				} else if (hookList == serviceEventHooks
+						|| hookList == serviceEventListenerHooks) {
+					invalidateServiceEventHookChain();
+				}
+			}
+		}
+	}
+
+	/**
+	 * read the result of a previous weaving from the cache and apply it to
+	 * the woven class.
+	 * 
+	 * @return <code>true</code> if there was a matching cache entry.
+	 */
+	private boolean readWovenClass(final File file, final String identity,
+			final String digest, final WovenClassImpl wovenClass) {
+		if (!file.exists()) {
+			return false;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			if (!identity.equals(in.readUTF())
+					|| !digest.equals(in.readUTF())) {
+				return false;
+			}
+			final int imports = in.readInt();
+			final List<String> dynamicImports = new ArrayList<String>(
+					imports);
+			for (int i = 0; i < imports; i++) {
+				dynamicImports.add(in.readUTF());
+			}
+			final byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			wovenClass.setBytes(bytes);
+			wovenClass.getDynamicImports().addAll(dynamicImports);
+			return true;
+		} catch (final IOException ioe) {
+			file.delete();
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (final IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * write the result of a weaving to the cache.
+	 */
+	private void writeWovenClass(final File file, final String identity,
+			final String digest, final WovenClassImpl wovenClass) {
+		final File dir = file.getParentFile();
+		dir.mkdirs();
+		final File tmp = new File(dir, file.getName() + ".tmp");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new FileOutputStream(tmp));
+			out.writeUTF(identity);
+			out.writeUTF(digest);
+			final List<String> dynamicImports = wovenClass.getDynamicImports();
+			out.writeInt(dynamicImports.size());
+			for (final String dynamicImport : dynamicImports) {
+				out.writeUTF(dynamicImport);
+			}
+			final byte[] bytes = wovenClass.getBytes();
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			out.close();
+			out = null;
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+			}
+		} catch (final IOException ioe) {
+			if (LOG_ENABLED && DEBUG_CLASSLOADING) {
+				logger.log(LogService.LOG_DEBUG,
+						"Could not cache woven class "
+								+ wovenClass.getClassName(),
+						ioe);
+			}
+			tmp.delete();
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (final IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static String digest(final byte[] bytes) {
+		try {
+			final byte[] hash = MessageDigest.getInstance("SHA-1")
+					.digest(bytes);
+			final StringBuffer buffer = new StringBuffer(hash.length * 2);
+			for (int i = 0; i < hash.length; i++) {
+				final int b = hash[i] & 0xFF;
+				buffer.append(Character.forDigit(b >> 4, 16));
+				buffer.append(Character.forDigit(b & 0xF, 16));
+			}
+			return buffer.toString();
+		} catch (final NoSuchAlgorithmException nsae) {
+			// fall back to the length and the hash code
+			return bytes.length + "-" + Arrays.hashCode(bytes);
+		}
+	}
+
+	/**
+	 * a reusable privileged action for delivering an event to listeners when
+	 * security is enabled.
+	 */
+	private static final class PrivilegedListenerCall
+			implements PrivilegedAction<Object> {
+
+		private final EventObject event;
+
+		FrameworkListener frameworkListener;
+
+		ServiceListener serviceListener;
+
+		PrivilegedListenerCall(final EventObject event) {
+			this.event = event;
+		}
+
+		public Object run() {
+			if (frameworkListener != null) {
+				frameworkListener.frameworkEvent((FrameworkEvent) event);
+			} else {
+				serviceListener.serviceChanged((ServiceEvent) event);
+			}
+			return null;
+		}
+
+	}
+
+	/**
+	 * caches ServicePermission decisions per calling context, i.e., per set
+	 * of protection domains of the calling bundles. The protection domains of
+	 * the bundles are static, so a decision can only be revoked through the
+	 * installed <code>Policy</code> or through a PermissionAdmin or
+	 * ConditionalPermissionAdmin implementation. The decisions are therefore
+	 * valid only for the policy object under which they were made, and
+	 * nothing is cached while a PermissionAdmin or ConditionalPermissionAdmin
+	 * service is registered because changes of their state are not
+	 * observable by the framework.
+	 */
+	static final class ServicePermissionCache {
+
+		private static final int MAX_CONTEXTS = 64;
+
+		private static final String PERMISSION_ADMIN = "org.osgi.service.permissionadmin.PermissionAdmin";
+
+		private static final String CONDITIONAL_PERMISSION_ADMIN = "org.osgi.service.condpermadmin.ConditionalPermissionAdmin";
+
+		private static final PrivilegedAction<Policy> GET_POLICY = new PrivilegedAction<Policy>() {
+			public Policy run() {
+				return Policy.getPolicy();
+			}
+		};
+
+		private final ConcurrentHashMap<AccessControlContext, ConcurrentHashMap<String, Boolean>> decisions = new ConcurrentHashMap<AccessControlContext, ConcurrentHashMap<String, Boolean>>();
+
+		/**
+		 * the number of registered PermissionAdmin and
+		 * ConditionalPermissionAdmin services.
+		 */
+		private final AtomicInteger permissionAdmins = new AtomicInteger();
+
+		/**
+		 * the policy under which the cached decisions were made.
+		 */
+		private volatile Policy policy;
+
+		/**
+		 * check if the caller has the ServicePermission.
+		 * 
+		 * @param clazz
+		 *            the service interface.
+		 * @param action
+		 *            the action.
+		 * @return <code>true</code> if the permission is granted.
+		 */
+		boolean implies(final String clazz, final String action) {
+			final AccessControlContext context = AccessController
+					.getContext();
+
+			if (permissionAdmins.get() > 0) {
+				return check(context, clazz, action);
+			}
+
+			final Policy current = AccessController.doPrivileged(GET_POLICY);
+			if (current != policy) {
+				decisions.clear();
+				policy = current;
+			}
+
+			ConcurrentHashMap<String, Boolean> contextDecisions = decisions
+					.get(context);
+			if (contextDecisions == null) {
+				if (decisions.size() >= MAX_CONTEXTS) {
+					decisions.clear();
+				}
+				contextDecisions = new ConcurrentHashMap<String, Boolean>();
+				final ConcurrentHashMap<String, Boolean> existing = decisions
+						.putIfAbsent(context, contextDecisions);
+				if (existing != null) {
+					contextDecisions = existing;
+				}
+			}
+
+			final String key = action + ' ' + clazz;
+			Boolean decision = contextDecisions.get(key);
+			if (decision == null) {
+				decision = Boolean.valueOf(check(context, clazz, action));
+				contextDecisions.put(key, decision);
+				if (policy != current || permissionAdmins.get() > 0) {
+					// the permission state changed during the check
+					decisions.clear();
+				}
+			}
+			return decision.booleanValue();
+		}
+
+		private static boolean check(final AccessControlContext context,
+				final String clazz, final String action) {
+			try {
+				context.checkPermission(new ServicePermission(clazz, action));
+				return true;
+			} catch (final SecurityException se) {
+				return false;
+			}
+		}
+
+		/**
+		 * track the PermissionAdmin and ConditionalPermissionAdmin services.
+		 * 
+		 * @param type
+		 *            the type of the service event.
+		 * @param reference
+		 *            the changed service.
+		 */
+		void serviceChanged(final int type,
+				final ServiceReference<?> reference) {
+			final String[] clazzes = (String[]) reference
+					.getProperty(Constants.OBJECTCLASS);
+			for (int i = 0; i < clazzes.length; i++) {
+				if (PERMISSION_ADMIN.equals(clazzes[i])
+						|| CONDITIONAL_PERMISSION_ADMIN.equals(clazzes[i])) {
+					if (type == ServiceEvent.REGISTERED) {
+						permissionAdmins.incrementAndGet();
+					} else if (type == ServiceEvent.UNREGISTERING) {
+						permissionAdmins.decrementAndGet();
+					}
+					clear();
+					return;
+				}
+			}
+		}
+
+		/**
+		 * flush all decisions.
+		 */
+		void clear() {
+			decisions.clear();
+		}
+
+	}
+
+	/**
+	 * a sorted snapshot of the weaving hooks.
+	 */
+	private static final class WeavingHookChain {
+
+		final ServiceReferenceImpl<WeavingHook>[] refs;
+
+		final WeavingHook[] services;
+
+		/**
+		 * identifies the hook set for the weaving cache.
+		 */
+		final String identity;
+
+		WeavingHookChain(final ServiceReferenceImpl<WeavingHook>[] refs,
+				final WeavingHook[] services, final String identity) {
+			this.refs = refs;
+			this.services = services;
+			this.identity = identity;
+		}
+
+	}
+
+	/**
+	 * the service event hooks and event listener hooks with their held
+	 * service objects, in ranking order. An entry is <code>null</code> if the
+	 * service object could not be obtained.
+	 */
+	@SuppressWarnings("deprecation")
+	private static final class ServiceEventHookChain {
+
+		final org.osgi.framework.hooks.service.EventHook[] eventHooks;
+
+		final EventListenerHook[] eventListenerHooks;
+
+		ServiceEventHookChain(
+				final org.osgi.framework.hooks.service.EventHook[] eventHooks,
+				final EventListenerHook[] eventListenerHooks) {
+			this.eventHooks = eventHooks;
+			this.eventListenerHooks = eventListenerHooks;
+		}
+
+	}
+
+	/**
+	 * immutable snapshot of the service listeners in registration order and
+	 * grouped by the context of the registering bundle. Adding or removing a
+	 * listener creates a new snapshot: the flat array and the map of groups
+	 * are copied, the groups of the other contexts are shared with the
+	 * previous snapshot.
+	 */
+	private static final class ServiceListenerGroups {
+
+		static final ServiceListenerGroups EMPTY = new ServiceListenerGroups(
+				new ServiceListenerEntry[0],
+				new HashMap<BundleContext, ServiceListenerEntry[]>(0));
+
+		final ServiceListenerEntry[] all;
+
+		final HashMap<BundleContext, ServiceListenerEntry[]> byContext;
+
+		private ServiceListenerGroups(final ServiceListenerEntry[] all,
+				final HashMap<BundleContext, ServiceListenerEntry[]> byContext) {
+			this.all = all;
+			this.byContext = byContext;
+		}
+
+		ServiceListenerGroups add(final ServiceListenerEntry entry) {
+			final BundleContext ctx = entry.bundle.context;
+			final HashMap<BundleContext, ServiceListenerEntry[]> newByContext = new HashMap<BundleContext, ServiceListenerEntry[]>(
+					byContext);
+			newByContext.put(ctx, append(byContext.get(ctx), entry));
+			return new ServiceListenerGroups(append(all, entry),
+					newByContext);
+		}
+
+		ServiceListenerGroups remove(
+				final Collection<ServiceListenerEntry> entries) {
+			final HashMap<BundleContext, ServiceListenerEntry[]> newByContext = new HashMap<BundleContext, ServiceListenerEntry[]>(
+					byContext);
+			for (final ServiceListenerEntry entry : entries) {
+				final BundleContext ctx = entry.bundle.context;
+				final ServiceListenerEntry[] group = newByContext.get(ctx);
+				if (group == null) {
+					continue;
+				}
+				final ServiceListenerEntry[] newGroup = without(group, entry);
+				if (newGroup.length == 0) {
+					newByContext.remove(ctx);
+				} else {
+					newByContext.put(ctx, newGroup);
+				}
+			}
+			ServiceListenerEntry[] newAll = all;
+			for (final ServiceListenerEntry entry : entries) {
+				newAll = without(newAll, entry);
+			}
+			return new ServiceListenerGroups(newAll, newByContext);
+		}
+
+		private static ServiceListenerEntry[] append(
+				final ServiceListenerEntry[] array,
+				final ServiceListenerEntry entry) {
+			if (array == null) {
+				return new ServiceListenerEntry[] { entry };
+			}
+			final ServiceListenerEntry[] result = new ServiceListenerEntry[array.length
+					+ 1];
+			System.arraycopy(array, 0, result, 0, array.length);
+			result[array.length] = entry;
+			return result;
+		}
+
+		private static ServiceListenerEntry[] without(
+				final ServiceListenerEntry[] array,
+				final ServiceListenerEntry entry) {
+			for (int i = 0; i < array.length; i++) {
+				if (array[i] == entry) {
+					final ServiceListenerEntry[] result = new ServiceListenerEntry[array.length
+							- 1];
+					System.arraycopy(array, 0, result, 0, i);
+					System.arraycopy(array, i + 1, result, i,
+							array.length - i - 1);
+					return result;
+				}
+			}
+			return array;
+		}
+
+	}
+
 	/**
 	 * @see org.osgi.framework.BundleActivator#start(org.osgi.framework.BundleContext)
 	 * @category BundleActivator
@@ -24,6 +24,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public interface ConciergeCollections {
 
@@ -293,6 +294,242 @@ public interface ConciergeCollections {
 
 	}
 
+	/**
+	 * A map from primitive long keys to values with lock-free reads. The map
+	 * uses open addressing with linear probing over an immutable table that is
+	 * copied and republished on every modification, so readers never contend
+	 * with writers. Intended for lookup tables that are read much more often
+	 * than they are modified, like the bundle id registry.
+	 */
+	public static final class ConcurrentLongMap<V> {
+
+		private volatile Table table;
+
+		public ConcurrentLongMap() {
+			this(8);
+		}
+
+		public ConcurrentLongMap(final int initialSize) {
+			int capacity = 8;
+			while (capacity < initialSize * 2) {
+				capacity <<= 1;
+			}
+			table = new Table(capacity);
+		}
+
+		@SuppressWarnings("unchecked")
+		public V get(final long key) {
+			final Table t = table;
+			final int mask = t.keys.length - 1;
+			int i = hash(key) & mask;
+			Object value;
+			while ((value = t.values[i]) != null) {
+				if (t.keys[i] == key) {
+					return (V) value;
+				}
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+
+		public boolean containsKey(final long key) {
+			return get(key) != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		public synchronized V put(final long key, final V value) {
+			if (value == null) {
+				throw new IllegalArgumentException("value must not be null");
+			}
+
+			final Table old = table;
+			final Table t = (old.size + 1) * 2 > old.keys.length
+					? old.rehash(old.keys.length << 1) : old.copy();
+			final Object previous = t.insert(key, value);
+			table = t;
+			return (V) previous;
+		}
+
+		@SuppressWarnings("unchecked")
+		public synchronized V remove(final long key) {
+			final Table old = table;
+			final int mask = old.keys.length - 1;
+			int i = hash(key) & mask;
+			while (old.values[i] != null && old.keys[i] != key) {
+				i = (i + 1) & mask;
+			}
+			if (old.values[i] == null) {
+				return null;
+			}
+
+			final Object previous = old.values[i];
+			final Table t = old.copy();
+			t.values[i] = null;
+			t.size--;
+
+			// shift back the entries of the probe sequence
+			int j = i;
+			while (true) {
+				j = (j + 1) & mask;
+				if (t.values[j] == null) {
+					break;
+				}
+				final int home = hash(t.keys[j]) & mask;
+				if (((j - home) & mask) >= ((j - i) & mask)) {
+					t.keys[i] = t.keys[j];
+					t.values[i] = t.values[j];
+					t.values[j] = null;
+					i = j;
+				}
+			}
+
+			table = t;
+			return (V) previous;
+		}
+
+		public int size() {
+			return table.size;
+		}
+
+		public boolean isEmpty() {
+			return table.size == 0;
+		}
+
+		public synchronized void clear() {
+			table = new Table(table.keys.length);
+		}
+
+		@SuppressWarnings("unchecked")
+		public List<V> values() {
+			final Table t = table;
+			final ArrayList<V> result = new ArrayList<V>(t.size);
+			for (int i = 0; i < t.values.length; i++) {
+				if (t.values[i] != null) {
+					result.add((V) t.values[i]);
+				}
+			}
+			return result;
+		}
+
+		static int hash(final long key) {
+			final int h = (int) (key ^ (key >>> 32));
+			return h ^ (h >>> 16);
+		}
+
+		private static final class Table {
+
+			final long[] keys;
+
+			final Object[] values;
+
+			int size;
+
+			Table(final int capacity) {
+				keys = new long[capacity];
+				values = new Object[capacity];
+			}
+
+			private Table(final long[] keys, final Object[] values,
+					final int size) {
+				this.keys = keys;
+				this.values = values;
+				this.size = size;
+			}
+
+			Table copy() {
+				return new Table(keys.clone(), values.clone(), size);
+			}
+
+			Table rehash(final int capacity) {
+				final Table t = new Table(capacity);
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] != null) {
+						t.insert(keys[i], values[i]);
+					}
+				}
+				return t;
+			}
+
+			Object insert(final long key, final Object value) {
+				final int mask = keys.length - 1;
+				int i = hash(key) & mask;
+				while (values[i] != null) {
+					if (keys[i] == key) {
+						final Object previous = values[i];
+						values[i] = value;
+						return previous;
+					}
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+				values[i] = value;
+				size++;
+				return null;
+			}
+
+		}
+
+	}
+
+	/**
+	 * A multi map with lock-free reads. Each key maps to an immutable list
+	 * which is replaced on modification, writers are serialized.
+	 */
+	public static final class ConcurrentMultiMap<K, V> {
+
+		private final ConcurrentHashMap<K, List<V>> map;
+
+		public ConcurrentMultiMap(final int initialSize) {
+			map = new ConcurrentHashMap<K, List<V>>(initialSize);
+		}
+
+		public synchronized void insert(final K key, final V value) {
+			final List<V> old = map.get(key);
+			final ArrayList<V> list;
+			if (old == null) {
+				list = new ArrayList<V>(1);
+			} else {
+				list = new ArrayList<V>(old.size() + 1);
+				list.addAll(old);
+			}
+			list.add(value);
+			map.put(key, Collections.unmodifiableList(list));
+		}
+
+		public synchronized boolean remove(final K key, final V value) {
+			final List<V> old = map.get(key);
+			if (old == null || !old.contains(value)) {
+				return false;
+			}
+			if (old.size() == 1) {
+				map.remove(key);
+			} else {
+				final ArrayList<V> list = new ArrayList<V>(old);
+				list.remove(value);
+				map.put(key, Collections.unmodifiableList(list));
+			}
+			return true;
+		}
+
+		public List<V> get(final K key) {
+			return map.get(key);
+		}
+
+		public List<V> lookup(final K key) {
+			final List<V> result = map.get(key);
+			return result == null ? Collections.<V> emptyList() : result;
+		}
+
+		public synchronized void clear() {
+			map.clear();
+		}
+
+		public String toString() {
+			return "ConcurrentMultiMap " + map.toString();
+		}
+
+	}
+
 	public static class Tuple<T1, T2> {
 
 		private final T1 former;
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.eclipse.concierge.service.metrics.FrameworkMetrics;
+
+/**
+ * The metrics of the framework. Every metric is a latency histogram with
+ * striped counters. The framework only creates an instance if metrics are
+ * enabled, the instrumented code paths check
+ * {@link Concierge#METRICS_ENABLED} before taking any time stamp.
+ */
+final class Metrics implements FrameworkMetrics {
+
+	static final int FIND_RESOURCE_METRIC = 0;
+	static final int RESOLVE_METRIC = 1;
+	static final int GET_SERVICE_REFERENCES_METRIC = 2;
+	static final int NOTIFY_SERVICE_LISTENERS_METRIC = 3;
+	static final int ACTIVATE_METRIC = 4;
+	static final int INSTALL_METRIC = 5;
+
+	private static final String[] NAMES = { FIND_RESOURCE, RESOLVE,
+			GET_SERVICE_REFERENCES, NOTIFY_SERVICE_LISTENERS, ACTIVATE,
+			INSTALL };
+
+	private final Histogram[] histograms;
+
+	Metrics() {
+		histograms = new Histogram[NAMES.length];
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * record an operation.
+	 * 
+	 * @param metric
+	 *            the index of the metric.
+	 * @param start
+	 *            the <code>System.nanoTime()</code> when the operation
+	 *            started.
+	 */
+	void record(final int metric, final long start) {
+		histograms[metric].record(System.nanoTime() - start);
+	}
+
+	public String[] getMetricNames() {
+		return NAMES.clone();
+	}
+
+	public long getCount(final String metric) {
+		return histogram(metric).getCount();
+	}
+
+	public long getTotalTime(final String metric) {
+		return histogram(metric).getTotal();
+	}
+
+	public double getMeanTime(final String metric) {
+		final Histogram histogram = histogram(metric);
+		final long count = histogram.getCount();
+		return count == 0 ? 0 : (double) histogram.getTotal() / count;
+	}
+
+	public long getMaxTime(final String metric) {
+		return histogram(metric).max.get();
+	}
+
+	public long getPercentile(final String metric, final double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException(
+					"Percentile must be between 0 and 100: " + percentile);
+		}
+		return histogram(metric).getPercentile(percentile);
+	}
+
+	public void reset() {
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i].reset();
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuffer buffer = new StringBuffer();
+		for (int i = 0; i < NAMES.length; i++) {
+			final long count = histograms[i].getCount();
+			buffer.append(NAMES[i]);
+			buffer.append(": count=");
+			buffer.append(count);
+			if (count > 0) {
+				buffer.append(", mean=");
+				buffer.append(histograms[i].getTotal() / count);
+				buffer.append("ns, p50=");
+				buffer.append(histograms[i].getPercentile(50));
+				buffer.append("ns, p99=");
+				buffer.append(histograms[i].getPercentile(99));
+				buffer.append("ns, max=");
+				buffer.append(histograms[i].max.get());
+				buffer.append("ns");
+			}
+			buffer.append('\n');
+		}
+		return buffer.toString();
+	}
+
+	private Histogram histogram(final String metric) {
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equals(metric)) {
+				return histograms[i];
+			}
+		}
+		throw new IllegalArgumentException("Unknown metric " + metric);
+	}
+
+	/**
+	 * a latency histogram with logarithmic buckets, each power of two is
+	 * split into eight linear sub-buckets. Count and total are striped by
+	 * thread to reduce contention on the hot paths.
+	 */
+	static final class Histogram {
+
+		private static final int SUB_BUCKET_BITS = 3;
+
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+		private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1)
+				* SUB_BUCKETS;
+
+		private static final int STRIPES = 16;
+
+		// one stripe per cache line
+		private static final int PADDING = 8;
+
+		private final AtomicLongArray counts = new AtomicLongArray(
+				STRIPES * PADDING);
+
+		private final AtomicLongArray totals = new AtomicLongArray(
+				STRIPES * PADDING);
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+		final AtomicLong max = new AtomicLong();
+
+		void record(final long value) {
+			final long v = value < 0 ? 0 : value;
+			final int stripe = ((int) Thread.currentThread().getId()
+					& (STRIPES - 1)) * PADDING;
+			counts.incrementAndGet(stripe);
+			totals.addAndGet(stripe, v);
+			buckets.incrementAndGet(bucketIndex(v));
+			long currentMax;
+			while (v > (currentMax = max.get())) {
+				if (max.compareAndSet(currentMax, v)) {
+					break;
+				}
+			}
+		}
+
+		long getCount() {
+			long sum = 0;
+			for (int i = 0; i < STRIPES; i++) {
+				sum += counts.get(i * PADDING);
+			}
+			return sum;
+		}
+
+		long getTotal() {
+			long sum = 0;
+			for (int i = 0; i < STRIPES; i++) {
+				sum += totals.get(i * PADDING);
+			}
+			return sum;
+		}
+
+		long getPercentile(final double percentile) {
+			final long[] snapshot = new long[BUCKETS];
+			long count = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				snapshot[i] = buckets.get(i);
+				count += snapshot[i];
+			}
+			if (count == 0) {
+				return 0;
+			}
+			final long rank = Math.max(1,
+					(long) Math.ceil(percentile / 100 * count));
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += snapshot[i];
+				if (seen >= rank) {
+					// highest value of the bucket, but not above the max
+					return Math.min(highestValue(i), max.get());
+				}
+			}
+			return max.get();
+		}
+
+		void reset() {
+			for (int i = 0; i < STRIPES; i++) {
+				counts.set(i * PADDING, 0);
+				totals.set(i * PADDING, 0);
+			}
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets.set(i, 0);
+			}
+			max.set(0);
+		}
+
+		static int bucketIndex(final long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			final int exponent = 63 - Long.numberOfLeadingZeros(value);
+			final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS))
+					& (SUB_BUCKETS - 1);
+			return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+		}
+
+		static long lowestValue(final int index) {
+			if (index < SUB_BUCKETS) {
+				return index;
+			}
+			final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			final int sub = index % SUB_BUCKETS;
+			return ((long) (SUB_BUCKETS + sub)) << (exponent
+					- SUB_BUCKET_BITS);
+		}
+
+		static long highestValue(final int index) {
+			return index + 1 < BUCKETS ? lowestValue(index + 1) - 1
+					: Long.MAX_VALUE;
+		}
+
+	}
+
+	/**
+	 * registers the metrics with the platform MBean server. Kept in a separate
+	 * class so that the framework does not depend on JMX on platforms that do
+	 * not provide it.
+	 */
+	static final class JMX {
+
+		private final ObjectName name;
+
+		JMX(final FrameworkMetrics metrics, final String id)
+				throws Exception {
+			name = new ObjectName("org.eclipse.concierge:type=FrameworkMetrics,id="
+					+ ObjectName.quote(id));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					new StandardMBean(metrics, FrameworkMetrics.class), name);
+		}
+
+		void unregister() {
+			try {
+				ManagementFactory.getPlatformMBeanServer()
+						.unregisterMBean(name);
+			} catch (final Exception e) {
+				// ignore
+			}
+		}
+
+	}
+
+}
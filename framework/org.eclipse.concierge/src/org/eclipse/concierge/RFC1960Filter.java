@@ -34,9 +34,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
+import org.eclipse.concierge.ServiceReferenceImpl.ServiceProperties;
 import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.Version;
 import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 
@@ -736,6 +738,15 @@ public final class RFC1960Filter implements Filter {
 			// result.
 			temp = map.get(id);
 
+			if (temp == null && !caseSensitive
+					&& map instanceof ServiceProperties) {
+				// service properties know their case variants
+				temp = ((ServiceProperties) map).getIgnoreCase(id);
+				if (temp == null) {
+					return false;
+				}
+			}
+
 			if (temp == null) {
 				if (caseSensitive) {
 					return false;
@@ -1171,8 +1182,8 @@ public final class RFC1960Filter implements Filter {
 			if (values.size() != 1) {
 				candidates = capabilityIndex.getAll(namespace);
 			} else {
-				candidates = capabilityIndex.getByKey(namespace,
-						values.iterator().next());
+				candidates = getByKey(namespace, values.iterator().next(),
+						filter, capabilityIndex);
 			}
 		} else {
 			candidates = capabilityIndex.getAll(namespace);
@@ -1194,6 +1205,86 @@ public final class RFC1960Filter implements Filter {
 		return matches;
 	}
 
+	/**
+	 * get the candidates for a key. If the namespace has a version index and
+	 * the filter is a conjunction with clauses on the version attribute, only
+	 * the capabilities within the version range are returned.
+	 */
+	private static List<Capability> getByKey(final String namespace,
+			final String value, final Filter filter,
+			final Concierge.CapabilityRegistry capabilityIndex) {
+		final String versionAttribute = Concierge.CapabilityRegistry
+				.getVersionAttribute(namespace);
+		if (versionAttribute == null || !(filter instanceof RFC1960Filter)
+				|| ((RFC1960Filter) filter).operator != AND_OPERATOR) {
+			return capabilityIndex.getByKey(namespace, value);
+		}
+
+		Version low = null;
+		boolean lowInclusive = true;
+		Version high = null;
+		boolean highInclusive = true;
+
+		for (final Filter operand : ((RFC1960Filter) filter).operands) {
+			final RFC1960SimpleFilter clause;
+			final boolean negated;
+			if (operand instanceof RFC1960SimpleFilter) {
+				clause = (RFC1960SimpleFilter) operand;
+				negated = false;
+			} else if (operand instanceof RFC1960Filter
+					&& ((RFC1960Filter) operand).operator == NOT_OPERATOR
+					&& ((RFC1960Filter) operand).operands
+							.get(0) instanceof RFC1960SimpleFilter) {
+				clause = (RFC1960SimpleFilter) ((RFC1960Filter) operand).operands
+						.get(0);
+				negated = true;
+			} else {
+				continue;
+			}
+			if (!versionAttribute.equals(clause.id)) {
+				continue;
+			}
+
+			final Version version;
+			try {
+				version = Version.parseVersion(clause.value);
+			} catch (final IllegalArgumentException iae) {
+				continue;
+			}
+
+			// (v>=x) and !(v<=x) raise the lower bound, (v<=x) and !(v>=x)
+			// lower the upper bound, (v=x) does both
+			final boolean raisesLow = !negated
+					&& (clause.comparator == GREATER
+							|| clause.comparator == EQUALS)
+					|| negated && clause.comparator == LESS;
+			final boolean lowersHigh = !negated
+					&& (clause.comparator == LESS
+							|| clause.comparator == EQUALS)
+					|| negated && clause.comparator == GREATER;
+			if (raisesLow) {
+				final int cmp = low == null ? 1 : version.compareTo(low);
+				if (cmp > 0 || cmp == 0 && negated) {
+					low = version;
+					lowInclusive = !negated;
+				}
+			}
+			if (lowersHigh) {
+				final int cmp = high == null ? -1 : version.compareTo(high);
+				if (cmp < 0 || cmp == 0 && negated) {
+					high = version;
+					highInclusive = !negated;
+				}
+			}
+		}
+
+		if (low == null && high == null) {
+			return capabilityIndex.getByKey(namespace, value);
+		}
+		return capabilityIndex.getByVersionRange(namespace, value, low,
+				lowInclusive, high, highInclusive);
+	}
+
 	private static int prefilter(final String namespace, final Filter filter,
 			final Concierge.CapabilityRegistry capabilities, final int state,
 			final boolean inNegation, final Set<String> values) {
@@ -576,13 +576,13 @@ public class Resources {
 			final Requirement req = wire.getRequirement();
 			if (wire.getProvider() == revision) {
 				providedWires.insert(cap.getNamespace(), wire);
-				inUseSet.add(wire.getRequirer());
+				addInUse(wire.getRequirer());
 				((ConciergeBundleWire) wire).providerWiring = this;
 			} else {
 				requiredWires.insert(req.getNamespace(), wire);
 				if (HostNamespace.HOST_NAMESPACE.equals(wire.getRequirement()
 						.getNamespace())) {
-					inUseSet.add(wire.getProvider());
+					addInUse(wire.getProvider());
 				}
 				((ConciergeBundleWire) wire).requirerWiring = this;
 			}
@@ -614,6 +614,15 @@ public class Resources {
 			return getRequiredWires(BundleNamespace.BUNDLE_NAMESPACE);
 		}
 
+		/**
+		 * get the Require-Bundle wires of the requirers of this wiring, also
+		 * when the wiring is no longer in use.
+		 */
+		List<BundleWire> getProvidedBundleWires() {
+			return new ArrayList<BundleWire>(
+					providedWires.lookup(BundleNamespace.BUNDLE_NAMESPACE));
+		}
+
 		public Bundle getBundle() {
 			return revision.getBundle();
 		}
@@ -635,14 +644,38 @@ public class Resources {
 			for (final BundleWire requiredWire : requiredWires.getAllValues()) {
 				final ConciergeBundleWiring bw = ((ConciergeBundleWire) requiredWire).providerWiring;
 				if (bw != null) {
-					bw.inUseSet.remove(revision);
+					bw.removeInUse(revision);
 				}
 			}
 			for (final BundleWire hostWire : providedWires
 					.lookup(HostNamespace.HOST_NAMESPACE)) {
 				final ConciergeBundleWiring bw = ((ConciergeBundleWire) hostWire).requirerWiring;
 				if (bw != null) {
-					bw.inUseSet.remove(revision);
+					bw.removeInUse(revision);
+				}
+			}
+		}
+
+		private void addInUse(final BundleRevision user) {
+			if (inUseSet.add(user)) {
+				final Bundle bundle = revision.getBundle();
+				final Bundle dependent = user.getBundle();
+				if (bundle instanceof AbstractBundle
+						&& dependent instanceof AbstractBundle) {
+					((AbstractBundle) bundle)
+							.addDependent((AbstractBundle) dependent);
+				}
+			}
+		}
+
+		private void removeInUse(final BundleRevision user) {
+			if (inUseSet.remove(user)) {
+				final Bundle bundle = revision.getBundle();
+				final Bundle dependent = user.getBundle();
+				if (bundle instanceof AbstractBundle
+						&& dependent instanceof AbstractBundle) {
+					((AbstractBundle) bundle)
+							.removeDependent((AbstractBundle) dependent);
 				}
 			}
 		}
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.concierge;
 
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -51,9 +53,10 @@ final class ServiceReferenceImpl<S> implements ServiceReference<S> {
 	protected S service;
 
 	/**
-	 * the service properties.
+	 * the service properties. An immutable snapshot which is replaced when
+	 * the properties are modified.
 	 */
-	final Map<String, Object> properties;
+	volatile ServiceProperties properties;
 
 	/**
 	 * the bundles that are using the service.
@@ -128,23 +131,26 @@ final class ServiceReferenceImpl<S> implements ServiceReference<S> {
 		this.framework = framework;
 		this.bundle = bundle;
 		this.service = service;
-		this.properties = new HashMap<String, Object>(props == null ? 5
-				: props.size() + 5);
+		final HashMap<String, Object> map = new HashMap<String, Object>(
+				props == null ? 5 : props.size() + 5);
 		if (props != null) {
 			for (final Enumeration<String> keys = props.keys(); keys
 					.hasMoreElements();) {
 				final String key = keys.nextElement();
-				properties.put(key, props.get(key));
+				if (!forbidden.contains(key.toLowerCase())) {
+					map.put(key, props.get(key));
+				}
 			}
 		}
-		properties.put(Constants.OBJECTCLASS, clazzes);
-		properties.put(Constants.SERVICE_BUNDLEID, bundle.getBundleId());
-		properties.put(Constants.SERVICE_ID, new Long(++nextServiceID));
+		map.put(Constants.OBJECTCLASS, clazzes);
+		map.put(Constants.SERVICE_BUNDLEID, bundle.getBundleId());
+		map.put(Constants.SERVICE_ID, new Long(++nextServiceID));
 		final Integer ranking = props == null ? null : (Integer) props
 				.get(Constants.SERVICE_RANKING);
-		properties.put(Constants.SERVICE_RANKING,
+		map.put(Constants.SERVICE_RANKING,
 				ranking == null ? new Integer(0) : ranking);
-		properties.put(Constants.SERVICE_SCOPE, scope);
+		map.put(Constants.SERVICE_SCOPE, scope);
+		this.properties = new ServiceProperties(map);
 		this.registration = new ServiceRegistrationImpl();
 	}
 
@@ -202,26 +208,7 @@ final class ServiceReferenceImpl<S> implements ServiceReference<S> {
 	 * @category ServiceReference
 	 */
 	public Object getProperty(final String key) {
-		// first, try the original case
-		Object result = properties.get(key);
-		if (result != null) {
-			return result;
-		}
-
-		// then, try the lower case variant
-		result = properties.get(key.toLowerCase());
-		if (result != null) {
-			return result;
-		}
-
-		// bad luck, try case insensitive matching of the keys
-		for (final String k : properties.keySet()) {
-			if (k.equalsIgnoreCase(key)) {
-				result = properties.get(k);
-				break;
-			}
-		}
-		return result;
+		return properties.getIgnoreCase(key);
 	}
 
 	/**
@@ -232,7 +219,8 @@ final class ServiceReferenceImpl<S> implements ServiceReference<S> {
 	 * @category ServiceReference
 	 */
 	public String[] getPropertyKeys() {
-		return properties.keySet().toArray(new String[properties.size()]);
+		final ServiceProperties props = properties;
+		return props.keySet().toArray(new String[props.size()]);
 	}
 
 	/**
@@ -631,41 +619,16 @@ final class ServiceReferenceImpl<S> implements ServiceReference<S> {
 						"Service has already been uninstalled");
 			}
 
-			final Map<String, Object> oldProps;
+			final ServiceProperties oldProps;
 			// could be called from multiple threads
-			synchronized(properties){
-				oldProps = new HashMap<String, Object>(
-						properties);
-	
-				final HashMap<String, String> cases = new HashMap<String, String>(
-						properties.size());
-				for (final String key : properties.keySet()) {
-					final String lower = key.toLowerCase();
-					if (cases.containsKey(lower)) {
-						throw new IllegalArgumentException(
-								"Properties contain the same key in different case variants");
-					}
-					cases.put(lower, key);
-				}
-				for (final Enumeration<String> keys = newProps.keys(); keys
-						.hasMoreElements();) {
-					final String key = keys.nextElement();
-					final Object value = newProps.get(key);
-					final String lower = key.toLowerCase();
-	
-					if (!forbidden.contains(lower)) {
-						final Object existing = cases.get(lower);
-						if (existing != null) {
-							if (existing.equals(key)) {
-								properties.remove(existing);
-							} else {
-								throw new IllegalArgumentException(
-										"Properties already exists in a different case variant");
-							}
-						}
-						properties.put(key, value);
-					}
-				}
+			synchronized (this) {
+				oldProps = properties;
+				properties = oldProps.update(newProps);
+			}
+
+			if (!oldProps.get(Constants.SERVICE_RANKING).equals(
+					properties.get(Constants.SERVICE_RANKING))) {
+				framework.serviceRankingChanged(ServiceReferenceImpl.this);
 			}
 
 			framework.notifyServiceListeners(ServiceEvent.MODIFIED,
@@ -727,4 +690,102 @@ final class ServiceReferenceImpl<S> implements ServiceReference<S> {
 		}
 		return true;
 	}
+
+	/**
+	 * An immutable snapshot of service properties. Besides the keys in their
+	 * original case, the snapshot holds a table from the lower case variants
+	 * to the original keys, so that case insensitive lookups do not have to
+	 * scan the keys.
+	 */
+	static final class ServiceProperties extends AbstractMap<String, Object> {
+
+		private final HashMap<String, Object> map;
+
+		/**
+		 * lower case key -> original key.
+		 */
+		private final HashMap<String, String> cases;
+
+		ServiceProperties(final HashMap<String, Object> map) {
+			this.map = map;
+			this.cases = new HashMap<String, String>(map.size() * 2);
+			for (final String key : map.keySet()) {
+				if (cases.put(key.toLowerCase(), key) != null) {
+					throw new IllegalArgumentException(
+							"Properties contain the same key in different case variants");
+				}
+			}
+		}
+
+		/**
+		 * get a property, ignoring the case of the key.
+		 * 
+		 * @param key
+		 *            the key.
+		 * @return the value or null, if the entry does not exist.
+		 */
+		Object getIgnoreCase(final String key) {
+			// first, try the original case
+			final Object result = map.get(key);
+			if (result != null) {
+				return result;
+			}
+
+			final String k = cases.get(key.toLowerCase());
+			return k == null ? null : map.get(k);
+		}
+
+		/**
+		 * create a new snapshot with the given properties set. The values
+		 * for service.id, service.bundleid and objectClass are never
+		 * overwritten.
+		 * 
+		 * @param newProps
+		 *            the new properties.
+		 * @return the new snapshot.
+		 */
+		ServiceProperties update(final Dictionary<String, ?> newProps) {
+			final HashMap<String, Object> updated = new HashMap<String, Object>(
+					map);
+
+			for (final Enumeration<String> keys = newProps.keys(); keys
+					.hasMoreElements();) {
+				final String key = keys.nextElement();
+				final String lower = key.toLowerCase();
+
+				if (!forbidden.contains(lower)) {
+					final String existing = cases.get(lower);
+					if (existing != null && !existing.equals(key)) {
+						throw new IllegalArgumentException(
+								"Properties already exists in a different case variant");
+					}
+					updated.put(key, newProps.get(key));
+				}
+			}
+
+			return new ServiceProperties(updated);
+		}
+
+		public Object get(final Object key) {
+			return map.get(key);
+		}
+
+		public boolean containsKey(final Object key) {
+			return map.containsKey(key);
+		}
+
+		public int size() {
+			return map.size();
+		}
+
+		public Set<String> keySet() {
+			return Collections.unmodifiableSet(map.keySet());
+		}
+
+		public Set<Map.Entry<String, Object>> entrySet() {
+			return Collections.unmodifiableMap(map).entrySet();
+		}
+
+	}
+
 }
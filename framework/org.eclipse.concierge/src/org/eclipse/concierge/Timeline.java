@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.concierge.service.metrics.StartupTimeline;
+
+/**
+ * The startup timeline of the framework. The framework only creates an
+ * instance if startup profiling is enabled and drops its reference to it as
+ * soon as the start has completed, the instrumented code paths check
+ * {@link Concierge#timeline} for <code>null</code> before taking any time
+ * stamp.
+ */
+final class Timeline implements StartupTimeline {
+
+	private final long origin = System.nanoTime();
+
+	private final ArrayList<Span> spans = new ArrayList<Span>();
+
+	private volatile boolean complete;
+
+	/**
+	 * record a span that ends now.
+	 * 
+	 * @param category
+	 *            the category.
+	 * @param name
+	 *            the name.
+	 * @param bundleId
+	 *            the bundle id or -1.
+	 * @param start
+	 *            the <code>System.nanoTime()</code> when the span started.
+	 */
+	void record(final String category, final String name,
+			final long bundleId, final long start) {
+		final long end = System.nanoTime();
+		if (complete) {
+			return;
+		}
+		final SpanImpl span = new SpanImpl(category, name, bundleId,
+				Thread.currentThread().getId(), start - origin, end - start);
+		synchronized (spans) {
+			spans.add(span);
+		}
+	}
+
+	void complete() {
+		complete = true;
+	}
+
+	public List<Span> getSpans() {
+		synchronized (spans) {
+			return Collections
+					.unmodifiableList(new ArrayList<Span>(spans));
+		}
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public void writeTrace(final Writer writer) throws IOException {
+		final List<Span> snapshot = getSpans();
+		writer.write("{\"traceEvents\":[");
+		for (int i = 0; i < snapshot.size(); i++) {
+			final Span span = snapshot.get(i);
+			if (i > 0) {
+				writer.write(',');
+			}
+			writer.write("\n{\"name\":");
+			writeString(writer, span.getName());
+			writer.write(",\"cat\":");
+			writeString(writer, span.getCategory());
+			writer.write(",\"ph\":\"X\",\"pid\":1,\"tid\":");
+			writer.write(Long.toString(span.getThreadId()));
+			// the trace format uses microseconds
+			writer.write(",\"ts\":");
+			writeMicros(writer, span.getStartTime());
+			writer.write(",\"dur\":");
+			writeMicros(writer, span.getDuration());
+			if (span.getBundleId() >= 0) {
+				writer.write(",\"args\":{\"bundle\":");
+				writer.write(Long.toString(span.getBundleId()));
+				writer.write('}');
+			}
+			writer.write('}');
+		}
+		writer.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+		writer.flush();
+	}
+
+	private static void writeMicros(final Writer writer, final long nanos)
+			throws IOException {
+		writer.write(Long.toString(nanos / 1000));
+		writer.write('.');
+		final String fraction = Long.toString(1000 + nanos % 1000);
+		writer.write(fraction, 1, 3);
+	}
+
+	private static void writeString(final Writer writer, final String str)
+			throws IOException {
+		writer.write('"');
+		final int len = str.length();
+		for (int i = 0; i < len; i++) {
+			final char c = str.charAt(i);
+			switch (c) {
+			case '"':
+				writer.write("\\\"");
+				break;
+			case '\\':
+				writer.write("\\\\");
+				break;
+			default:
+				if (c < 0x20) {
+					writer.write("\\u00");
+					writer.write(Character.forDigit(c >> 4, 16));
+					writer.write(Character.forDigit(c & 0xF, 16));
+				} else {
+					writer.write(c);
+				}
+			}
+		}
+		writer.write('"');
+	}
+
+	public String toString() {
+		synchronized (spans) {
+			return "StartupTimeline[" + spans.size() + " spans"
+					+ (complete ? ", complete]" : "]");
+		}
+	}
+
+	private static final class SpanImpl implements Span {
+
+		private final String category;
+		private final String name;
+		private final long bundleId;
+		private final long threadId;
+		private final long startTime;
+		private final long duration;
+
+		SpanImpl(final String category, final String name,
+				final long bundleId, final long threadId, final long startTime,
+				final long duration) {
+			this.category = category;
+			this.name = name;
+			this.bundleId = bundleId;
+			this.threadId = threadId;
+			this.startTime = startTime;
+			this.duration = duration;
+		}
+
+		public String getCategory() {
+			return category;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getBundleId() {
+			return bundleId;
+		}
+
+		public long getThreadId() {
+			return threadId;
+		}
+
+		public long getStartTime() {
+			return startTime;
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+
+		public String toString() {
+			return category + ' ' + name + " +" + startTime / 1000000 + "ms "
+					+ duration / 1000 + "us";
+		}
+
+	}
+
+}
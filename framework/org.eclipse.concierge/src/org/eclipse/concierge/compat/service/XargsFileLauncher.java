@@ -27,9 +27,10 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,10 +38,8 @@ import org.eclipse.concierge.BundleImpl.Revision;
 import org.eclipse.concierge.Concierge;
 import org.eclipse.concierge.Factory;
 import org.osgi.framework.Bundle;
-import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.Constants;
-import org.osgi.framework.startlevel.BundleStartLevel;
 import org.osgi.framework.wiring.BundleRevision;
 
 public class XargsFileLauncher {
@@ -102,13 +101,18 @@ public class XargsFileLauncher {
 			return concierge;
 		}
 
-		final BundleContext context = concierge.getBundleContext();
-
 		final BufferedReader reader = new BufferedReader(
 				new InputStreamReader(inputStream));
 
+		// the bundles are collected and provisioned as one set at the end
+		final ArrayList<String> locations = new ArrayList<String>();
+		final ArrayList<Integer> startLevels = new ArrayList<Integer>();
+		final ArrayList<Integer> startOrder = new ArrayList<Integer>();
+		// bundles of -all are not started if they are fragments
+		final Set<Integer> startIfNoFragment = new HashSet<Integer>();
+
 		try {
-			final HashMap<String, Bundle> memory = new HashMap<String, Bundle>(
+			final HashMap<String, Integer> memory = new HashMap<String, Integer>(
 					0);
 			String token;
 			int initLevel = 1;
@@ -144,30 +148,16 @@ public class XargsFileLauncher {
 						printErr("NO FILES FOUND IN " + jardir.getPath());
 						break;
 					}
-					// first install all bundles
-					final List<Bundle> bundlesToStart = new ArrayList<Bundle>();
+					// install all bundles, start them (if not a fragment)
+					// after all of them have been installed
 					for (int i = 0; i < files.length; i++) {
 						if (files[i].isDirectory()) {
 							continue;
 						}
-						final Bundle b = (Bundle) context
-								.installBundle(files[i].getPath());
-						// adapt to BundleStartLevel
-						final BundleStartLevel bundleStartLevel = b
-								.adapt(BundleStartLevel.class);
-						bundleStartLevel.setStartLevel(initLevel);
-						bundlesToStart.add(b);
-					}
-					// then start all bundles (if not a fragment)
-					for (Iterator<Bundle> iter = bundlesToStart.iterator(); iter
-							.hasNext();) {
-						Bundle b = iter.next();
-						// is it a fragment?
-						final Revision rev = (Revision) b
-								.adapt(BundleRevision.class);
-						if (!rev.isFragment()) {
-							b.start();
-						}
+						startIfNoFragment.add(Integer.valueOf(locations.size()));
+						startOrder.add(Integer.valueOf(locations.size()));
+						locations.add(files[i].getPath());
+						startLevels.add(Integer.valueOf(initLevel));
 					}
 					continue;
 				} else if (token.startsWith("-istart")) {
@@ -175,40 +165,34 @@ public class XargsFileLauncher {
 					bundleLocation = replaceVariable(bundleLocation,
 							passedProperties);
 					bundleLocation = resolveWildcardName(bundleLocation);
-					final Bundle bundle = context.installBundle(bundleLocation);
-					// adapt to BundleStartLevel
-					final BundleStartLevel bundleStartLevel = bundle
-							.adapt(BundleStartLevel.class);
-					bundleStartLevel.setStartLevel(initLevel);
-					bundle.start();
+					startOrder.add(Integer.valueOf(locations.size()));
+					locations.add(bundleLocation);
+					startLevels.add(Integer.valueOf(initLevel));
 				} else if (token.startsWith("-install")) {
 					String bundleLocation = getArg(token, 8);
 					bundleLocation = replaceVariable(bundleLocation,
 							passedProperties);
 					bundleLocation = resolveWildcardName(bundleLocation);
-					final Bundle bundle = context.installBundle(bundleLocation);
-					// adapt to BundleStartLevel
-					final BundleStartLevel bundleStartLevel = bundle
-							.adapt(BundleStartLevel.class);
-					bundleStartLevel.setStartLevel(initLevel);
-					memory.put(bundleLocation, bundle);
+					memory.put(bundleLocation,
+							Integer.valueOf(locations.size()));
+					locations.add(bundleLocation);
+					startLevels.add(Integer.valueOf(initLevel));
 				} else if (token.startsWith("-start")) {
 					String bundleLocation = getArg(token, 6);
 					bundleLocation = replaceVariable(bundleLocation,
 							passedProperties);
 					bundleLocation = resolveWildcardName(bundleLocation);
-					final Bundle bundle = memory.remove(bundleLocation);
-					if (bundle == null) {
+					final Integer index = memory.remove(bundleLocation);
+					if (index == null) {
 						printErr("Bundle " + bundleLocation
 								+ " is marked to be started but has not been "
 								+ "installed before. Ignoring the command !");
 					} else {
 						// set start level again in case it has been changed
 						// meanwhile
-						final BundleStartLevel bundleStartLevel = bundle
-								.adapt(BundleStartLevel.class);
-						bundleStartLevel.setStartLevel(initLevel);
-						bundle.start();
+						startLevels.set(index.intValue(),
+								Integer.valueOf(initLevel));
+						startOrder.add(index);
 					}
 				} else if (token.startsWith("-skip")) {
 					// skip the remaining part of the xargs file
@@ -216,6 +200,23 @@ public class XargsFileLauncher {
 				}
 			}
 
+			// install the bundles as one transaction, resolve them together
+			// and start them in the order of the file
+			if (!locations.isEmpty()) {
+				final Bundle[] bundles = concierge.provisionBundles(
+						locations.toArray(new String[locations.size()]),
+						toIntArray(startLevels));
+				for (final Integer index : startOrder) {
+					final Bundle bundle = bundles[index.intValue()];
+					// is it a fragment?
+					if (startIfNoFragment.contains(index)
+							&& ((Revision) bundle.adapt(BundleRevision.class))
+									.isFragment()) {
+						continue;
+					}
+					bundle.start();
+				}
+			}
 		} catch (IOException ioe) {
 			ioe.printStackTrace();
 		} finally {
@@ -231,6 +232,14 @@ public class XargsFileLauncher {
 		return concierge;
 	}
 
+	private static int[] toIntArray(final List<Integer> list) {
+		final int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = list.get(i).intValue();
+		}
+		return result;
+	}
+
 	public Map<String, String> getPropertiesFromXargsInputStream(
 			final InputStream inputStream) {
 		final Map<String, String> properties = new HashMap<String, String>();
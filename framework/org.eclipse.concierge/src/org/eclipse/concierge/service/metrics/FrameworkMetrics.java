@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.eclipse.concierge.service.metrics;
+
+/**
+ * Metrics of the framework internals. If enabled through the
+ * <code>org.eclipse.concierge.metrics.enabled</code> property, the framework
+ * registers an instance as a service and as a JMX MBean. All times are in
+ * nanoseconds.
+ */
+public interface FrameworkMetrics {
+
+	/**
+	 * class and resource lookups through the bundle class loaders.
+	 */
+	public static final String FIND_RESOURCE = "classloader.findResource";
+
+	/**
+	 * resolver runs.
+	 */
+	public static final String RESOLVE = "resolver.resolve";
+
+	/**
+	 * service reference lookups.
+	 */
+	public static final String GET_SERVICE_REFERENCES = "registry.getServiceReferences";
+
+	/**
+	 * delivery of service events to the service listeners.
+	 */
+	public static final String NOTIFY_SERVICE_LISTENERS = "events.notifyServiceListeners";
+
+	/**
+	 * bundle activations, including the activator start.
+	 */
+	public static final String ACTIVATE = "bundle.activate";
+
+	/**
+	 * bundle installations.
+	 */
+	public static final String INSTALL = "bundle.install";
+
+	/**
+	 * get the names of all metrics.
+	 * 
+	 * @return the names.
+	 */
+	public String[] getMetricNames();
+
+	/**
+	 * get the number of recorded operations.
+	 * 
+	 * @param metric
+	 *            the metric name.
+	 * @return the count.
+	 * @throws IllegalArgumentException
+	 *             if the metric does not exist.
+	 */
+	public long getCount(String metric);
+
+	/**
+	 * get the accumulated time of the recorded operations.
+	 * 
+	 * @param metric
+	 *            the metric name.
+	 * @return the total time.
+	 * @throws IllegalArgumentException
+	 *             if the metric does not exist.
+	 */
+	public long getTotalTime(String metric);
+
+	/**
+	 * get the mean time of the recorded operations.
+	 * 
+	 * @param metric
+	 *            the metric name.
+	 * @return the mean time or 0 if nothing was recorded.
+	 * @throws IllegalArgumentException
+	 *             if the metric does not exist.
+	 */
+	public double getMeanTime(String metric);
+
+	/**
+	 * get the maximum time of a recorded operation.
+	 * 
+	 * @param metric
+	 *            the metric name.
+	 * @return the maximum time.
+	 * @throws IllegalArgumentException
+	 *             if the metric does not exist.
+	 */
+	public long getMaxTime(String metric);
+
+	/**
+	 * get a percentile of the recorded times. The value is accurate to
+	 * within 12.5%.
+	 * 
+	 * @param metric
+	 *            the metric name.
+	 * @param percentile
+	 *            the percentile, between 0 and 100.
+	 * @return the time at the percentile.
+	 * @throws IllegalArgumentException
+	 *             if the metric does not exist.
+	 */
+	public long getPercentile(String metric, double percentile);
+
+	/**
+	 * reset all metrics.
+	 */
+	public void reset();
+
+}
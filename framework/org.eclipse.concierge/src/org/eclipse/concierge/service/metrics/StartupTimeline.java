@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+
+package org.eclipse.concierge.service.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * The timeline of a framework start. If enabled through the
+ * <code>org.eclipse.concierge.profile.startup</code> property, the framework
+ * records the phases of the start and the install, resolve and activate
+ * spans of the individual bundles until the framework has reached its
+ * beginning start level. The timeline is obtained by adapting the system
+ * bundle to this type. All times are in nanoseconds, relative to the
+ * framework initialization.
+ */
+public interface StartupTimeline {
+
+	/**
+	 * phases of the framework start.
+	 */
+	public static final String PHASE = "phase";
+
+	/**
+	 * installation or restoring of a bundle.
+	 */
+	public static final String INSTALL = "install";
+
+	/**
+	 * resolver runs.
+	 */
+	public static final String RESOLVE = "resolve";
+
+	/**
+	 * bundle activations, including the activator start.
+	 */
+	public static final String ACTIVATE = "activate";
+
+	/**
+	 * loading of a class by a bundle class loader.
+	 */
+	public static final String CLASS_LOADING = "classloading";
+
+	/**
+	 * a span of the timeline.
+	 */
+	public interface Span {
+
+		/**
+		 * get the category of the span.
+		 * 
+		 * @return one of the category constants of {@link StartupTimeline}.
+		 */
+		public String getCategory();
+
+		/**
+		 * get the name of the span, e.g., the phase, the bundle or the class
+		 * name.
+		 * 
+		 * @return the name.
+		 */
+		public String getName();
+
+		/**
+		 * get the id of the bundle the span belongs to.
+		 * 
+		 * @return the bundle id or -1 for framework phases and resolver runs
+		 *         that involve more than one bundle.
+		 */
+		public long getBundleId();
+
+		/**
+		 * get the id of the thread that executed the span.
+		 * 
+		 * @return the thread id.
+		 */
+		public long getThreadId();
+
+		/**
+		 * get the start time of the span.
+		 * 
+		 * @return the start time.
+		 */
+		public long getStartTime();
+
+		/**
+		 * get the duration of the span.
+		 * 
+		 * @return the duration.
+		 */
+		public long getDuration();
+
+	}
+
+	/**
+	 * get the spans recorded so far, ordered by their end time.
+	 * 
+	 * @return the spans.
+	 */
+	public List<Span> getSpans();
+
+	/**
+	 * check if the framework start has completed and the timeline does not
+	 * record further spans.
+	 * 
+	 * @return true if the timeline is complete.
+	 */
+	public boolean isComplete();
+
+	/**
+	 * write the timeline in the Chrome trace event format, which can be
+	 * loaded into <code>chrome://tracing</code> or compatible trace viewers.
+	 * 
+	 * @param writer
+	 *            the writer.
+	 * @throws IOException
+	 *             if writing fails.
+	 */
+	public void writeTrace(Writer writer) throws IOException;
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.util.Dictionary;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.eclipse.concierge.test.util.SyntheticBundleBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+
+/**
+ * Tests the localization of the bundle headers.
+ */
+public class BundleHeadersTest extends AbstractConciergeTestCase {
+
+	private Bundle bundle;
+
+	@Before
+	public void setUp() throws Exception {
+		startFramework();
+		bundle = installBundle(SyntheticBundleBuilder.newBuilder()
+				.bundleSymbolicName("localized")
+				.addManifestHeader(Constants.BUNDLE_NAME, "%name")
+				.addManifestHeader(Constants.BUNDLE_VENDOR, "%vendor")
+				.addManifestHeader(Constants.BUNDLE_DESCRIPTION, "plain")
+				.addFile("OSGI-INF/l10n/bundle.properties",
+						"name=Name\nvendor=Vendor\n")
+				.addFile("OSGI-INF/l10n/bundle_de.properties",
+						"name=Der Name\nvendor=Der Hersteller\n")
+				.addFile("OSGI-INF/l10n/bundle_de_CH.properties",
+						"name=Der Name\n"));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+	}
+
+	@Test
+	public void testLocalizedHeaders() throws Exception {
+		final Dictionary<String, String> de = bundle.getHeaders("de");
+		Assert.assertEquals("Der Name", de.get(Constants.BUNDLE_NAME));
+		Assert.assertEquals("Der Hersteller", de.get(Constants.BUNDLE_VENDOR));
+		Assert.assertEquals("plain", de.get(Constants.BUNDLE_DESCRIPTION));
+
+		final Dictionary<String, String> ch = bundle.getHeaders("de_CH");
+		Assert.assertEquals("Der Name", ch.get(Constants.BUNDLE_NAME));
+		// only the most specific file is used, missing keys fall back to
+		// the key
+		Assert.assertEquals("vendor", ch.get(Constants.BUNDLE_VENDOR));
+
+		// headers are case insensitive
+		Assert.assertEquals("Der Name", de.get("bundle-name"));
+
+		// the empty locale returns the raw values
+		Assert.assertEquals("%name",
+				bundle.getHeaders("").get(Constants.BUNDLE_NAME));
+
+		// the same values are returned again from the cache
+		Assert.assertEquals("Der Name",
+				bundle.getHeaders("de").get(Constants.BUNDLE_NAME));
+		Assert.assertEquals(de.size(), bundle.getHeaders("de").size());
+	}
+
+	@Test
+	public void testModifiedHeadersAreCopies() throws Exception {
+		final Dictionary<String, String> headers = bundle.getHeaders("de");
+		final int size = headers.size();
+
+		Assert.assertEquals("Der Name", headers.put(Constants.BUNDLE_NAME,
+				"changed"));
+		Assert.assertEquals("Der Hersteller",
+				headers.remove(Constants.BUNDLE_VENDOR));
+		Assert.assertNull(headers.put("X-Added", "added"));
+
+		Assert.assertEquals("changed", headers.get(Constants.BUNDLE_NAME));
+		Assert.assertEquals("changed", headers.get("bundle-name"));
+		Assert.assertNull(headers.get(Constants.BUNDLE_VENDOR));
+		Assert.assertEquals("added", headers.get("X-Added"));
+		Assert.assertEquals(size, headers.size());
+
+		// the changes are not visible to other callers
+		final Dictionary<String, String> other = bundle.getHeaders("de");
+		Assert.assertEquals("Der Name", other.get(Constants.BUNDLE_NAME));
+		Assert.assertEquals("Der Hersteller",
+				other.get(Constants.BUNDLE_VENDOR));
+		Assert.assertNull(other.get("X-Added"));
+		Assert.assertEquals(size, other.size());
+		Assert.assertEquals("%name",
+				bundle.getHeaders("").get(Constants.BUNDLE_NAME));
+	}
+
+}
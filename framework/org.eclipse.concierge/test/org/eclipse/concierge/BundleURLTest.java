@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.eclipse.concierge.test.util.SyntheticBundleBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Tests the connections of bundle URLs.
+ */
+public class BundleURLTest extends AbstractConciergeTestCase {
+
+	private File innerJar;
+
+	private Bundle bundle;
+
+	@Before
+	public void setUp() throws Exception {
+		startFramework();
+
+		innerJar = File.createTempFile("inner", ".jar");
+		final JarOutputStream out = new JarOutputStream(
+				new FileOutputStream(innerJar));
+		try {
+			out.putNextEntry(new ZipEntry("inner.txt"));
+			out.write("inner content".getBytes("UTF-8"));
+			out.closeEntry();
+		} finally {
+			out.close();
+		}
+
+		bundle = installBundle(SyntheticBundleBuilder.newBuilder()
+				.bundleSymbolicName("urls")
+				.addManifestHeader("Bundle-ClassPath", ".,inner.jar")
+				.addFile("outer.txt", "outer content")
+				.addFile("inner.jar", innerJar));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+		innerJar.delete();
+	}
+
+	private static String read(final InputStream in) throws Exception {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[1024];
+			int len;
+			while ((len = in.read(buffer)) > -1) {
+				out.write(buffer, 0, len);
+			}
+			return out.toString("UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testEntryConnection() throws Exception {
+		final URL url = bundle.getEntry("outer.txt");
+		Assert.assertEquals("bundle", url.getProtocol());
+
+		final URLConnection connection = url.openConnection();
+		Assert.assertEquals("outer content".length(),
+				connection.getContentLength());
+		Assert.assertEquals("outer content",
+				read(connection.getInputStream()));
+	}
+
+	@Test
+	public void testClassPathEntryConnection() throws Exception {
+		final URL url = bundle.getResource("inner.txt");
+		Assert.assertNotNull(url);
+		Assert.assertEquals("inner.txt", url.getRef());
+
+		final URLConnection connection = url.openConnection();
+		Assert.assertEquals("inner content",
+				read(connection.getInputStream()));
+		Assert.assertEquals("inner content".length(),
+				connection.getContentLength());
+	}
+
+	@Test
+	public void testMissingEntry() throws Exception {
+		final URL entry = bundle.getEntry("outer.txt");
+		final URL url = new URL(entry, "/missing.txt");
+
+		final URLConnection connection = url.openConnection();
+		Assert.assertEquals(-1, connection.getContentLength());
+		try {
+			connection.getInputStream();
+			Assert.fail("missing entry was found");
+		} catch (final FileNotFoundException fnfe) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.eclipse.concierge.test.util.SyntheticBundleBuilder;
+import org.eclipse.concierge.test.util.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.hooks.weaving.WeavingHook;
+import org.osgi.framework.hooks.weaving.WovenClass;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Tests that a failed dynamic import is retried once the situation has
+ * changed: a matching exporter appeared, or weaving added dynamic imports.
+ */
+public class BundlesWithDynamicImportTest extends AbstractConciergeTestCase {
+
+	private static final String PACKAGE = TestUtils.class.getPackage()
+			.getName();
+
+	private static final String EXPORTED_CLASS = TestUtils.class.getName();
+
+	@Before
+	public void setUp() throws Exception {
+		startFramework();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+	}
+
+	private static File classFile(final Class<?> clazz) throws IOException {
+		final InputStream in = clazz.getClassLoader().getResourceAsStream(
+				clazz.getName().replace('.', '/') + ".class");
+		final File file = File.createTempFile("concierge-", ".class");
+		file.deleteOnExit();
+		TestUtils.copyStreamToFile(in, file);
+		return file;
+	}
+
+	private Bundle installExporter() throws Exception {
+		return installBundle(SyntheticBundleBuilder.newBuilder()
+				.bundleSymbolicName("exporter")
+				.addManifestHeader("Export-Package", PACKAGE)
+				.addFile(EXPORTED_CLASS.replace('.', '/') + ".class",
+						classFile(TestUtils.class)));
+	}
+
+	private static void assertLoadFails(final Bundle bundle,
+			final String className) {
+		try {
+			bundle.loadClass(className);
+			Assert.fail(className + " should not be loadable from " + bundle);
+		} catch (final ClassNotFoundException cnfe) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testExporterInstalledAfterMiss() throws Exception {
+		final Bundle importer = installBundle(SyntheticBundleBuilder
+				.newBuilder().bundleSymbolicName("importer")
+				.addManifestHeader("DynamicImport-Package", PACKAGE));
+
+		assertLoadFails(importer, EXPORTED_CLASS);
+		// the miss is remembered
+		assertLoadFails(importer, EXPORTED_CLASS);
+
+		final Bundle exporter = installExporter();
+		Assert.assertTrue(framework.adapt(FrameworkWiring.class)
+				.resolveBundles(Collections.singleton(exporter)));
+
+		final Class<?> clazz = importer.loadClass(EXPORTED_CLASS);
+		Assert.assertSame(exporter.adapt(BundleWiring.class).getClassLoader(),
+				clazz.getClassLoader());
+	}
+
+	@Test
+	public void testMissResetByWovenDynamicImport() throws Exception {
+		final Bundle exporter = installExporter();
+		Assert.assertTrue(framework.adapt(FrameworkWiring.class)
+				.resolveBundles(Collections.singleton(exporter)));
+
+		final Bundle importer = installBundle(SyntheticBundleBuilder
+				.newBuilder().bundleSymbolicName("importer")
+				.addManifestHeader("DynamicImport-Package", "org.example.none")
+				.addFile(Woven.class.getName().replace('.', '/') + ".class",
+						classFile(Woven.class)));
+
+		assertLoadFails(importer, EXPORTED_CLASS);
+
+		final ServiceRegistration<WeavingHook> reg = bundleContext
+				.registerService(WeavingHook.class, new WeavingHook() {
+					public void weave(final WovenClass wovenClass) {
+						if (wovenClass.getBundleWiring()
+								.getBundle() == importer) {
+							wovenClass.getDynamicImports().add(PACKAGE);
+						}
+					}
+				}, null);
+		try {
+			importer.loadClass(Woven.class.getName());
+		} finally {
+			reg.unregister();
+		}
+
+		final Class<?> clazz = importer.loadClass(EXPORTED_CLASS);
+		Assert.assertSame(exporter.adapt(BundleWiring.class).getClassLoader(),
+				clazz.getClassLoader());
+	}
+
+	/**
+	 * a class of the importing bundle that gets woven.
+	 */
+	public static class Woven {
+	}
+
+}
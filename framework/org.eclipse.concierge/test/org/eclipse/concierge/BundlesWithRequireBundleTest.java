@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.eclipse.concierge.test.util.SyntheticBundleBuilder;
+import org.eclipse.concierge.test.util.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Tests the lookup of classes and resources through Require-Bundle wires:
+ * re-export chains, split packages, and wires added to an already resolved
+ * provider.
+ */
+public class BundlesWithRequireBundleTest extends AbstractConciergeTestCase {
+
+	@Before
+	public void setUp() throws Exception {
+		startFramework();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+	}
+
+	private Bundle install(final String bsn, final String[] headers,
+			final String... files) throws Exception {
+		final SyntheticBundleBuilder builder = SyntheticBundleBuilder
+				.newBuilder().bundleSymbolicName(bsn);
+		for (int i = 0; i < headers.length; i += 2) {
+			builder.addManifestHeader(headers[i], headers[i + 1]);
+		}
+		for (final String file : files) {
+			builder.addFile(file, bsn);
+		}
+		return installBundle(builder);
+	}
+
+	private void resolve(final Bundle... bundles) {
+		Assert.assertTrue(framework.adapt(FrameworkWiring.class)
+				.resolveBundles(Arrays.asList(bundles)));
+	}
+
+	private static String read(final URL url) {
+		return url == null ? null : TestUtils.getContentFromUrl(url).trim();
+	}
+
+	private static List<String> readAll(final Enumeration<URL> urls) {
+		final List<String> result = new ArrayList<String>();
+		while (urls != null && urls.hasMoreElements()) {
+			result.add(read(urls.nextElement()));
+		}
+		return result;
+	}
+
+	@Test
+	public void testReexportChain() throws Exception {
+		final Bundle a = install("a",
+				new String[] { "Export-Package", "p.a" }, "p/a/a.txt");
+		final Bundle b = install("b",
+				new String[] { "Require-Bundle", "a;visibility:=reexport",
+						"Export-Package", "p.b" },
+				"p/b/b.txt");
+		final Bundle c = install("c",
+				new String[] { "Require-Bundle", "b;visibility:=reexport" });
+		final Bundle d = install("d",
+				new String[] { "Require-Bundle", "c" });
+		resolve(a, b, c, d);
+
+		Assert.assertEquals("a", read(d.getResource("p/a/a.txt")));
+		Assert.assertEquals("b", read(d.getResource("p/b/b.txt")));
+		Assert.assertEquals(Arrays.asList("a"),
+				readAll(d.getResources("p/a/a.txt")));
+	}
+
+	@Test
+	public void testPrivateRequireIsNotReexported() throws Exception {
+		final Bundle a = install("a",
+				new String[] { "Export-Package", "p.a" }, "p/a/a.txt");
+		final Bundle b = install("b",
+				new String[] { "Require-Bundle", "a", "Export-Package",
+						"p.b" },
+				"p/b/b.txt");
+		final Bundle c = install("c",
+				new String[] { "Require-Bundle", "b" });
+		resolve(a, b, c);
+
+		Assert.assertEquals("a", read(b.getResource("p/a/a.txt")));
+		Assert.assertEquals("b", read(c.getResource("p/b/b.txt")));
+		Assert.assertNull(c.getResource("p/a/a.txt"));
+	}
+
+	@Test
+	public void testSplitPackage() throws Exception {
+		final Bundle a = install("a",
+				new String[] { "Export-Package", "p.split" },
+				"p/split/one.txt", "p/split/common.txt");
+		final Bundle b = install("b",
+				new String[] { "Export-Package", "p.split" },
+				"p/split/two.txt", "p/split/common.txt");
+		final Bundle c = install("c",
+				new String[] { "Require-Bundle", "a,b" });
+		resolve(a, b, c);
+
+		Assert.assertEquals("a", read(c.getResource("p/split/one.txt")));
+		Assert.assertEquals("b", read(c.getResource("p/split/two.txt")));
+		Assert.assertEquals("a", read(c.getResource("p/split/common.txt")));
+		Assert.assertEquals(Arrays.asList("a", "b"),
+				readAll(c.getResources("p/split/common.txt")));
+	}
+
+	@Test
+	public void testSplitPackageThroughReexport() throws Exception {
+		final Bundle a = install("a",
+				new String[] { "Export-Package", "p.split" },
+				"p/split/common.txt");
+		final Bundle b = install("b",
+				new String[] { "Require-Bundle", "a;visibility:=reexport",
+						"Export-Package", "p.split" },
+				"p/split/common.txt");
+		final Bundle c = install("c",
+				new String[] { "Require-Bundle", "b" });
+		resolve(a, b, c);
+
+		// depth first: the re-exported provider comes before the requirer
+		Assert.assertEquals("a", read(c.getResource("p/split/common.txt")));
+		Assert.assertEquals(Arrays.asList("a", "b"),
+				readAll(c.getResources("p/split/common.txt")));
+	}
+
+	@Test
+	public void testProviderRewiredByFragment() throws Exception {
+		final Bundle b = install("b",
+				new String[] { "Export-Package", "p.b" }, "p/b/b.txt");
+		final Bundle c = install("c",
+				new String[] { "Require-Bundle", "b" });
+		resolve(b, c);
+
+		// computes the required packages of c
+		Assert.assertEquals("b", read(c.getResource("p/b/b.txt")));
+		Assert.assertNull(c.getResource("p/f/f.txt"));
+
+		// attaching the fragment to the resolved b adds the host wire to the
+		// existing wiring of b and extends its exports
+		final Bundle f = install("f",
+				new String[] { "Fragment-Host", "b", "Export-Package",
+						"p.f" },
+				"p/f/f.txt");
+		resolve(f);
+
+		Assert.assertEquals("f", read(c.getResource("p/f/f.txt")));
+		Assert.assertEquals("b", read(c.getResource("p/b/b.txt")));
+	}
+
+	@Test
+	public void testReexportedProviderRewiredByFragment() throws Exception {
+		final Bundle a = install("a",
+				new String[] { "Export-Package", "p.a" }, "p/a/a.txt");
+		final Bundle b = install("b",
+				new String[] { "Require-Bundle", "a;visibility:=reexport" });
+		final Bundle c = install("c",
+				new String[] { "Require-Bundle", "b" });
+		resolve(a, b, c);
+
+		Assert.assertEquals("a", read(c.getResource("p/a/a.txt")));
+		Assert.assertNull(c.getResource("p/f/f.txt"));
+
+		final Bundle f = install("f",
+				new String[] { "Fragment-Host", "a", "Export-Package",
+						"p.f" },
+				"p/f/f.txt");
+		resolve(f);
+
+		Assert.assertEquals("f", read(b.getResource("p/f/f.txt")));
+		Assert.assertEquals("f", read(c.getResource("p/f/f.txt")));
+	}
+
+	@Test
+	public void testUnrelatedWiringKeepsRequiredPackages() throws Exception {
+		final Bundle a = install("a",
+				new String[] { "Export-Package", "p.a" }, "p/a/a.txt");
+		final Bundle b = install("b",
+				new String[] { "Require-Bundle", "a" });
+		resolve(a, b);
+		final Map<String, ?> required = getRequiredPackages(b);
+
+		// wirings of other bundles do not invalidate the required packages
+		final Bundle x = install("x",
+				new String[] { "Export-Package", "p.x" }, "p/x/x.txt");
+		final Bundle y = install("y",
+				new String[] { "Require-Bundle", "x" });
+		resolve(x, y);
+		Assert.assertEquals("x", read(y.getResource("p/x/x.txt")));
+		Assert.assertSame(required, getRequiredPackages(b));
+
+		// a new wiring of the provider does
+		final Bundle f = install("f",
+				new String[] { "Fragment-Host", "a", "Export-Package",
+						"p.f" },
+				"p/f/f.txt");
+		resolve(f);
+		Assert.assertNotSame(required, getRequiredPackages(b));
+		Assert.assertTrue(getRequiredPackages(b).containsKey("p.f"));
+	}
+
+	private static Map<String, ?> getRequiredPackages(final Bundle bundle) {
+		return ((BundleImpl) bundle).currentRevision.getRequiredPackages();
+	}
+
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.Version;
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+/**
+ * Tests the version index of the capability registry: the candidates
+ * narrowed by the version clauses of a filter must yield the same matches as
+ * matching the filter against all capabilities.
+ */
+public class CapabilityRegistryTest {
+
+	private static final String PKG = PackageNamespace.PACKAGE_NAMESPACE;
+
+	private static final String VERSION = PackageNamespace.CAPABILITY_VERSION_ATTRIBUTE;
+
+	/**
+	 * records the version ranges requested from the index.
+	 */
+	static final class RecordingRegistry extends Concierge.CapabilityRegistry {
+
+		final List<String> ranges = new ArrayList<String>();
+
+		@Override
+		public List<Capability> getByVersionRange(final String namespace,
+				final String value, final Version low,
+				final boolean lowInclusive, final Version high,
+				final boolean highInclusive) {
+			ranges.add((low == null ? "(" : lowInclusive ? "[" : "(") + low
+					+ "," + high
+					+ (high == null ? ")" : highInclusive ? "]" : ")"));
+			return super.getByVersionRange(namespace, value, low,
+					lowInclusive, high, highInclusive);
+		}
+
+	}
+
+	private RecordingRegistry registry;
+
+	private final List<Capability> all = new ArrayList<Capability>();
+
+	@Before
+	public void setUp() {
+		registry = new RecordingRegistry();
+		for (final String version : new String[] { "0.9", "1.0", "1.0",
+				"1.5", "2.0", "2.5", null }) {
+			add(PKG, "p", VERSION, version);
+			add(PKG, "q", VERSION, version);
+		}
+		for (final String version : new String[] { "1.0", "2.0", "3.0" }) {
+			add(BundleNamespace.BUNDLE_NAMESPACE, "b",
+					BundleNamespace.CAPABILITY_BUNDLE_VERSION_ATTRIBUTE,
+					version);
+		}
+	}
+
+	private void add(final String namespace, final String value,
+			final String versionAttribute, final String version) {
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put(namespace, value);
+		if (version != null) {
+			attributes.put(versionAttribute, new Version(version));
+		}
+		final Capability cap = new TestCapability(namespace, attributes);
+		registry.add(cap);
+		all.add(cap);
+	}
+
+	private List<Capability> assertSameMatches(final String namespace,
+			final String filterStr) throws Exception {
+		final Filter filter = RFC1960Filter.fromString(filterStr);
+		final Map<Capability, Boolean> expected = new IdentityHashMap<Capability, Boolean>();
+		for (final Capability cap : all) {
+			if (namespace.equals(cap.getNamespace())
+					&& filter.matches(cap.getAttributes())) {
+				expected.put(cap, Boolean.TRUE);
+			}
+		}
+
+		final List<Capability> result = RFC1960Filter.filterWithIndex(
+				new TestRequirement(namespace, filterStr), filterStr,
+				registry);
+		final Map<Capability, Boolean> actual = new IdentityHashMap<Capability, Boolean>();
+		for (final Capability cap : result) {
+			actual.put(cap, Boolean.TRUE);
+		}
+		Assert.assertEquals(filterStr, expected.size(), result.size());
+		Assert.assertEquals(filterStr, expected, actual);
+		return result;
+	}
+
+	@Test
+	public void testInclusiveRange() throws Exception {
+		Assert.assertEquals(3, assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(version>=1.0.0)(version<=1.5.0))")
+						.size());
+		Assert.assertEquals(Collections.singletonList("[1.0.0,1.5.0]"),
+				registry.ranges);
+	}
+
+	@Test
+	public void testNegatedRange() throws Exception {
+		// the usual translation of [1.0,2.0)
+		Assert.assertEquals(3, assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(version>=1.0.0)(!(version>=2.0.0)))")
+						.size());
+		Assert.assertEquals(Collections.singletonList("[1.0.0,2.0.0)"),
+				registry.ranges);
+	}
+
+	@Test
+	public void testExclusiveBounds() throws Exception {
+		// negated clauses also match the capability without a version
+		Assert.assertEquals(2, assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(!(version<=1.0.0))(!(version>=2.0.0)))")
+						.size());
+		Assert.assertEquals(Collections.singletonList("(1.0.0,2.0.0)"),
+				registry.ranges);
+	}
+
+	@Test
+	public void testExactVersion() throws Exception {
+		Assert.assertEquals(2, assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(version=1.0.0))").size());
+		Assert.assertEquals(Collections.singletonList("[1.0.0,1.0.0]"),
+				registry.ranges);
+	}
+
+	@Test
+	public void testOpenRange() throws Exception {
+		assertSameMatches(PKG, "(&(osgi.wiring.package=p)(version>=1.5.0))");
+		assertSameMatches(PKG, "(&(osgi.wiring.package=p)(version<=1.0.0))");
+		assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(version>=1.0.0)(version>=2.0.0))");
+		Assert.assertEquals(3, registry.ranges.size());
+	}
+
+	@Test
+	public void testEmptyRange() throws Exception {
+		Assert.assertEquals(0, assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(version>=2.0.0)(version<=1.0.0))")
+						.size());
+		Assert.assertEquals(0, assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(version>=3.0.0))").size());
+	}
+
+	@Test
+	public void testWithoutRange() throws Exception {
+		// all capabilities of the key, including the one without a version
+		Assert.assertEquals(7, assertSameMatches(PKG,
+				"(osgi.wiring.package=p)").size());
+		assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(bundle-symbolic-name=x))");
+		assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(!(bundle-symbolic-name=x)))");
+		Assert.assertEquals(Collections.emptyList(), registry.ranges);
+	}
+
+	@Test
+	public void testUnversionedCapabilities() throws Exception {
+		// the capability without a version is a candidate of every range,
+		// but only matched by filters that do not require a version
+		Assert.assertEquals(1, assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(!(version>=0.0.0)))").size());
+		Assert.assertEquals(Collections.singletonList("(null,0.0.0)"),
+				registry.ranges);
+	}
+
+	@Test
+	public void testDisjunctionIsNotNarrowed() throws Exception {
+		Assert.assertEquals(5, assertSameMatches(PKG,
+				"(|(&(osgi.wiring.package=p)(version>=2.0.0))"
+						+ "(&(osgi.wiring.package=q)(version<=1.0.0)))")
+								.size());
+		assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(|(version<=1.0.0)(version>=2.5.0)))");
+		Assert.assertEquals(Collections.emptyList(), registry.ranges);
+	}
+
+	@Test
+	public void testBundleNamespace() throws Exception {
+		Assert.assertEquals(2, assertSameMatches(
+				BundleNamespace.BUNDLE_NAMESPACE,
+				"(&(osgi.wiring.bundle=b)(bundle-version>=2.0.0))").size());
+		Assert.assertEquals(Collections.singletonList("[2.0.0,null)"),
+				registry.ranges);
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		for (final Capability cap : new ArrayList<Capability>(all)) {
+			if (new Version("1.0").equals(
+					cap.getAttributes().get(VERSION))) {
+				registry.remove(cap);
+				all.remove(cap);
+			}
+		}
+		Assert.assertEquals(1, assertSameMatches(PKG,
+				"(&(osgi.wiring.package=p)(version>=1.0.0)(version<=1.5.0))")
+						.size());
+	}
+
+	private static final class TestCapability implements Capability {
+
+		private final String namespace;
+
+		private final Map<String, Object> attributes;
+
+		TestCapability(final String namespace,
+				final Map<String, Object> attributes) {
+			this.namespace = namespace;
+			this.attributes = attributes;
+		}
+
+		public String getNamespace() {
+			return namespace;
+		}
+
+		public Map<String, String> getDirectives() {
+			return Collections.emptyMap();
+		}
+
+		public Map<String, Object> getAttributes() {
+			return attributes;
+		}
+
+		public Resource getResource() {
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return namespace + attributes;
+		}
+
+	}
+
+	private static final class TestRequirement implements Requirement {
+
+		private final String namespace;
+
+		private final String filter;
+
+		TestRequirement(final String namespace, final String filter) {
+			this.namespace = namespace;
+			this.filter = filter;
+		}
+
+		public String getNamespace() {
+			return namespace;
+		}
+
+		public Map<String, String> getDirectives() {
+			return Collections.singletonMap("filter", filter);
+		}
+
+		public Map<String, Object> getAttributes() {
+			return Collections.emptyMap();
+		}
+
+		public Resource getResource() {
+			return null;
+		}
+
+	}
+
+}
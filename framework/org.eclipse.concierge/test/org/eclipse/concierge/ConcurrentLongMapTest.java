@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.concierge.ConciergeCollections.ConcurrentLongMap;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentLongMapTest {
+
+	private ConcurrentLongMap<String> map;
+
+	@Before
+	public void setUp() throws Exception {
+		map = new ConcurrentLongMap<String>(2);
+	}
+
+	@Test
+	public void testPutGet() {
+		map.put(0, "zero");
+		map.put(1, "one");
+		map.put(Long.MAX_VALUE, "max");
+
+		assertEquals(3, map.size());
+		assertEquals("zero", map.get(0));
+		assertEquals("one", map.get(1));
+		assertEquals("max", map.get(Long.MAX_VALUE));
+		assertNull(map.get(2));
+
+		assertEquals("one", map.put(1, "uno"));
+		assertEquals("uno", map.get(1));
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void testGrowAndRemove() {
+		for (long i = 0; i < 1000; i++) {
+			map.put(i, String.valueOf(i));
+		}
+		assertEquals(1000, map.size());
+
+		for (long i = 0; i < 1000; i += 2) {
+			assertEquals(String.valueOf(i), map.remove(i));
+		}
+		assertEquals(500, map.size());
+		assertNull(map.remove(0));
+
+		for (long i = 0; i < 1000; i++) {
+			if (i % 2 == 0) {
+				assertNull(map.get(i));
+			} else {
+				assertEquals(String.valueOf(i), map.get(i));
+			}
+		}
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(1));
+	}
+
+}
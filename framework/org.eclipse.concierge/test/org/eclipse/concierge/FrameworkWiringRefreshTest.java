@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.eclipse.concierge.test.util.SyntheticBundleBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Tests for <code>FrameworkWiring.refreshBundles</code> running concurrently
+ * with installs and resolves.
+ */
+public class FrameworkWiringRefreshTest extends AbstractConciergeTestCase {
+
+	private FrameworkWiring frameworkWiring;
+
+	private Bundle provider;
+
+	private Bundle consumer;
+
+	@Before
+	public void setUp() throws Exception {
+		startFramework();
+		frameworkWiring = framework.adapt(FrameworkWiring.class);
+
+		provider = installBundle(SyntheticBundleBuilder.newBuilder()
+				.bundleSymbolicName("provider")
+				.addManifestHeader("Export-Package", "p1"));
+		consumer = installBundle(SyntheticBundleBuilder.newBuilder()
+				.bundleSymbolicName("consumer")
+				.addManifestHeader("Import-Package", "p1"));
+		provider.start();
+		consumer.start();
+		assertBundleActive(provider);
+		assertBundleActive(consumer);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+	}
+
+	/**
+	 * Refreshes the provider over and over while other threads install and
+	 * resolve new consumers of the same package.
+	 */
+	@Test
+	public void testRefreshConcurrentWithInstallAndResolve() throws Exception {
+		final int refreshes = 20;
+		final int installers = 4;
+		final int installsPerThread = 10;
+
+		final List<FrameworkEvent> errors = Collections
+				.synchronizedList(new ArrayList<FrameworkEvent>());
+		final CountDownLatch refreshed = new CountDownLatch(refreshes);
+		final FrameworkListener listener = new FrameworkListener() {
+			public void frameworkEvent(final FrameworkEvent event) {
+				if (event.getType() == FrameworkEvent.PACKAGES_REFRESHED) {
+					refreshed.countDown();
+				} else if (event.getType() == FrameworkEvent.ERROR) {
+					errors.add(event);
+				}
+			}
+		};
+
+		final List<Throwable> failures = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		final List<Bundle> installed = Collections
+				.synchronizedList(new ArrayList<Bundle>());
+		final Thread[] threads = new Thread[installers];
+		for (int i = 0; i < installers; i++) {
+			final int thread = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < installsPerThread; j++) {
+							final Bundle b = installBundle(SyntheticBundleBuilder
+									.newBuilder()
+									.bundleSymbolicName(
+											"consumer." + thread + "." + j)
+									.addManifestHeader("Import-Package",
+											"p1"));
+							installed.add(b);
+							if (!frameworkWiring.resolveBundles(
+									Collections.singleton(b))) {
+								throw new AssertionError(
+										"could not resolve " + b);
+							}
+						}
+					} catch (final Throwable t) {
+						failures.add(t);
+					}
+				}
+			};
+		}
+
+		for (int i = 0; i < installers; i++) {
+			threads[i].start();
+		}
+		for (int i = 0; i < refreshes; i++) {
+			frameworkWiring.refreshBundles(Collections.singleton(provider),
+					listener);
+		}
+		for (int i = 0; i < installers; i++) {
+			threads[i].join(30000);
+		}
+
+		Assert.assertTrue("refreshes did not complete",
+				refreshed.await(30, TimeUnit.SECONDS));
+		Assert.assertTrue("failures: " + failures, failures.isEmpty());
+		Assert.assertTrue("errors: " + errors, errors.isEmpty());
+		Assert.assertEquals(installers * installsPerThread, installed.size());
+
+		assertBundleActive(provider);
+		assertBundleActive(consumer);
+		Assert.assertTrue(frameworkWiring.resolveBundles(installed));
+	}
+
+	/**
+	 * A bundle being stopped by a refresh must not block installs and
+	 * resolves of other threads. A bundle resolved against the closure in the
+	 * meantime is refreshed as well.
+	 */
+	@Test
+	public void testInstallWhileRefreshStopsBundle() throws Exception {
+		final List<Throwable> failures = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		final CountDownLatch refreshed = new CountDownLatch(1);
+		final Bundle[] late = new Bundle[1];
+
+		bundleContext.addBundleListener(new SynchronousBundleListener() {
+			public void bundleChanged(final BundleEvent event) {
+				if (event.getBundle() != consumer
+						|| event.getType() != BundleEvent.STOPPING) {
+					return;
+				}
+				final Thread installer = new Thread() {
+					public void run() {
+						try {
+							final Bundle b = installBundle(
+									SyntheticBundleBuilder.newBuilder()
+											.bundleSymbolicName("late")
+											.addManifestHeader(
+													"Import-Package", "p1"));
+							if (!frameworkWiring.resolveBundles(
+									Collections.singleton(b))) {
+								throw new AssertionError(
+										"could not resolve " + b);
+							}
+							late[0] = b;
+						} catch (final Throwable t) {
+							failures.add(t);
+						}
+					}
+				};
+				installer.start();
+				try {
+					installer.join(10000);
+				} catch (final InterruptedException ie) {
+					failures.add(ie);
+				}
+				if (installer.isAlive()) {
+					failures.add(new AssertionError(
+							"install blocked by the refresh"));
+				}
+			}
+		});
+
+		frameworkWiring.refreshBundles(Collections.singleton(provider),
+				new FrameworkListener() {
+					public void frameworkEvent(final FrameworkEvent event) {
+						if (event.getType() == FrameworkEvent.PACKAGES_REFRESHED) {
+							refreshed.countDown();
+						}
+					}
+				});
+
+		Assert.assertTrue(refreshed.await(30, TimeUnit.SECONDS));
+		Assert.assertTrue("failures: " + failures, failures.isEmpty());
+		assertBundleActive(consumer);
+
+		// late was wired to the provider revision that got refreshed
+		Assert.assertNotNull(late[0]);
+		assertCurrentWiring(late[0]);
+		Assert.assertTrue(frameworkWiring
+				.resolveBundles(Collections.singleton(late[0])));
+		assertCurrentWiring(late[0]);
+		Assert.assertSame(provider, late[0].adapt(BundleWiring.class)
+				.getRequiredWires(PackageNamespace.PACKAGE_NAMESPACE).get(0)
+				.getProvider().getBundle());
+		assertCurrentWiring(consumer);
+	}
+
+	/**
+	 * assert that the bundle is either unresolved or wired to current
+	 * wirings only.
+	 */
+	private void assertCurrentWiring(final Bundle bundle) {
+		final BundleWiring wiring = bundle.adapt(BundleWiring.class);
+		if (wiring == null) {
+			assertBundleInstalled(bundle);
+			return;
+		}
+		Assert.assertTrue(wiring.isCurrent());
+		for (final BundleWire wire : wiring.getRequiredWires(null)) {
+			Assert.assertTrue(bundle + " is wired to a stale wiring of "
+					+ wire.getProvider(), wire.getProviderWiring().isCurrent());
+		}
+	}
+
+}
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.eclipse.concierge.test.util.SyntheticBundleBuilder;
+import org.eclipse.concierge.test.util.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.hooks.bundle.CollisionHook;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.framework.wiring.FrameworkWiring;
+import org.osgi.resource.Requirement;
+
+/**
+ * Tests for the bulk installation through
+ * <code>Concierge.installBundles</code> and
+ * <code>Concierge.provisionBundles</code>, and their interaction with single
+ * installs of the same locations.
+ */
+public class InstallBundlesTest extends AbstractConciergeTestCase {
+
+	private final List<FrameworkEvent> errors = Collections
+			.synchronizedList(new ArrayList<FrameworkEvent>());
+
+	private final List<Bundle> installed = Collections
+			.synchronizedList(new ArrayList<Bundle>());
+
+	@Before
+	public void setUp() throws Exception {
+		startFramework();
+		bundleContext.addFrameworkListener(new FrameworkListener() {
+			public void frameworkEvent(final FrameworkEvent event) {
+				if (event.getType() == FrameworkEvent.ERROR) {
+					errors.add(event);
+				}
+			}
+		});
+		bundleContext.addBundleListener(new SynchronousBundleListener() {
+			public void bundleChanged(final BundleEvent event) {
+				if (event.getType() == BundleEvent.INSTALLED) {
+					installed.add(event.getBundle());
+				}
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+	}
+
+	private String createBundle(final String bsn, final String version,
+			final String... headers) {
+		final SyntheticBundleBuilder builder = SyntheticBundleBuilder
+				.newBuilder().bundleSymbolicName(bsn).bundleVersion(version);
+		for (int i = 0; i < headers.length; i += 2) {
+			builder.addManifestHeader(headers[i], headers[i + 1]);
+		}
+		final File file = builder.asFile("./build/tests/" + bsn + "-"
+				+ version + "-" + System.nanoTime() + ".jar");
+		file.deleteOnExit();
+		return file.toURI().toString();
+	}
+
+	private Concierge concierge() {
+		return (Concierge) framework;
+	}
+
+	/**
+	 * the bundles that provide a package to a new importer.
+	 */
+	private List<Bundle> providers(final String pkg) throws Exception {
+		final Bundle importer = bundleContext.installBundle(createBundle(
+				"importer", "1.0.0", "Import-Package", pkg));
+		final Requirement requirement = importer
+				.adapt(BundleRevision.class)
+				.getDeclaredRequirements(PackageNamespace.PACKAGE_NAMESPACE)
+				.get(0);
+		final List<Bundle> result = new ArrayList<Bundle>();
+		for (final BundleCapability cap : framework
+				.adapt(FrameworkWiring.class).findProviders(requirement)) {
+			result.add(cap.getRevision().getBundle());
+		}
+		importer.uninstall();
+		return result;
+	}
+
+	/**
+	 * the fragments attached to a resolved host.
+	 */
+	private static List<BundleRevision> getFragments(final Bundle host) {
+		final List<BundleRevision> result = new ArrayList<BundleRevision>();
+		for (final BundleWire wire : host.adapt(BundleWiring.class)
+				.getProvidedWires(HostNamespace.HOST_NAMESPACE)) {
+			result.add(wire.getRequirer());
+		}
+		return result;
+	}
+
+	@Test
+	public void testInstallBundles() throws Exception {
+		final String a = createBundle("a", "1.0.0");
+		final String b = createBundle("b", "1.0.0");
+
+		final Bundle[] bundles = concierge().installBundles(a, b);
+
+		Assert.assertEquals(2, bundles.length);
+		Assert.assertEquals("a", bundles[0].getSymbolicName());
+		Assert.assertEquals("b", bundles[1].getSymbolicName());
+		Assert.assertEquals(a, bundles[0].getLocation());
+		Assert.assertTrue(
+				bundles[0].getBundleId() < bundles[1].getBundleId());
+		Assert.assertEquals(2, installed.size());
+		Assert.assertTrue(errors.isEmpty());
+	}
+
+	@Test
+	public void testInstallBundlesExistingLocation() throws Exception {
+		final String a = createBundle("a", "1.0.0");
+		final Bundle existing = bundleContext.installBundle(a);
+		installed.clear();
+
+		final Bundle[] bundles = concierge().installBundles(a, a);
+
+		Assert.assertSame(existing, bundles[0]);
+		Assert.assertSame(existing, bundles[1]);
+		Assert.assertTrue(installed.isEmpty());
+		Assert.assertTrue(errors.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentInstallSameLocation() throws Exception {
+		final String location = createBundle("same", "1.0.0");
+		final int threads = 8;
+		final CountDownLatch go = new CountDownLatch(1);
+		final Bundle[] results = new Bundle[threads];
+		final List<Throwable> failures = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+
+		final Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final int n = i;
+			workers[i] = new Thread() {
+				public void run() {
+					try {
+						go.await();
+						if (n % 2 == 0) {
+							results[n] = concierge()
+									.installBundles(location)[0];
+						} else {
+							results[n] = bundleContext.installBundle(location);
+						}
+					} catch (final Throwable t) {
+						failures.add(t);
+					}
+				}
+			};
+			workers[i].start();
+		}
+		go.countDown();
+		for (int i = 0; i < threads; i++) {
+			workers[i].join(10000);
+		}
+
+		Assert.assertTrue("failures: " + failures, failures.isEmpty());
+		Assert.assertTrue("errors: " + errors, errors.isEmpty());
+		for (int i = 0; i < threads; i++) {
+			Assert.assertNotNull(results[i]);
+			Assert.assertSame(results[0], results[i]);
+		}
+		Assert.assertEquals(1, installed.size());
+
+		int count = 0;
+		for (final Bundle b : bundleContext.getBundles()) {
+			if (location.equals(b.getLocation())) {
+				count++;
+			}
+		}
+		Assert.assertEquals(1, count);
+	}
+
+	@Test
+	public void testCollisionWithinBatchRejected() throws Exception {
+		final String first = createBundle("dup", "1.0.0");
+		final String second = createBundle("dup", "1.0.0");
+
+		final Bundle[] bundles = concierge().installBundles(first, second);
+
+		Assert.assertNotNull(bundles[0]);
+		Assert.assertNull(bundles[1]);
+		Assert.assertEquals(1, installed.size());
+		Assert.assertEquals(1, errors.size());
+		Assert.assertNull(bundleContext.getBundle(second));
+	}
+
+	@Test
+	public void testCollisionHookRejection() throws Exception {
+		final String first = createBundle("dup", "1.0.0");
+		final String second = createBundle("dup", "1.0.0");
+		final String third = createBundle("dup", "1.0.0");
+		bundleContext.installBundle(first);
+
+		// a hook that keeps the collisions rejects the install
+		final Set<Integer> operations = new HashSet<Integer>();
+		final ServiceRegistration<CollisionHook> reject = bundleContext
+				.registerService(CollisionHook.class, new CollisionHook() {
+					public void filterCollisions(final int operationType,
+							final Bundle target,
+							final Collection<Bundle> collisionCandidates) {
+						operations.add(Integer.valueOf(operationType));
+					}
+				}, null);
+
+		Bundle[] bundles = concierge().installBundles(second);
+		Assert.assertNull(bundles[0]);
+		Assert.assertEquals(1, errors.size());
+		Assert.assertTrue(
+				operations.contains(Integer.valueOf(CollisionHook.INSTALLING)));
+		reject.unregister();
+
+		// a hook that clears the collisions allows it
+		bundleContext.registerService(CollisionHook.class,
+				new CollisionHook() {
+					public void filterCollisions(final int operationType,
+							final Bundle target,
+							final Collection<Bundle> collisionCandidates) {
+						collisionCandidates.clear();
+					}
+				}, null);
+
+		bundles = concierge().installBundles(third);
+		Assert.assertNotNull(bundles[0]);
+		Assert.assertEquals(third, bundles[0].getLocation());
+		Assert.assertEquals(1, errors.size());
+	}
+
+	@Test
+	public void testFailedStaging() throws Exception {
+		final String a = createBundle("a", "1.0.0");
+		final String missing = new File("./build/tests/does-not-exist.jar")
+				.toURI().toString();
+		final File broken = TestUtils.createFileFromString("not a jar", "jar");
+		final String c = createBundle("c", "1.0.0");
+
+		final Bundle[] bundles = concierge().installBundles(a, missing,
+				broken.toURI().toString(), c);
+
+		Assert.assertNotNull(bundles[0]);
+		Assert.assertNull(bundles[1]);
+		Assert.assertNull(bundles[2]);
+		Assert.assertNotNull(bundles[3]);
+		Assert.assertEquals(2, installed.size());
+		Assert.assertEquals(2, errors.size());
+
+		// the failed locations are not taken and can be installed later
+		Assert.assertNull(bundleContext.getBundle(missing));
+		final String d = createBundle("d", "1.0.0");
+		Assert.assertNotNull(concierge().installBundles(d)[0]);
+		Assert.assertEquals(4, bundleContext.getBundles().length);
+	}
+
+	@Test
+	public void testDiscardedBundlesAreNotPublished() throws Exception {
+		final String exporter = createBundle("exporter", "1.0.0",
+				"Export-Package", "p.exported");
+		final String duplicate = createBundle("exporter", "1.0.0",
+				"Export-Package", "p.exported");
+		final String fragment = createBundle("fragment", "1.0.0",
+				"Fragment-Host", "exporter", "Export-Package", "p.fragment");
+
+		// the second entry of the location and the colliding bundle are
+		// staged but discarded
+		final Bundle[] bundles = concierge().installBundles(exporter,
+				exporter, duplicate, fragment, fragment);
+		Assert.assertSame(bundles[0], bundles[1]);
+		Assert.assertNull(bundles[2]);
+		Assert.assertSame(bundles[3], bundles[4]);
+		Assert.assertEquals(1, errors.size());
+
+		Assert.assertEquals(Collections.singletonList(bundles[0]),
+				providers("p.exported"));
+
+		Assert.assertTrue(framework.adapt(FrameworkWiring.class)
+				.resolveBundles(Collections.singleton(bundles[0])));
+		Assert.assertEquals(
+				Collections.singletonList(bundles[3].adapt(BundleRevision.class)),
+				getFragments(bundles[0]));
+		Assert.assertEquals(Collections.singletonList(bundles[0]),
+				providers("p.fragment"));
+	}
+
+	@Test
+	public void testProvisionBundles() throws Exception {
+		final String a = createBundle("a", "1.0.0");
+		final String b = createBundle("b", "1.0.0");
+		final File unresolvable = SyntheticBundleBuilder.newBuilder()
+				.bundleSymbolicName("c")
+				.addManifestHeader("Import-Package", "org.example.missing")
+				.asFile("./build/tests/c-" + System.nanoTime() + ".jar");
+		unresolvable.deleteOnExit();
+
+		final Bundle[] bundles = concierge().provisionBundles(
+				new String[] { a, b, unresolvable.toURI().toString() },
+				new int[] { 2, 0, 3 });
+
+		Assert.assertEquals(3, bundles.length);
+		Assert.assertEquals(3, installed.size());
+		assertBundleResolved(bundles[0]);
+		assertBundleResolved(bundles[1]);
+		assertBundleInstalled(bundles[2]);
+		Assert.assertEquals(2,
+				bundles[0].adapt(BundleStartLevel.class).getStartLevel());
+		Assert.assertEquals(
+				framework.adapt(FrameworkStartLevel.class)
+						.getInitialBundleStartLevel(),
+				bundles[1].adapt(BundleStartLevel.class).getStartLevel());
+		Assert.assertEquals(3,
+				bundles[2].adapt(BundleStartLevel.class).getStartLevel());
+		Assert.assertTrue(errors.isEmpty());
+	}
+
+	@Test
+	public void testProvisionBundlesStagingFailure() throws Exception {
+		final String a = createBundle("a", "1.0.0", "Export-Package", "p.a");
+		final String missing = new File("./build/tests/does-not-exist.jar")
+				.toURI().toString();
+		final String c = createBundle("c", "1.0.0");
+
+		try {
+			concierge().provisionBundles(new String[] { a, missing, c }, null);
+			Assert.fail("provisioning must fail");
+		} catch (final BundleException be) {
+			// expected
+		}
+
+		// nothing has been committed
+		Assert.assertTrue(installed.isEmpty());
+		Assert.assertTrue(errors.isEmpty());
+		Assert.assertEquals(1, bundleContext.getBundles().length);
+		Assert.assertTrue(providers("p.a").isEmpty());
+		Assert.assertNotNull(concierge().provisionBundles(
+				new String[] { a, c }, null)[1]);
+	}
+
+	@Test
+	public void testProvisionBundlesCommitFailure() throws Exception {
+		final String existing = createBundle("existing", "1.0.0");
+		final Bundle before = bundleContext.installBundle(existing);
+		installed.clear();
+		final List<BundleEvent> events = Collections
+				.synchronizedList(new ArrayList<BundleEvent>());
+		bundleContext.addBundleListener(new SynchronousBundleListener() {
+			public void bundleChanged(final BundleEvent event) {
+				events.add(event);
+			}
+		});
+		final String exporter = createBundle("exporter", "1.0.0",
+				"Export-Package", "p.exported");
+		final String first = createBundle("dup", "1.0.0");
+		final String second = createBundle("dup", "1.0.0");
+
+		try {
+			concierge().provisionBundles(
+					new String[] { existing, exporter, first, second }, null);
+			Assert.fail("provisioning must fail");
+		} catch (final BundleException be) {
+			// expected
+		}
+
+		// the bundles registered by the call have been rolled back before
+		// any event, the one installed before is kept
+		Assert.assertTrue("events: " + events, events.isEmpty());
+		Assert.assertNull(bundleContext.getBundle(exporter));
+		Assert.assertNull(bundleContext.getBundle(first));
+		Assert.assertSame(before, bundleContext.getBundle(existing));
+		Assert.assertEquals(2, bundleContext.getBundles().length);
+		Assert.assertTrue(errors.isEmpty());
+		Assert.assertTrue(providers("p.exported").isEmpty());
+
+		// the locations are free again
+		Assert.assertNotNull(concierge().provisionBundles(
+				new String[] { exporter, first }, null)[1]);
+	}
+
+}
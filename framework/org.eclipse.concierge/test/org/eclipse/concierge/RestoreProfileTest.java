@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.eclipse.concierge.test.util.SyntheticBundleBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Tests the restore of a persisted profile, whose bundles are staged in
+ * parallel and registered in the order of their storage directories.
+ */
+public class RestoreProfileTest extends AbstractConciergeTestCase {
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+	}
+
+	private Bundle install(final String bsn, final String... headers)
+			throws Exception {
+		final SyntheticBundleBuilder builder = SyntheticBundleBuilder
+				.newBuilder().bundleSymbolicName(bsn);
+		for (int i = 0; i < headers.length; i += 2) {
+			builder.addManifestHeader(headers[i], headers[i + 1]);
+		}
+		return installBundle(builder);
+	}
+
+	private void restart() throws Exception {
+		stopFramework();
+		startFrameworkNonClean();
+	}
+
+	private boolean resolve(final Bundle... bundles) {
+		return framework.adapt(FrameworkWiring.class)
+				.resolveBundles(Arrays.asList(bundles));
+	}
+
+	private static List<String> getFragments(final Bundle host) {
+		final List<String> result = new ArrayList<String>();
+		for (final BundleWire wire : host.adapt(BundleWiring.class)
+				.getProvidedWires(HostNamespace.HOST_NAMESPACE)) {
+			result.add(wire.getRequirer().getSymbolicName());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testRestoreBundlesAndFragments() throws Exception {
+		startFramework();
+		final Bundle host = install("host", "Export-Package", "p.host");
+		for (int i = 0; i < 4; i++) {
+			install("fragment" + i, "Fragment-Host", "host",
+					"Export-Package", "p.fragment" + i);
+		}
+		final Bundle importer = install("importer", "Import-Package",
+				"p.host,p.fragment0,p.fragment3");
+		importer.adapt(BundleStartLevel.class).setStartLevel(3);
+		final long hostId = host.getBundleId();
+		final long importerId = importer.getBundleId();
+
+		restart();
+
+		Assert.assertEquals(7, bundleContext.getBundles().length);
+		final Bundle restoredHost = bundleContext.getBundle(hostId);
+		final Bundle restoredImporter = bundleContext.getBundle(importerId);
+		Assert.assertEquals("host", restoredHost.getSymbolicName());
+		Assert.assertEquals(host.getLocation(), restoredHost.getLocation());
+		Assert.assertEquals("importer", restoredImporter.getSymbolicName());
+		Assert.assertEquals(3, restoredImporter
+				.adapt(BundleStartLevel.class).getStartLevel());
+
+		// every restored fragment is known to the resolver exactly once
+		Assert.assertTrue(resolve(restoredImporter));
+		Assert.assertEquals(Arrays.asList("fragment0", "fragment1",
+				"fragment2", "fragment3"), getFragments(restoredHost));
+		for (final BundleWire wire : restoredImporter
+				.adapt(BundleWiring.class).getRequiredWires(null)) {
+			Assert.assertSame(restoredHost, wire.getProvider().getBundle());
+		}
+	}
+
+	@Test
+	public void testFailedStagingIsNotPublished() throws Exception {
+		startFramework();
+		final Bundle exporter = install("exporter", "Export-Package",
+				"p.exporter");
+		final Bundle fragment = install("fragment", "Fragment-Host", "host",
+				"Export-Package", "p.fragment");
+		final long exporterId = exporter.getBundleId();
+		final long fragmentId = fragment.getBundleId();
+
+		// the revisions can still be read, the rest of the metadata is cut off
+		truncateMetadata(exporter);
+		truncateMetadata(fragment);
+
+		restart();
+
+		Assert.assertNull(bundleContext.getBundle(exporterId));
+		Assert.assertNull(bundleContext.getBundle(fragmentId));
+		Assert.assertEquals(1, bundleContext.getBundles().length);
+
+		final Bundle importer = install("importer", "Import-Package",
+				"p.exporter");
+		Assert.assertFalse(resolve(importer));
+		final Bundle host = install("host");
+		Assert.assertTrue(resolve(host));
+		Assert.assertEquals(Collections.emptyList(), getFragments(host));
+	}
+
+	private static void truncateMetadata(final Bundle bundle)
+			throws Exception {
+		final File meta = new File(((BundleImpl) bundle).storageLocation,
+				"meta");
+		final RandomAccessFile file = new RandomAccessFile(meta, "rw");
+		try {
+			// revision number, bundle id, location
+			file.setLength(4 + 8 + 2
+					+ bundle.getLocation().getBytes("UTF-8").length);
+		} finally {
+			file.close();
+		}
+	}
+
+}
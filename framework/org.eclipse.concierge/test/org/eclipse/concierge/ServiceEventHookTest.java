@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.eclipse.concierge.test.util.SyntheticBundleBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.hooks.service.EventListenerHook;
+import org.osgi.framework.hooks.service.ListenerHook.ListenerInfo;
+
+/**
+ * Tests the dispatch of service events through event hooks and event listener
+ * hooks.
+ */
+@SuppressWarnings("deprecation")
+public class ServiceEventHookTest extends AbstractConciergeTestCase {
+
+	private BundleContext contextA;
+
+	private BundleContext contextB;
+
+	private final List<String> received = Collections
+			.synchronizedList(new ArrayList<String>());
+
+	@Before
+	public void setUp() throws Exception {
+		startFramework();
+		contextA = start("a");
+		contextB = start("b");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+	}
+
+	private BundleContext start(final String bsn) throws Exception {
+		final Bundle bundle = installBundle(SyntheticBundleBuilder
+				.newBuilder().bundleSymbolicName(bsn));
+		bundle.start();
+		return bundle.getBundleContext();
+	}
+
+	private ServiceListener listener(final String name) {
+		return new ServiceListener() {
+			public void serviceChanged(final ServiceEvent event) {
+				if (event.getType() == ServiceEvent.REGISTERED) {
+					received.add(name);
+				}
+			}
+		};
+	}
+
+	private ServiceRegistration<String> registerService(final String name) {
+		final Dictionary<String, Object> props = new Hashtable<String, Object>();
+		props.put("name", name);
+		return bundleContext.registerService(String.class, name, props);
+	}
+
+	@Test
+	public void testListenersAreGroupedByBundle() throws Exception {
+		contextA.addServiceListener(listener("a1"));
+		contextB.addServiceListener(listener("b1"));
+		contextA.addServiceListener(listener("a2"), "(name=*)");
+
+		final Map<BundleContext, List<String>> groups = new HashMap<BundleContext, List<String>>();
+		bundleContext.registerService(EventListenerHook.class,
+				new EventListenerHook() {
+					public void event(final ServiceEvent event,
+							final Map<BundleContext, Collection<ListenerInfo>> listeners) {
+						for (final Map.Entry<BundleContext, Collection<ListenerInfo>> e : listeners
+								.entrySet()) {
+							final List<String> filters = new ArrayList<String>();
+							for (final ListenerInfo info : e.getValue()) {
+								Assert.assertSame(e.getKey(),
+										info.getBundleContext());
+								filters.add(String.valueOf(info.getFilter()));
+							}
+							groups.put(e.getKey(), filters);
+						}
+					}
+				}, null);
+
+		registerService("s");
+
+		Assert.assertEquals(Arrays.asList("null", "(name=*)"),
+				groups.get(contextA));
+		Assert.assertEquals(Arrays.asList("null"), groups.get(contextB));
+		Assert.assertEquals(Arrays.asList("a1", "b1", "a2"), received);
+	}
+
+	@Test
+	public void testListenerHookRemovesListeners() throws Exception {
+		contextA.addServiceListener(listener("a1"));
+		contextA.addServiceListener(listener("a2"), "(name=keep)");
+		contextB.addServiceListener(listener("b1"));
+
+		bundleContext.registerService(EventListenerHook.class,
+				new EventListenerHook() {
+					public void event(final ServiceEvent event,
+							final Map<BundleContext, Collection<ListenerInfo>> listeners) {
+						// hide the service from b, and a1 from a
+						listeners.remove(contextB);
+						final Iterator<ListenerInfo> it = listeners
+								.get(contextA).iterator();
+						while (it.hasNext()) {
+							if (it.next().getFilter() == null) {
+								it.remove();
+							}
+						}
+					}
+				}, null);
+
+		registerService("keep");
+		Assert.assertEquals(Arrays.asList("a2"), received);
+
+		// the filter of a retained listener is still applied afterwards
+		received.clear();
+		registerService("drop");
+		Assert.assertEquals(Collections.emptyList(), received);
+	}
+
+	@Test
+	public void testEventHookRemovesContexts() throws Exception {
+		contextA.addServiceListener(listener("a1"));
+		contextB.addServiceListener(listener("b1"), "(name=s)");
+
+		bundleContext.registerService(
+				org.osgi.framework.hooks.service.EventHook.class,
+				new org.osgi.framework.hooks.service.EventHook() {
+					public void event(final ServiceEvent event,
+							final Collection<BundleContext> contexts) {
+						contexts.remove(contextA);
+					}
+				}, null);
+
+		registerService("s");
+		Assert.assertEquals(Arrays.asList("b1"), received);
+
+		received.clear();
+		registerService("t");
+		Assert.assertEquals(Collections.emptyList(), received);
+	}
+
+	@Test
+	public void testHookChangesAreApplied() throws Exception {
+		contextA.addServiceListener(listener("a1"));
+
+		final ServiceRegistration<EventListenerHook> hook = bundleContext
+				.registerService(EventListenerHook.class,
+						new EventListenerHook() {
+							public void event(final ServiceEvent event,
+									final Map<BundleContext, Collection<ListenerInfo>> listeners) {
+								listeners.remove(contextA);
+							}
+						}, null);
+		registerService("s");
+		Assert.assertEquals(Collections.emptyList(), received);
+
+		hook.unregister();
+		registerService("t");
+		Assert.assertEquals(Arrays.asList("a1"), received);
+
+		// a hook registered from within a dispatch is used for the next
+		// event, also when a chain of other hooks has been built already
+		bundleContext.registerService(EventListenerHook.class,
+				new EventListenerHook() {
+					public void event(final ServiceEvent event,
+							final Map<BundleContext, Collection<ListenerInfo>> listeners) {
+						// passive
+					}
+				}, null);
+		registerService("w");
+		received.clear();
+		final ServiceReference<?>[] registered = new ServiceReference<?>[1];
+		contextB.addServiceListener(new ServiceListener() {
+			public void serviceChanged(final ServiceEvent event) {
+				if (registered[0] == null) {
+					registered[0] = bundleContext.registerService(
+							EventListenerHook.class, new EventListenerHook() {
+								public void event(final ServiceEvent ev,
+										final Map<BundleContext, Collection<ListenerInfo>> listeners) {
+									listeners.remove(contextA);
+								}
+							}, null).getReference();
+				}
+			}
+		}, "(name=u)");
+		registerService("u");
+		Assert.assertNotNull(registered[0]);
+		received.clear();
+		registerService("v");
+		Assert.assertEquals(Collections.emptyList(), received);
+	}
+
+}
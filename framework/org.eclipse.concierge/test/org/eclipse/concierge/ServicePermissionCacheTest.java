@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.Permission;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+
+import org.eclipse.concierge.Concierge.ServicePermissionCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServicePermission;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Tests that cached ServicePermission decisions follow grants and
+ * revocations.
+ */
+public class ServicePermissionCacheTest {
+
+	private Policy original;
+
+	private ServicePermissionCache cache;
+
+	@Before
+	public void setUp() {
+		original = Policy.getPolicy();
+		cache = new ServicePermissionCache();
+	}
+
+	@After
+	public void tearDown() {
+		Policy.setPolicy(original);
+	}
+
+	@Test
+	public void testDecisionIsCached() {
+		final TogglePolicy policy = new TogglePolicy(true);
+		Policy.setPolicy(policy);
+
+		Assert.assertTrue(cache.implies("foo", ServicePermission.GET));
+		final int checks = policy.checks;
+		Assert.assertTrue(cache.implies("foo", ServicePermission.GET));
+		Assert.assertEquals(checks, policy.checks);
+	}
+
+	@Test
+	public void testRevokeBySettingPolicy() {
+		Policy.setPolicy(new TogglePolicy(true));
+		Assert.assertTrue(cache.implies("foo", ServicePermission.GET));
+
+		Policy.setPolicy(new TogglePolicy(false));
+		Assert.assertFalse(cache.implies("foo", ServicePermission.GET));
+
+		Policy.setPolicy(new TogglePolicy(true));
+		Assert.assertTrue(cache.implies("foo", ServicePermission.GET));
+	}
+
+	@Test
+	public void testGrantRevokeWithPermissionAdmin() {
+		final TogglePolicy policy = new TogglePolicy(false);
+		Policy.setPolicy(policy);
+		final ServiceReference<?> permissionAdmin = createReference(
+				"org.osgi.service.permissionadmin.PermissionAdmin");
+		cache.serviceChanged(ServiceEvent.REGISTERED, permissionAdmin);
+
+		// the permission state changes without a service event, like
+		// through PermissionAdmin.setPermissions
+		Assert.assertFalse(cache.implies("foo", ServicePermission.GET));
+		policy.grant = true;
+		Assert.assertTrue(cache.implies("foo", ServicePermission.GET));
+		policy.grant = false;
+		Assert.assertFalse(cache.implies("foo", ServicePermission.GET));
+		Assert.assertFalse(cache.implies("foo", ServicePermission.GET));
+
+		cache.serviceChanged(ServiceEvent.UNREGISTERING, permissionAdmin);
+		policy.grant = true;
+		Assert.assertTrue(cache.implies("foo", ServicePermission.GET));
+	}
+
+	@Test
+	public void testGrantRevokeWithConditionalPermissionAdmin() {
+		final TogglePolicy policy = new TogglePolicy(true);
+		Policy.setPolicy(policy);
+		Assert.assertTrue(cache.implies("foo", ServicePermission.REGISTER));
+
+		final ServiceReference<?> cpa = createReference(
+				"org.osgi.service.condpermadmin.ConditionalPermissionAdmin");
+		cache.serviceChanged(ServiceEvent.REGISTERED, cpa);
+
+		// like ConditionalPermissionUpdate.commit
+		policy.grant = false;
+		Assert.assertFalse(cache.implies("foo", ServicePermission.REGISTER));
+		policy.grant = true;
+		Assert.assertTrue(cache.implies("foo", ServicePermission.REGISTER));
+	}
+
+	@Test
+	public void testOtherServicesDoNotFlush() {
+		final TogglePolicy policy = new TogglePolicy(true);
+		Policy.setPolicy(policy);
+		Assert.assertTrue(cache.implies("foo", ServicePermission.GET));
+
+		cache.serviceChanged(ServiceEvent.REGISTERED,
+				createReference("org.example.Foo"));
+		final int checks = policy.checks;
+		Assert.assertTrue(cache.implies("foo", ServicePermission.GET));
+		Assert.assertEquals(checks, policy.checks);
+	}
+
+	private static ServiceReference<?> createReference(final String clazz) {
+		return (ServiceReference<?>) Proxy.newProxyInstance(
+				ServiceReference.class.getClassLoader(),
+				new Class<?>[] { ServiceReference.class },
+				new InvocationHandler() {
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						if ("getProperty".equals(method.getName())
+								&& Constants.OBJECTCLASS.equals(args[0])) {
+							return new String[] { clazz };
+						}
+						return null;
+					}
+				});
+	}
+
+	/**
+	 * a policy that grants or denies all ServicePermissions.
+	 */
+	static final class TogglePolicy extends Policy {
+
+		volatile boolean grant;
+
+		volatile int checks;
+
+		TogglePolicy(final boolean grant) {
+			this.grant = grant;
+		}
+
+		public boolean implies(final ProtectionDomain domain,
+				final Permission permission) {
+			if (permission instanceof ServicePermission) {
+				checks++;
+				return grant;
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Tests the case insensitive service properties and their replacement by
+ * setProperties.
+ */
+public class ServicePropertiesTest extends AbstractConciergeTestCase {
+
+	@Before
+	public void setUp() throws Exception {
+		startFramework();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+	}
+
+	private ServiceRegistration<String> register(
+			final Dictionary<String, Object> props) {
+		return bundleContext.registerService(String.class, "service", props);
+	}
+
+	@Test
+	public void testCaseInsensitiveKeys() throws Exception {
+		final Dictionary<String, Object> props = new Hashtable<String, Object>();
+		props.put("Prop.Name", "value");
+		final ServiceReference<String> ref = register(props).getReference();
+
+		Assert.assertEquals("value", ref.getProperty("Prop.Name"));
+		Assert.assertEquals("value", ref.getProperty("prop.name"));
+		Assert.assertEquals("value", ref.getProperty("PROP.NAME"));
+		Assert.assertNull(ref.getProperty("prop"));
+
+		// the keys keep their original case
+		final List<String> keys = Arrays.asList(ref.getPropertyKeys());
+		Assert.assertTrue(keys.contains("Prop.Name"));
+		Assert.assertFalse(keys.contains("prop.name"));
+
+		// filters match any case variant of the key
+		for (final String filter : new String[] { "(prop.name=value)",
+				"(PROP.NAME=value)", "(Prop.Name=value)" }) {
+			Assert.assertEquals(filter, 1, bundleContext.getServiceReferences(
+					String.class, filter).size());
+		}
+		Assert.assertEquals(0, bundleContext.getServiceReferences(
+				String.class, "(prop.name=other)").size());
+	}
+
+	@Test
+	public void testCaseVariantsAreRejected() throws Exception {
+		final Dictionary<String, Object> props = new Hashtable<String, Object>();
+		props.put("key", "a");
+		props.put("KEY", "b");
+		try {
+			register(props);
+			Assert.fail("case variants were accepted");
+		} catch (final IllegalArgumentException iae) {
+			// expected
+		}
+
+		props.remove("KEY");
+		final ServiceRegistration<String> reg = register(props);
+		final Dictionary<String, Object> update = new Hashtable<String, Object>();
+		update.put("Key", "c");
+		try {
+			reg.setProperties(update);
+			Assert.fail("case variant was accepted");
+		} catch (final IllegalArgumentException iae) {
+			// expected
+		}
+		Assert.assertEquals("a", reg.getReference().getProperty("key"));
+	}
+
+	@Test
+	public void testFrameworkKeysAreKept() throws Exception {
+		final Dictionary<String, Object> props = new Hashtable<String, Object>();
+		props.put("SERVICE.ID", Long.valueOf(-1));
+		props.put("objectclass", "other");
+		final ServiceRegistration<String> reg = register(props);
+		final ServiceReference<String> ref = reg.getReference();
+		final Object id = ref.getProperty(Constants.SERVICE_ID);
+		Assert.assertTrue(((Long) id).longValue() > 0);
+		Assert.assertArrayEquals(new String[] { String.class.getName() },
+				(String[]) ref.getProperty(Constants.OBJECTCLASS));
+
+		final Dictionary<String, Object> update = new Hashtable<String, Object>();
+		update.put(Constants.SERVICE_ID, Long.valueOf(-1));
+		update.put("service.BundleId", Long.valueOf(-1));
+		reg.setProperties(update);
+		Assert.assertEquals(id, ref.getProperty(Constants.SERVICE_ID));
+		Assert.assertEquals(Long.valueOf(0),
+				ref.getProperty(Constants.SERVICE_BUNDLEID));
+	}
+
+	@Test
+	public void testPropertiesAreSnapshots() throws Exception {
+		final Dictionary<String, Object> props = new Hashtable<String, Object>();
+		props.put("name", "x");
+		props.put(Constants.SERVICE_RANKING, Integer.valueOf(1));
+		final ServiceRegistration<String> reg = register(props);
+		final ServiceReference<String> ref = reg.getReference();
+
+		// changing the dictionary after the registration has no effect
+		props.put("name", "y");
+		Assert.assertEquals("x", ref.getProperty("name"));
+
+		final List<String> events = new ArrayList<String>();
+		bundleContext.addServiceListener(new ServiceListener() {
+			public void serviceChanged(final ServiceEvent event) {
+				events.add(event.getType() + " "
+						+ event.getServiceReference().getProperty("name"));
+			}
+		}, "(name=x)");
+
+		final Dictionary<String, Object> update = new Hashtable<String, Object>();
+		update.put("Name", "y");
+		try {
+			reg.setProperties(update);
+			Assert.fail("case variant was accepted");
+		} catch (final IllegalArgumentException iae) {
+			// expected
+		}
+		update.remove("Name");
+		update.put("name", "y");
+		update.put(Constants.SERVICE_RANKING, Integer.valueOf(5));
+		reg.setProperties(update);
+
+		// the listener only matched the previous properties
+		Assert.assertEquals(Arrays.asList(ServiceEvent.MODIFIED_ENDMATCH
+				+ " y"), events);
+		Assert.assertEquals("y", ref.getProperty("NAME"));
+		Assert.assertEquals(Integer.valueOf(5),
+				ref.getProperty(Constants.SERVICE_RANKING));
+		Assert.assertEquals(1, bundleContext.getServiceReferences(
+				String.class, "(&(name=y)(service.ranking=5))").size());
+	}
+
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *******************************************************************************/
+package org.eclipse.concierge;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.concierge.service.metrics.StartupTimeline;
+import org.eclipse.concierge.test.util.AbstractConciergeTestCase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.FrameworkEvent;
+
+/**
+ * Tests the startup timeline, which is only recorded until the framework
+ * start has completed, failed, or the framework is stopped.
+ */
+public class StartupTimelineTest extends AbstractConciergeTestCase {
+
+	private File trace;
+
+	private Map<String, String> launchArgs;
+
+	@Before
+	public void setUp() throws Exception {
+		trace = File.createTempFile("concierge", ".json");
+		trace.delete();
+		launchArgs = new HashMap<String, String>();
+		launchArgs.put("org.osgi.framework.storage.clean", "onFirstInit");
+		launchArgs.put("org.eclipse.concierge.profile.trace",
+				trace.getAbsolutePath());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stopFramework();
+		trace.delete();
+	}
+
+	private static List<String> getPhases(final StartupTimeline timeline) {
+		final List<String> phases = new ArrayList<String>();
+		for (final StartupTimeline.Span span : timeline.getSpans()) {
+			if (StartupTimeline.PHASE.equals(span.getCategory())) {
+				phases.add(span.getName());
+			}
+		}
+		return phases;
+	}
+
+	@Test
+	public void testTimelineCompletesWithStart() throws Exception {
+		startFramework(launchArgs);
+
+		final StartupTimeline timeline = framework
+				.adapt(StartupTimeline.class);
+		Assert.assertTrue(timeline.isComplete());
+		Assert.assertTrue(getPhases(timeline).contains("init"));
+		Assert.assertTrue(getPhases(timeline).contains("start"));
+		Assert.assertNull(((Concierge) framework).timeline);
+		Assert.assertTrue(trace.exists());
+	}
+
+	@Test
+	public void testTimelineDiscardedOnStop() throws Exception {
+		final Concierge concierge = (Concierge) new Factory()
+				.newFramework(launchArgs);
+		concierge.init();
+		Assert.assertNotNull(concierge.timeline);
+
+		concierge.stop();
+		Assert.assertEquals(FrameworkEvent.STOPPED,
+				concierge.waitForStop(10000).getType());
+
+		Assert.assertNull(concierge.timeline);
+		Assert.assertTrue(
+				concierge.adapt(StartupTimeline.class).isComplete());
+		Assert.assertFalse(trace.exists());
+	}
+
+	@Test
+	public void testTimelineDiscardedOnFailedStart() throws Exception {
+		final File file = File.createTempFile("concierge", ".storage");
+		try {
+			// the storage directory cannot be created below a file
+			launchArgs.put("org.eclipse.concierge.storage",
+					new File(file, "storage").getPath());
+			final Concierge concierge = (Concierge) new Factory()
+					.newFramework(launchArgs);
+			try {
+				concierge.start();
+				Assert.fail("start did not fail");
+			} catch (final BundleException be) {
+				// expected
+			}
+
+			Assert.assertNull(concierge.timeline);
+			Assert.assertTrue(
+					concierge.adapt(StartupTimeline.class).isComplete());
+			Assert.assertFalse(trace.exists());
+		} finally {
+			file.delete();
+		}
+	}
+
+}
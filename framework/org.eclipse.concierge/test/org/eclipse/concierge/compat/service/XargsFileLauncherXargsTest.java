@@ -26,6 +26,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
 import org.osgi.framework.startlevel.BundleStartLevel;
 
 /**
@@ -209,6 +210,63 @@ public class XargsFileLauncherXargsTest extends AbstractConciergeTestCase {
 		Assert.assertThat(asBSL(bundles[3]).getStartLevel(), is(3));
 	}
 
+	/** Test that -all installs fragments but does not start them. */
+	@Test
+	public void testAllWithFragment() throws Exception {
+		final String allDir = dir + "/all";
+		new File(allDir).mkdirs();
+		final File host = new SyntheticBundleBuilder()
+				.bundleSymbolicName("host").asFile(allDir + "/host.jar");
+		final File fragment = new SyntheticBundleBuilder()
+				.bundleSymbolicName("fragment")
+				.addManifestHeader("Fragment-Host", "host")
+				.asFile(allDir + "/fragment.jar");
+		try {
+			File f = TestUtils.createFileFromString(
+					"-Dorg.osgi.framework.storage.clean=onFirstInit         \n"
+							+ "-all " + allDir + "    # Comment to align\n",
+					"xargs");
+			framework = Concierge.doMain(new String[] { f.toString() });
+			Bundle[] bundles = framework.getBundleContext().getBundles();
+			Assert.assertThat(bundles.length, is(3));
+			for (int i = 1; i < bundles.length; i++) {
+				if ("fragment".equals(bundles[i].getSymbolicName())) {
+					assertBundleResolved(bundles[i]);
+				} else {
+					assertBundleActive(bundles[i]);
+				}
+			}
+		} finally {
+			fragment.delete();
+			host.delete();
+			new File(allDir).delete();
+		}
+	}
+
+	/** Test that -istart of a fragment fails the launch. */
+	@Test
+	public void testIStartFragmentFails() throws Exception {
+		final File fragment = new SyntheticBundleBuilder()
+				.bundleSymbolicName("fragment")
+				.addManifestHeader("Fragment-Host", "bundleA")
+				.asFile(dir + "/fragment.jar");
+		try {
+			File f = TestUtils.createFileFromString(
+					"-Dorg.osgi.framework.storage.clean=onFirstInit         \n"
+							+ "-Dorg.osgi.framework.storage=" + dir
+							+ "/storage                                     \n"
+							+ "-istart " + fileA.getPath() + "# Comment\n"
+							+ "-istart " + fragment.getPath() + "# Comment\n",
+					"xargs");
+			Concierge.doMain(new String[] { f.toString() });
+			Assert.fail("fragment must not be started");
+		} catch (final BundleException be) {
+			// expected
+		} finally {
+			fragment.delete();
+		}
+	}
+
 	private BundleStartLevel asBSL(Bundle b) {
 		return b.adapt(BundleStartLevel.class);
 	}
@@ -0,0 +1,69 @@
+package org.eclipse.concierge.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Generates the bytes of empty public classes, e.g., to fill bundles for
+ * class loading benchmarks.
+ */
+final class ClassGenerator {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	// Java 5 class file format
+	private static final int MAJOR_VERSION = 49;
+
+	private static final int CONSTANT_UTF8 = 1;
+
+	private static final int CONSTANT_CLASS = 7;
+
+	private static final int ACC_PUBLIC_SUPER = 0x0021;
+
+	private ClassGenerator() {
+	}
+
+	/**
+	 * create a class without members extending java.lang.Object.
+	 * 
+	 * @param className
+	 *            the binary name of the class, e.g., <code>a.b.C</code>.
+	 * @return the class file bytes.
+	 */
+	static byte[] generate(final String className) {
+		try {
+			final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bout);
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(MAJOR_VERSION);
+
+			// constant pool: #1 this name, #2 this, #3 super name, #4 super
+			out.writeShort(5);
+			out.writeByte(CONSTANT_UTF8);
+			out.writeUTF(className.replace('.', '/'));
+			out.writeByte(CONSTANT_CLASS);
+			out.writeShort(1);
+			out.writeByte(CONSTANT_UTF8);
+			out.writeUTF("java/lang/Object");
+			out.writeByte(CONSTANT_CLASS);
+			out.writeShort(3);
+
+			out.writeShort(ACC_PUBLIC_SUPER);
+			out.writeShort(2);
+			out.writeShort(4);
+			// no interfaces, fields, methods, or attributes
+			out.writeShort(0);
+			out.writeShort(0);
+			out.writeShort(0);
+			out.writeShort(0);
+			out.flush();
+			return bout.toByteArray();
+		} catch (final IOException ioe) {
+			// cannot happen with a byte array
+			throw new IllegalStateException(ioe);
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+package org.eclipse.concierge.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Class loading through the bundle class loader.
+ */
+public class ClassLoadingBenchmark {
+
+	private static final String PACKAGE = "org.eclipse.concierge.benchmark.generated";
+
+	static String className(final int i) {
+		return PACKAGE + ".Generated" + i;
+	}
+
+	/**
+	 * a bundle with the given number of generated classes.
+	 */
+	@State(Scope.Benchmark)
+	public static class BundleContent {
+
+		@Param({ "100", "1000" })
+		public int classes;
+
+		byte[] content;
+
+		String[] classNames;
+
+		@Setup(Level.Trial)
+		public void generate() throws IOException {
+			final Manifest mf = new Manifest();
+			final Attributes attrs = mf.getMainAttributes();
+			attrs.put(Attributes.Name.MANIFEST_VERSION, "1");
+			attrs.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+			attrs.putValue(Constants.BUNDLE_SYMBOLICNAME, "benchmark.classes");
+			attrs.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+			attrs.putValue(Constants.EXPORT_PACKAGE, PACKAGE);
+
+			classNames = new String[classes];
+			final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			final JarOutputStream jout = new JarOutputStream(bout, mf);
+			for (int i = 0; i < classes; i++) {
+				classNames[i] = className(i);
+				jout.putNextEntry(new JarEntry(
+						classNames[i].replace('.', '/') + ".class"));
+				jout.write(ClassGenerator.generate(classNames[i]));
+				jout.closeEntry();
+			}
+			jout.close();
+			content = bout.toByteArray();
+		}
+
+	}
+
+	/**
+	 * a freshly installed bundle for every invocation.
+	 */
+	@State(Scope.Thread)
+	public static class FreshBundle {
+
+		Framework framework;
+
+		Bundle bundle;
+
+		@Setup(Level.Invocation)
+		public void install(final BundleContent content) throws Exception {
+			framework = Frameworks.start("classes", true);
+			bundle = framework.getBundleContext().installBundle("classes",
+					new ByteArrayInputStream(content.content));
+			bundle.start();
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() throws Exception {
+			Frameworks.stop(framework);
+		}
+
+	}
+
+	/**
+	 * a bundle where all classes have already been defined.
+	 */
+	@State(Scope.Benchmark)
+	public static class LoadedBundle {
+
+		Framework framework;
+
+		Bundle bundle;
+
+		int next;
+
+		@Setup(Level.Trial)
+		public void install(final BundleContent content) throws Exception {
+			framework = Frameworks.start("loaded", true);
+			bundle = framework.getBundleContext().installBundle("classes",
+					new ByteArrayInputStream(content.content));
+			for (int i = 0; i < content.classNames.length; i++) {
+				bundle.loadClass(content.classNames[i]);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			Frameworks.stop(framework);
+		}
+
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 10)
+	@Measurement(iterations = 20)
+	public void defineClasses(final BundleContent content,
+			final FreshBundle fresh, final Blackhole blackhole)
+					throws ClassNotFoundException {
+		for (int i = 0; i < content.classNames.length; i++) {
+			blackhole.consume(fresh.bundle.loadClass(content.classNames[i]));
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Class<?> loadDefinedClass(final BundleContent content,
+			final LoadedBundle loaded) throws ClassNotFoundException {
+		return loaded.bundle.loadClass(
+				content.classNames[loaded.next++ % content.classNames.length]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Class<?> loadBootDelegatedClass(final LoadedBundle loaded)
+			throws ClassNotFoundException {
+		return loaded.bundle.loadClass("java.lang.String");
+	}
+
+}
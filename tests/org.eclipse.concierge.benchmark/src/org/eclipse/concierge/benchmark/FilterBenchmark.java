@@ -0,0 +1,95 @@
+package org.eclipse.concierge.benchmark;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.concierge.RFC1960Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.osgi.framework.Constants;
+import org.osgi.framework.Filter;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Parsing and matching of LDAP filters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+	@Param({ "(objectClass=java.lang.Runnable)",
+			"(&(objectClass=java.lang.Runnable)(service.ranking>=5)(name=bench*))",
+			"(|(Name=BENCHMARK)(&(version>=1.0.0)(!(vendor=*acme*))))" })
+	public String filter;
+
+	private Filter parsed;
+
+	private Dictionary<String, Object> properties;
+
+	private Framework framework;
+
+	private ServiceRegistration<?> registration;
+
+	private ServiceReference<?> reference;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		parsed = RFC1960Filter.fromString(filter);
+
+		properties = new Hashtable<String, Object>();
+		properties.put(Constants.OBJECTCLASS,
+				new String[] { Runnable.class.getName() });
+		properties.put(Constants.SERVICE_RANKING, Integer.valueOf(10));
+		properties.put("name", "benchmark");
+		properties.put("version", "1.2.3");
+		properties.put("vendor", "Eclipse.org");
+
+		framework = Frameworks.start("filter", true);
+		registration = framework.getBundleContext().registerService(
+				Runnable.class.getName(), new Runnable() {
+					public void run() {
+					}
+				}, properties);
+		reference = registration.getReference();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		registration.unregister();
+		Frameworks.stop(framework);
+	}
+
+	@Benchmark
+	public Filter parse() throws InvalidSyntaxException {
+		return RFC1960Filter.fromString(filter);
+	}
+
+	@Benchmark
+	public boolean matchDictionary() {
+		return parsed.match(properties);
+	}
+
+	@Benchmark
+	public boolean matchCaseSensitive() {
+		return parsed.matchCase(properties);
+	}
+
+	@Benchmark
+	public boolean matchServiceReference() {
+		return parsed.match(reference);
+	}
+
+}
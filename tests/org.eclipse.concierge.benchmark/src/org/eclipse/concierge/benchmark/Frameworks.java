@@ -0,0 +1,68 @@
+package org.eclipse.concierge.benchmark;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.concierge.Factory;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Helper for embedding Concierge instances in the benchmarks.
+ */
+final class Frameworks {
+
+	private static final String STORAGE_BASE = "build" + File.separatorChar
+			+ "storage";
+
+	private Frameworks() {
+	}
+
+	/**
+	 * create and start a framework.
+	 * 
+	 * @param name
+	 *            the name of the storage directory.
+	 * @param clean
+	 *            <code>true</code> if the storage should be cleaned.
+	 * @return the started framework.
+	 * @throws BundleException
+	 *             if the framework cannot be started.
+	 */
+	static Framework start(final String name, final boolean clean)
+			throws BundleException {
+		final Map<String, String> props = new HashMap<String, String>();
+		props.put(Constants.FRAMEWORK_STORAGE, storage(name).getPath());
+		if (clean) {
+			props.put(Constants.FRAMEWORK_STORAGE_CLEAN,
+					Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+		}
+		props.put("org.eclipse.concierge.log.quiet", "true");
+		final Framework framework = new Factory().newFramework(props);
+		framework.init();
+		framework.start();
+		return framework;
+	}
+
+	/**
+	 * stop a framework and wait for the shutdown to complete.
+	 * 
+	 * @param framework
+	 *            the framework, can be <code>null</code>.
+	 * @throws Exception
+	 *             if the framework cannot be stopped.
+	 */
+	static void stop(final Framework framework) throws Exception {
+		if (framework != null) {
+			framework.stop();
+			framework.waitForStop(0);
+		}
+	}
+
+	static File storage(final String name) {
+		return new File(STORAGE_BASE, name);
+	}
+
+}
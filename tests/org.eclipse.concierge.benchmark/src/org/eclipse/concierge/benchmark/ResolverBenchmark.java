@@ -0,0 +1,143 @@
+package org.eclipse.concierge.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.concierge.stresstest.BundleGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Resolving a set of generated bundles with package imports and exports.
+ * Every invocation resolves freshly installed bundles.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@State(Scope.Benchmark)
+public class ResolverBenchmark {
+
+	private static final int NUM_PKGS = 50;
+	private static final int MIN_VERSION_MAJOR = 1;
+	private static final int MAX_VERSION_MAJOR = 20;
+	private static final int MAX_IMPORTS_EXPORTS = 5;
+
+	// fixed seed, all runs resolve the same topology
+	private static final long SEED = 0x5EED;
+
+	@Param({ "100", "1000" })
+	public int bundles;
+
+	private byte[][] contents;
+
+	private Framework framework;
+
+	private BundleContext context;
+
+	private List<Bundle> installed;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		final Random random = new Random(SEED);
+		contents = new byte[bundles][];
+		for (int i = 0; i < bundles; i++) {
+			final BundleGenerator gen = new BundleGenerator("bundle" + i,
+					new Version(1, 0, i));
+
+			final Set<String> imports = new HashSet<String>();
+			final Set<String> exports = new HashSet<String>();
+			final int dirs = random.nextInt(MAX_IMPORTS_EXPORTS);
+			for (int j = 0; j < dirs; j++) {
+				if (random.nextBoolean()) {
+					final Version v1 = new Version(randomMajor(random),
+							random.nextInt(10), random.nextInt(10));
+					final Version v2 = new Version(randomMajor(random),
+							random.nextInt(10), random.nextInt(10));
+					final boolean ordered = v1.compareTo(v2) < 1;
+					gen.addPackageImport(drawPackage(random, imports),
+							new VersionRange('[', ordered ? v1 : v2,
+									ordered ? v2 : v1, ')'));
+				} else {
+					gen.addPackageExport(drawPackage(random, exports),
+							new Version(randomMajor(random) - 1,
+									random.nextInt(10), random.nextInt(10)));
+				}
+			}
+			contents[i] = toBytes(gen.getInputStream());
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void install() throws Exception {
+		framework = Frameworks.start("resolver", true);
+		context = framework.getBundleContext();
+		installed = new ArrayList<Bundle>(bundles);
+		for (int i = 0; i < bundles; i++) {
+			installed.add(context.installBundle("bundle" + i,
+					new ByteArrayInputStream(contents[i])));
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() throws Exception {
+		Frameworks.stop(framework);
+	}
+
+	@Benchmark
+	public boolean resolve() {
+		return framework.adapt(FrameworkWiring.class)
+				.resolveBundles(installed);
+	}
+
+	private static int randomMajor(final Random random) {
+		return MIN_VERSION_MAJOR
+				+ random.nextInt(MAX_VERSION_MAJOR - MIN_VERSION_MAJOR + 1);
+	}
+
+	private static String drawPackage(final Random random,
+			final Set<String> history) {
+		String drawn;
+		do {
+			drawn = "org.eclipse.test.package" + random.nextInt(NUM_PKGS);
+		} while (history.contains(drawn));
+		history.add(drawn);
+		return drawn;
+	}
+
+	private static byte[] toBytes(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[4096];
+		int len;
+		while ((len = in.read(buffer)) > -1) {
+			out.write(buffer, 0, len);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+}
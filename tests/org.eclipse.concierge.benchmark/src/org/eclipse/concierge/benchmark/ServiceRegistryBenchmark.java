@@ -0,0 +1,135 @@
+package org.eclipse.concierge.benchmark;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Service registration, lookup, and event delivery.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ServiceRegistryBenchmark {
+
+	private static final String CLS_NAME = Object.class.getName();
+
+	private static final String OTHER_CLS_NAME = Runnable.class.getName();
+
+	private static final Runnable RUNNABLE = new Runnable() {
+		public void run() {
+		}
+	};
+
+	private static final int KEYS = 100;
+
+	/**
+	 * number of services registered in the registry.
+	 */
+	@Param({ "100", "10000" })
+	public int services;
+
+	/**
+	 * number of service listeners receiving the events.
+	 */
+	@Param({ "10", "1000" })
+	public int listeners;
+
+	private Framework framework;
+
+	private BundleContext context;
+
+	private ServiceRegistration<?> modified;
+
+	private Dictionary<String, Object> modifiedProps;
+
+	private int counter;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		framework = Frameworks.start("services", true);
+		context = framework.getBundleContext();
+
+		for (int i = 0; i < services; i++) {
+			final Dictionary<String, Object> props = new Hashtable<String, Object>();
+			props.put("key", Integer.valueOf(i % KEYS));
+			context.registerService(CLS_NAME, new Object(), props);
+		}
+
+		for (int i = 0; i < listeners; i++) {
+			context.addServiceListener(new ServiceListener() {
+				public void serviceChanged(final ServiceEvent event) {
+					// only measure the dispatch
+				}
+			}, "(objectClass=" + OTHER_CLS_NAME + ")");
+		}
+
+		modifiedProps = new Hashtable<String, Object>();
+		modifiedProps.put("key", Integer.valueOf(0));
+		modified = context.registerService(OTHER_CLS_NAME, RUNNABLE,
+				modifiedProps);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		Frameworks.stop(framework);
+	}
+
+	@Benchmark
+	public void registerUnregister() {
+		context.registerService(CLS_NAME, new Object(), null).unregister();
+	}
+
+	@Benchmark
+	public ServiceReference<?> lookupByClass() {
+		return context.getServiceReference(CLS_NAME);
+	}
+
+	@Benchmark
+	public ServiceReference<?>[] lookupByClassAndFilter()
+			throws InvalidSyntaxException {
+		return context.getServiceReferences(CLS_NAME,
+				"(key=" + counter++ % KEYS + ")");
+	}
+
+	@Benchmark
+	public ServiceReference<?>[] lookupByFilter()
+			throws InvalidSyntaxException {
+		return context.getServiceReferences((String) null,
+				"(&(objectClass=" + CLS_NAME + ")(key=" + counter++ % KEYS
+						+ "))");
+	}
+
+	@Benchmark
+	public void getUngetService(final Blackhole blackhole) {
+		final ServiceReference<?> ref = modified.getReference();
+		blackhole.consume(context.getService(ref));
+		context.ungetService(ref);
+	}
+
+	@Benchmark
+	public void listenerFanOut() {
+		modifiedProps.put("key", Integer.valueOf(counter++ % KEYS));
+		modified.setProperties(modifiedProps);
+	}
+
+}
@@ -0,0 +1,75 @@
+package org.eclipse.concierge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.concierge.stresstest.BundleGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Version;
+import org.osgi.framework.launch.Framework;
+
+/**
+ * Framework startup with an empty storage (cold) and with a storage holding
+ * installed and started bundles (warm).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+	@Param({ "0", "100" })
+	public int bundles;
+
+	private Framework framework;
+
+	@Setup(Level.Trial)
+	public void populate() throws Exception {
+		final Framework populated = Frameworks.start("warm", true);
+		final BundleContext context = populated.getBundleContext();
+		for (int i = 0; i < bundles; i++) {
+			final BundleGenerator gen = new BundleGenerator("bundle" + i,
+					new Version(1, 0, 0));
+			gen.addPackageExport("org.eclipse.test.package" + i);
+			if (i > 0) {
+				gen.addPackageImport("org.eclipse.test.package" + (i - 1));
+			}
+			final Bundle bundle = context.installBundle("bundle" + i,
+					gen.getInputStream());
+			bundle.start();
+		}
+		Frameworks.stop(populated);
+	}
+
+	@TearDown(Level.Invocation)
+	public void stop() throws Exception {
+		Frameworks.stop(framework);
+		framework = null;
+	}
+
+	@Benchmark
+	public Framework coldStart() throws Exception {
+		framework = Frameworks.start("cold", true);
+		return framework;
+	}
+
+	@Benchmark
+	public Framework warmStart() throws Exception {
+		framework = Frameworks.start("warm", false);
+		return framework;
+	}
+
+}